@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.api.ajax;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.json.IJsonArray;
+import com.helger.json.JsonArray;
+import com.helger.json.JsonObject;
+import com.helger.peppol.ui.types.nicename.NiceNameAutocompleteIndex;
+import com.helger.peppol.ui.types.nicename.NiceNameManager;
+import com.helger.photon.ajax.executor.IAjaxExecutor;
+import com.helger.photon.app.PhotonUnifiedResponse;
+import com.helger.web.scope.IRequestWebScopeWithoutResponse;
+
+/**
+ * AJAX executor for the autocompletion of document type and process identifiers based on the nice
+ * names. Parameters are the query text ({@link #PARAM_QUERY}), the optional type ({@link #TYPE_DOCTYPE}
+ * or {@link #TYPE_PROCESS}; both if absent) and the optional maximum number of results.
+ *
+ * @author Philip Helger
+ */
+public final class AjaxExecutorNiceNameAutocomplete implements IAjaxExecutor
+{
+  public static final String PARAM_QUERY = "q";
+  public static final String PARAM_TYPE = "type";
+  public static final String PARAM_MAX = "max";
+
+  public static final String TYPE_DOCTYPE = "doctype";
+  public static final String TYPE_PROCESS = "process";
+
+  public static final int DEFAULT_MAX_RESULTS = 10;
+  public static final int MAX_MAX_RESULTS = 50;
+
+  private static final String JSON_ID = "id";
+  private static final String JSON_NAME = "name";
+  private static final String JSON_TYPE = "type";
+  private static final String JSON_DEPRECATED = "deprecated";
+
+  public void handleAjaxRequest (@NonNull final IRequestWebScopeWithoutResponse aRequestScope,
+                                 @NonNull final PhotonUnifiedResponse aAjaxResponse) throws Exception
+  {
+    final String sQuery = aRequestScope.params ().getAsStringTrimmed (PARAM_QUERY);
+    final String sType = aRequestScope.params ().getAsStringTrimmed (PARAM_TYPE);
+    final int nMax = Math.min (Math.max (aRequestScope.params ().getAsInt (PARAM_MAX, DEFAULT_MAX_RESULTS), 1),
+                               MAX_MAX_RESULTS);
+
+    final boolean bDocTypes = sType == null || TYPE_DOCTYPE.equals (sType);
+    final boolean bProcesses = sType == null || TYPE_PROCESS.equals (sType);
+
+    final IJsonArray aJson = new JsonArray ();
+    if (bDocTypes || bProcesses)
+    {
+      for (final NiceNameAutocompleteIndex.Match aMatch : NiceNameManager.getSnapshot ()
+                                                                         .getAutocompleteIndex ()
+                                                                         .find (sQuery, bDocTypes, bProcesses, nMax))
+        aJson.add (new JsonObject ().add (JSON_ID, aMatch.getID ())
+                                    .add (JSON_NAME, aMatch.getEntry ().getName ())
+                                    .add (JSON_TYPE, aMatch.isDocumentType () ? TYPE_DOCTYPE : TYPE_PROCESS)
+                                    .add (JSON_DEPRECATED, aMatch.getEntry ().getState ().isDeprecated ()));
+    }
+    aAjaxResponse.json (aJson).disableCaching ();
+  }
+}
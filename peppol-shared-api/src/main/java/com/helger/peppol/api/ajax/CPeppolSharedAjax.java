@@ -39,6 +39,10 @@ public final class CPeppolSharedAjax
                                                                                         .executor (new AjaxExecutorDataTablesI18N (PeppolUITypes.LOCALE_EN))
                                                                                         .build ();
 
+  public static final IAjaxFunctionDeclaration NICENAME_AUTOCOMPLETE = AjaxFunctionDeclaration.builder ("nicename-autocomplete")
+                                                                                              .executor (AjaxExecutorNiceNameAutocomplete.class)
+                                                                                              .build ();
+
   public static final Predicate <? super IRequestWebScopeWithoutResponse> FILTER_LOGIN = x -> LoggedInUserManager.getInstance ()
                                                                                                                  .isUserLoggedInInCurrentSession ();
 
@@ -0,0 +1,294 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.api.cache;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.hashcode.HashCodeGenerator;
+import com.helger.base.string.StringHelper;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.httpclient.HttpClientSettings;
+import com.helger.json.serialize.JsonWriterSettings;
+import com.helger.peppol.api.config.PeppolSharedAPIConfig;
+import com.helger.peppol.api.httpclient.SMPHttpClientPool;
+import com.helger.peppol.api.json.JsonStreamWriter;
+import com.helger.peppol.businesscard.generic.PDBusinessCard;
+import com.helger.peppol.ui.types.cache.ExpiringCache;
+import com.helger.peppol.ui.types.smp.SMPQueryParams;
+import com.helger.smpclient.httpclient.SMPHttpClientSettings;
+
+/**
+ * A cache for parsed Business Cards together with their compact and formatted JSON serialization, keyed by SMP
+ * host, participant ID and the HTTP client settings that influence the connection. If the SMP reported that no Business Card exists (HTTP 404), a negative
+ * entry is cached with a shorter time to live.
+ *
+ * @author Philip Helger
+ */
+@ThreadSafe
+public final class BusinessCardCache
+{
+  /**
+   * A single cache entry.
+   *
+   * @author Philip Helger
+   */
+  @Immutable
+  public static final class Entry
+  {
+    private final PDBusinessCard m_aBC;
+    private final String m_sJson;
+    private final String m_sJsonMembers;
+    // Lazily created on first use, as most clients request compact output. Concurrent creation is
+    // harmless as the result is always the same.
+    private volatile String m_sJsonMembersFormatted;
+
+    Entry (@Nullable final PDBusinessCard aBC)
+    {
+      m_aBC = aBC;
+      m_sJson = aBC == null ? null : aBC.getAsJson ().getAsJsonString (JsonWriterSettings.DEFAULT_SETTINGS);
+      // The serialized JSON object always starts with '{' and ends with '}'
+      m_sJsonMembers = m_sJson == null ? null : m_sJson.substring (1, m_sJson.length () - 1);
+    }
+
+    /**
+     * @return <code>true</code> if a Business Card is present, <code>false</code> if this is a
+     *         negative entry.
+     */
+    public boolean isFound ()
+    {
+      return m_aBC != null;
+    }
+
+    /**
+     * @return The parsed Business Card. It is shared between all users of the cache and must not be
+     *         modified. <code>null</code> for negative entries.
+     */
+    @Nullable
+    public PDBusinessCard getBusinessCard ()
+    {
+      return m_aBC;
+    }
+
+    /**
+     * @return The compact JSON representation of the Business Card. <code>null</code> for negative
+     *         entries.
+     */
+    @Nullable
+    public String getJsonString ()
+    {
+      return m_sJson;
+    }
+
+    /**
+     * @return The compact JSON representation of the members of the Business Card object, without
+     *         the enclosing braces. Empty if the object has no members. <code>null</code> for
+     *         negative entries.
+     */
+    @Nullable
+    public String getJsonMembers ()
+    {
+      return m_sJsonMembers;
+    }
+
+    /**
+     * @return The formatted JSON representation of the members of the Business Card object,
+     *         without the enclosing braces, suitable for
+     *         {@link JsonStreamWriter#rawMembers(String)} of a formatted writer. Empty if the
+     *         object has no members. <code>null</code> for negative entries.
+     */
+    @Nullable
+    public String getJsonMembersFormatted ()
+    {
+      if (m_aBC == null)
+        return null;
+      String ret = m_sJsonMembersFormatted;
+      if (ret == null)
+      {
+        ret = JsonStreamWriter.getFormattedMembers (m_aBC.getAsJson ());
+        m_sJsonMembersFormatted = ret;
+      }
+      return ret;
+    }
+  }
+
+  /**
+   * The cache key.
+   *
+   * @author Philip Helger
+   */
+  @Immutable
+  public static final class Key
+  {
+    private final String m_sSMPHost;
+    private final String m_sParticipantID;
+    private final SMPHttpClientPool.Key m_aHttpClientKey;
+
+    Key (@NonNull final String sSMPHost,
+         @NonNull final String sParticipantID,
+         @NonNull final SMPHttpClientPool.Key aHttpClientKey)
+    {
+      m_sSMPHost = sSMPHost;
+      m_sParticipantID = sParticipantID;
+      m_aHttpClientKey = aHttpClientKey;
+    }
+
+    @Override
+    public boolean equals (final Object o)
+    {
+      if (o == this)
+        return true;
+      if (o == null || !getClass ().equals (o.getClass ()))
+        return false;
+      final Key rhs = (Key) o;
+      return m_sSMPHost.equals (rhs.m_sSMPHost) &&
+             m_sParticipantID.equals (rhs.m_sParticipantID) &&
+             m_aHttpClientKey.equals (rhs.m_aHttpClientKey);
+    }
+
+    @Override
+    public int hashCode ()
+    {
+      return new HashCodeGenerator (this).append (m_sSMPHost)
+                                         .append (m_sParticipantID)
+                                         .append (m_aHttpClientKey)
+                                         .getHashCode ();
+    }
+
+    @Override
+    public String toString ()
+    {
+      return new ToStringGenerator (this).append ("SMPHost", m_sSMPHost)
+                                         .append ("ParticipantID", m_sParticipantID)
+                                         .append ("HttpClientKey", m_aHttpClientKey)
+                                         .getToString ();
+    }
+  }
+
+  private static final Entry NOT_FOUND = new Entry (null);
+  private static final ExpiringCache <Key, Entry> CACHE = new ExpiringCache <> ("SMP business card",
+                                                                                   PeppolSharedAPIConfig.getBusinessCardCacheMaxEntries ());
+
+  private BusinessCardCache ()
+  {}
+
+  /**
+   * @return <code>true</code> if the cache is enabled in the configuration.
+   */
+  public static boolean isEnabled ()
+  {
+    return PeppolSharedAPIConfig.isBusinessCardCacheEnabled ();
+  }
+
+  /**
+   * @return The underlying cache, e.g. for accessing the statistics. Never <code>null</code>.
+   */
+  @NonNull
+  public static ExpiringCache <?, ?> getCache ()
+  {
+    return CACHE;
+  }
+
+  /**
+   * Get the cache key for the provided parameters. The HTTP client settings modifier is part of the
+   * key, because it may e.g. change the SSL context or the proxy used to contact the SMP.
+   *
+   * @param aSMPQueryParams
+   *        SMP query parameters. May not be <code>null</code>.
+   * @param aHCSModifier
+   *        Optional HTTP client settings modifier. May be <code>null</code>.
+   * @return The cache key. Never <code>null</code>.
+   */
+  @NonNull
+  public static Key getKey (@NonNull final SMPQueryParams aSMPQueryParams,
+                            @Nullable final Consumer <? super HttpClientSettings> aHCSModifier)
+  {
+    final SMPHttpClientSettings aHCS = new SMPHttpClientSettings ();
+    if (aHCSModifier != null)
+      aHCSModifier.accept (aHCS);
+    return new Key (StringHelper.trimEnd (aSMPQueryParams.getSMPHostURI ().toString (), '/'),
+                    aSMPQueryParams.getParticipantID ().getURIEncoded (),
+                    SMPHttpClientPool.getKey (aHCS, aSMPQueryParams.isTrustAllCertificates ()));
+  }
+
+  /**
+   * Get the cached entry.
+   *
+   * @param aKey
+   *        Cache key as created by {@link #getKey(SMPQueryParams, Consumer)}.
+   * @return <code>null</code> if no such entry is present.
+   */
+  @Nullable
+  public static Entry get (@NonNull final Key aKey)
+  {
+    return CACHE.get (aKey);
+  }
+
+  /**
+   * Create an entry that is not put into the cache, e.g. if the cache is disabled.
+   *
+   * @param aBC
+   *        The parsed Business Card. May not be <code>null</code>.
+   * @return The created entry. Never <code>null</code>.
+   */
+  @NonNull
+  public static Entry createEntry (@NonNull final PDBusinessCard aBC)
+  {
+    return new Entry (aBC);
+  }
+
+  /**
+   * Put a successfully parsed Business Card into the cache.
+   *
+   * @param aKey
+   *        Cache key as created by {@link #getKey(SMPQueryParams, Consumer)}.
+   * @param aBC
+   *        The parsed Business Card. May not be <code>null</code>.
+   * @return The created entry. Never <code>null</code>.
+   */
+  @NonNull
+  public static Entry put (@NonNull final Key aKey, @NonNull final PDBusinessCard aBC)
+  {
+    final Entry ret = new Entry (aBC);
+    CACHE.put (aKey, ret, Duration.ofSeconds (PeppolSharedAPIConfig.getBusinessCardCacheMaxAgeSeconds ()));
+    return ret;
+  }
+
+  /**
+   * Remember that the SMP has no Business Card for the provided key.
+   *
+   * @param aKey
+   *        Cache key as created by {@link #getKey(SMPQueryParams, Consumer)}.
+   */
+  public static void putNotFound (@NonNull final Key aKey)
+  {
+    CACHE.put (aKey, NOT_FOUND, Duration.ofSeconds (PeppolSharedAPIConfig.getBusinessCardCacheNegativeMaxAgeSeconds ()));
+  }
+
+  /**
+   * Remove all cached entries.
+   */
+  public static void clear ()
+  {
+    CACHE.clear ();
+  }
+}
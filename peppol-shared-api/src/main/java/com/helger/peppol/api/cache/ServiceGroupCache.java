@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.api.cache;
+
+import java.time.Duration;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.annotation.style.ReturnsMutableCopy;
+import com.helger.collection.commons.CommonsLinkedHashMap;
+import com.helger.collection.commons.ICommonsOrderedMap;
+import com.helger.peppol.api.config.PeppolSharedAPIConfig;
+import com.helger.peppol.api.httpclient.HttpCacheValidators;
+import com.helger.peppol.ui.types.cache.ExpiringCache;
+import com.helger.peppol.ui.types.smp.SMPQueryParams;
+
+/**
+ * A cache for the parsed service group document type references (as retrieved by
+ * <code>PeppolAPIHelper.retrieveAllDocumentTypes</code>). Entries are fresh for the configured max
+ * age. Stale entries are kept for the configured retention time, so that they can be revalidated
+ * with a conditional request against the SMP.
+ *
+ * @author Philip Helger
+ */
+@ThreadSafe
+public final class ServiceGroupCache
+{
+  /**
+   * A single cache entry.
+   *
+   * @author Philip Helger
+   */
+  @Immutable
+  public static final class Entry
+  {
+    private final ICommonsOrderedMap <String, String> m_aHrefs;
+    private final HttpCacheValidators m_aValidators;
+    private final long m_nFreshUntilNanos;
+
+    Entry (@NonNull final ICommonsOrderedMap <String, String> aHrefs,
+           @Nullable final HttpCacheValidators aValidators,
+           final long nFreshUntilNanos)
+    {
+      m_aHrefs = aHrefs;
+      m_aValidators = aValidators;
+      m_nFreshUntilNanos = nFreshUntilNanos;
+    }
+
+    /**
+     * @return A copy of the cached map from clean URL to original URL. Never <code>null</code>.
+     */
+    @NonNull
+    @ReturnsMutableCopy
+    public ICommonsOrderedMap <String, String> getAllHrefs ()
+    {
+      return m_aHrefs.getClone ();
+    }
+
+    /**
+     * @return The HTTP cache validators of the SMP response. May be <code>null</code>.
+     */
+    @Nullable
+    public HttpCacheValidators getValidators ()
+    {
+      return m_aValidators;
+    }
+
+    /**
+     * @return <code>true</code> if this entry can be used without revalidation.
+     */
+    public boolean isFresh ()
+    {
+      return System.nanoTime () - m_nFreshUntilNanos < 0;
+    }
+  }
+
+  private static final ExpiringCache <String, Entry> CACHE = new ExpiringCache <> ("SMP service group",
+                                                                                   PeppolSharedAPIConfig.getServiceGroupCacheMaxEntries ());
+
+  private ServiceGroupCache ()
+  {}
+
+  /**
+   * @return <code>true</code> if the cache is enabled in the configuration.
+   */
+  public static boolean isEnabled ()
+  {
+    return PeppolSharedAPIConfig.isServiceGroupCacheEnabled ();
+  }
+
+  /**
+   * @return The underlying cache, e.g. for accessing the statistics. Never <code>null</code>.
+   */
+  @NonNull
+  public static ExpiringCache <?, ?> getCache ()
+  {
+    return CACHE;
+  }
+
+  @NonNull
+  public static String getKey (@NonNull final SMPQueryParams aSMPQueryParams,
+                               final boolean bXMLSchemaValidation,
+                               final boolean bVerifySignature)
+  {
+    return aSMPQueryParams.getSMLInfo ().getID () +
+           '|' +
+           aSMPQueryParams.getSMPAPIType ().name () +
+           '|' +
+           aSMPQueryParams.getParticipantID ().getURIEncoded () +
+           '|' +
+           bXMLSchemaValidation +
+           '|' +
+           bVerifySignature;
+  }
+
+  /**
+   * Get the cached entry. Note: the returned entry may be stale.
+   *
+   * @param sKey
+   *        Cache key as created by {@link #getKey(SMPQueryParams, boolean, boolean)}.
+   * @return <code>null</code> if no such entry is present.
+   */
+  @Nullable
+  public static Entry get (@NonNull final String sKey)
+  {
+    return CACHE.get (sKey);
+  }
+
+  /**
+   * Put a new entry into the cache. Service groups with too many entries are not cached.
+   *
+   * @param sKey
+   *        Cache key as created by {@link #getKey(SMPQueryParams, boolean, boolean)}.
+   * @param aHrefs
+   *        The map from clean URL to original URL. May not be <code>null</code>.
+   * @param aValidators
+   *        The HTTP cache validators of the SMP response. May be <code>null</code>.
+   */
+  public static void put (@NonNull final String sKey,
+                          @NonNull final ICommonsOrderedMap <String, String> aHrefs,
+                          @Nullable final HttpCacheValidators aValidators)
+  {
+    if (aHrefs.size () > PeppolSharedAPIConfig.getServiceGroupCacheMaxDocTypes ())
+      return;
+
+    final Duration aMaxAge = Duration.ofSeconds (PeppolSharedAPIConfig.getServiceGroupCacheMaxAgeSeconds ());
+    // Stale entries are kept for revalidation only if validators are present
+    final Duration aTTL = aValidators == null ? aMaxAge : aMaxAge.plusSeconds (PeppolSharedAPIConfig.getServiceGroupCacheRetentionSeconds ());
+    CACHE.put (sKey,
+               new Entry (new CommonsLinkedHashMap <> (aHrefs), aValidators, System.nanoTime () + aMaxAge.toNanos ()),
+               aTTL);
+  }
+
+  /**
+   * Mark the provided (stale) entry as fresh again, after the SMP indicated that it was not
+   * modified.
+   *
+   * @param sKey
+   *        Cache key as created by {@link #getKey(SMPQueryParams, boolean, boolean)}.
+   * @param aEntry
+   *        The entry that was successfully revalidated. May not be <code>null</code>.
+   */
+  public static void markRevalidated (@NonNull final String sKey, @NonNull final Entry aEntry)
+  {
+    put (sKey, aEntry.m_aHrefs, aEntry.m_aValidators);
+  }
+
+  /**
+   * Remove all cached entries.
+   */
+  public static void clear ()
+  {
+    CACHE.clear ();
+  }
+}
@@ -62,4 +62,258 @@ public final class PeppolSharedAPIConfig extends AbstractGlobalSingleton
   {
     return _getConfig ().getAsLong ("rest.limit.requests", -1);
   }
+
+  /**
+   * @return The maximum number of client keys for which the REST API rate limiter keeps state.
+   *         Defaults to 100000.
+   */
+  public static int getRestAPILimitMaxKeys ()
+  {
+    return _getConfig ().getAsInt ("rest.limit.maxkeys", 100_000);
+  }
+
+  /**
+   * @return The number of clients with the highest request volume to track. Defaults to 20.
+   */
+  public static int getRestAPIHeavyHittersCount ()
+  {
+    return _getConfig ().getAsInt ("rest.limit.heavyhitters.count", 20);
+  }
+
+  /**
+   * @return The duration of the window in seconds, in which the clients with the highest request
+   *         volume are tracked. Defaults to 3600.
+   */
+  public static long getRestAPIHeavyHittersWindowSeconds ()
+  {
+    return _getConfig ().getAsLong ("rest.limit.heavyhitters.window.seconds", 3_600);
+  }
+
+  /**
+   * @return <code>true</code> if the clients with the highest request volume should be exposed in
+   *         the metrics. The client keys are only exposed as salted hashes. Defaults to
+   *         <code>false</code>.
+   */
+  public static boolean isRestAPIHeavyHittersMetricsEnabled ()
+  {
+    return _getConfig ().getAsBoolean ("rest.limit.heavyhitters.metrics.enabled", false);
+  }
+
+  /**
+   * @return <code>true</code> if the number of concurrent REST API invocations should be limited per
+   *         endpoint group, <code>false</code> to not limit them.
+   */
+  public static boolean isRestExecutionBulkheadEnabled ()
+  {
+    return _getConfig ().getAsBoolean ("rest.execution.bulkhead.enabled", false);
+  }
+
+  /**
+   * @return The default maximum number of REST API invocations of a single endpoint group that may
+   *         be executed concurrently. Defaults to 64.
+   */
+  public static int getRestExecutionMaxInFlight ()
+  {
+    return _getConfig ().getAsInt ("rest.execution.maxinflight", 64);
+  }
+
+  /**
+   * @param sGroup
+   *        The endpoint group. May not be <code>null</code>.
+   * @return The maximum number of REST API invocations of the provided endpoint group that may be
+   *         executed concurrently. Uses <code>rest.execution.maxinflight.<i>group</i></code> and
+   *         falls back to {@link #getRestExecutionMaxInFlight()}.
+   */
+  public static int getRestExecutionMaxInFlight (@NonNull final String sGroup)
+  {
+    return _getConfig ().getAsInt ("rest.execution.maxinflight." + sGroup, getRestExecutionMaxInFlight ());
+  }
+
+  /**
+   * @return <code>true</code> if JSON responses of the REST API should be formatted by default.
+   *         Clients can always request a specific format via the <code>format</code> parameter.
+   */
+  public static boolean isRestJsonFormattedByDefault ()
+  {
+    return _getConfig ().getAsBoolean ("rest.json.formatted", true);
+  }
+
+  /**
+   * @return The maximum number of participant IDs that may be checked in a single bulk request.
+   *         Defaults to 1000.
+   */
+  public static int getRestBulkMaxParticipants ()
+  {
+    return _getConfig ().getAsInt ("rest.bulk.maxparticipants", 1_000);
+  }
+
+  /**
+   * @return The number of threads shared by all bulk requests. Defaults to 16.
+   */
+  public static int getRestBulkThreads ()
+  {
+    return _getConfig ().getAsInt ("rest.bulk.threads", 16);
+  }
+
+  /**
+   * @return The maximum number of threads a single bulk request may use at the same time. Defaults
+   *         to 4.
+   */
+  public static int getRestBulkThreadsPerRequest ()
+  {
+    return _getConfig ().getAsInt ("rest.bulk.threads.perrequest", 4);
+  }
+
+  /**
+   * @return The maximum number of waiting bulk tasks of all requests. If it is exceeded, new bulk
+   *         requests are rejected. Defaults to 64.
+   */
+  public static int getRestBulkQueueSize ()
+  {
+    return _getConfig ().getAsInt ("rest.bulk.queue.size", 64);
+  }
+
+  /**
+   * @return The maximum number of seconds a single bulk request may take. Defaults to 300.
+   */
+  public static long getRestBulkTimeoutSeconds ()
+  {
+    return _getConfig ().getAsLong ("rest.bulk.timeout.seconds", 300);
+  }
+
+  /**
+   * @return <code>true</code> if SMP and Business Card queries should use the shared HTTP
+   *         connection pool, <code>false</code> to create a new HTTP client per request.
+   */
+  public static boolean isSMPHttpClientPoolEnabled ()
+  {
+    return _getConfig ().getAsBoolean ("smp.httpclient.pool.enabled", true);
+  }
+
+  /**
+   * @return The maximum number of pooled connections per SMP host. Defaults to 10.
+   */
+  public static int getSMPHttpClientPoolMaxPerRoute ()
+  {
+    return _getConfig ().getAsInt ("smp.httpclient.pool.maxperroute", 10);
+  }
+
+  /**
+   * @return The maximum number of pooled connections over all SMP hosts. Defaults to 200.
+   */
+  public static int getSMPHttpClientPoolMaxTotal ()
+  {
+    return _getConfig ().getAsInt ("smp.httpclient.pool.maxtotal", 200);
+  }
+
+  /**
+   * @return The number of seconds after which idle pooled connections are closed. Defaults to
+   *         30.
+   */
+  public static long getSMPHttpClientPoolIdleSeconds ()
+  {
+    return _getConfig ().getAsLong ("smp.httpclient.pool.idle.seconds", 30);
+  }
+
+  /**
+   * @return The connect timeout in milliseconds for pooled connections. Defaults to 5000.
+   */
+  public static long getSMPHttpClientPoolConnectTimeoutMillis ()
+  {
+    return _getConfig ().getAsLong ("smp.httpclient.pool.connect.timeout.ms", 5_000);
+  }
+
+  /**
+   * @return The response timeout in milliseconds for pooled connections. Defaults to 10000.
+   */
+  public static long getSMPHttpClientPoolResponseTimeoutMillis ()
+  {
+    return _getConfig ().getAsLong ("smp.httpclient.pool.response.timeout.ms", 10_000);
+  }
+
+  /**
+   * @return <code>true</code> if identical concurrent SMP queries of the REST API should be
+   *         coalesced into a single query.
+   */
+  public static boolean isSMPRequestCoalescingEnabled ()
+  {
+    return _getConfig ().getAsBoolean ("smp.coalescing.enabled", true);
+  }
+
+  /**
+   * @return <code>true</code> if the parsed service groups used by the document type API should be
+   *         cached.
+   */
+  public static boolean isServiceGroupCacheEnabled ()
+  {
+    return _getConfig ().getAsBoolean ("smp.servicegroup.cache.enabled", true);
+  }
+
+  /**
+   * @return The number of seconds a cached service group is considered fresh. Afterwards it is
+   *         revalidated against the SMP. Defaults to 3600.
+   */
+  public static long getServiceGroupCacheMaxAgeSeconds ()
+  {
+    return _getConfig ().getAsLong ("smp.servicegroup.cache.maxage.seconds", 3_600);
+  }
+
+  /**
+   * @return The number of seconds a stale service group is kept for revalidation. Defaults to
+   *         86400.
+   */
+  public static long getServiceGroupCacheRetentionSeconds ()
+  {
+    return _getConfig ().getAsLong ("smp.servicegroup.cache.retention.seconds", 86_400);
+  }
+
+  /**
+   * @return The maximum number of cached service groups. Defaults to 1000.
+   */
+  public static int getServiceGroupCacheMaxEntries ()
+  {
+    return _getConfig ().getAsInt ("smp.servicegroup.cache.maxentries", 1_000);
+  }
+
+  /**
+   * @return The maximum number of document types of a single service group to be cached. Larger
+   *         service groups are not cached. Defaults to 2000.
+   */
+  public static int getServiceGroupCacheMaxDocTypes ()
+  {
+    return _getConfig ().getAsInt ("smp.servicegroup.cache.maxdoctypes", 2_000);
+  }
+
+  /**
+   * @return <code>true</code> if parsed Business Cards should be cached.
+   */
+  public static boolean isBusinessCardCacheEnabled ()
+  {
+    return _getConfig ().getAsBoolean ("smp.businesscard.cache.enabled", true);
+  }
+
+  /**
+   * @return The number of seconds a Business Card is cached. Defaults to 3600.
+   */
+  public static long getBusinessCardCacheMaxAgeSeconds ()
+  {
+    return _getConfig ().getAsLong ("smp.businesscard.cache.maxage.seconds", 3_600);
+  }
+
+  /**
+   * @return The number of seconds the information that no Business Card exists is cached. Defaults
+   *         to 300.
+   */
+  public static long getBusinessCardCacheNegativeMaxAgeSeconds ()
+  {
+    return _getConfig ().getAsLong ("smp.businesscard.cache.negative.maxage.seconds", 300);
+  }
+
+  /**
+   * @return The maximum number of cached Business Cards. Defaults to 1000.
+   */
+  public static int getBusinessCardCacheMaxEntries ()
+  {
+    return _getConfig ().getAsInt ("smp.businesscard.cache.maxentries", 1_000);
+  }
 }
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.api.httpclient;
+
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpResponse;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.http.CHttpHeader;
+
+/**
+ * The HTTP cache validators (<code>ETag</code> and <code>Last-Modified</code>) of a response, that
+ * can be used for a conditional request later on.
+ *
+ * @author Philip Helger
+ */
+@Immutable
+public final class HttpCacheValidators
+{
+  private final String m_sETag;
+  private final String m_sLastModified;
+
+  private HttpCacheValidators (@Nullable final String sETag, @Nullable final String sLastModified)
+  {
+    m_sETag = sETag;
+    m_sLastModified = sLastModified;
+  }
+
+  @Nullable
+  public String getETag ()
+  {
+    return m_sETag;
+  }
+
+  @Nullable
+  public String getLastModified ()
+  {
+    return m_sLastModified;
+  }
+
+  /**
+   * Make the provided request a conditional request by adding the <code>If-None-Match</code> and
+   * <code>If-Modified-Since</code> headers.
+   *
+   * @param aRequest
+   *        The request to modify. May not be <code>null</code>.
+   */
+  public void applyTo (@NonNull final HttpRequest aRequest)
+  {
+    if (m_sETag != null)
+      aRequest.setHeader (CHttpHeader.IF_NONE_MATCH, m_sETag);
+    if (m_sLastModified != null)
+      aRequest.setHeader (CHttpHeader.IF_MODIFIED_SINCE, m_sLastModified);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).appendIfNotNull ("ETag", m_sETag)
+                                       .appendIfNotNull ("LastModified", m_sLastModified)
+                                       .getToString ();
+  }
+
+  /**
+   * Extract the cache validators from the provided response.
+   *
+   * @param aResponse
+   *        The HTTP response to use. May not be <code>null</code>.
+   * @return <code>null</code> if the response contains neither an <code>ETag</code> nor a
+   *         <code>Last-Modified</code> header.
+   */
+  @Nullable
+  public static HttpCacheValidators createFromResponse (@NonNull final HttpResponse aResponse)
+  {
+    final Header aETag = aResponse.getFirstHeader (CHttpHeader.ETAG);
+    final Header aLastModified = aResponse.getFirstHeader (CHttpHeader.LAST_MODIFIED);
+    if (aETag == null && aLastModified == null)
+      return null;
+    return new HttpCacheValidators (aETag == null ? null : aETag.getValue (),
+                                    aLastModified == null ? null : aLastModified.getValue ());
+  }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.api.httpclient;
+
+import java.io.IOException;
+
+/**
+ * Exception thrown by the pooled SMP clients if a conditional request was answered with "304 Not
+ * Modified". The SMP client wraps it into an SMP client exception, so check the cause chain with
+ * {@link #isContainedIn(Throwable)}.
+ *
+ * @author Philip Helger
+ */
+public class HttpNotModifiedException extends IOException
+{
+  public HttpNotModifiedException (final String sMsg)
+  {
+    super (sMsg);
+  }
+
+  /**
+   * Check if the provided exception is or was caused by a {@link HttpNotModifiedException}.
+   *
+   * @param t
+   *        The exception to check. May be <code>null</code>.
+   * @return <code>true</code> if it is contained in the cause chain.
+   */
+  public static boolean isContainedIn (final Throwable t)
+  {
+    Throwable aCur = t;
+    while (aCur != null)
+    {
+      if (aCur instanceof HttpNotModifiedException)
+        return true;
+      aCur = aCur.getCause ();
+    }
+    return false;
+  }
+}
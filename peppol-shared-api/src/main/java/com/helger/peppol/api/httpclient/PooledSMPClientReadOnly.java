@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.api.httpclient;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.function.Consumer;
+
+import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.io.HttpClientResponseHandler;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.smpclient.peppol.SMPClientReadOnly;
+
+/**
+ * A special Peppol SMP client that uses the shared HTTP client from {@link SMPHttpClientPool} instead of
+ * creating a new HTTP client for each request.
+ *
+ * @author Philip Helger
+ */
+public class PooledSMPClientReadOnly extends SMPClientReadOnly
+{
+  private final boolean m_bTrustAllCertificates;
+  private final Consumer <? super HttpCacheValidators> m_aResponseValidatorsConsumer;
+  private HttpCacheValidators m_aRequestValidators;
+
+  /**
+   * Constructor
+   *
+   * @param aSMPHost
+   *        The base URI of the SMP. May not be <code>null</code>.
+   * @param bTrustAllCertificates
+   *        <code>true</code> if the HTTP client settings use a trust all SSL context.
+   */
+  public PooledSMPClientReadOnly (@NonNull final URI aSMPHost, final boolean bTrustAllCertificates)
+  {
+    this (aSMPHost, bTrustAllCertificates, null);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param aSMPHost
+   *        The base URI of the SMP. May not be <code>null</code>.
+   * @param bTrustAllCertificates
+   *        <code>true</code> if the HTTP client settings use a trust all SSL context.
+   * @param aResponseValidatorsConsumer
+   *        Optional consumer that is invoked with the HTTP cache validators of each response
+   *        received by this client. The validators may be <code>null</code>.
+   */
+  public PooledSMPClientReadOnly (@NonNull final URI aSMPHost,
+                                  final boolean bTrustAllCertificates,
+                                  @Nullable final Consumer <? super HttpCacheValidators> aResponseValidatorsConsumer)
+  {
+    super (aSMPHost);
+    m_bTrustAllCertificates = bTrustAllCertificates;
+    m_aResponseValidatorsConsumer = aResponseValidatorsConsumer;
+  }
+
+  /**
+   * @return The cache validators used for conditional requests. May be <code>null</code>.
+   */
+  @Nullable
+  public final HttpCacheValidators getRequestValidators ()
+  {
+    return m_aRequestValidators;
+  }
+
+  /**
+   * Make all requests of this client conditional requests. If the SMP answers with "304 Not
+   * Modified", the request fails with a {@link HttpNotModifiedException} as the cause.
+   *
+   * @param aRequestValidators
+   *        The cache validators of a previous response. May be <code>null</code> to send
+   *        unconditional requests.
+   */
+  public final void setRequestValidators (@Nullable final HttpCacheValidators aRequestValidators)
+  {
+    m_aRequestValidators = aRequestValidators;
+  }
+
+  @Override
+  public <T> T executeRequest (@NonNull final HttpUriRequestBase aRequest,
+                               @NonNull final HttpClientResponseHandler <T> aResponseHandler) throws IOException
+  {
+    final HttpCacheValidators aRequestValidators = m_aRequestValidators;
+    if (m_aResponseValidatorsConsumer == null && aRequestValidators == null)
+      return SMPHttpClientPool.execute (httpClientSettings (), m_bTrustAllCertificates, aRequest, aResponseHandler);
+
+    if (aRequestValidators != null)
+      aRequestValidators.applyTo (aRequest);
+    return SMPHttpClientPool.execute (httpClientSettings (), m_bTrustAllCertificates, aRequest, aResponse -> {
+      if (aRequestValidators != null && aResponse.getCode () == HttpStatus.SC_NOT_MODIFIED)
+      {
+        EntityUtils.consume (aResponse.getEntity ());
+        throw new HttpNotModifiedException ("Not modified: " + aRequest.getRequestUri ());
+      }
+      if (m_aResponseValidatorsConsumer != null)
+        m_aResponseValidatorsConsumer.accept (HttpCacheValidators.createFromResponse (aResponse));
+      return aResponseHandler.handleResponse (aResponse);
+    });
+  }
+}
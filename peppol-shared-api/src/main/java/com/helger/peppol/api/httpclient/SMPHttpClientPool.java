@@ -0,0 +1,426 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.api.httpclient;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLContext;
+
+import org.apache.hc.client5.http.DnsResolver;
+import org.apache.hc.client5.http.auth.AuthScope;
+import org.apache.hc.client5.http.auth.Credentials;
+import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.auth.BasicCredentialsProvider;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.impl.routing.DefaultProxyRoutePlanner;
+import org.apache.hc.client5.http.ssl.SSLConnectionSocketFactory;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.io.HttpClientResponseHandler;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.ssl.SSLContexts;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.annotation.concurrent.GuardedBy;
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.concurrent.SimpleReadWriteLock;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.equals.EqualsHelper;
+import com.helger.base.hashcode.HashCodeGenerator;
+import com.helger.base.io.stream.StreamHelper;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.collection.commons.CommonsHashMap;
+import com.helger.collection.commons.CommonsHashSet;
+import com.helger.collection.commons.ICommonsMap;
+import com.helger.collection.commons.ICommonsSet;
+import com.helger.http.tls.ITLSConfigurationMode;
+import com.helger.httpclient.HttpClientRetryStrategy;
+import com.helger.httpclient.HttpClientSettings;
+import com.helger.peppol.api.config.PeppolSharedAPIConfig;
+
+/**
+ * A JVM wide pool of HTTP clients used for SMP and Business Card queries. Each pooled client owns
+ * a connection manager that keeps persistent connections per SMP host (route), so that repeated
+ * queries to the same SMP reuse TCP connections and TLS sessions instead of performing a new
+ * handshake every time.<br>
+ * Clients are keyed by all settings that are bound to a client: user agent, redirect handling,
+ * certificate trust mode, SSL context, TLS configuration mode, hostname verifier, proxy, non-proxy
+ * hosts, retries, DNS resolver and connect timeout. Objects like the SSL context or the proxy
+ * credentials are compared by identity. The response and connection request timeouts are applied
+ * per request. Callers using a custom SSL context should reuse the same instance, because each
+ * instance results in a separate client. If more than {@link #MAX_CLIENTS} different clients would
+ * be needed, a temporary client is used for the request.
+ *
+ * @author Philip Helger
+ */
+@ThreadSafe
+public final class SMPHttpClientPool
+{
+  /** The maximum number of pooled clients */
+  public static final int MAX_CLIENTS = 32;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger (SMPHttpClientPool.class);
+
+  /**
+   * The key of all settings that are bound to a pooled HTTP client. Objects without a reliable
+   * value equality are compared by identity, so that two different instances never share a client.
+   *
+   * @author Philip Helger
+   */
+  @Immutable
+  public static final class Key
+  {
+    private final String m_sUserAgent;
+    private final boolean m_bFollowRedirects;
+    private final boolean m_bTrustAllCertificates;
+    private final SSLContext m_aSSLContext;
+    private final ITLSConfigurationMode m_aTLSConfigurationMode;
+    private final Object m_aHostnameVerifier;
+    private final HttpHost m_aProxyHost;
+    private final Credentials m_aProxyCredentials;
+    private final ICommonsSet <String> m_aNonProxyHosts;
+    private final int m_nRetryCount;
+    private final Duration m_aRetryInterval;
+    private final boolean m_bRetryAlways;
+    private final DnsResolver m_aDnsResolver;
+    private final long m_nConnectTimeoutMillis;
+
+    Key (@NonNull final HttpClientSettings aHCS, final boolean bTrustAllCertificates)
+    {
+      m_sUserAgent = aHCS.getUserAgent ();
+      m_bFollowRedirects = aHCS.isFollowRedirects ();
+      m_bTrustAllCertificates = bTrustAllCertificates;
+      // A trust all SSL context is created anew each time, so the instance doesn't matter
+      m_aSSLContext = bTrustAllCertificates ? null : aHCS.getSSLContext ();
+      m_aTLSConfigurationMode = aHCS.getTLSConfigurationMode ();
+      // The same applies to the hostname verifier that is set together with it
+      m_aHostnameVerifier = bTrustAllCertificates && aHCS.getHostnameVerifier () != null ? aHCS.getHostnameVerifier ()
+                                                                                               .getClass ()
+                                                                                             : aHCS.getHostnameVerifier ();
+      m_aProxyHost = aHCS.getProxyHost ();
+      m_aProxyCredentials = m_aProxyHost == null ? null : aHCS.getProxyCredentials ();
+      m_aNonProxyHosts = m_aProxyHost == null ? new CommonsHashSet <> () : new CommonsHashSet <> (aHCS.nonProxyHosts ());
+      m_nRetryCount = aHCS.getRetryCount ();
+      m_aRetryInterval = aHCS.getRetryInterval ();
+      m_bRetryAlways = aHCS.isRetryAlways ();
+      m_aDnsResolver = aHCS.getDnsResolver ();
+      m_nConnectTimeoutMillis = _getConnectTimeout (aHCS).toMilliseconds ();
+    }
+
+    @Override
+    public boolean equals (final Object o)
+    {
+      if (o == this)
+        return true;
+      if (o == null || !getClass ().equals (o.getClass ()))
+        return false;
+      final Key rhs = (Key) o;
+      // Identity comparison on purpose for the SSL context, TLS mode, hostname verifier,
+      // credentials and DNS resolver
+      return EqualsHelper.equals (m_sUserAgent, rhs.m_sUserAgent) &&
+             m_bFollowRedirects == rhs.m_bFollowRedirects &&
+             m_bTrustAllCertificates == rhs.m_bTrustAllCertificates &&
+             m_aSSLContext == rhs.m_aSSLContext &&
+             m_aTLSConfigurationMode == rhs.m_aTLSConfigurationMode &&
+             m_aHostnameVerifier == rhs.m_aHostnameVerifier &&
+             EqualsHelper.equals (m_aProxyHost, rhs.m_aProxyHost) &&
+             m_aProxyCredentials == rhs.m_aProxyCredentials &&
+             m_aNonProxyHosts.equals (rhs.m_aNonProxyHosts) &&
+             m_nRetryCount == rhs.m_nRetryCount &&
+             EqualsHelper.equals (m_aRetryInterval, rhs.m_aRetryInterval) &&
+             m_bRetryAlways == rhs.m_bRetryAlways &&
+             m_aDnsResolver == rhs.m_aDnsResolver &&
+             m_nConnectTimeoutMillis == rhs.m_nConnectTimeoutMillis;
+    }
+
+    @Override
+    public int hashCode ()
+    {
+      // Collisions of the identity hash codes are resolved by equals
+      return new HashCodeGenerator (this).append (m_sUserAgent)
+                                         .append (m_bFollowRedirects)
+                                         .append (m_bTrustAllCertificates)
+                                         .append (System.identityHashCode (m_aSSLContext))
+                                         .append (System.identityHashCode (m_aTLSConfigurationMode))
+                                         .append (System.identityHashCode (m_aHostnameVerifier))
+                                         .append (m_aProxyHost)
+                                         .append (System.identityHashCode (m_aProxyCredentials))
+                                         .append (m_aNonProxyHosts)
+                                         .append (m_nRetryCount)
+                                         .append (m_aRetryInterval)
+                                         .append (m_bRetryAlways)
+                                         .append (System.identityHashCode (m_aDnsResolver))
+                                         .append (m_nConnectTimeoutMillis)
+                                         .getHashCode ();
+    }
+
+    @Override
+    public String toString ()
+    {
+      // No credentials
+      return new ToStringGenerator (this).append ("UserAgent", m_sUserAgent)
+                                         .append ("FollowRedirects", m_bFollowRedirects)
+                                         .append ("TrustAllCertificates", m_bTrustAllCertificates)
+                                         .append ("CustomSSLContext", m_aSSLContext != null)
+                                         .append ("ProxyHost", m_aProxyHost)
+                                         .append ("NonProxyHosts", m_aNonProxyHosts)
+                                         .append ("RetryCount", m_nRetryCount)
+                                         .append ("ConnectTimeoutMillis", m_nConnectTimeoutMillis)
+                                         .getToString ();
+    }
+  }
+
+  private static final SimpleReadWriteLock RW_LOCK = new SimpleReadWriteLock ();
+  @GuardedBy ("RW_LOCK")
+  private static final ICommonsMap <Key, CloseableHttpClient> CLIENTS = new CommonsHashMap <> ();
+
+  private SMPHttpClientPool ()
+  {}
+
+  /**
+   * @return <code>true</code> if the pool is enabled in the configuration.
+   */
+  public static boolean isEnabled ()
+  {
+    return PeppolSharedAPIConfig.isSMPHttpClientPoolEnabled ();
+  }
+
+  /**
+   * Get the key of all settings that are bound to a pooled HTTP client. Settings that are applied
+   * per request (like the response timeout) are not part of the key.
+   *
+   * @param aHCS
+   *        The HTTP client settings to use. May not be <code>null</code>.
+   * @param bTrustAllCertificates
+   *        <code>true</code> if the settings use a trust all SSL context.
+   * @return The key and never <code>null</code>.
+   */
+  @NonNull
+  public static Key getKey (@NonNull final HttpClientSettings aHCS, final boolean bTrustAllCertificates)
+  {
+    ValueEnforcer.notNull (aHCS, "HCS");
+    return new Key (aHCS, bTrustAllCertificates);
+  }
+
+  @NonNull
+  private static Timeout _getConnectTimeout (@NonNull final HttpClientSettings aHCS)
+  {
+    final Timeout ret = aHCS.getConnectTimeout ();
+    return ret != null ? ret : Timeout.ofMilliseconds (PeppolSharedAPIConfig.getSMPHttpClientPoolConnectTimeoutMillis ());
+  }
+
+  @NonNull
+  private static RequestConfig _getRequestConfig (@NonNull final HttpClientSettings aHCS)
+  {
+    final Timeout aConnectionRequestTimeout = aHCS.getConnectionRequestTimeout ();
+    final Timeout aResponseTimeout = aHCS.getResponseTimeout ();
+    return RequestConfig.custom ()
+                        .setConnectionRequestTimeout (aConnectionRequestTimeout != null ? aConnectionRequestTimeout
+                                                                                        : Timeout.ofMilliseconds (PeppolSharedAPIConfig.getSMPHttpClientPoolConnectTimeoutMillis ()))
+                        .setResponseTimeout (aResponseTimeout != null ? aResponseTimeout
+                                                                      : Timeout.ofMilliseconds (PeppolSharedAPIConfig.getSMPHttpClientPoolResponseTimeoutMillis ()))
+                        .build ();
+  }
+
+  @NonNull
+  private static CloseableHttpClient _createHttpClient (@NonNull final HttpClientSettings aHCS)
+  {
+    SSLContext aSSLContext = aHCS.getSSLContext ();
+    if (aSSLContext == null)
+      aSSLContext = SSLContexts.createSystemDefault ();
+
+    final ConnectionConfig aConnectionConfig = ConnectionConfig.custom ()
+                                                               .setConnectTimeout (_getConnectTimeout (aHCS))
+                                                               .setSocketTimeout (Timeout.ofMilliseconds (PeppolSharedAPIConfig.getSMPHttpClientPoolResponseTimeoutMillis ()))
+                                                               .setValidateAfterInactivity (TimeValue.ofSeconds (2))
+                                                               .build ();
+    final ITLSConfigurationMode aTLSMode = aHCS.getTLSConfigurationMode ();
+    // Reusing the same SSLContext for all connections enables TLS session
+    // resumption
+    final PoolingHttpClientConnectionManager aConnMgr = PoolingHttpClientConnectionManagerBuilder.create ()
+                                                                                                 .setSSLSocketFactory (new SSLConnectionSocketFactory (aSSLContext,
+                                                                                                                                                       aTLSMode == null ? null
+                                                                                                                                                                        : aTLSMode.getAllTLSVersionIDsAsArray (),
+                                                                                                                                                       aTLSMode == null ? null
+                                                                                                                                                                        : aTLSMode.getAllCipherSuitesAsArray (),
+                                                                                                                                                       aHCS.getHostnameVerifier ()))
+                                                                                                 .setDnsResolver (aHCS.getDnsResolver ())
+                                                                                                 .setMaxConnPerRoute (PeppolSharedAPIConfig.getSMPHttpClientPoolMaxPerRoute ())
+                                                                                                 .setMaxConnTotal (PeppolSharedAPIConfig.getSMPHttpClientPoolMaxTotal ())
+                                                                                                 .setDefaultConnectionConfig (aConnectionConfig)
+                                                                                                 .build ();
+
+    final HttpClientBuilder aBuilder = HttpClients.custom ()
+                                                  .setConnectionManager (aConnMgr)
+                                                  .setDefaultRequestConfig (_getRequestConfig (aHCS))
+                                                  .useSystemProperties ()
+                                                  .evictExpiredConnections ()
+                                                  .evictIdleConnections (TimeValue.of (PeppolSharedAPIConfig.getSMPHttpClientPoolIdleSeconds (),
+                                                                                       TimeUnit.SECONDS));
+    if (aHCS.getUserAgent () != null)
+      aBuilder.setUserAgent (aHCS.getUserAgent ());
+    if (!aHCS.isFollowRedirects ())
+      aBuilder.disableRedirectHandling ();
+    // The same retry handling as for unpooled clients
+    if (aHCS.getRetryCount () > 0)
+      aBuilder.setRetryStrategy (new HttpClientRetryStrategy (aHCS.getRetryCount (),
+                                                              TimeValue.of (aHCS.getRetryInterval ()),
+                                                              aHCS.isRetryAlways ()));
+    else
+      aBuilder.disableAutomaticRetries ();
+    final HttpHost aProxy = aHCS.getProxyHost ();
+    if (aProxy != null)
+    {
+      final ICommonsSet <String> aNonProxyHosts = new CommonsHashSet <> (aHCS.nonProxyHosts ());
+      if (aNonProxyHosts.isEmpty ())
+        aBuilder.setProxy (aProxy);
+      else
+        aBuilder.setRoutePlanner (new DefaultProxyRoutePlanner (aProxy)
+        {
+          @Override
+          protected HttpHost determineProxy (final HttpHost aTarget, final HttpContext aContext) throws HttpException
+          {
+            // Direct connection for the non-proxy hosts
+            if (aNonProxyHosts.contains (aTarget.getHostName ()))
+              return null;
+            return super.determineProxy (aTarget, aContext);
+          }
+        });
+      if (aHCS.getProxyCredentials () != null)
+      {
+        final BasicCredentialsProvider aCredentialsProvider = new BasicCredentialsProvider ();
+        aCredentialsProvider.setCredentials (new AuthScope (aProxy), aHCS.getProxyCredentials ());
+        aBuilder.setDefaultCredentialsProvider (aCredentialsProvider);
+      }
+    }
+    return aBuilder.build ();
+  }
+
+  /**
+   * Get the shared HTTP client for the provided settings. The client must not be closed by the
+   * caller.
+   *
+   * @param aHCS
+   *        The HTTP client settings to use. May not be <code>null</code>.
+   * @param bTrustAllCertificates
+   *        <code>true</code> if the settings use a trust all SSL context.
+   * @return <code>null</code> if the maximum number of pooled clients is reached.
+   */
+  @Nullable
+  static CloseableHttpClient getPooledHttpClient (@NonNull final HttpClientSettings aHCS,
+                                                  final boolean bTrustAllCertificates)
+  {
+    final Key aKey = getKey (aHCS, bTrustAllCertificates);
+    final CloseableHttpClient ret = RW_LOCK.readLockedGet ( () -> CLIENTS.get (aKey));
+    if (ret != null)
+      return ret;
+
+    return RW_LOCK.writeLockedGet ( () -> {
+      CloseableHttpClient aClient = CLIENTS.get (aKey);
+      if (aClient == null)
+      {
+        if (CLIENTS.size () >= MAX_CLIENTS)
+        {
+          LOGGER.warn ("The maximum number of " + MAX_CLIENTS + " pooled SMP HTTP clients is reached");
+          return null;
+        }
+        if (LOGGER.isDebugEnabled ())
+          LOGGER.debug ("Creating new pooled SMP HTTP client for key " + aKey);
+        aClient = _createHttpClient (aHCS);
+        CLIENTS.put (aKey, aClient);
+      }
+      return aClient;
+    });
+  }
+
+  /**
+   * @return The number of pooled clients.
+   */
+  static int getPoolSize ()
+  {
+    return RW_LOCK.readLockedGet (CLIENTS::size).intValue ();
+  }
+
+  /**
+   * Execute the provided request with the shared HTTP client matching the provided settings. The
+   * response and connection request timeouts of the settings are applied to the request.
+   *
+   * @param <T>
+   *        Response type
+   * @param aHCS
+   *        The HTTP client settings to use. May not be <code>null</code>.
+   * @param bTrustAllCertificates
+   *        <code>true</code> if the settings use a trust all SSL context.
+   * @param aRequest
+   *        The request to execute. May not be <code>null</code>.
+   * @param aResponseHandler
+   *        The response handler to use. May not be <code>null</code>.
+   * @return The result of the response handler.
+   * @throws IOException
+   *         On error
+   */
+  @Nullable
+  public static <T> T execute (@NonNull final HttpClientSettings aHCS,
+                               final boolean bTrustAllCertificates,
+                               @NonNull final HttpUriRequestBase aRequest,
+                               @NonNull final HttpClientResponseHandler <T> aResponseHandler) throws IOException
+  {
+    ValueEnforcer.notNull (aHCS, "HCS");
+    ValueEnforcer.notNull (aRequest, "Request");
+    ValueEnforcer.notNull (aResponseHandler, "ResponseHandler");
+
+    if (aRequest.getConfig () == null)
+      aRequest.setConfig (_getRequestConfig (aHCS));
+
+    final CloseableHttpClient aPooled = getPooledHttpClient (aHCS, bTrustAllCertificates);
+    if (aPooled != null)
+      return aPooled.execute (aRequest, aResponseHandler);
+
+    // Pool is full - use a temporary client
+    try (final CloseableHttpClient aTemp = _createHttpClient (aHCS))
+    {
+      return aTemp.execute (aRequest, aResponseHandler);
+    }
+  }
+
+  /**
+   * Close all pooled HTTP clients. Should be called upon application shutdown.
+   */
+  public static void cleanupOnShutdown ()
+  {
+    RW_LOCK.writeLocked ( () -> {
+      for (final CloseableHttpClient aClient : CLIENTS.values ())
+        StreamHelper.close (aClient);
+      CLIENTS.clear ();
+    });
+    LOGGER.info ("Closed all pooled SMP HTTP clients");
+  }
+}
@@ -0,0 +1,378 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.api.json;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Map;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.concurrent.NotThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.json.IJson;
+import com.helger.json.IJsonArray;
+import com.helger.json.IJsonObject;
+import com.helger.json.serialize.JsonWriterSettings;
+
+/**
+ * A minimal forward-only JSON writer that emits directly to a {@link Writer}. In contrast to
+ * building an {@link IJsonObject} tree first, no intermediate copies of the data are created.
+ * Existing JSON trees can be embedded via {@link #json(IJson)}.<br>
+ * I/O errors are wrapped into {@link UncheckedIOException}s.
+ *
+ * @author Philip Helger
+ */
+@NotThreadSafe
+public final class JsonStreamWriter
+{
+  private static final int MAX_DEPTH = 64;
+
+  private final Writer m_aWriter;
+  private final boolean m_bFormatted;
+  // Per nesting level: has the current container at least one element?
+  private final boolean [] m_aHasElements = new boolean [MAX_DEPTH];
+  private int m_nDepth = 0;
+  // Set after a name was written, so that the next value needs no separator
+  private boolean m_bAfterName = false;
+
+  /**
+   * Constructor
+   *
+   * @param aWriter
+   *        The writer to write to. May not be <code>null</code>. It is not closed by this class.
+   * @param bFormatted
+   *        <code>true</code> to create indented output, <code>false</code> for compact output.
+   */
+  public JsonStreamWriter (@NonNull final Writer aWriter, final boolean bFormatted)
+  {
+    ValueEnforcer.notNull (aWriter, "Writer");
+    m_aWriter = aWriter;
+    m_bFormatted = bFormatted;
+  }
+
+  private void _write (@NonNull final String s)
+  {
+    try
+    {
+      m_aWriter.write (s);
+    }
+    catch (final IOException ex)
+    {
+      throw new UncheckedIOException (ex);
+    }
+  }
+
+  private void _write (final char c)
+  {
+    try
+    {
+      m_aWriter.write (c);
+    }
+    catch (final IOException ex)
+    {
+      throw new UncheckedIOException (ex);
+    }
+  }
+
+  private void _newLineAndIndent ()
+  {
+    if (m_bFormatted)
+    {
+      _write ('\n');
+      for (int i = 0; i < m_nDepth; ++i)
+        _write ("  ");
+    }
+  }
+
+  private void _beforeValue ()
+  {
+    if (m_bAfterName)
+    {
+      m_bAfterName = false;
+      return;
+    }
+    if (m_nDepth > 0)
+    {
+      if (m_aHasElements[m_nDepth - 1])
+        _write (',');
+      m_aHasElements[m_nDepth - 1] = true;
+      _newLineAndIndent ();
+    }
+  }
+
+  private void _writeString (@NonNull final String s)
+  {
+    _write ('"');
+    final int nLen = s.length ();
+    for (int i = 0; i < nLen; ++i)
+    {
+      final char c = s.charAt (i);
+      switch (c)
+      {
+        case '"':
+          _write ("\\\"");
+          break;
+        case '\\':
+          _write ("\\\\");
+          break;
+        case '\n':
+          _write ("\\n");
+          break;
+        case '\r':
+          _write ("\\r");
+          break;
+        case '\t':
+          _write ("\\t");
+          break;
+        case '\b':
+          _write ("\\b");
+          break;
+        case '\f':
+          _write ("\\f");
+          break;
+        default:
+          if (c < 0x20)
+            _write (String.format ("\\u%04x", Integer.valueOf (c)));
+          else
+            _write (c);
+      }
+    }
+    _write ('"');
+  }
+
+  private void _begin (final char c)
+  {
+    _beforeValue ();
+    if (m_nDepth >= MAX_DEPTH)
+      throw new IllegalStateException ("JSON nesting is too deep");
+    _write (c);
+    m_aHasElements[m_nDepth] = false;
+    m_nDepth++;
+  }
+
+  private void _end (final char c)
+  {
+    if (m_nDepth == 0)
+      throw new IllegalStateException ("No open JSON container");
+    m_nDepth--;
+    if (m_aHasElements[m_nDepth])
+      _newLineAndIndent ();
+    _write (c);
+  }
+
+  @NonNull
+  public JsonStreamWriter beginObject ()
+  {
+    _begin ('{');
+    return this;
+  }
+
+  @NonNull
+  public JsonStreamWriter endObject ()
+  {
+    _end ('}');
+    return this;
+  }
+
+  @NonNull
+  public JsonStreamWriter beginArray ()
+  {
+    _begin ('[');
+    return this;
+  }
+
+  @NonNull
+  public JsonStreamWriter endArray ()
+  {
+    _end (']');
+    return this;
+  }
+
+  /**
+   * Write the name of the next object member. Must be followed by exactly one value or container.
+   *
+   * @param sName
+   *        The member name. May not be <code>null</code>.
+   * @return this for chaining
+   */
+  @NonNull
+  public JsonStreamWriter name (@NonNull final String sName)
+  {
+    ValueEnforcer.notNull (sName, "Name");
+    _beforeValue ();
+    _writeString (sName);
+    _write (m_bFormatted ? " : " : ":");
+    m_bAfterName = true;
+    return this;
+  }
+
+  @NonNull
+  public JsonStreamWriter value (@Nullable final String sValue)
+  {
+    _beforeValue ();
+    if (sValue == null)
+      _write ("null");
+    else
+      _writeString (sValue);
+    return this;
+  }
+
+  @NonNull
+  public JsonStreamWriter value (final long nValue)
+  {
+    _beforeValue ();
+    _write (Long.toString (nValue));
+    return this;
+  }
+
+  @NonNull
+  public JsonStreamWriter value (final boolean bValue)
+  {
+    _beforeValue ();
+    _write (bValue ? "true" : "false");
+    return this;
+  }
+
+  /**
+   * Write an existing JSON tree at the current position.
+   *
+   * @param aJson
+   *        The JSON to write. May be <code>null</code> in which case <code>null</code> is written.
+   * @return this for chaining
+   */
+  @NonNull
+  public JsonStreamWriter json (@Nullable final IJson aJson)
+  {
+    if (aJson == null)
+      return value ((String) null);
+
+    if (aJson.isObject ())
+    {
+      beginObject ();
+      for (final Map.Entry <String, IJson> aEntry : aJson.getAsObject ())
+        name (aEntry.getKey ()).json (aEntry.getValue ());
+      return endObject ();
+    }
+
+    if (aJson.isArray ())
+    {
+      final IJsonArray aArray = aJson.getAsArray ();
+      beginArray ();
+      for (final IJson aChild : aArray)
+        json (aChild);
+      return endArray ();
+    }
+
+    // Simple value - let the JSON library take care of the escaping and number formatting
+    _beforeValue ();
+    _write (aJson.getAsJsonString (JsonWriterSettings.DEFAULT_SETTINGS));
+    return this;
+  }
+
+  /**
+   * Write already serialized JSON at the current position. The content is not validated.
+   *
+   * @param sJson
+   *        The serialized JSON value. May not be <code>null</code>.
+   * @return this for chaining
+   */
+  @NonNull
+  public JsonStreamWriter rawJson (@NonNull final String sJson)
+  {
+    ValueEnforcer.notNull (sJson, "Json");
+    _beforeValue ();
+    _write (sJson);
+    return this;
+  }
+
+  /**
+   * Write already serialized object members (<code>"name":value</code> pairs, separated by commas
+   * and without the enclosing braces) into the current object. The content is not validated.
+   * In formatted mode the members must be formatted as if they were members of a top-level
+   * object (see {@link #getFormattedMembers(IJsonObject)}) and are re-indented to the current
+   * nesting level.
+   *
+   * @param sJsonMembers
+   *        The serialized members. May not be <code>null</code> but may be empty, in which case
+   *        nothing is written.
+   * @return this for chaining
+   */
+  @NonNull
+  public JsonStreamWriter rawMembers (@NonNull final String sJsonMembers)
+  {
+    ValueEnforcer.notNull (sJsonMembers, "JsonMembers");
+    if (m_bAfterName)
+      throw new IllegalStateException ("Members cannot be written as the value of a name");
+    if (!sJsonMembers.isEmpty ())
+    {
+      _beforeValue ();
+      // Serialized JSON never contains unescaped line breaks inside strings, so every line break
+      // starts a new indented line
+      if (m_bFormatted && m_nDepth > 1)
+        _write (sJsonMembers.replace ("\n", "\n" + "  ".repeat (m_nDepth - 1)));
+      else
+        _write (sJsonMembers);
+    }
+    return this;
+  }
+
+  /**
+   * Serialize the members of the provided object in formatted mode, so that they can later be
+   * passed to {@link #rawMembers(String)} of a formatted writer at any nesting level.
+   *
+   * @param aObject
+   *        The object to serialize. May not be <code>null</code>.
+   * @return The formatted members without the enclosing braces. Empty if the object has no
+   *         members.
+   */
+  @NonNull
+  public static String getFormattedMembers (@NonNull final IJsonObject aObject)
+  {
+    ValueEnforcer.notNull (aObject, "Object");
+    if (aObject.isEmpty ())
+      return "";
+
+    final StringWriter aSW = new StringWriter ();
+    new JsonStreamWriter (aSW, true).json (aObject);
+    final String sJson = aSW.toString ();
+    // Strip the leading "{\n  " and the trailing "\n}"
+    return sJson.substring (4, sJson.length () - 2);
+  }
+
+  /**
+   * Flush the underlying writer.
+   *
+   * @return this for chaining
+   */
+  @NonNull
+  public JsonStreamWriter flush ()
+  {
+    try
+    {
+      m_aWriter.flush ();
+    }
+    catch (final IOException ex)
+    {
+      throw new UncheckedIOException (ex);
+    }
+    return this;
+  }
+}
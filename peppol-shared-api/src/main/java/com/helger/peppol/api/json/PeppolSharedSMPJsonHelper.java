@@ -37,7 +37,6 @@ import com.helger.peppol.ui.types.nicename.NiceNameEntry;
 import com.helger.peppol.ui.types.nicename.NiceNameManager;
 import com.helger.peppolid.IParticipantIdentifier;
 import com.helger.peppolid.factory.IIdentifierFactory;
-import com.helger.peppolid.factory.SimpleIdentifierFactory;
 import com.helger.smpclient.json.SMPJsonResponse;
 
 @Immutable
@@ -107,6 +106,13 @@ public final class PeppolSharedSMPJsonHelper
                        aError.getLinkedException ());
   }
 
+  @Nullable
+  private static NiceNameEntry _getNiceName (@Nullable final String sDocType)
+  {
+    // The document type ID is already URI encoded
+    return NiceNameManager.getPintEnabledNiceNameEntry (sDocType);
+  }
+
   @NonNull
   public static IJsonObject convert (@NonNull final ESMPAPIType eSMPAPIType,
                                      @NonNull final IParticipantIdentifier aParticipantID,
@@ -120,18 +126,72 @@ public final class PeppolSharedSMPJsonHelper
         if (aEntry.isObject ())
         {
           final IJsonObject aUrlEntry = aEntry.getAsObject ();
-          final String sDocType = aUrlEntry.getAsString (SMPJsonResponse.JSON_DOCUMENT_TYPE_ID);
-          if (sDocType != null)
+          final NiceNameEntry aNN = _getNiceName (aUrlEntry.getAsString (SMPJsonResponse.JSON_DOCUMENT_TYPE_ID));
+          if (aNN != null)
+          {
+            aUrlEntry.add (JSON_NICE_NAME, aNN.getName ());
+            aUrlEntry.add (JSON_STATE, aNN.getState ().getID ());
+            aUrlEntry.add (JSON_IS_DEPRECATED, aNN.getState ().isDeprecated ());
+          }
+        }
+    return aJson;
+  }
+
+  /**
+   * Streaming version of
+   * {@link #convert(ESMPAPIType, IParticipantIdentifier, Map, IIdentifierFactory)}. The members of
+   * the converted object are written to the provided writer, and the nice names are added while
+   * writing, so that the intermediate tree is not modified and not serialized to a String. The
+   * caller is responsible for opening and closing the surrounding object, so that additional
+   * members can be added.
+   *
+   * @param eSMPAPIType
+   *        SMP API type. May not be <code>null</code>.
+   * @param aParticipantID
+   *        Participant ID. May not be <code>null</code>.
+   * @param aSGHrefs
+   *        Service group hrefs. May not be <code>null</code>.
+   * @param aIF
+   *        Identifier factory to use. May not be <code>null</code>.
+   * @param aJW
+   *        The JSON writer to write to. Must be inside an object. May not be <code>null</code>.
+   */
+  public static void writeConvertedMembers (@NonNull final ESMPAPIType eSMPAPIType,
+                                            @NonNull final IParticipantIdentifier aParticipantID,
+                                            @NonNull final Map <String, String> aSGHrefs,
+                                            @NonNull final IIdentifierFactory aIF,
+                                            @NonNull final JsonStreamWriter aJW)
+  {
+    final IJsonObject aJson = SMPJsonResponse.convert (eSMPAPIType, aParticipantID, aSGHrefs, aIF);
+    for (final Map.Entry <String, IJson> aMember : aJson)
+    {
+      final IJson aValue = aMember.getValue ();
+      aJW.name (aMember.getKey ());
+      if (SMPJsonResponse.JSON_URLS.equals (aMember.getKey ()) && aValue.isArray ())
+      {
+        aJW.beginArray ();
+        for (final IJson aEntry : aValue.getAsArray ())
+          if (aEntry.isObject ())
           {
-            final NiceNameEntry aNN = NiceNameManager.getPintEnabledNiceNameEntry (SimpleIdentifierFactory.INSTANCE.parseDocumentTypeIdentifier (sDocType));
+            final IJsonObject aUrlEntry = aEntry.getAsObject ();
+            aJW.beginObject ();
+            for (final Map.Entry <String, IJson> aUrlMember : aUrlEntry)
+              aJW.name (aUrlMember.getKey ()).json (aUrlMember.getValue ());
+            final NiceNameEntry aNN = _getNiceName (aUrlEntry.getAsString (SMPJsonResponse.JSON_DOCUMENT_TYPE_ID));
             if (aNN != null)
             {
-              aUrlEntry.add (JSON_NICE_NAME, aNN.getName ());
-              aUrlEntry.add (JSON_STATE, aNN.getState ().getID ());
-              aUrlEntry.add (JSON_IS_DEPRECATED, aNN.getState ().isDeprecated ());
+              aJW.name (JSON_NICE_NAME).value (aNN.getName ());
+              aJW.name (JSON_STATE).value (aNN.getState ().getID ());
+              aJW.name (JSON_IS_DEPRECATED).value (aNN.getState ().isDeprecated ());
             }
+            aJW.endObject ();
           }
-        }
-    return aJson;
+          else
+            aJW.json (aEntry);
+        aJW.endArray ();
+      }
+      else
+        aJW.json (aValue);
+    }
   }
 }
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.api.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.Nonempty;
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.tostring.ToStringGenerator;
+
+/**
+ * The metrics of a single API endpoint.
+ *
+ * @author Philip Helger
+ */
+@ThreadSafe
+public final class APIEndpointMetrics
+{
+  private final String m_sName;
+  private final LongAdder m_aRequests = new LongAdder ();
+  private final AtomicInteger m_aInFlight = new AtomicInteger (0);
+  private final LongAdder m_aRateLimited = new LongAdder ();
+  // Filled in constructor and never modified afterwards
+  private final Map <EAPIOutcome, LongAdder> m_aOutcomes = new EnumMap <> (EAPIOutcome.class);
+  private final LatencyHistogram m_aLatency = new LatencyHistogram ();
+
+  APIEndpointMetrics (@NonNull @Nonempty final String sName)
+  {
+    ValueEnforcer.notEmpty (sName, "Name");
+    m_sName = sName;
+    for (final EAPIOutcome e : EAPIOutcome.values ())
+      m_aOutcomes.put (e, new LongAdder ());
+  }
+
+  /**
+   * @return The endpoint name (usually the path of the API descriptor). Never <code>null</code>.
+   */
+  @NonNull
+  @Nonempty
+  public String getName ()
+  {
+    return m_sName;
+  }
+
+  /**
+   * Called when a request was rejected by the rate limiter, before it started.
+   */
+  public void onRateLimited ()
+  {
+    m_aRequests.increment ();
+    m_aRateLimited.increment ();
+    m_aOutcomes.get (EAPIOutcome.TOO_MANY_REQUESTS).increment ();
+  }
+
+  /**
+   * Called when the execution of a request starts. Must be followed by a call to
+   * {@link #onFinished(int, long)}.
+   */
+  public void onStarted ()
+  {
+    m_aRequests.increment ();
+    m_aInFlight.incrementAndGet ();
+  }
+
+  /**
+   * Called when the execution of a request finished, successfully or not.
+   *
+   * @param nStatusCode
+   *        The effective HTTP status code.
+   * @param nDurationMillis
+   *        The execution duration in milliseconds.
+   */
+  public void onFinished (final int nStatusCode, final long nDurationMillis)
+  {
+    m_aInFlight.decrementAndGet ();
+    final EAPIOutcome eOutcome = EAPIOutcome.getFromStatusCode (nStatusCode);
+    m_aOutcomes.get (eOutcome).increment ();
+    if (eOutcome == EAPIOutcome.TOO_MANY_REQUESTS)
+    {
+      // Rejected by an executor specific rate limit
+      m_aRateLimited.increment ();
+    }
+    m_aLatency.record (nDurationMillis);
+  }
+
+  @Nonnegative
+  public long getRequestCount ()
+  {
+    return m_aRequests.sum ();
+  }
+
+  @Nonnegative
+  public int getInFlight ()
+  {
+    return m_aInFlight.get ();
+  }
+
+  @Nonnegative
+  public long getRateLimitedCount ()
+  {
+    return m_aRateLimited.sum ();
+  }
+
+  @Nonnegative
+  public long getOutcomeCount (@NonNull final EAPIOutcome eOutcome)
+  {
+    return m_aOutcomes.get (eOutcome).sum ();
+  }
+
+  /**
+   * @return The latency histogram of all finished requests. Rate limited requests are not
+   *         contained. Never <code>null</code>.
+   */
+  @NonNull
+  public LatencyHistogram getLatency ()
+  {
+    return m_aLatency;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Name", m_sName)
+                                       .append ("Requests", getRequestCount ())
+                                       .append ("InFlight", getInFlight ())
+                                       .append ("RateLimited", getRateLimitedCount ())
+                                       .append ("Latency", m_aLatency)
+                                       .getToString ();
+  }
+}
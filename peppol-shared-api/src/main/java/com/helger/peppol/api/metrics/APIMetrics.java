@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.api.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.Nonempty;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.annotation.style.ReturnsMutableCopy;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+
+/**
+ * Global registry for the per endpoint API metrics. All metrics are kept in memory and are reset
+ * on restart.
+ *
+ * @author Philip Helger
+ */
+@ThreadSafe
+public final class APIMetrics
+{
+  private static final Map <String, APIEndpointMetrics> ENDPOINTS = new ConcurrentHashMap <> ();
+
+  private APIMetrics ()
+  {}
+
+  /**
+   * Get or create the metrics of the provided endpoint.
+   *
+   * @param sName
+   *        The endpoint name. Usually the path of the API descriptor. May neither be
+   *        <code>null</code> nor empty.
+   * @return The metrics object and never <code>null</code>.
+   */
+  @NonNull
+  public static APIEndpointMetrics getEndpoint (@NonNull @Nonempty final String sName)
+  {
+    ValueEnforcer.notEmpty (sName, "Name");
+    return ENDPOINTS.computeIfAbsent (sName, APIEndpointMetrics::new);
+  }
+
+  /**
+   * @return The metrics of all endpoints that were invoked at least once, sorted by name. Never
+   *         <code>null</code>.
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  public static ICommonsList <APIEndpointMetrics> getAllEndpoints ()
+  {
+    final ICommonsList <APIEndpointMetrics> ret = new CommonsArrayList <> (ENDPOINTS.values ());
+    ret.sort ( (x, y) -> x.getName ().compareTo (y.getName ()));
+    return ret;
+  }
+
+  /**
+   * Remove all metrics. Mainly for testing.
+   */
+  public static void reset ()
+  {
+    ENDPOINTS.clear ();
+  }
+}
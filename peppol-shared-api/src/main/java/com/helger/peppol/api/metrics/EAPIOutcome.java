@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.api.metrics;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.Nonempty;
+
+/**
+ * The outcome class of a single API invocation, derived from the HTTP status code.
+ *
+ * @author Philip Helger
+ */
+public enum EAPIOutcome
+{
+  SUCCESS ("2xx"),
+  REDIRECT ("3xx"),
+  NOT_FOUND ("404"),
+  TOO_MANY_REQUESTS ("429"),
+  CLIENT_ERROR ("4xx"),
+  SERVER_ERROR ("5xx");
+
+  private final String m_sLabel;
+
+  EAPIOutcome (@NonNull @Nonempty final String sLabel)
+  {
+    m_sLabel = sLabel;
+  }
+
+  /**
+   * @return The label to be used in metrics output. Never <code>null</code>.
+   */
+  @NonNull
+  @Nonempty
+  public String getLabel ()
+  {
+    return m_sLabel;
+  }
+
+  /**
+   * Get the outcome matching the provided HTTP status code.
+   *
+   * @param nStatusCode
+   *        The HTTP status code.
+   * @return Never <code>null</code>. Unknown status codes are considered server errors.
+   */
+  @NonNull
+  public static EAPIOutcome getFromStatusCode (final int nStatusCode)
+  {
+    if (nStatusCode == 404)
+      return NOT_FOUND;
+    if (nStatusCode == 429)
+      return TOO_MANY_REQUESTS;
+    if (nStatusCode >= 200 && nStatusCode < 300)
+      return SUCCESS;
+    if (nStatusCode >= 300 && nStatusCode < 400)
+      return REDIRECT;
+    if (nStatusCode >= 400 && nStatusCode < 500)
+      return CLIENT_ERROR;
+    return SERVER_ERROR;
+  }
+}
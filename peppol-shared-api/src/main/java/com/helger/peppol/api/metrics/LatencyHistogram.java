@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.api.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.annotation.style.ReturnsMutableCopy;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.tostring.ToStringGenerator;
+
+/**
+ * A lock free latency histogram with fixed bucket boundaries in milliseconds. Recording a value is
+ * cheap and never blocks, so it can be used on every request. Percentiles are estimated by linear
+ * interpolation inside the matching bucket.
+ *
+ * @author Philip Helger
+ */
+@ThreadSafe
+public final class LatencyHistogram
+{
+  /** The default upper bucket boundaries in milliseconds */
+  private static final long [] DEFAULT_BOUNDS_MILLIS = { 5,
+                                                         10,
+                                                         25,
+                                                         50,
+                                                         100,
+                                                         250,
+                                                         500,
+                                                         1_000,
+                                                         2_500,
+                                                         5_000,
+                                                         10_000,
+                                                         30_000,
+                                                         60_000 };
+
+  private final long [] m_aBoundsMillis;
+  // One more than bounds for the overflow bucket
+  private final LongAdder [] m_aBuckets;
+  private final LongAdder m_aCount = new LongAdder ();
+  private final LongAdder m_aSumMillis = new LongAdder ();
+
+  /**
+   * Constructor using the default bucket boundaries.
+   */
+  public LatencyHistogram ()
+  {
+    this (DEFAULT_BOUNDS_MILLIS);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param aBoundsMillis
+   *        The inclusive upper bucket boundaries in milliseconds. Must be strictly ascending and may
+   *        neither be <code>null</code> nor empty.
+   */
+  public LatencyHistogram (@NonNull final long [] aBoundsMillis)
+  {
+    ValueEnforcer.notEmpty (aBoundsMillis, "BoundsMillis");
+    for (int i = 1; i < aBoundsMillis.length; ++i)
+      ValueEnforcer.isTrue (aBoundsMillis[i] > aBoundsMillis[i - 1], "Bounds must be strictly ascending");
+    m_aBoundsMillis = aBoundsMillis.clone ();
+    m_aBuckets = new LongAdder [aBoundsMillis.length + 1];
+    for (int i = 0; i < m_aBuckets.length; ++i)
+      m_aBuckets[i] = new LongAdder ();
+  }
+
+  private int _getBucketIndex (final long nMillis)
+  {
+    // Only a few buckets - linear search is fine
+    for (int i = 0; i < m_aBoundsMillis.length; ++i)
+      if (nMillis <= m_aBoundsMillis[i])
+        return i;
+    return m_aBoundsMillis.length;
+  }
+
+  /**
+   * Record a single observation.
+   *
+   * @param nMillis
+   *        The observed duration in milliseconds. Negative values are treated as 0.
+   */
+  public void record (final long nMillis)
+  {
+    final long nRealMillis = Math.max (nMillis, 0);
+    m_aBuckets[_getBucketIndex (nRealMillis)].increment ();
+    m_aSumMillis.add (nRealMillis);
+    m_aCount.increment ();
+  }
+
+  /**
+   * @return A copy of the upper bucket boundaries in milliseconds. Never <code>null</code>.
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  public long [] getBoundsMillis ()
+  {
+    return m_aBoundsMillis.clone ();
+  }
+
+  /**
+   * @return The cumulative count per bucket. The array has one element more than
+   *         {@link #getBoundsMillis()} - the last element contains the total count (the "+Inf"
+   *         bucket). Never <code>null</code>.
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  public long [] getCumulativeCounts ()
+  {
+    final long [] ret = new long [m_aBuckets.length];
+    long nSum = 0;
+    for (int i = 0; i < m_aBuckets.length; ++i)
+    {
+      nSum += m_aBuckets[i].sum ();
+      ret[i] = nSum;
+    }
+    return ret;
+  }
+
+  @Nonnegative
+  public long getCount ()
+  {
+    return m_aCount.sum ();
+  }
+
+  @Nonnegative
+  public long getSumMillis ()
+  {
+    return m_aSumMillis.sum ();
+  }
+
+  /**
+   * Estimate a percentile from the recorded observations.
+   *
+   * @param dPercentile
+   *        The percentile to get, in the range 0 to 1 (e.g. 0.95).
+   * @return The estimated value in milliseconds or 0 if nothing was recorded yet. Values in the
+   *         overflow bucket are reported as the highest bucket boundary.
+   */
+  public double getPercentileMillis (final double dPercentile)
+  {
+    ValueEnforcer.isBetweenInclusive (dPercentile, "Percentile", 0, 1);
+
+    final long [] aCumulative = getCumulativeCounts ();
+    final long nTotal = aCumulative[aCumulative.length - 1];
+    if (nTotal == 0)
+      return 0;
+
+    final double dRank = dPercentile * nTotal;
+    for (int i = 0; i < m_aBoundsMillis.length; ++i)
+      if (aCumulative[i] >= dRank)
+      {
+        final long nPrevCumulative = i == 0 ? 0 : aCumulative[i - 1];
+        final long nInBucket = aCumulative[i] - nPrevCumulative;
+        final double dLower = i == 0 ? 0 : m_aBoundsMillis[i - 1];
+        final double dUpper = m_aBoundsMillis[i];
+        if (nInBucket == 0)
+          return dLower;
+        return dLower + (dUpper - dLower) * (dRank - nPrevCumulative) / nInBucket;
+      }
+    // Overflow bucket
+    return m_aBoundsMillis[m_aBoundsMillis.length - 1];
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Count", getCount ())
+                                       .append ("SumMillis", getSumMillis ())
+                                       .getToString ();
+  }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.api.metrics;
+
+import java.util.Locale;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.Nonempty;
+import com.helger.annotation.concurrent.NotThreadSafe;
+
+/**
+ * A simple builder for the Prometheus text exposition format (version 0.0.4). Only the parts needed
+ * for the API metrics are supported.
+ *
+ * @author Philip Helger
+ */
+@NotThreadSafe
+public final class PrometheusTextBuilder
+{
+  public static final String TYPE_COUNTER = "counter";
+  public static final String TYPE_GAUGE = "gauge";
+  public static final String TYPE_HISTOGRAM = "histogram";
+  public static final String TYPE_SUMMARY = "summary";
+
+  private final StringBuilder m_aSB = new StringBuilder (4096);
+
+  public PrometheusTextBuilder ()
+  {}
+
+  @NonNull
+  static String escapeLabelValue (@NonNull final String s)
+  {
+    return s.replace ("\\", "\\\\").replace ("\"", "\\\"").replace ("\n", "\\n");
+  }
+
+  @NonNull
+  static String formatDouble (final double d)
+  {
+    if (d == Double.POSITIVE_INFINITY)
+      return "+Inf";
+    if (d == (long) d)
+      return Long.toString ((long) d);
+    return String.format (Locale.ROOT, "%.6f", Double.valueOf (d));
+  }
+
+  /**
+   * Add the HELP and TYPE lines of a metric family. Must be called once before the samples of the
+   * family are added.
+   *
+   * @param sName
+   *        Metric name. May neither be <code>null</code> nor empty.
+   * @param sType
+   *        Metric type. One of the <code>TYPE_*</code> constants.
+   * @param sHelp
+   *        Help text. May neither be <code>null</code> nor empty.
+   * @return this for chaining
+   */
+  @NonNull
+  public PrometheusTextBuilder family (@NonNull @Nonempty final String sName,
+                                       @NonNull @Nonempty final String sType,
+                                       @NonNull @Nonempty final String sHelp)
+  {
+    m_aSB.append ("# HELP ").append (sName).append (' ').append (sHelp.replace ("\n", " ")).append ('\n');
+    m_aSB.append ("# TYPE ").append (sName).append (' ').append (sType).append ('\n');
+    return this;
+  }
+
+  /**
+   * Add a single sample.
+   *
+   * @param sName
+   *        Sample name. May neither be <code>null</code> nor empty.
+   * @param aLabels
+   *        Label names and values in alternating order. May be <code>null</code>.
+   * @param dValue
+   *        The sample value.
+   * @return this for chaining
+   */
+  @NonNull
+  public PrometheusTextBuilder sample (@NonNull @Nonempty final String sName,
+                                       @Nullable final String [] aLabels,
+                                       final double dValue)
+  {
+    m_aSB.append (sName);
+    if (aLabels != null && aLabels.length > 0)
+    {
+      m_aSB.append ('{');
+      for (int i = 0; i + 1 < aLabels.length; i += 2)
+      {
+        if (i > 0)
+          m_aSB.append (',');
+        m_aSB.append (aLabels[i]).append ("=\"").append (escapeLabelValue (aLabels[i + 1])).append ('"');
+      }
+      m_aSB.append ('}');
+    }
+    m_aSB.append (' ').append (formatDouble (dValue)).append ('\n');
+    return this;
+  }
+
+  /**
+   * Add all samples of a histogram. The values are converted from milliseconds to seconds, as
+   * recommended by Prometheus.
+   *
+   * @param sName
+   *        The histogram base name. May neither be <code>null</code> nor empty.
+   * @param sLabelName
+   *        The name of the identifying label. May neither be <code>null</code> nor empty.
+   * @param sLabelValue
+   *        The value of the identifying label. May not be <code>null</code>.
+   * @param aHistogram
+   *        The histogram to add. May not be <code>null</code>.
+   * @return this for chaining
+   */
+  @NonNull
+  public PrometheusTextBuilder histogram (@NonNull @Nonempty final String sName,
+                                          @NonNull @Nonempty final String sLabelName,
+                                          @NonNull final String sLabelValue,
+                                          @NonNull final LatencyHistogram aHistogram)
+  {
+    final long [] aBounds = aHistogram.getBoundsMillis ();
+    final long [] aCumulative = aHistogram.getCumulativeCounts ();
+    for (int i = 0; i < aBounds.length; ++i)
+      sample (sName + "_bucket",
+              new String [] { sLabelName, sLabelValue, "le", formatDouble (aBounds[i] / 1000d) },
+              aCumulative[i]);
+    final long nCount = aCumulative[aCumulative.length - 1];
+    sample (sName + "_bucket", new String [] { sLabelName, sLabelValue, "le", "+Inf" }, nCount);
+    sample (sName + "_sum", new String [] { sLabelName, sLabelValue }, aHistogram.getSumMillis () / 1000d);
+    sample (sName + "_count", new String [] { sLabelName, sLabelValue }, nCount);
+    return this;
+  }
+
+  /**
+   * Add all samples of a summary, with the quantiles estimated from the provided histogram. The
+   * values are converted from milliseconds to seconds, as recommended by Prometheus.
+   *
+   * @param sName
+   *        The summary base name. May neither be <code>null</code> nor empty.
+   * @param sLabelName
+   *        The name of the identifying label. May neither be <code>null</code> nor empty.
+   * @param sLabelValue
+   *        The value of the identifying label. May not be <code>null</code>.
+   * @param aHistogram
+   *        The histogram to estimate the quantiles from. May not be <code>null</code>.
+   * @param aQuantiles
+   *        The quantiles to add, each between 0 and 1. May not be <code>null</code>.
+   * @return this for chaining
+   */
+  @NonNull
+  public PrometheusTextBuilder summary (@NonNull @Nonempty final String sName,
+                                        @NonNull @Nonempty final String sLabelName,
+                                        @NonNull final String sLabelValue,
+                                        @NonNull final LatencyHistogram aHistogram,
+                                        @NonNull final double [] aQuantiles)
+  {
+    for (final double dQuantile : aQuantiles)
+      sample (sName,
+              new String [] { sLabelName, sLabelValue, "quantile", Double.toString (dQuantile) },
+              aHistogram.getPercentileMillis (dQuantile) / 1000d);
+    sample (sName + "_sum", new String [] { sLabelName, sLabelValue }, aHistogram.getSumMillis () / 1000d);
+    sample (sName + "_count", new String [] { sLabelName, sLabelValue }, aHistogram.getCount ());
+    return this;
+  }
+
+  /**
+   * @return The created text. Never <code>null</code>.
+   */
+  @NonNull
+  public String getAsString ()
+  {
+    return m_aSB.toString ();
+  }
+}
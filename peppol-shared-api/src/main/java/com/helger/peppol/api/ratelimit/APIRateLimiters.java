@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.api.ratelimit;
+
+import java.time.Duration;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.annotation.concurrent.GuardedBy;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.concurrent.SimpleReadWriteLock;
+import com.helger.peppol.api.config.PeppolSharedAPIConfig;
+
+/**
+ * Holds the REST API rate limiter that is shared by all API executors, so that the configured
+ * limit (see {@link PeppolSharedAPIConfig#getRestAPILimitRequestsInDuration()} and
+ * {@link PeppolSharedAPIConfig#getRestAPILimitDurationSeconds()}) is a global limit per client key
+ * and not a limit per endpoint. By default an in-process {@link TokenBucketRateLimiter} is used. If
+ * a cluster backend is installed via {@link #setClusterBackend(IRateLimitClusterBackend)}, the limit
+ * applies across all nodes.
+ *
+ * @author Philip Helger
+ */
+@ThreadSafe
+public final class APIRateLimiters
+{
+  private static final Logger LOGGER = LoggerFactory.getLogger (APIRateLimiters.class);
+  private static final SimpleReadWriteLock RW_LOCK = new SimpleReadWriteLock ();
+  private static final HeavyHitterTracker HEAVY_HITTERS;
+
+  static
+  {
+    final int nTopCount = Math.max (1, PeppolSharedAPIConfig.getRestAPIHeavyHittersCount ());
+    final long nWindowSecs = Math.max (1, PeppolSharedAPIConfig.getRestAPIHeavyHittersWindowSeconds ());
+    HEAVY_HITTERS = new HeavyHitterTracker (nTopCount, Duration.ofSeconds (nWindowSecs));
+  }
+
+  // Written only while holding the write lock
+  private static volatile boolean s_bInitialized = false;
+  private static volatile IAPIRateLimiter s_aRateLimiter;
+  @GuardedBy ("RW_LOCK")
+  private static IRateLimitClusterBackend s_aClusterBackend;
+
+  private APIRateLimiters ()
+  {}
+
+  /**
+   * Create a new in-process rate limiter that honours the configured maximum number of tracked
+   * client keys (see {@link PeppolSharedAPIConfig#getRestAPILimitMaxKeys()}). It is used as the
+   * local limiter and as the fallback of the {@link ClusterRateLimiter}.
+   *
+   * @param nRequestsInDuration
+   *        The maximum number of permits per duration and client key. Must be &gt; 0.
+   * @param aDuration
+   *        The window duration. May not be <code>null</code>.
+   * @return A new rate limiter and never <code>null</code>.
+   */
+  @NonNull
+  static TokenBucketRateLimiter createLocalRateLimiter (final long nRequestsInDuration,
+                                                        @NonNull final Duration aDuration)
+  {
+    return new TokenBucketRateLimiter (nRequestsInDuration,
+                                       aDuration,
+                                       Math.max (1, PeppolSharedAPIConfig.getRestAPILimitMaxKeys ()),
+                                       System::nanoTime);
+  }
+
+  @Nullable
+  private static IAPIRateLimiter _createFromConfig (@Nullable final IRateLimitClusterBackend aClusterBackend)
+  {
+    final long nDurationSecs = PeppolSharedAPIConfig.getRestAPILimitDurationSeconds ();
+    final long nRequestsInDuration = PeppolSharedAPIConfig.getRestAPILimitRequestsInDuration ();
+    if (nDurationSecs <= 0 || nRequestsInDuration <= 0)
+    {
+      if (LOGGER.isDebugEnabled ())
+        LOGGER.debug ("REST API runs without limit (" + nDurationSecs + "/" + nRequestsInDuration + ")");
+      return null;
+    }
+
+    final Duration aDuration = Duration.ofSeconds (nDurationSecs);
+    LOGGER.info ("Installed " +
+                 (aClusterBackend != null ? "cluster wide" : "local") +
+                 " REST API rate limiter with a maximum of " +
+                 nRequestsInDuration +
+                 " requests per " +
+                 nDurationSecs +
+                 " seconds per client");
+    if (aClusterBackend != null)
+      return new ClusterRateLimiter (aClusterBackend, nRequestsInDuration, aDuration);
+    return createLocalRateLimiter (nRequestsInDuration, aDuration);
+  }
+
+  /**
+   * @return The shared rate limiter or <code>null</code> if no limit is configured.
+   */
+  @Nullable
+  public static IAPIRateLimiter getRateLimiter ()
+  {
+    if (!s_bInitialized)
+      RW_LOCK.writeLocked ( () -> {
+        if (!s_bInitialized)
+        {
+          s_aRateLimiter = _createFromConfig (s_aClusterBackend);
+          s_bInitialized = true;
+        }
+      });
+    return s_aRateLimiter;
+  }
+
+  /**
+   * @return The tracker for the clients with the highest request volume. Never <code>null</code>.
+   */
+  @NonNull
+  public static HeavyHitterTracker getHeavyHitters ()
+  {
+    return HEAVY_HITTERS;
+  }
+
+  /**
+   * Install a custom rate limiter, e.g. with a different algorithm.
+   *
+   * @param aRateLimiter
+   *        The rate limiter to use. May be <code>null</code> to disable rate limiting.
+   */
+  public static void setRateLimiter (@Nullable final IAPIRateLimiter aRateLimiter)
+  {
+    RW_LOCK.writeLocked ( () -> {
+      s_aRateLimiter = aRateLimiter;
+      s_bInitialized = true;
+    });
+  }
+
+  /**
+   * Install a cluster backend. The rate limiter is recreated from the configuration, so that the
+   * limits are shared across all nodes using the same backend.
+   *
+   * @param aClusterBackend
+   *        The cluster backend to use. May be <code>null</code> to use local rate limiting only.
+   */
+  public static void setClusterBackend (@Nullable final IRateLimitClusterBackend aClusterBackend)
+  {
+    RW_LOCK.writeLocked ( () -> {
+      s_aClusterBackend = aClusterBackend;
+      s_aRateLimiter = _createFromConfig (aClusterBackend);
+      s_bInitialized = true;
+    });
+  }
+}
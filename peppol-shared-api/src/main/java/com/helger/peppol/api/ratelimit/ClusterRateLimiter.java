@@ -0,0 +1,216 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.api.ratelimit;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.jspecify.annotations.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.annotation.Nonempty;
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.tostring.ToStringGenerator;
+
+/**
+ * A rate limiter that shares its counters between all cluster nodes via an
+ * {@link IRateLimitClusterBackend}. It uses fixed time windows based on the wall clock, so that
+ * all nodes use the same window boundaries. If the backend fails, the local
+ * {@link TokenBucketRateLimiter} is used, so that a backend outage does neither block all requests
+ * nor disable rate limiting. After a failure the backend is not contacted at all for the retry
+ * delay. Afterwards a single request probes the backend, while all others keep on using the
+ * fallback. Each failed probe doubles the delay, up to {@link #MAX_BACKOFF_FACTOR} times the retry
+ * delay.
+ *
+ * @author Philip Helger
+ */
+@ThreadSafe
+public class ClusterRateLimiter implements IAPIRateLimiter
+{
+  private static final Logger LOGGER = LoggerFactory.getLogger (ClusterRateLimiter.class);
+
+  public static final Duration DEFAULT_RETRY_DELAY = Duration.ofSeconds (10);
+  public static final int MAX_BACKOFF_FACTOR = 8;
+
+  private final IRateLimitClusterBackend m_aBackend;
+  private final long m_nCapacity;
+  private final Duration m_aDuration;
+  private final long m_nDurationMillis;
+  private final LongSupplier m_aMillisClock;
+  private final IAPIRateLimiter m_aFallback;
+  private final long m_nRetryDelayMillis;
+  private final AtomicBoolean m_aBackendFailing = new AtomicBoolean (false);
+  // Circuit breaker state: when to probe next, whether a probe is running and the failed probes
+  private final AtomicLong m_aNextProbeMillis = new AtomicLong (0);
+  private final AtomicBoolean m_aProbeRunning = new AtomicBoolean (false);
+  private final AtomicInteger m_aFailedProbes = new AtomicInteger (0);
+
+  /**
+   * Constructor. The local fallback limiter is configured like the local REST API rate limiter,
+   * including the maximum number of tracked client keys.
+   *
+   * @param aBackend
+   *        The shared counter backend. May not be <code>null</code>.
+   * @param nCapacity
+   *        The maximum number of permits per duration and client key. Must be &gt; 0.
+   * @param aDuration
+   *        The window duration. Must be at least one millisecond. May not be <code>null</code>.
+   */
+  public ClusterRateLimiter (@NonNull final IRateLimitClusterBackend aBackend,
+                             @Nonnegative final long nCapacity,
+                             @NonNull final Duration aDuration)
+  {
+    this (aBackend,
+          nCapacity,
+          aDuration,
+          System::currentTimeMillis,
+          APIRateLimiters.createLocalRateLimiter (nCapacity, aDuration));
+  }
+
+  /**
+   * Constructor with a custom clock and fallback, mainly for testing.
+   *
+   * @param aBackend
+   *        The shared counter backend. May not be <code>null</code>.
+   * @param nCapacity
+   *        The maximum number of permits per duration and client key. Must be &gt; 0.
+   * @param aDuration
+   *        The window duration. Must be at least one millisecond. May not be <code>null</code>.
+   * @param aMillisClock
+   *        The wall clock in milliseconds. May not be <code>null</code>.
+   * @param aFallback
+   *        The rate limiter to be used if the backend fails. May not be <code>null</code>.
+   */
+  public ClusterRateLimiter (@NonNull final IRateLimitClusterBackend aBackend,
+                             @Nonnegative final long nCapacity,
+                             @NonNull final Duration aDuration,
+                             @NonNull final LongSupplier aMillisClock,
+                             @NonNull final IAPIRateLimiter aFallback)
+  {
+    this (aBackend, nCapacity, aDuration, aMillisClock, aFallback, DEFAULT_RETRY_DELAY);
+  }
+
+  /**
+   * Constructor with a custom clock, fallback and retry delay, mainly for testing.
+   *
+   * @param aBackend
+   *        The shared counter backend. May not be <code>null</code>.
+   * @param nCapacity
+   *        The maximum number of permits per duration and client key. Must be &gt; 0.
+   * @param aDuration
+   *        The window duration. Must be at least one millisecond. May not be <code>null</code>.
+   * @param aMillisClock
+   *        The wall clock in milliseconds. May not be <code>null</code>.
+   * @param aFallback
+   *        The rate limiter to be used if the backend fails. May not be <code>null</code>.
+   * @param aRetryDelay
+   *        The time after a backend failure, in which the backend is not contacted. Must be at
+   *        least one millisecond. May not be <code>null</code>.
+   */
+  public ClusterRateLimiter (@NonNull final IRateLimitClusterBackend aBackend,
+                             @Nonnegative final long nCapacity,
+                             @NonNull final Duration aDuration,
+                             @NonNull final LongSupplier aMillisClock,
+                             @NonNull final IAPIRateLimiter aFallback,
+                             @NonNull final Duration aRetryDelay)
+  {
+    ValueEnforcer.notNull (aBackend, "Backend");
+    ValueEnforcer.isGT0 (nCapacity, "Capacity");
+    ValueEnforcer.notNull (aDuration, "Duration");
+    ValueEnforcer.isGT0 (aDuration.toMillis (), "Duration.Millis");
+    ValueEnforcer.notNull (aMillisClock, "MillisClock");
+    ValueEnforcer.notNull (aFallback, "Fallback");
+    ValueEnforcer.notNull (aRetryDelay, "RetryDelay");
+    ValueEnforcer.isGT0 (aRetryDelay.toMillis (), "RetryDelay.Millis");
+    m_aBackend = aBackend;
+    m_nCapacity = nCapacity;
+    m_aDuration = aDuration;
+    m_nDurationMillis = aDuration.toMillis ();
+    m_aMillisClock = aMillisClock;
+    m_aFallback = aFallback;
+    m_nRetryDelayMillis = aRetryDelay.toMillis ();
+  }
+
+  /**
+   * @return <code>true</code> if the last backend access failed and the fallback is used.
+   */
+  public boolean isBackendFailing ()
+  {
+    return m_aBackendFailing.get ();
+  }
+
+  public boolean tryAcquire (@NonNull @Nonempty final String sKey, @Nonnegative final int nPermits)
+  {
+    ValueEnforcer.notEmpty (sKey, "Key");
+    ValueEnforcer.isGT0 (nPermits, "Permits");
+
+    final long nNow = m_aMillisClock.getAsLong ();
+    boolean bProbe = false;
+    if (m_aBackendFailing.get ())
+    {
+      // Circuit is open: only a single request may probe the backend after the retry delay
+      if (nNow < m_aNextProbeMillis.get () || !m_aProbeRunning.compareAndSet (false, true))
+        return m_aFallback.tryAcquire (sKey, nPermits);
+      bProbe = true;
+    }
+
+    final long nWindow = nNow / m_nDurationMillis;
+    final long nCount;
+    try
+    {
+      // Keep the counter a bit longer than the window to tolerate clock skew between nodes
+      nCount = m_aBackend.incrementAndGet (sKey + '@' + nWindow, nPermits, m_aDuration.multipliedBy (2));
+    }
+    catch (final Exception ex)
+    {
+      // Back off exponentially with every failed probe
+      final int nFactor = bProbe ? Math.min (1 << Math.min (m_aFailedProbes.incrementAndGet (), 30),
+                                             MAX_BACKOFF_FACTOR) : 1;
+      m_aNextProbeMillis.set (nNow + nFactor * m_nRetryDelayMillis);
+      if (m_aBackendFailing.compareAndSet (false, true))
+        LOGGER.warn ("Rate limit cluster backend failed - falling back to local rate limiting: " + ex.getMessage ());
+      if (bProbe)
+        m_aProbeRunning.set (false);
+      return m_aFallback.tryAcquire (sKey, nPermits);
+    }
+
+    if (bProbe)
+    {
+      m_aFailedProbes.set (0);
+      m_aProbeRunning.set (false);
+    }
+    if (m_aBackendFailing.compareAndSet (true, false))
+      LOGGER.info ("Rate limit cluster backend is available again");
+    return nCount <= m_nCapacity;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Backend", m_aBackend)
+                                       .append ("Capacity", m_nCapacity)
+                                       .append ("Duration", m_aDuration)
+                                       .append ("BackendFailing", isBackendFailing ())
+                                       .getToString ();
+  }
+}
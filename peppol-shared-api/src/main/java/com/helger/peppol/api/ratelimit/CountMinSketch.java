@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.api.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+
+/**
+ * A count-min sketch for approximate frequency counting with a fixed memory footprint. Estimates
+ * are never lower than the real count, and overestimate by at most <code>2 * total / width</code>
+ * with a probability of <code>1 - 0.5^depth</code>.
+ *
+ * @author Philip Helger
+ */
+@ThreadSafe
+public final class CountMinSketch
+{
+  private static final int [] SEEDS = { 0x9e3779b9, 0x85ebca6b, 0xc2b2ae35, 0x27d4eb2f, 0x165667b1, 0xd3a2646c };
+
+  private final int m_nDepth;
+  private final int m_nWidth;
+  // Row major: row * width + column
+  private final AtomicLongArray m_aCounters;
+
+  /**
+   * Constructor
+   *
+   * @param nDepth
+   *        The number of hash functions (rows). Must be between 1 and 6.
+   * @param nWidth
+   *        The number of counters per row. Must be &gt; 0.
+   */
+  public CountMinSketch (@Nonnegative final int nDepth, @Nonnegative final int nWidth)
+  {
+    ValueEnforcer.isBetweenInclusive (nDepth, "Depth", 1, SEEDS.length);
+    ValueEnforcer.isGT0 (nWidth, "Width");
+    m_nDepth = nDepth;
+    m_nWidth = nWidth;
+    m_aCounters = new AtomicLongArray (nDepth * nWidth);
+  }
+
+  private static int _mix (final int nHash)
+  {
+    // Murmur3 finalizer
+    int h = nHash;
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return h;
+  }
+
+  private int _getIndex (final int nRow, final int nKeyHash)
+  {
+    return nRow * m_nWidth + Math.floorMod (_mix (nKeyHash ^ SEEDS[nRow]), m_nWidth);
+  }
+
+  /**
+   * Add the provided delta to the count of the provided key.
+   *
+   * @param sKey
+   *        The key. May not be <code>null</code>.
+   * @param nDelta
+   *        The delta to add. Must be &gt; 0.
+   * @return The estimated count of the key after adding.
+   */
+  public long add (@NonNull final String sKey, @Nonnegative final long nDelta)
+  {
+    final int nKeyHash = sKey.hashCode ();
+    long ret = Long.MAX_VALUE;
+    for (int nRow = 0; nRow < m_nDepth; ++nRow)
+      ret = Math.min (ret, m_aCounters.addAndGet (_getIndex (nRow, nKeyHash), nDelta));
+    return ret;
+  }
+
+  /**
+   * Get the estimated count of the provided key.
+   *
+   * @param sKey
+   *        The key. May not be <code>null</code>.
+   * @return The estimated count. Never lower than the real count.
+   */
+  public long estimate (@NonNull final String sKey)
+  {
+    final int nKeyHash = sKey.hashCode ();
+    long ret = Long.MAX_VALUE;
+    for (int nRow = 0; nRow < m_nDepth; ++nRow)
+      ret = Math.min (ret, m_aCounters.get (_getIndex (nRow, nKeyHash)));
+    return ret;
+  }
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.api.ratelimit;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.Nonempty;
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.annotation.style.ReturnsMutableCopy;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+
+/**
+ * Tracks the clients with the highest request volume in a time window with bounded memory. All
+ * clients are counted in a {@link CountMinSketch}, and only the current top N candidates are kept
+ * by name. Recording does not lock: the candidates are kept in a concurrent map, and the candidate
+ * threshold is only recomputed when the map grew to twice the requested size. A new window is
+ * started after the configured duration.
+ *
+ * @author Philip Helger
+ */
+@ThreadSafe
+public final class HeavyHitterTracker
+{
+  /**
+   * A single heavy hitter.
+   *
+   * @author Philip Helger
+   */
+  @Immutable
+  public static final class HeavyHitter
+  {
+    private final String m_sKey;
+    private final long m_nCount;
+
+    HeavyHitter (@NonNull final String sKey, final long nCount)
+    {
+      m_sKey = sKey;
+      m_nCount = nCount;
+    }
+
+    @NonNull
+    public String getKey ()
+    {
+      return m_sKey;
+    }
+
+    /**
+     * @return The estimated number of requests in the current window.
+     */
+    public long getCount ()
+    {
+      return m_nCount;
+    }
+
+    @Override
+    public String toString ()
+    {
+      return new ToStringGenerator (this).append ("Key", m_sKey).append ("Count", m_nCount).getToString ();
+    }
+  }
+
+  private static final int SKETCH_DEPTH = 4;
+  private static final int SKETCH_WIDTH = 4_096;
+
+  /**
+   * The state of a single time window.
+   *
+   * @author Philip Helger
+   */
+  private static final class Window
+  {
+    private final long m_nStartNanos;
+    private final CountMinSketch m_aSketch = new CountMinSketch (SKETCH_DEPTH, SKETCH_WIDTH);
+    private final Map <String, Long> m_aCandidates = new ConcurrentHashMap <> ();
+    // Minimum count to become a candidate - 0 as long as there are free slots. Only raised while
+    // pruning.
+    private volatile long m_nThreshold = 0;
+    private final AtomicBoolean m_aPruning = new AtomicBoolean (false);
+
+    Window (final long nStartNanos)
+    {
+      m_nStartNanos = nStartNanos;
+    }
+
+    @NonNull
+    ICommonsList <HeavyHitter> getAllSortedCandidates ()
+    {
+      final ICommonsList <HeavyHitter> ret = new CommonsArrayList <> (m_aCandidates.size ());
+      for (final Map.Entry <String, Long> aEntry : m_aCandidates.entrySet ())
+        ret.add (new HeavyHitter (aEntry.getKey (), aEntry.getValue ().longValue ()));
+      ret.sort ( (x, y) -> Long.compare (y.getCount (), x.getCount ()));
+      return ret;
+    }
+  }
+
+  private final int m_nTopCount;
+  // Candidates are only pruned when this size is exceeded, so that pruning is rare
+  private final int m_nMaxCandidates;
+  private final long m_nWindowNanos;
+  private final LongSupplier m_aNanoClock;
+  private final AtomicReference <Window> m_aWindow;
+
+  /**
+   * Constructor
+   *
+   * @param nTopCount
+   *        The number of top clients to track. Must be &gt; 0.
+   * @param aWindow
+   *        The window duration. May not be <code>null</code>.
+   */
+  public HeavyHitterTracker (@Nonnegative final int nTopCount, @NonNull final Duration aWindow)
+  {
+    this (nTopCount, aWindow, System::nanoTime);
+  }
+
+  /**
+   * Constructor with a custom clock, mainly for testing.
+   *
+   * @param nTopCount
+   *        The number of top clients to track. Must be &gt; 0.
+   * @param aWindow
+   *        The window duration. May not be <code>null</code>.
+   * @param aNanoClock
+   *        The monotonic clock in nanoseconds. May not be <code>null</code>.
+   */
+  public HeavyHitterTracker (@Nonnegative final int nTopCount,
+                             @NonNull final Duration aWindow,
+                             @NonNull final LongSupplier aNanoClock)
+  {
+    ValueEnforcer.isGT0 (nTopCount, "TopCount");
+    ValueEnforcer.notNull (aWindow, "Window");
+    ValueEnforcer.notNull (aNanoClock, "NanoClock");
+    m_nTopCount = nTopCount;
+    m_nMaxCandidates = nTopCount * 2;
+    m_nWindowNanos = aWindow.toNanos ();
+    m_aNanoClock = aNanoClock;
+    m_aWindow = new AtomicReference <> (new Window (aNanoClock.getAsLong ()));
+  }
+
+  @NonNull
+  private Window _getCurrentWindow ()
+  {
+    final Window aWindow = m_aWindow.get ();
+    final long nNow = m_aNanoClock.getAsLong ();
+    if (nNow - aWindow.m_nStartNanos < m_nWindowNanos)
+      return aWindow;
+
+    // Start a new window - if another thread was faster, use its window
+    final Window aNewWindow = new Window (nNow);
+    return m_aWindow.compareAndSet (aWindow, aNewWindow) ? aNewWindow : m_aWindow.get ();
+  }
+
+  private void _prune (@NonNull final Window aWindow)
+  {
+    final ICommonsList <HeavyHitter> aSorted = aWindow.getAllSortedCandidates ();
+    if (aSorted.size () < m_nTopCount)
+      return;
+
+    // Keep the top N and drop the rest, unless it was updated concurrently
+    for (int i = m_nTopCount; i < aSorted.size (); ++i)
+    {
+      final HeavyHitter aHH = aSorted.get (i);
+      aWindow.m_aCandidates.remove (aHH.getKey (), Long.valueOf (aHH.getCount ()));
+    }
+    aWindow.m_nThreshold = aSorted.get (m_nTopCount - 1).getCount ();
+  }
+
+  /**
+   * Record requests of a client. This method does not lock, as it is called for every request.
+   *
+   * @param sKey
+   *        The client key. May neither be <code>null</code> nor empty.
+   * @param nCount
+   *        The number of requests. Must be &gt; 0.
+   */
+  public void record (@NonNull @Nonempty final String sKey, @Nonnegative final long nCount)
+  {
+    final Window aWindow = _getCurrentWindow ();
+
+    final long nEstimate = aWindow.m_aSketch.add (sKey, nCount);
+    if (nEstimate <= aWindow.m_nThreshold)
+    {
+      // Fast path - not a heavy hitter
+      return;
+    }
+
+    aWindow.m_aCandidates.merge (sKey, Long.valueOf (nEstimate), (x, y) -> x.longValue () >= y.longValue () ? x : y);
+    if (aWindow.m_aCandidates.size () > m_nMaxCandidates && aWindow.m_aPruning.compareAndSet (false, true))
+    {
+      // Only one thread prunes - the others continue
+      try
+      {
+        _prune (aWindow);
+      }
+      finally
+      {
+        aWindow.m_aPruning.set (false);
+      }
+    }
+  }
+
+  /**
+   * @return The top clients of the current window, sorted by descending count. Never
+   *         <code>null</code>.
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  public ICommonsList <HeavyHitter> getTop ()
+  {
+    final ICommonsList <HeavyHitter> ret = m_aWindow.get ().getAllSortedCandidates ();
+    if (ret.size () <= m_nTopCount)
+      return ret;
+    // There may temporarily be more candidates than requested
+    return new CommonsArrayList <> (ret.subList (0, m_nTopCount));
+  }
+
+  /**
+   * Get the estimated request count of a client in the current window.
+   *
+   * @param sKey
+   *        The client key. May not be <code>null</code>.
+   * @return The estimated count. Never lower than the real count.
+   */
+  public long getEstimatedCount (@NonNull final String sKey)
+  {
+    return m_aWindow.get ().m_aSketch.estimate (sKey);
+  }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.api.ratelimit;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.Nonempty;
+import com.helger.annotation.Nonnegative;
+
+/**
+ * Base interface for REST API rate limiters. Implementations must be thread-safe.
+ *
+ * @author Philip Helger
+ */
+public interface IAPIRateLimiter
+{
+  /**
+   * Try to consume the provided number of permits for the provided client key.
+   *
+   * @param sKey
+   *        The client key (e.g. the remote IP address). May neither be <code>null</code> nor
+   *        empty.
+   * @param nPermits
+   *        The number of permits to consume. Must be &gt; 0.
+   * @return <code>true</code> if the permits were granted, <code>false</code> if the client is over
+   *         the limit.
+   */
+  boolean tryAcquire (@NonNull @Nonempty String sKey, @Nonnegative int nPermits);
+}
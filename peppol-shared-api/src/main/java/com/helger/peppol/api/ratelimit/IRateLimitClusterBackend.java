@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.api.ratelimit;
+
+import java.time.Duration;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.Nonempty;
+import com.helger.annotation.Nonnegative;
+
+/**
+ * A shared counter store used by {@link ClusterRateLimiter}, so that all nodes behind a load
+ * balancer see the same counts. The semantics match an atomic "increment and set expiry" as e.g.
+ * offered by Redis or Memcached. Implementations must be thread-safe.
+ *
+ * @author Philip Helger
+ */
+public interface IRateLimitClusterBackend
+{
+  /**
+   * Atomically add the provided delta to the counter with the provided key and return the new
+   * value. If the counter does not exist, it is created with the provided time to live.
+   *
+   * @param sCounterKey
+   *        The counter key. May neither be <code>null</code> nor empty.
+   * @param nDelta
+   *        The value to add. Must be &gt; 0.
+   * @param aTTL
+   *        The time to live of a newly created counter. May not be <code>null</code>.
+   * @return The new counter value.
+   * @throws Exception
+   *         If the backend is not available. The caller falls back to local rate limiting.
+   */
+  long incrementAndGet (@NonNull @Nonempty String sCounterKey,
+                        @Nonnegative long nDelta,
+                        @NonNull Duration aTTL) throws Exception;
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.api.ratelimit;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.Nonempty;
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+
+/**
+ * An in-memory implementation of {@link IRateLimitClusterBackend}. It is meant as a local stand-in
+ * for a real shared store in tests and single node setups.
+ *
+ * @author Philip Helger
+ */
+@ThreadSafe
+public class InMemoryRateLimitClusterBackend implements IRateLimitClusterBackend
+{
+  private static final class Counter
+  {
+    private final long m_nExpirationNanos;
+    private long m_nValue;
+
+    Counter (final long nExpirationNanos)
+    {
+      m_nExpirationNanos = nExpirationNanos;
+    }
+  }
+
+  private final LongSupplier m_aNanoClock;
+  private final Map <String, Counter> m_aCounters = new ConcurrentHashMap <> ();
+
+  public InMemoryRateLimitClusterBackend ()
+  {
+    this (System::nanoTime);
+  }
+
+  /**
+   * Constructor with a custom clock, mainly for testing.
+   *
+   * @param aNanoClock
+   *        The monotonic clock in nanoseconds. May not be <code>null</code>.
+   */
+  public InMemoryRateLimitClusterBackend (@NonNull final LongSupplier aNanoClock)
+  {
+    ValueEnforcer.notNull (aNanoClock, "NanoClock");
+    m_aNanoClock = aNanoClock;
+  }
+
+  public long incrementAndGet (@NonNull @Nonempty final String sCounterKey,
+                               @Nonnegative final long nDelta,
+                               @NonNull final Duration aTTL)
+  {
+    ValueEnforcer.notEmpty (sCounterKey, "CounterKey");
+    ValueEnforcer.isGT0 (nDelta, "Delta");
+    ValueEnforcer.notNull (aTTL, "TTL");
+
+    final long nNow = m_aNanoClock.getAsLong ();
+    // The result must be read inside compute, as the counter may be modified concurrently afterwards
+    final long [] aResult = new long [1];
+    m_aCounters.compute (sCounterKey, (k, v) -> {
+      final Counter ret = v == null || nNow - v.m_nExpirationNanos >= 0 ? new Counter (nNow + aTTL.toNanos ()) : v;
+      ret.m_nValue += nDelta;
+      aResult[0] = ret.m_nValue;
+      return ret;
+    });
+    return aResult[0];
+  }
+
+  /**
+   * Remove all expired counters.
+   */
+  public void removeExpired ()
+  {
+    final long nNow = m_aNanoClock.getAsLong ();
+    m_aCounters.values ().removeIf (x -> nNow - x.m_nExpirationNanos >= 0);
+  }
+
+  /**
+   * @return The number of contained counters, including expired ones.
+   */
+  @Nonnegative
+  public int getCounterCount ()
+  {
+    return m_aCounters.size ();
+  }
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.api.ratelimit;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.Nonempty;
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+
+/**
+ * An in-process token bucket rate limiter. Each client key has a bucket with the configured
+ * capacity, that is continuously refilled so that it is full again after the configured duration.
+ * <br>
+ * The bucket state is a single "theoretical arrival time" (generic cell rate algorithm), so
+ * acquiring permits is a lock-free compare-and-set on an {@link AtomicLong}. The buckets are kept
+ * in a {@link ConcurrentHashMap}, that is internally striped, so different keys don't contend.<br>
+ * The number of buckets is bounded: a full bucket behaves exactly like a missing bucket, so idle
+ * keys are evicted without changing the behaviour. Only if the maximum is exceeded by non-idle
+ * keys, the buckets closest to being full are evicted.
+ *
+ * @author Philip Helger
+ */
+@ThreadSafe
+public class TokenBucketRateLimiter implements IAPIRateLimiter
+{
+  /** The default maximum number of client keys */
+  public static final int DEFAULT_MAX_KEYS = 100_000;
+  // Sweep idle buckets after that many new buckets, even if the maximum is not reached
+  private static final int SWEEP_INTERVAL = 1_024;
+
+  private final long m_nCapacity;
+  private final Duration m_aDuration;
+  // Time needed to refill a single token
+  private final long m_nNanosPerToken;
+  // Time needed to refill the whole bucket
+  private final long m_nBurstNanos;
+  private final int m_nMaxKeys;
+  private final LongSupplier m_aNanoClock;
+  private final Map <String, AtomicLong> m_aBuckets = new ConcurrentHashMap <> ();
+  private final AtomicLong m_aNewBuckets = new AtomicLong (0);
+  private final AtomicBoolean m_aSweeping = new AtomicBoolean (false);
+  private final LongAdder m_aEvictions = new LongAdder ();
+
+  /**
+   * Constructor
+   *
+   * @param nCapacity
+   *        The maximum number of permits per duration and client key. Must be &gt; 0.
+   * @param aDuration
+   *        The duration after which an empty bucket is full again. May not be <code>null</code>
+   *        and must be positive.
+   */
+  public TokenBucketRateLimiter (@Nonnegative final long nCapacity, @NonNull final Duration aDuration)
+  {
+    this (nCapacity, aDuration, DEFAULT_MAX_KEYS, System::nanoTime);
+  }
+
+  /**
+   * Constructor with a custom clock, mainly for testing.
+   *
+   * @param nCapacity
+   *        The maximum number of permits per duration and client key. Must be &gt; 0.
+   * @param aDuration
+   *        The duration after which an empty bucket is full again. May not be <code>null</code>
+   *        and must be positive.
+   * @param nMaxKeys
+   *        The maximum number of client keys to keep. Must be &gt; 0.
+   * @param aNanoClock
+   *        The monotonic clock in nanoseconds. May not be <code>null</code>.
+   */
+  public TokenBucketRateLimiter (@Nonnegative final long nCapacity,
+                                 @NonNull final Duration aDuration,
+                                 @Nonnegative final int nMaxKeys,
+                                 @NonNull final LongSupplier aNanoClock)
+  {
+    ValueEnforcer.isGT0 (nCapacity, "Capacity");
+    ValueEnforcer.notNull (aDuration, "Duration");
+    ValueEnforcer.isTrue (!aDuration.isNegative () && !aDuration.isZero (), "Duration must be positive");
+    ValueEnforcer.isGT0 (nMaxKeys, "MaxKeys");
+    ValueEnforcer.notNull (aNanoClock, "NanoClock");
+    m_nCapacity = nCapacity;
+    m_aDuration = aDuration;
+    m_nNanosPerToken = Math.max (1, aDuration.toNanos () / nCapacity);
+    m_nBurstNanos = m_nNanosPerToken * nCapacity;
+    m_nMaxKeys = nMaxKeys;
+    m_aNanoClock = aNanoClock;
+  }
+
+  @Nonnegative
+  public final long getCapacity ()
+  {
+    return m_nCapacity;
+  }
+
+  @NonNull
+  public final Duration getDuration ()
+  {
+    return m_aDuration;
+  }
+
+  @Nonnegative
+  public final int getMaxKeys ()
+  {
+    return m_nMaxKeys;
+  }
+
+  /**
+   * @return The number of client keys with a bucket. Never negative.
+   */
+  @Nonnegative
+  public int getBucketCount ()
+  {
+    return m_aBuckets.size ();
+  }
+
+  /**
+   * @return The number of non-idle buckets that were evicted because the maximum number of keys was
+   *         exceeded.
+   */
+  @Nonnegative
+  public long getEvictionCount ()
+  {
+    return m_aEvictions.sum ();
+  }
+
+  private static boolean _isIdle (final long nTAT, final long nNow)
+  {
+    // A full bucket has a theoretical arrival time in the past
+    return nTAT == Long.MIN_VALUE || nTAT - nNow <= 0;
+  }
+
+  /**
+   * Remove all idle buckets and if necessary, the buckets closest to being full, until the maximum
+   * number of keys is no longer exceeded. Only one thread sweeps at a time, the others don't wait.
+   */
+  void sweep ()
+  {
+    if (!m_aSweeping.compareAndSet (false, true))
+      return;
+    try
+    {
+      final long nNow = m_aNanoClock.getAsLong ();
+      // A concurrent acquire on a removed bucket may grant one more burst at most
+      m_aBuckets.values ().removeIf (x -> _isIdle (x.get (), nNow));
+
+      final int nOverflow = m_aBuckets.size () - m_nMaxKeys;
+      if (nOverflow > 0)
+      {
+        // Leave some headroom, so that not every new key triggers a sort
+        final int nToRemove = nOverflow + m_nMaxKeys / 10;
+        final ICommonsList <Map.Entry <String, AtomicLong>> aEntries = new CommonsArrayList <> (m_aBuckets.entrySet ());
+        aEntries.sort (Comparator.comparingLong (x -> x.getValue ().get ()));
+        for (int i = 0; i < nToRemove && i < aEntries.size (); ++i)
+        {
+          final Map.Entry <String, AtomicLong> aEntry = aEntries.get (i);
+          if (m_aBuckets.remove (aEntry.getKey (), aEntry.getValue ()))
+            m_aEvictions.increment ();
+        }
+      }
+    }
+    finally
+    {
+      m_aSweeping.set (false);
+    }
+  }
+
+  @NonNull
+  private AtomicLong _getBucket (@NonNull final String sKey)
+  {
+    AtomicLong ret = m_aBuckets.get (sKey);
+    if (ret == null)
+    {
+      final AtomicLong aNew = new AtomicLong (Long.MIN_VALUE);
+      ret = m_aBuckets.putIfAbsent (sKey, aNew);
+      if (ret == null)
+      {
+        ret = aNew;
+        if (m_aNewBuckets.incrementAndGet () % SWEEP_INTERVAL == 0 || m_aBuckets.size () > m_nMaxKeys)
+          sweep ();
+      }
+    }
+    return ret;
+  }
+
+  public boolean tryAcquire (@NonNull @Nonempty final String sKey, @Nonnegative final int nPermits)
+  {
+    ValueEnforcer.notEmpty (sKey, "Key");
+    ValueEnforcer.isGT0 (nPermits, "Permits");
+
+    if (nPermits > m_nCapacity)
+      return false;
+
+    final AtomicLong aTAT = _getBucket (sKey);
+    final long nCost = m_nNanosPerToken * nPermits;
+    while (true)
+    {
+      final long nNow = m_aNanoClock.getAsLong ();
+      final long nOldTAT = aTAT.get ();
+      final long nBase = _isIdle (nOldTAT, nNow) ? nNow : nOldTAT;
+      final long nNewTAT = nBase + nCost;
+      if (nNewTAT - nNow > m_nBurstNanos)
+      {
+        // Not enough tokens
+        return false;
+      }
+      if (aTAT.compareAndSet (nOldTAT, nNewTAT))
+        return true;
+      // Concurrent modification - retry
+    }
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Capacity", m_nCapacity)
+                                       .append ("Duration", m_aDuration)
+                                       .append ("MaxKeys", m_nMaxKeys)
+                                       .append ("BucketCount", getBucketCount ())
+                                       .append ("Evictions", getEvictionCount ())
+                                       .getToString ();
+  }
+}
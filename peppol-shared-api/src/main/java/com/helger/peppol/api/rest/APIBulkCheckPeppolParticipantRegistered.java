@@ -0,0 +1,319 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.api.rest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import org.jspecify.annotations.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.annotation.Nonempty;
+import com.helger.annotation.style.ReturnsMutableCopy;
+import com.helger.base.io.iface.IHasInputStream;
+import com.helger.base.string.StringHelper;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.json.IJsonObject;
+import com.helger.json.JsonObject;
+import com.helger.mime.EMimeContentType;
+import com.helger.mime.MimeType;
+import com.helger.peppol.api.config.PeppolSharedAPIConfig;
+import com.helger.peppol.ui.types.mgr.PhotonPeppolMetaManager;
+import com.helger.peppol.ui.types.smlconfig.ISMLConfiguration;
+import com.helger.peppol.ui.types.smlconfig.ISMLConfigurationManager;
+import com.helger.peppolid.IParticipantIdentifier;
+import com.helger.photon.api.IAPIDescriptor;
+import com.helger.photon.app.PhotonUnifiedResponse;
+import com.helger.web.scope.IRequestWebScopeWithoutResponse;
+
+/**
+ * Determine for multiple participant IDs if they are registered in the Peppol Network or not. The
+ * participant IDs are taken from the request body (one per line) or from the comma separated
+ * request parameter {@value #PARAM_PARTICIPANT_IDS}. All participants are checked concurrently and
+ * the results are streamed as newline delimited JSON (one object per line) in the order they become
+ * available. Each line contains the zero-based <code>index</code> of the participant ID in the
+ * request. Each participant counts as one request for rate limiting, so a single request may not
+ * contain more participant IDs than the rate limit allows. If the overall timeout is exceeded, an
+ * error line with <code>"error":"timeout"</code> is emitted for each open participant ID before the
+ * stream ends.<br>
+ * All bulk requests share a thread pool with a bounded queue. Each request uses at most
+ * {@link PeppolSharedAPIConfig#getRestBulkThreadsPerRequest()} threads, so that a large request
+ * cannot starve the others. If the queue is full, the request is rejected.
+ *
+ * @author Philip Helger
+ */
+public final class APIBulkCheckPeppolParticipantRegistered extends AbstractAPIExecutor
+{
+  public static final String PARAM_PARTICIPANT_IDS = "participantIDs";
+  public static final MimeType MIME_TYPE_NDJSON = new MimeType (EMimeContentType.APPLICATION, "x-ndjson");
+
+  private static final Logger LOGGER = LoggerFactory.getLogger (APIBulkCheckPeppolParticipantRegistered.class);
+  private static final Pattern PARAM_SEPARATOR = Pattern.compile ("[,\\s]+");
+  private static final AtomicInteger THREAD_COUNTER = new AtomicInteger (0);
+  private static final ThreadPoolExecutor EXECUTOR;
+
+  static
+  {
+    final int nThreads = Math.max (1, PeppolSharedAPIConfig.getRestBulkThreads ());
+    EXECUTOR = new ThreadPoolExecutor (nThreads,
+                                       nThreads,
+                                       60,
+                                       TimeUnit.SECONDS,
+                                       new ArrayBlockingQueue <> (Math.max (1, PeppolSharedAPIConfig.getRestBulkQueueSize ())),
+                                       r -> {
+                                         final Thread ret = new Thread (r, "bulk-check-" + THREAD_COUNTER.incrementAndGet ());
+                                         ret.setDaemon (true);
+                                         return ret;
+                                       },
+                                       new ThreadPoolExecutor.AbortPolicy ());
+    // Don't keep idle threads forever
+    EXECUTOR.allowCoreThreadTimeOut (true);
+  }
+
+  public APIBulkCheckPeppolParticipantRegistered (@NonNull @Nonempty final String sUserAgent)
+  {
+    super (sUserAgent);
+  }
+
+  private static void _addIfNotEmpty (@NonNull final ICommonsList <String> aTarget, @NonNull final String sValue)
+  {
+    final String sTrimmed = sValue.trim ();
+    // Ignore empty lines and comments
+    if (StringHelper.isNotEmpty (sTrimmed) && !sTrimmed.startsWith ("#"))
+    {
+      if (aTarget.size () >= PeppolSharedAPIConfig.getRestBulkMaxParticipants ())
+        throw new APIParamException ("At most " +
+                                     PeppolSharedAPIConfig.getRestBulkMaxParticipants () +
+                                     " participant IDs may be provided in a single request.");
+      aTarget.add (sTrimmed);
+    }
+  }
+
+  @NonNull
+  @ReturnsMutableCopy
+  static ICommonsList <String> readParticipantIDs (@NonNull final IRequestWebScopeWithoutResponse aRequestScope) throws IOException
+  {
+    final ICommonsList <String> ret = new CommonsArrayList <> ();
+
+    final String sParam = aRequestScope.params ().getAsString (PARAM_PARTICIPANT_IDS);
+    if (StringHelper.isNotEmpty (sParam))
+    {
+      for (final String sPart : PARAM_SEPARATOR.split (sParam))
+        _addIfNotEmpty (ret, sPart);
+    }
+    else
+    {
+      // Read the uploaded list line by line
+      try (final BufferedReader aReader = new BufferedReader (new InputStreamReader (aRequestScope.getRequest ()
+                                                                                                  .getInputStream (),
+                                                                                     StandardCharsets.UTF_8)))
+      {
+        String sLine;
+        while ((sLine = aReader.readLine ()) != null)
+          _addIfNotEmpty (ret, sLine);
+      }
+    }
+    return ret;
+  }
+
+  @NonNull
+  private static IJsonObject _createErrorJson (final int nIndex,
+                                               @NonNull final String sParticipantID,
+                                               @NonNull final String sSMLID,
+                                               @NonNull final String sError)
+  {
+    return new JsonObject ().add ("index", nIndex)
+                            .add ("participantID", sParticipantID)
+                            .add ("sml", sSMLID)
+                            .add ("error", sError);
+  }
+
+  private static void _addLine (@NonNull final QueuedLineInputStream aIS, @NonNull final IJsonObject aJson)
+  {
+    aIS.addLine (aJson.getAsJsonString ());
+  }
+
+  @Override
+  public void invokeAPI (@NonNull @Nonempty final String sLogPrefix,
+                         @NonNull final IAPIDescriptor aAPIDescriptor,
+                         @NonNull @Nonempty final String sPath,
+                         @NonNull final Map <String, String> aPathVariables,
+                         @NonNull final IRequestWebScopeWithoutResponse aRequestScope,
+                         @NonNull final PhotonUnifiedResponse aUnifiedResponse) throws IOException
+  {
+    final ISMLConfigurationManager aSMLConfigurationMgr = PhotonPeppolMetaManager.getSMLConfigurationMgr ();
+
+    final String sSMLID = aPathVariables.get (PeppolSharedRestAPI.PARAM_SML_ID);
+    final boolean bSMLAutoDetect = ISMLConfigurationManager.ID_AUTO_DETECT.equals (sSMLID);
+    final ISMLConfiguration aSMLConf = aSMLConfigurationMgr.getSMLConfigurationfID (sSMLID);
+    if (aSMLConf == null && !bSMLAutoDetect)
+      throw new APIParamException ("Unsupported SML ID '" + sSMLID + "' provided.");
+
+    final ICommonsList <String> aParticipantIDs = readParticipantIDs (aRequestScope);
+    if (aParticipantIDs.isEmpty ())
+      throw new APIParamException ("No participant IDs were provided.");
+
+    // A request that can never pass the rate limit is a client error
+    final long nRateLimitCapacity = PeppolSharedAPIConfig.getRestAPILimitRequestsInDuration ();
+    if (m_bRateLimitEnabled &&
+        PeppolSharedAPIConfig.getRestAPILimitDurationSeconds () > 0 &&
+        nRateLimitCapacity > 0 &&
+        aParticipantIDs.size () > nRateLimitCapacity)
+      throw new APIParamException ("At most " +
+                                   nRateLimitCapacity +
+                                   " participant IDs may be provided in a single request because of the rate limit.");
+
+    // One unit per participant - the first one was already consumed
+    if (aParticipantIDs.size () > 1 && isOverRateLimit (getRateLimitKey (aRequestScope), aParticipantIDs.size () - 1))
+    {
+      LOGGER.warn (sLogPrefix + "REST bulk rate limit exceeded for " + aParticipantIDs.size () + " participant IDs");
+      setTooManyRequests (aUnifiedResponse);
+      return;
+    }
+
+    LOGGER.info (sLogPrefix +
+                 "Checking " +
+                 aParticipantIDs.size () +
+                 " Peppol Participant IDs using SML '" +
+                 sSMLID +
+                 "'");
+
+    final ISMLConfiguration aQuerySMLConf = bSMLAutoDetect ? null : aSMLConf;
+    final int nCount = aParticipantIDs.size ();
+    final AtomicInteger aNextIndex = new AtomicInteger (0);
+    final AtomicInteger aRemaining = new AtomicInteger (nCount);
+    // Guarded by itself, so that no line is added after the timeout lines
+    final boolean [] aDone = new boolean [nCount];
+    final ICommonsList <Future <?>> aFutures = new CommonsArrayList <> ();
+    final Runnable aCancelAll = () -> {
+      for (final Future <?> aFuture : aFutures)
+        aFuture.cancel (true);
+    };
+    final long nTimeoutSecs = PeppolSharedAPIConfig.getRestBulkTimeoutSeconds ();
+    final QueuedLineInputStream aIS = new QueuedLineInputStream (System.nanoTime () +
+                                                                 TimeUnit.SECONDS.toNanos (nTimeoutSecs),
+                                                                 x -> {
+                                                                   LOGGER.warn (sLogPrefix +
+                                                                                "Bulk check timed out after " +
+                                                                                nTimeoutSecs +
+                                                                                " seconds with " +
+                                                                                aRemaining.get () +
+                                                                                " open participant IDs");
+                                                                   aCancelAll.run ();
+                                                                   synchronized (aDone)
+                                                                   {
+                                                                     for (int nIndex = 0; nIndex < nCount; ++nIndex)
+                                                                       if (!aDone[nIndex])
+                                                                       {
+                                                                         aDone[nIndex] = true;
+                                                                         _addLine (x,
+                                                                                   _createErrorJson (nIndex,
+                                                                                                     aParticipantIDs.get (nIndex),
+                                                                                                     sSMLID,
+                                                                                                     "timeout"));
+                                                                       }
+                                                                   }
+                                                                 },
+                                                                 aCancelAll);
+
+    // Each worker checks one participant after the other
+    final Runnable aWorker = () -> {
+      int nIndex;
+      while (!Thread.currentThread ().isInterrupted () && (nIndex = aNextIndex.getAndIncrement ()) < nCount)
+      {
+        final String sParticipantID = aParticipantIDs.get (nIndex);
+        IJsonObject aJson;
+        try
+        {
+          final IParticipantIdentifier aParticipantID = APIGetCheckPeppolParticipantRegistered.parseParticipantID (sParticipantID);
+          if (aParticipantID == null)
+            aJson = _createErrorJson (nIndex, sParticipantID, sSMLID, "The provided Peppol Participant ID is invalid");
+          else
+          {
+            aJson = APIGetCheckPeppolParticipantRegistered.checkParticipantRegistered (sSMLID,
+                                                                                        aQuerySMLConf,
+                                                                                        aParticipantID);
+            aJson.add ("index", nIndex);
+          }
+        }
+        catch (final APITimeoutException ex)
+        {
+          LOGGER.warn (sLogPrefix + ex.getMessage ());
+          aJson = _createErrorJson (nIndex, sParticipantID, sSMLID, "timeout");
+        }
+        catch (final RuntimeException ex)
+        {
+          LOGGER.warn (sLogPrefix + "Error checking Peppol Participant ID '" + sParticipantID + "': " + ex.getMessage ());
+          aJson = _createErrorJson (nIndex, sParticipantID, sSMLID, ex.getClass ().getName ());
+        }
+
+        synchronized (aDone)
+        {
+          if (!aDone[nIndex])
+          {
+            aDone[nIndex] = true;
+            _addLine (aIS, aJson);
+          }
+        }
+        if (aRemaining.decrementAndGet () == 0)
+          aIS.addEndOfStream ();
+      }
+    };
+
+    final int nWorkers = Math.min (nCount, Math.max (1, PeppolSharedAPIConfig.getRestBulkThreadsPerRequest ()));
+    try
+    {
+      for (int i = 0; i < nWorkers; ++i)
+        aFutures.add (EXECUTOR.submit (aWorker));
+    }
+    catch (final RejectedExecutionException ex)
+    {
+      aCancelAll.run ();
+      throw new APIOverloadException ("Too many concurrent bulk checks");
+    }
+
+    // The content is streamed after this method returned
+    aUnifiedResponse.setMimeType (MIME_TYPE_NDJSON)
+                    .setCharset (StandardCharsets.UTF_8)
+                    .setContent (new IHasInputStream ()
+                    {
+                      @NonNull
+                      public InputStream getInputStream ()
+                      {
+                        return aIS;
+                      }
+
+                      public boolean isReadMultiple ()
+                      {
+                        return false;
+                      }
+                    });
+  }
+}
@@ -25,6 +25,7 @@ import org.slf4j.LoggerFactory;
 import com.helger.base.debug.GlobalDebug;
 import com.helger.base.state.EHandled;
 import com.helger.base.string.StringHelper;
+import com.helger.http.CHttpHeader;
 import com.helger.peppol.api.config.PeppolSharedAPIConfig;
 import com.helger.photon.api.AbstractAPIExceptionMapper;
 import com.helger.photon.api.InvokableAPIDescriptor;
@@ -93,6 +94,24 @@ public class APIExceptionMapper extends AbstractAPIExceptionMapper
                                                          : getResponseEntityWithoutStackTrace (aThrowable));
       return EHandled.HANDLED;
     }
+    if (aThrowable instanceof APIOverloadException)
+    {
+      // Already logged as a warning
+      _setSimpleTextResponse (aUnifiedResponse,
+                              HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                              getResponseEntityWithoutStackTrace (aThrowable));
+      aUnifiedResponse.addCustomResponseHeader (CHttpHeader.RETRY_AFTER,
+                                                Integer.toString (AbstractAPIExecutor.DEFAULT_RETRY_AFTER_SECONDS));
+      return EHandled.HANDLED;
+    }
+    if (aThrowable instanceof APITimeoutException)
+    {
+      // Already logged as a warning
+      _setSimpleTextResponse (aUnifiedResponse,
+                              HttpServletResponse.SC_GATEWAY_TIMEOUT,
+                              getResponseEntityWithoutStackTrace (aThrowable));
+      return EHandled.HANDLED;
+    }
     if (aThrowable instanceof RuntimeException)
     {
       _logRestException ("Runtime exception - " + aThrowable.getClass ().getName (), aThrowable);
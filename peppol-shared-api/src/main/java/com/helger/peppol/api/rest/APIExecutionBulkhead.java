@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.api.rest;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+import org.jspecify.annotations.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.annotation.Nonempty;
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.annotation.style.ReturnsMutableCopy;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.collection.commons.CommonsTreeSet;
+import com.helger.collection.commons.ICommonsSortedSet;
+import com.helger.peppol.api.config.PeppolSharedAPIConfig;
+
+/**
+ * Limits the number of concurrent REST API invocations per endpoint group. Invocations exceeding
+ * the limit of their group are rejected immediately with an {@link APIOverloadException} (HTTP 503)
+ * instead of being queued. That ensures that slow SMPs can only occupy a bounded number of
+ * container threads, and that a slow endpoint group cannot starve the others.<br>
+ * The invocations run on the calling container thread - there is no offloading, as the container
+ * thread would need to wait for the result anyway.
+ *
+ * @author Philip Helger
+ */
+@ThreadSafe
+public final class APIExecutionBulkhead
+{
+  /** The endpoint group of all APIs that query SMPs */
+  public static final String GROUP_SMP_QUERY = "smpquery";
+
+  private static final Logger LOGGER = LoggerFactory.getLogger (APIExecutionBulkhead.class);
+  private static final ConcurrentHashMap <String, Bulkhead> BULKHEADS = new ConcurrentHashMap <> ();
+
+  /**
+   * The bulkhead of a single endpoint group.
+   */
+  private static final class Bulkhead
+  {
+    private final int m_nMaxInFlight;
+    private final Semaphore m_aPermits;
+
+    Bulkhead (@Nonnegative final int nMaxInFlight)
+    {
+      m_nMaxInFlight = nMaxInFlight;
+      m_aPermits = new Semaphore (nMaxInFlight);
+    }
+  }
+
+  private APIExecutionBulkhead ()
+  {}
+
+  /**
+   * @return <code>true</code> if the bulkheads are enabled in the configuration.
+   */
+  public static boolean isEnabled ()
+  {
+    return PeppolSharedAPIConfig.isRestExecutionBulkheadEnabled ();
+  }
+
+  @NonNull
+  private static Bulkhead _getBulkhead (@NonNull @Nonempty final String sGroup)
+  {
+    return BULKHEADS.computeIfAbsent (sGroup,
+                                      k -> new Bulkhead (Math.max (1,
+                                                                   PeppolSharedAPIConfig.getRestExecutionMaxInFlight (k))));
+  }
+
+  /**
+   * @return All endpoint groups that were used so far. Never <code>null</code>.
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  public static ICommonsSortedSet <String> getAllGroups ()
+  {
+    return new CommonsTreeSet <> (BULKHEADS.keySet ());
+  }
+
+  /**
+   * @param sGroup
+   *        The endpoint group. May neither be <code>null</code> nor empty.
+   * @return The maximum number of concurrent invocations of the provided group.
+   */
+  @Nonnegative
+  public static int getMaxInFlight (@NonNull @Nonempty final String sGroup)
+  {
+    return _getBulkhead (sGroup).m_nMaxInFlight;
+  }
+
+  /**
+   * @param sGroup
+   *        The endpoint group. May neither be <code>null</code> nor empty.
+   * @return The number of currently running invocations of the provided group.
+   */
+  @Nonnegative
+  public static int getInFlight (@NonNull @Nonempty final String sGroup)
+  {
+    final Bulkhead aBulkhead = _getBulkhead (sGroup);
+    return aBulkhead.m_nMaxInFlight - aBulkhead.m_aPermits.availablePermits ();
+  }
+
+  /**
+   * Execute the provided callable on the calling thread, if the maximum number of concurrent
+   * invocations of the provided group is not yet reached.
+   *
+   * @param <T>
+   *        The result type
+   * @param sLogPrefix
+   *        The log prefix to use. May not be <code>null</code>.
+   * @param sGroup
+   *        The endpoint group. May neither be <code>null</code> nor empty.
+   * @param aCallable
+   *        The callable to execute. May not be <code>null</code>.
+   * @return The result of the callable.
+   * @throws APIOverloadException
+   *         If the maximum number of concurrent invocations of the group is reached
+   * @throws Exception
+   *         Any exception thrown by the callable
+   */
+  public static <T> T execute (@NonNull final String sLogPrefix,
+                               @NonNull @Nonempty final String sGroup,
+                               @NonNull final Callable <T> aCallable) throws Exception
+  {
+    ValueEnforcer.notEmpty (sGroup, "Group");
+    ValueEnforcer.notNull (aCallable, "Callable");
+
+    final Bulkhead aBulkhead = _getBulkhead (sGroup);
+    if (!aBulkhead.m_aPermits.tryAcquire ())
+    {
+      LOGGER.warn (sLogPrefix +
+                   "Rejecting REST API invocation, because " +
+                   aBulkhead.m_nMaxInFlight +
+                   " invocations of group '" +
+                   sGroup +
+                   "' are in flight");
+      throw new APIOverloadException ("Too many concurrent requests - please try again later");
+    }
+
+    try
+    {
+      return aCallable.call ();
+    }
+    finally
+    {
+      aBulkhead.m_aPermits.release ();
+    }
+  }
+}
@@ -17,6 +17,7 @@
 package com.helger.peppol.api.rest;
 
 import java.io.IOException;
+import java.net.URI;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Map;
@@ -35,6 +36,7 @@ import com.helger.peppol.ui.types.mgr.PhotonPeppolMetaManager;
 import com.helger.peppol.ui.types.smlconfig.ISMLConfiguration;
 import com.helger.peppol.ui.types.smlconfig.ISMLConfigurationManager;
 import com.helger.peppol.ui.types.smp.PeppolExistenceCheck;
+import com.helger.peppol.ui.types.smp.SMLAutoDetector;
 import com.helger.peppolid.CIdentifier;
 import com.helger.peppolid.IParticipantIdentifier;
 import com.helger.peppolid.factory.PeppolIdentifierFactory;
@@ -63,14 +65,25 @@ public final class APIGetCheckPeppolParticipantRegistered extends AbstractAPIExe
   public static IJsonObject createResultJson (@NonNull final String sSMLID,
                                               @NonNull final ISMLConfiguration aEffectiveSMLConf,
                                               @NonNull final IParticipantIdentifier aParticipantID)
+  {
+    final URI aSMPHostURI = aEffectiveSMLConf == null ? null : PeppolExistenceCheck.getSMPURIViaNaptr (aParticipantID,
+                                                                                                        aEffectiveSMLConf.getSMLInfo ()
+                                                                                                                         .getDNSZone ());
+    return createResultJson (sSMLID, aEffectiveSMLConf, aParticipantID, aSMPHostURI);
+  }
+
+  @NonNull
+  public static IJsonObject createResultJson (@NonNull final String sSMLID,
+                                              @Nullable final ISMLConfiguration aEffectiveSMLConf,
+                                              @NonNull final IParticipantIdentifier aParticipantID,
+                                              @Nullable final URI aSMPHostURI)
   {
     final IJsonObject ret = new JsonObject ();
     ret.add ("participantID", aParticipantID.getURIEncoded ());
     ret.add ("sml", sSMLID);
     if (aEffectiveSMLConf != null)
     {
-      ret.add ("smpHostURI",
-               PeppolExistenceCheck.getSMPURIViaNaptr (aParticipantID, aEffectiveSMLConf.getSMLInfo ().getDNSZone ()));
+      ret.add ("smpHostURI", aSMPHostURI);
     }
     // This is the main check result
     ret.add ("exists", aEffectiveSMLConf != null);
@@ -98,6 +111,91 @@ public final class APIGetCheckPeppolParticipantRegistered extends AbstractAPIExe
     return ret;
   }
 
+  /**
+   * Parse the provided participant ID. If no identifier scheme is present, the default Peppol
+   * participant identifier scheme is prepended.
+   *
+   * @param sParticipantID
+   *        The participant ID to parse. May be <code>null</code>.
+   * @return <code>null</code> if the participant ID is invalid.
+   */
+  @Nullable
+  public static IParticipantIdentifier parseParticipantID (@Nullable final String sParticipantID)
+  {
+    String sRealParticipantID = sParticipantID;
+    if (sRealParticipantID != null)
+    {
+      // Add prefix on demand
+      if (!sRealParticipantID.startsWith (PeppolIdentifierHelper.PARTICIPANT_SCHEME_ISO6523_ACTORID_UPIS))
+      {
+        sRealParticipantID = CIdentifier.getURIEncoded (PeppolIdentifierHelper.PARTICIPANT_SCHEME_ISO6523_ACTORID_UPIS,
+                                                        sRealParticipantID);
+      }
+    }
+    return PeppolIdentifierFactory.INSTANCE.parseParticipantIdentifier (sRealParticipantID);
+  }
+
+  /**
+   * Check if the provided participant is registered in DNS and create the JSON response object
+   * including the query date time and duration.
+   *
+   * @param sSMLID
+   *        The SML ID as provided by the caller. May not be <code>null</code>.
+   * @param aSMLConf
+   *        The SML configuration to use. May be <code>null</code> if auto detection should be used.
+   * @param aParticipantID
+   *        The participant ID to check. May not be <code>null</code>.
+   * @return The JSON result object. The boolean property <code>exists</code> contains the main
+   *         check result.
+   * @throws APITimeoutException
+   *         If the SML auto detection could not determine the SML in time
+   */
+  @NonNull
+  public static IJsonObject checkParticipantRegistered (@NonNull final String sSMLID,
+                                                        @Nullable final ISMLConfiguration aSMLConf,
+                                                        @NonNull final IParticipantIdentifier aParticipantID)
+  {
+    final ZonedDateTime aQueryDT = PDTFactory.getCurrentZonedDateTimeUTC ();
+    final StopWatch aSW = StopWatch.createdStarted ();
+
+    ISMLConfiguration aEffectiveSMLConf = null;
+    URI aSMPHostURI = null;
+    if (aSMLConf == null)
+    {
+      // Query all SMLs in parallel
+      final SMLAutoDetector.Result <URI> aResult = SMLAutoDetector.detect (PhotonPeppolMetaManager.getSMLConfigurationMgr ()
+                                                                                                  .getAllSorted (),
+                                                                           aCurSMLConf -> PeppolExistenceCheck.getSMPURIViaNaptr (aParticipantID,
+                                                                                                                                  aCurSMLConf.getSMLInfo ()
+                                                                                                                                             .getDNSZone ()));
+      if (aResult != null)
+      {
+        // Don't claim "not existing" if a higher priority SML did not answer in time
+        if (aResult.isUndetermined ())
+          throw new APITimeoutException ("The SML of participant ID '" +
+                                         aParticipantID.getURIEncoded () +
+                                         "' could not be determined in time");
+        aEffectiveSMLConf = aResult.getSMLConfiguration ();
+        aSMPHostURI = aResult.getResult ();
+      }
+    }
+    else
+    {
+      aSMPHostURI = PeppolExistenceCheck.getSMPURIViaNaptr (aParticipantID, aSMLConf.getSMLInfo ().getDNSZone ());
+      if (aSMPHostURI != null)
+        aEffectiveSMLConf = aSMLConf;
+    }
+
+    // Use the already resolved SMP host URI
+    final IJsonObject ret = createResultJson (sSMLID, aEffectiveSMLConf, aParticipantID, aSMPHostURI);
+
+    aSW.stop ();
+
+    ret.add ("queryDateTime", DateTimeFormatter.ISO_ZONED_DATE_TIME.format (aQueryDT));
+    ret.add ("queryDurationMillis", aSW.getMillis ());
+    return ret;
+  }
+
   @Override
   public void invokeAPI (@NonNull @Nonempty final String sLogPrefix,
                          @NonNull final IAPIDescriptor aAPIDescriptor,
@@ -114,18 +212,8 @@ public final class APIGetCheckPeppolParticipantRegistered extends AbstractAPIExe
     if (aSMLConf == null && !bSMLAutoDetect)
       throw new APIParamException ("Unsupported SML ID '" + sSMLID + "' provided.");
 
-    String sParticipantID = aPathVariables.get (PeppolSharedRestAPI.PARAM_PARTICIPANT_ID);
-    if (sParticipantID != null)
-    {
-      // Add prefix on demand
-      if (!sParticipantID.startsWith (PeppolIdentifierHelper.PARTICIPANT_SCHEME_ISO6523_ACTORID_UPIS))
-      {
-        sParticipantID = CIdentifier.getURIEncoded (PeppolIdentifierHelper.PARTICIPANT_SCHEME_ISO6523_ACTORID_UPIS,
-                                                    sParticipantID);
-      }
-    }
-
-    final IParticipantIdentifier aParticipantID = PeppolIdentifierFactory.INSTANCE.parseParticipantIdentifier (sParticipantID);
+    final String sParticipantID = aPathVariables.get (PeppolSharedRestAPI.PARAM_PARTICIPANT_ID);
+    final IParticipantIdentifier aParticipantID = parseParticipantID (sParticipantID);
     if (aParticipantID == null)
     {
       final String sMsg = "The provided Peppol Participant ID '" + sParticipantID + "' is invalid";
@@ -134,47 +222,16 @@ public final class APIGetCheckPeppolParticipantRegistered extends AbstractAPIExe
       return;
     }
 
-    final ZonedDateTime aQueryDT = PDTFactory.getCurrentZonedDateTimeUTC ();
-    final StopWatch aSW = StopWatch.createdStarted ();
-
-    ISMLConfiguration aEffectiveSMLConf = null;
-    boolean bRegistered;
-    if (bSMLAutoDetect)
-    {
-      bRegistered = false;
-      for (final ISMLConfiguration aCurSMLConf : aSMLConfigurationMgr.getAllSorted ())
-      {
-        bRegistered = PeppolExistenceCheck.isSMPRegisteredInDNSViaNaptr (aParticipantID,
-                                                                         aCurSMLConf.getSMLInfo ().getDNSZone ());
-        if (bRegistered)
-        {
-          aEffectiveSMLConf = aCurSMLConf;
-          break;
-        }
-      }
-    }
-    else
-    {
-      bRegistered = PeppolExistenceCheck.isSMPRegisteredInDNSViaNaptr (aParticipantID,
-                                                                       aSMLConf.getSMLInfo ().getDNSZone ());
-      if (bRegistered)
-        aEffectiveSMLConf = aSMLConf;
-    }
-
-    final IJsonObject aJson = createResultJson (sSMLID, aEffectiveSMLConf, aParticipantID);
-
-    aSW.stop ();
-
-    aJson.add ("queryDateTime", DateTimeFormatter.ISO_ZONED_DATE_TIME.format (aQueryDT));
-    aJson.add ("queryDurationMillis", aSW.getMillis ());
+    final IJsonObject aJson = checkParticipantRegistered (sSMLID, bSMLAutoDetect ? null : aSMLConf, aParticipantID);
+    final long nDurationMillis = aJson.getAsLong ("queryDurationMillis");
 
-    if (bRegistered)
+    if (aJson.getAsBoolean ("exists"))
     {
       LOGGER.info (sLogPrefix +
                    "Peppol Participant ID '" +
-                   sParticipantID +
+                   aParticipantID.getURIEncoded () +
                    "' is registered in DNS. Took " +
-                   aSW.getMillis () +
+                   nDurationMillis +
                    " milliseconds");
       aUnifiedResponse.json (aJson);
     }
@@ -182,9 +239,9 @@ public final class APIGetCheckPeppolParticipantRegistered extends AbstractAPIExe
     {
       LOGGER.warn (sLogPrefix +
                    "Peppol Participant ID '" +
-                   sParticipantID +
+                   aParticipantID.getURIEncoded () +
                    "' is NOT registered in DNS. Took " +
-                   aSW.getMillis () +
+                   nDurationMillis +
                    " milliseconds");
       aUnifiedResponse.createNotFound ().json (aJson);
     }
@@ -0,0 +1,253 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.api.rest;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.HexFormat;
+import java.util.Map;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.Nonempty;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.collection.commons.ICommonsSortedSet;
+import com.helger.mime.EMimeContentType;
+import com.helger.mime.MimeType;
+import com.helger.peppol.api.cache.BusinessCardCache;
+import com.helger.peppol.api.cache.ServiceGroupCache;
+import com.helger.peppol.api.config.PeppolSharedAPIConfig;
+import com.helger.peppol.api.metrics.APIEndpointMetrics;
+import com.helger.peppol.api.metrics.APIMetrics;
+import com.helger.peppol.api.metrics.EAPIOutcome;
+import com.helger.peppol.api.metrics.PrometheusTextBuilder;
+import com.helger.peppol.api.ratelimit.APIRateLimiters;
+import com.helger.peppol.api.ratelimit.HeavyHitterTracker;
+import com.helger.peppol.ui.types.cache.ExpiringCache;
+import com.helger.peppol.ui.types.concurrent.SingleFlight;
+import com.helger.peppol.ui.types.smp.PeppolExistenceCheck;
+import com.helger.photon.api.IAPIDescriptor;
+import com.helger.photon.app.PhotonUnifiedResponse;
+import com.helger.web.scope.IRequestWebScopeWithoutResponse;
+
+/**
+ * Expose the API metrics, the cache statistics and the concurrency gauges in the Prometheus text
+ * format, so that they can be scraped. The clients with the highest request volume are only exposed
+ * if enabled in the configuration, and only as salted hashes of the client keys (which usually
+ * contain IP addresses). The salt is created randomly per JVM.
+ *
+ * @author Philip Helger
+ */
+public final class APIGetMetrics extends AbstractAPIExecutor
+{
+  /** The content type of the Prometheus text exposition format */
+  public static final MimeType MIME_TYPE_PROMETHEUS_TEXT = new MimeType (EMimeContentType.TEXT,
+                                                                         "plain").addParameter ("version", "0.0.4");
+
+  private static final double [] QUANTILES = { 0.5, 0.9, 0.95, 0.99 };
+  private static final int CLIENT_LABEL_HEX_CHARS = 16;
+  private static final byte [] CLIENT_LABEL_SALT = new byte [16];
+
+  static
+  {
+    new SecureRandom ().nextBytes (CLIENT_LABEL_SALT);
+  }
+
+  public APIGetMetrics (@NonNull @Nonempty final String sUserAgent)
+  {
+    super (sUserAgent);
+  }
+
+  private static void _addAPIMetrics (@NonNull final PrometheusTextBuilder aPTB)
+  {
+    final ICommonsList <APIEndpointMetrics> aEndpoints = APIMetrics.getAllEndpoints ();
+
+    aPTB.family ("peppol_api_requests_total", PrometheusTextBuilder.TYPE_COUNTER, "Total number of API requests");
+    for (final APIEndpointMetrics aEP : aEndpoints)
+      aPTB.sample ("peppol_api_requests_total", new String [] { "api", aEP.getName () }, aEP.getRequestCount ());
+
+    aPTB.family ("peppol_api_responses_total",
+                 PrometheusTextBuilder.TYPE_COUNTER,
+                 "Total number of API responses by outcome");
+    for (final APIEndpointMetrics aEP : aEndpoints)
+      for (final EAPIOutcome eOutcome : EAPIOutcome.values ())
+        aPTB.sample ("peppol_api_responses_total",
+                     new String [] { "api", aEP.getName (), "outcome", eOutcome.getLabel () },
+                     aEP.getOutcomeCount (eOutcome));
+
+    aPTB.family ("peppol_api_rate_limited_total",
+                 PrometheusTextBuilder.TYPE_COUNTER,
+                 "Total number of API requests rejected by the rate limiter");
+    for (final APIEndpointMetrics aEP : aEndpoints)
+      aPTB.sample ("peppol_api_rate_limited_total", new String [] { "api", aEP.getName () }, aEP.getRateLimitedCount ());
+
+    aPTB.family ("peppol_api_in_flight", PrometheusTextBuilder.TYPE_GAUGE, "Number of API requests currently executing");
+    for (final APIEndpointMetrics aEP : aEndpoints)
+      aPTB.sample ("peppol_api_in_flight", new String [] { "api", aEP.getName () }, aEP.getInFlight ());
+
+    aPTB.family ("peppol_api_request_duration_seconds",
+                 PrometheusTextBuilder.TYPE_HISTOGRAM,
+                 "Duration of API requests");
+    for (final APIEndpointMetrics aEP : aEndpoints)
+      aPTB.histogram ("peppol_api_request_duration_seconds", "api", aEP.getName (), aEP.getLatency ());
+
+    // The quantiles are estimated from the histogram buckets
+    aPTB.family ("peppol_api_request_duration_summary_seconds",
+                 PrometheusTextBuilder.TYPE_SUMMARY,
+                 "Estimated quantiles of the duration of API requests since startup");
+    for (final APIEndpointMetrics aEP : aEndpoints)
+      aPTB.summary ("peppol_api_request_duration_summary_seconds", "api", aEP.getName (), aEP.getLatency (), QUANTILES);
+  }
+
+  private static void _addCacheMetrics (@NonNull final PrometheusTextBuilder aPTB)
+  {
+    final ExpiringCache <?, ?> [] aCaches = { PeppolExistenceCheck.getResolutionCache (),
+                                              ServiceGroupCache.getCache (),
+                                              BusinessCardCache.getCache () };
+
+    aPTB.family ("peppol_cache_size", PrometheusTextBuilder.TYPE_GAUGE, "Number of cache entries");
+    for (final ExpiringCache <?, ?> aCache : aCaches)
+      aPTB.sample ("peppol_cache_size", new String [] { "cache", aCache.getName () }, aCache.size ());
+
+    aPTB.family ("peppol_cache_hits_total", PrometheusTextBuilder.TYPE_COUNTER, "Number of cache hits");
+    for (final ExpiringCache <?, ?> aCache : aCaches)
+      aPTB.sample ("peppol_cache_hits_total", new String [] { "cache", aCache.getName () }, aCache.getHitCount ());
+
+    aPTB.family ("peppol_cache_misses_total", PrometheusTextBuilder.TYPE_COUNTER, "Number of cache misses");
+    for (final ExpiringCache <?, ?> aCache : aCaches)
+      aPTB.sample ("peppol_cache_misses_total", new String [] { "cache", aCache.getName () }, aCache.getMissCount ());
+
+    aPTB.family ("peppol_cache_evictions_total", PrometheusTextBuilder.TYPE_COUNTER, "Number of cache evictions");
+    for (final ExpiringCache <?, ?> aCache : aCaches)
+      aPTB.sample ("peppol_cache_evictions_total",
+                   new String [] { "cache", aCache.getName () },
+                   aCache.getEvictionCount ());
+
+    aPTB.family ("peppol_cache_expirations_total",
+                 PrometheusTextBuilder.TYPE_COUNTER,
+                 "Number of expired cache entries");
+    for (final ExpiringCache <?, ?> aCache : aCaches)
+      aPTB.sample ("peppol_cache_expirations_total",
+                   new String [] { "cache", aCache.getName () },
+                   aCache.getExpirationCount ());
+  }
+
+  private static void _addConcurrencyMetrics (@NonNull final PrometheusTextBuilder aPTB)
+  {
+    final SingleFlight <?, ?> [] aSingleFlights = { PeppolAPIHelper.getDocumentTypesCalls (),
+                                                    PeppolAPIHelper.getServiceMetadataCalls () };
+
+    aPTB.family ("peppol_smp_query_executions_total",
+                 PrometheusTextBuilder.TYPE_COUNTER,
+                 "Number of SMP queries actually executed");
+    for (final SingleFlight <?, ?> aSF : aSingleFlights)
+      aPTB.sample ("peppol_smp_query_executions_total", new String [] { "query", aSF.getName () }, aSF.getExecutionCount ());
+
+    aPTB.family ("peppol_smp_query_coalesced_total",
+                 PrometheusTextBuilder.TYPE_COUNTER,
+                 "Number of SMP queries that joined an identical running query");
+    for (final SingleFlight <?, ?> aSF : aSingleFlights)
+      aPTB.sample ("peppol_smp_query_coalesced_total", new String [] { "query", aSF.getName () }, aSF.getCoalescedCount ());
+
+    aPTB.family ("peppol_smp_query_running",
+                 PrometheusTextBuilder.TYPE_GAUGE,
+                 "Number of distinct SMP queries currently running");
+    for (final SingleFlight <?, ?> aSF : aSingleFlights)
+      aPTB.sample ("peppol_smp_query_running", new String [] { "query", aSF.getName () }, aSF.getRunningCount ());
+
+    if (PeppolSharedAPIConfig.isRestAPIHeavyHittersMetricsEnabled ())
+    {
+      aPTB.family ("peppol_api_top_client_requests",
+                   PrometheusTextBuilder.TYPE_GAUGE,
+                   "Estimated number of rate limited API requests of the clients with the highest volume in the current window");
+      for (final HeavyHitterTracker.HeavyHitter aHH : APIRateLimiters.getHeavyHitters ().getTop ())
+        aPTB.sample ("peppol_api_top_client_requests",
+                     new String [] { "client", getClientLabel (aHH.getKey ()) },
+                     aHH.getCount ());
+    }
+
+    if (APIExecutionBulkhead.isEnabled ())
+    {
+      final ICommonsSortedSet <String> aGroups = APIExecutionBulkhead.getAllGroups ();
+      aPTB.family ("peppol_api_execution_in_flight",
+                   PrometheusTextBuilder.TYPE_GAUGE,
+                   "Number of API invocations currently running per endpoint group");
+      for (final String sGroup : aGroups)
+        aPTB.sample ("peppol_api_execution_in_flight",
+                     new String [] { "group", sGroup },
+                     APIExecutionBulkhead.getInFlight (sGroup));
+      aPTB.family ("peppol_api_execution_max_in_flight",
+                   PrometheusTextBuilder.TYPE_GAUGE,
+                   "Maximum number of API invocations running concurrently per endpoint group");
+      for (final String sGroup : aGroups)
+        aPTB.sample ("peppol_api_execution_max_in_flight",
+                     new String [] { "group", sGroup },
+                     APIExecutionBulkhead.getMaxInFlight (sGroup));
+    }
+  }
+
+  /**
+   * Get the pseudonymous metrics label of a client key. The same key results in the same label
+   * within the same JVM, but the original key cannot be determined from the label.
+   *
+   * @param sClientKey
+   *        The client key, e.g. containing the IP address. May not be <code>null</code>.
+   * @return The label value. Never <code>null</code>.
+   */
+  @NonNull
+  static String getClientLabel (@NonNull final String sClientKey)
+  {
+    try
+    {
+      final MessageDigest aMD = MessageDigest.getInstance ("SHA-256");
+      aMD.update (CLIENT_LABEL_SALT);
+      final byte [] aDigest = aMD.digest (sClientKey.getBytes (StandardCharsets.UTF_8));
+      return HexFormat.of ().formatHex (aDigest).substring (0, CLIENT_LABEL_HEX_CHARS);
+    }
+    catch (final NoSuchAlgorithmException ex)
+    {
+      throw new IllegalStateException ("SHA-256 is not available", ex);
+    }
+  }
+
+  /**
+   * @return The complete metrics in the Prometheus text format. Never <code>null</code>.
+   */
+  @NonNull
+  public static String getMetricsAsText ()
+  {
+    final PrometheusTextBuilder aPTB = new PrometheusTextBuilder ();
+    _addAPIMetrics (aPTB);
+    _addCacheMetrics (aPTB);
+    _addConcurrencyMetrics (aPTB);
+    return aPTB.getAsString ();
+  }
+
+  @Override
+  protected void invokeAPI (@NonNull @Nonempty final String sLogPrefix,
+                            @NonNull final IAPIDescriptor aAPIDescriptor,
+                            @NonNull @Nonempty final String sPath,
+                            @NonNull final Map <String, String> aPathVariables,
+                            @NonNull final IRequestWebScopeWithoutResponse aRequestScope,
+                            @NonNull final PhotonUnifiedResponse aUnifiedResponse) throws Exception
+  {
+    aUnifiedResponse.setContentAndCharset (getMetricsAsText (), StandardCharsets.UTF_8)
+                    .setMimeType (MIME_TYPE_PROMETHEUS_TEXT);
+  }
+}
@@ -16,6 +16,8 @@
  */
 package com.helger.peppol.api.rest;
 
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Map;
@@ -28,8 +30,9 @@ import com.helger.annotation.Nonempty;
 import com.helger.base.CGlobal;
 import com.helger.base.timing.StopWatch;
 import com.helger.datetime.helper.PDTFactory;
-import com.helger.json.IJsonObject;
-import com.helger.peppol.businesscard.generic.PDBusinessCard;
+import com.helger.mime.CMimeType;
+import com.helger.peppol.api.cache.BusinessCardCache;
+import com.helger.peppol.api.json.JsonStreamWriter;
 import com.helger.peppol.ui.types.feedbackcb.FeedbackCallbackLog;
 import com.helger.peppol.ui.types.smp.SMPQueryParams;
 import com.helger.photon.api.IAPIDescriptor;
@@ -45,6 +48,12 @@ public final class APISMPQueryGetBusinessCard extends AbstractAPIExecutor
     super (sUserAgent);
   }
 
+  @Override
+  protected String getExecutionGroup ()
+  {
+    return APIExecutionBulkhead.GROUP_SMP_QUERY;
+  }
+
   @Override
   protected void invokeAPI (@NonNull @Nonempty final String sLogPrefix,
                             @NonNull final IAPIDescriptor aAPIDescriptor,
@@ -69,17 +78,17 @@ public final class APISMPQueryGetBusinessCard extends AbstractAPIExecutor
       return;
     }
 
-    // Main SMP query inside
-    final PDBusinessCard aBC = PeppolAPIHelper.retrieveBusinessCardParsed (sLogPrefix,
-                                                                           aSMPQueryParams,
-                                                                           m_aHCSModifier,
-                                                                           new FeedbackCallbackLog (LOGGER, sLogPrefix),
-                                                                           ex -> {});
-    final IJsonObject aBCJson = aBC == null ? null : aBC.getAsJson ();
+    // Main SMP query inside - using the Business Card cache
+    final BusinessCardCache.Entry aBC = PeppolAPIHelper.retrieveBusinessCardCached (sLogPrefix,
+                                                                                    aSMPQueryParams,
+                                                                                    m_aHCSModifier,
+                                                                                    new FeedbackCallbackLog (LOGGER,
+                                                                                                             sLogPrefix),
+                                                                                    ex -> {});
 
     aSW.stop ();
 
-    if (aBCJson == null)
+    if (aBC == null)
     {
       final String sMsg = "Failed to resolve BusinessCard for participant ID '" +
                           sParticipantID +
@@ -96,10 +105,23 @@ public final class APISMPQueryGetBusinessCard extends AbstractAPIExecutor
                    aSW.getMillis () +
                    " milliseconds");
 
-      aBCJson.add ("queryDateTime", DateTimeFormatter.ISO_ZONED_DATE_TIME.format (aQueryDT));
-      aBCJson.add ("queryDurationMillis", aSW.getMillis ());
+      final String sQueryDT = DateTimeFormatter.ISO_ZONED_DATE_TIME.format (aQueryDT);
+      // Extend the precomputed JSON object members with the query details
+      final boolean bFormatted = isJsonFormatted (aRequestScope);
+      final StringWriter aJsonSW = new StringWriter ();
+      new JsonStreamWriter (aJsonSW, bFormatted).beginObject ()
+                                                .rawMembers (bFormatted ? aBC.getJsonMembersFormatted ()
+                                                                        : aBC.getJsonMembers ())
+                                                .name ("queryDateTime")
+                                                .value (sQueryDT)
+                                                .name ("queryDurationMillis")
+                                                .value (aSW.getMillis ())
+                                                .endObject ();
 
-      aUnifiedResponse.json (aBCJson).enableCaching (3 * CGlobal.SECONDS_PER_HOUR);
+      aUnifiedResponse.setMimeType (CMimeType.APPLICATION_JSON)
+                      .setCharset (StandardCharsets.UTF_8)
+                      .setContent (aJsonSW.toString ().getBytes (StandardCharsets.UTF_8));
+      aUnifiedResponse.enableCaching (3 * CGlobal.SECONDS_PER_HOUR);
     }
   }
 }
@@ -16,6 +16,9 @@
  */
 package com.helger.peppol.api.rest;
 
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Map;
@@ -26,21 +29,17 @@ import org.slf4j.LoggerFactory;
 
 import com.helger.annotation.Nonempty;
 import com.helger.base.CGlobal;
+import com.helger.base.io.nonblocking.NonBlockingByteArrayOutputStream;
 import com.helger.base.timing.StopWatch;
 import com.helger.collection.commons.CommonsTreeMap;
 import com.helger.collection.commons.ICommonsOrderedMap;
 import com.helger.datetime.helper.PDTFactory;
-import com.helger.json.IJsonObject;
-import com.helger.json.JsonObject;
+import com.helger.mime.CMimeType;
+import com.helger.peppol.api.cache.BusinessCardCache;
+import com.helger.peppol.api.json.JsonStreamWriter;
 import com.helger.peppol.api.json.PeppolSharedSMPJsonHelper;
-import com.helger.peppol.businesscard.generic.PDBusinessCard;
-import com.helger.peppol.sml.ESMPAPIType;
 import com.helger.peppol.ui.types.feedbackcb.FeedbackCallbackLog;
-import com.helger.peppol.ui.types.smp.ISMPClientCreationCallback;
-import com.helger.peppol.ui.types.smp.ISMPExtensionsCallback;
 import com.helger.peppol.ui.types.smp.SMPQueryParams;
-import com.helger.peppolid.IParticipantIdentifier;
-import com.helger.peppolid.factory.IIdentifierFactory;
 import com.helger.photon.api.IAPIDescriptor;
 import com.helger.photon.app.PhotonUnifiedResponse;
 import com.helger.web.scope.IRequestWebScopeWithoutResponse;
@@ -58,6 +57,12 @@ public final class APISMPQueryGetDocTypes extends AbstractAPIExecutor
     super (sUserAgent);
   }
 
+  @Override
+  protected String getExecutionGroup ()
+  {
+    return APIExecutionBulkhead.GROUP_SMP_QUERY;
+  }
+
   @Override
   protected void invokeAPI (@NonNull @Nonempty final String sLogPrefix,
                             @NonNull final IAPIDescriptor aAPIDescriptor,
@@ -85,52 +90,31 @@ public final class APISMPQueryGetDocTypes extends AbstractAPIExecutor
       return;
     }
 
-    // Main SMP query inside
-    final ICommonsOrderedMap <String, String> aSGHrefs = PeppolAPIHelper.retrieveAllDocumentTypes (sLogPrefix,
-                                                                                                   aSMPQueryParams,
-                                                                                                   m_aHCSModifier,
-                                                                                                   bXMLSchemaValidation,
-                                                                                                   bVerifySignature,
-                                                                                                   ISMPClientCreationCallback.IGNORE,
-                                                                                                   sHref -> LOGGER.info (sLogPrefix +
-                                                                                                                         "The Service Group list contains the duplicate URL '" +
-                                                                                                                         sHref +
-                                                                                                                         "'"),
-                                                                                                   m -> {},
-                                                                                                   ISMPExtensionsCallback.IGNORE,
-                                                                                                   ex -> {});
-
-    IJsonObject aJson = null;
-    if (aSGHrefs != null)
-    {
-      final IParticipantIdentifier aParticipantID = aSMPQueryParams.getParticipantID ();
-      final ESMPAPIType eAPIType = aSMPQueryParams.getSMPAPIType ();
-      final IIdentifierFactory aIF = aSMPQueryParams.getIF ();
-
-      // Use a sorted map for deterministic results
-      aJson = PeppolSharedSMPJsonHelper.convert (eAPIType, aParticipantID, new CommonsTreeMap <> (aSGHrefs), aIF);
-    }
-
+    // Main SMP query inside - using the service group cache
+    final ICommonsOrderedMap <String, String> aSGHrefs = PeppolAPIHelper.retrieveAllDocumentTypesCached (sLogPrefix,
+                                                                                                         aSMPQueryParams,
+                                                                                                         m_aHCSModifier,
+                                                                                                         bXMLSchemaValidation,
+                                                                                                         bVerifySignature,
+                                                                                                         sHref -> LOGGER.info (sLogPrefix +
+                                                                                                                               "The Service Group list contains the duplicate URL '" +
+                                                                                                                               sHref +
+                                                                                                                               "'"),
+                                                                                                         ex -> {});
+
+    BusinessCardCache.Entry aBC = null;
     if (bQueryBusinessCard)
     {
-      final PDBusinessCard aBC = PeppolAPIHelper.retrieveBusinessCardParsed (sLogPrefix,
-                                                                             aSMPQueryParams,
-                                                                             m_aHCSModifier,
-                                                                             new FeedbackCallbackLog (LOGGER,
-                                                                                                      sLogPrefix),
-                                                                             ex -> {});
-      if (aBC != null)
-      {
-        // Business Card found
-        if (aJson == null)
-          aJson = new JsonObject ();
-        aJson.add (PARAM_BUSINESS_CARD, aBC.getAsJson ());
-      }
+      aBC = PeppolAPIHelper.retrieveBusinessCardCached (sLogPrefix,
+                                                        aSMPQueryParams,
+                                                        m_aHCSModifier,
+                                                        new FeedbackCallbackLog (LOGGER, sLogPrefix),
+                                                        ex -> {});
     }
 
     aSW.stop ();
 
-    if (aJson == null)
+    if (aSGHrefs == null && aBC == null)
     {
       final String sMsg = "Failed to perform the SMP lookup for participant ID '" +
                           sParticipantID +
@@ -144,10 +128,40 @@ public final class APISMPQueryGetDocTypes extends AbstractAPIExecutor
     {
       LOGGER.info (sLogPrefix + "Successfully finished lookup after " + aSW.getMillis () + " milliseconds");
 
-      aJson.add ("queryDateTime", DateTimeFormatter.ISO_ZONED_DATE_TIME.format (aQueryDT));
-      aJson.add ("queryDurationMillis", aSW.getMillis ());
+      // Write the JSON directly instead of building and serializing a tree
+      final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+      final boolean bFormatted = isJsonFormatted (aRequestScope);
+      try (final Writer aWriter = new OutputStreamWriter (aBAOS, StandardCharsets.UTF_8))
+      {
+        final JsonStreamWriter aJW = new JsonStreamWriter (aWriter, bFormatted);
+        aJW.beginObject ();
+        if (aSGHrefs != null)
+        {
+          // Use a sorted map for deterministic results
+          PeppolSharedSMPJsonHelper.writeConvertedMembers (aSMPQueryParams.getSMPAPIType (),
+                                                           aSMPQueryParams.getParticipantID (),
+                                                           new CommonsTreeMap <> (aSGHrefs),
+                                                           aSMPQueryParams.getIF (),
+                                                           aJW);
+        }
+        if (aBC != null)
+        {
+          // Business Card found - use the cached serialization
+          aJW.name (PARAM_BUSINESS_CARD);
+          if (bFormatted)
+            aJW.beginObject ().rawMembers (aBC.getJsonMembersFormatted ()).endObject ();
+          else
+            aJW.rawJson (aBC.getJsonString ());
+        }
+        aJW.name ("queryDateTime").value (DateTimeFormatter.ISO_ZONED_DATE_TIME.format (aQueryDT));
+        aJW.name ("queryDurationMillis").value (aSW.getMillis ());
+        aJW.endObject ();
+      }
 
-      aUnifiedResponse.json (aJson).enableCaching (1 * CGlobal.SECONDS_PER_HOUR);
+      aUnifiedResponse.setMimeType (CMimeType.APPLICATION_JSON)
+                      .setCharset (StandardCharsets.UTF_8)
+                      .setContent (aBAOS.toByteArray ());
+      aUnifiedResponse.enableCaching (1 * CGlobal.SECONDS_PER_HOUR);
     }
   }
 }
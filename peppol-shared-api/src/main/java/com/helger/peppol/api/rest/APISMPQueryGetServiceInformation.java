@@ -41,6 +41,12 @@ public final class APISMPQueryGetServiceInformation extends AbstractAPIExecutor
     super (sUserAgent);
   }
 
+  @Override
+  protected String getExecutionGroup ()
+  {
+    return APIExecutionBulkhead.GROUP_SMP_QUERY;
+  }
+
   @Override
   protected void invokeAPI (@NonNull @Nonempty final String sLogPrefix,
                             @NonNull final IAPIDescriptor aAPIDescriptor,
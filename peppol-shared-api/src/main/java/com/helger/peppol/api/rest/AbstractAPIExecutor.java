@@ -16,16 +16,17 @@
  */
 package com.helger.peppol.api.rest;
 
-import java.time.Duration;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
+import org.apache.hc.client5.http.HttpResponseException;
 import org.jspecify.annotations.NonNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.helger.annotation.Nonempty;
+import com.helger.annotation.Nonnegative;
 import com.helger.base.enforce.ValueEnforcer;
 import com.helger.base.timing.StopWatch;
 import com.helger.http.CHttp;
@@ -33,15 +34,16 @@ import com.helger.http.CHttpHeader;
 import com.helger.httpclient.HttpClientSettings;
 import com.helger.json.serialize.JsonWriterSettings;
 import com.helger.peppol.api.config.PeppolSharedAPIConfig;
+import com.helger.peppol.api.metrics.APIEndpointMetrics;
+import com.helger.peppol.api.metrics.APIMetrics;
+import com.helger.peppol.api.ratelimit.APIRateLimiters;
+import com.helger.peppol.api.ratelimit.IAPIRateLimiter;
 import com.helger.photon.api.IAPIDescriptor;
 import com.helger.photon.api.IAPIExecutor;
 import com.helger.photon.app.PhotonUnifiedResponse;
 import com.helger.servlet.response.UnifiedResponse;
 import com.helger.web.scope.IRequestWebScopeWithoutResponse;
 
-import es.moki.ratelimitj.core.limiter.request.RequestLimitRule;
-import es.moki.ratelimitj.inmemory.request.InMemorySlidingWindowRequestRateLimiter;
-
 public abstract class AbstractAPIExecutor implements IAPIExecutor
 {
   public static final int DEFAULT_RETRY_AFTER_SECONDS = 5;
@@ -51,7 +53,6 @@ public abstract class AbstractAPIExecutor implements IAPIExecutor
 
   protected final Consumer <? super HttpClientSettings> m_aHCSModifier;
   protected boolean m_bRateLimitEnabled = false;
-  protected InMemorySlidingWindowRequestRateLimiter m_aRequestRateLimiter = null;
 
   /**
    * @param sUserAgent
@@ -63,43 +64,128 @@ public abstract class AbstractAPIExecutor implements IAPIExecutor
     m_aHCSModifier = hcs -> { hcs.setUserAgent (sUserAgent); };
   }
 
+  /**
+   * Enable or disable rate limiting for this executor. The limits are global per client and shared
+   * with all other executors that have rate limiting enabled.
+   *
+   * @param bEnabled
+   *        <code>true</code> to enable rate limiting.
+   * @return this for chaining
+   * @see APIRateLimiters
+   */
   @NonNull
   public final AbstractAPIExecutor setRateLimitEnabled (final boolean bEnabled)
   {
+    m_bRateLimitEnabled = bEnabled;
     if (bEnabled)
     {
-      m_bRateLimitEnabled = true;
-
-      final long nDurationSecs = PeppolSharedAPIConfig.getRestAPILimitDurationSeconds ();
-      final long nRequestsInDuration = PeppolSharedAPIConfig.getRestAPILimitRequestsInDuration ();
-      if (nDurationSecs >= 2 && nRequestsInDuration > 0)
-      {
-        // 2 request per second, per key
-        // Note: duration must be > 1 second
-        m_aRequestRateLimiter = new InMemorySlidingWindowRequestRateLimiter (RequestLimitRule.of (Duration.ofSeconds (nDurationSecs),
-                                                                                                  nRequestsInDuration));
-        LOGGER.info ("Installed REST API rate limiter with a maximum of " +
-                     nRequestsInDuration +
-                     " requests per " +
-                     nDurationSecs +
-                     " seconds for class " +
-                     getClass ().getSimpleName ());
-      }
-      else
-      {
-        m_aRequestRateLimiter = null;
-        if (LOGGER.isDebugEnabled ())
-          LOGGER.debug ("REST API runs without limit (" + nDurationSecs + "/" + nRequestsInDuration + ")");
-      }
-    }
-    else
-    {
-      m_bRateLimitEnabled = false;
-      m_aRequestRateLimiter = null;
+      // Create the shared instance eagerly to log the settings
+      APIRateLimiters.getRateLimiter ();
     }
     return this;
   }
 
+  /**
+   * Get the key used for rate limiting the provided request.
+   *
+   * @param aRequestScope
+   *        The current request scope. May not be <code>null</code>.
+   * @return The rate limit key. Never <code>null</code>.
+   */
+  @NonNull
+  @Nonempty
+  protected static String getRateLimitKey (@NonNull final IRequestWebScopeWithoutResponse aRequestScope)
+  {
+    return "ip:" + PeppolAPIHelper.getRemoteIPAddrProxyAware (aRequestScope.getRequest ());
+  }
+
+  /**
+   * Get the endpoint group of this API, that is used to limit the number of concurrent invocations
+   * via {@link APIExecutionBulkhead}. All APIs of the same group share the same limit. By default
+   * each API implementation class is its own group.
+   *
+   * @return The endpoint group. May neither be <code>null</code> nor empty.
+   */
+  @NonNull
+  @Nonempty
+  protected String getExecutionGroup ()
+  {
+    return getClass ().getSimpleName ();
+  }
+
+  /**
+   * Increment the rate limit counter of the provided key by the provided weight.
+   *
+   * @param sRateLimitKey
+   *        The rate limit key. May not be <code>null</code>.
+   * @param nWeight
+   *        The number of units to consume. Must be &gt; 0.
+   * @return <code>true</code> if the rate limit is exceeded, <code>false</code> if not or if rate
+   *         limiting is disabled.
+   */
+  protected final boolean isOverRateLimit (@NonNull final String sRateLimitKey, @Nonnegative final int nWeight)
+  {
+    if (!m_bRateLimitEnabled)
+      return false;
+    APIRateLimiters.getHeavyHitters ().record (sRateLimitKey, nWeight);
+    final IAPIRateLimiter aRateLimiter = APIRateLimiters.getRateLimiter ();
+    return aRateLimiter != null && !aRateLimiter.tryAcquire (sRateLimitKey, nWeight);
+  }
+
+  /**
+   * Set the response to "429 Too Many Requests".
+   *
+   * @param aUnifiedResponse
+   *        The response to modify. May not be <code>null</code>.
+   */
+  protected static void setTooManyRequests (@NonNull final UnifiedResponse aUnifiedResponse)
+  {
+    aUnifiedResponse.setStatus (CHttp.HTTP_TOO_MANY_REQUESTS)
+                    .addCustomResponseHeader (CHttpHeader.RETRY_AFTER, Integer.toString (DEFAULT_RETRY_AFTER_SECONDS));
+  }
+
+  /**
+   * Check if the JSON response should be formatted. Uses the request parameter
+   * {@link PeppolSharedRestAPI#PARAM_FORMAT} and falls back to the configuration.
+   *
+   * @param aRequestScope
+   *        The current request scope. May not be <code>null</code>.
+   * @return <code>true</code> for formatted output, <code>false</code> for compact output.
+   */
+  protected static boolean isJsonFormatted (@NonNull final IRequestWebScopeWithoutResponse aRequestScope)
+  {
+    final String sFormat = aRequestScope.params ().getAsString (PeppolSharedRestAPI.PARAM_FORMAT);
+    if (PeppolSharedRestAPI.FORMAT_COMPACT.equalsIgnoreCase (sFormat))
+      return false;
+    if (PeppolSharedRestAPI.FORMAT_PRETTY.equalsIgnoreCase (sFormat))
+      return true;
+    return PeppolSharedAPIConfig.isRestJsonFormattedByDefault ();
+  }
+
+  private static int _getStatusCode (@NonNull final Exception ex)
+  {
+    if (ex instanceof final HttpResponseException aEx)
+      return aEx.getStatusCode ();
+    if (ex instanceof APIParamException)
+      return CHttp.HTTP_BAD_REQUEST;
+    if (ex instanceof APIOverloadException)
+      return CHttp.HTTP_SERVICE_UNAVAILABLE;
+    if (ex instanceof APITimeoutException)
+      return CHttp.HTTP_GATEWAY_TIMEOUT;
+    return CHttp.HTTP_INTERNAL_SERVER_ERROR;
+  }
+
+  private static void _initResponse (@NonNull final IRequestWebScopeWithoutResponse aRequestScope,
+                                     @NonNull final PhotonUnifiedResponse aPUR)
+  {
+    // Disable all caching by default
+    aPUR.disableCaching ();
+
+    // Default JSON result is formatted, unless the client requests compact output
+    aPUR.setJsonWriterSettings (isJsonFormatted (aRequestScope) ? JsonWriterSettings.DEFAULT_SETTINGS_FORMATTED
+                                                                : JsonWriterSettings.DEFAULT_SETTINGS);
+  }
+
   protected abstract void invokeAPI (@NonNull @Nonempty String sLogPrefix,
                                      @NonNull IAPIDescriptor aAPIDescriptor,
                                      @NonNull @Nonempty String sPath,
@@ -114,41 +200,59 @@ public abstract class AbstractAPIExecutor implements IAPIExecutor
                                @NonNull final UnifiedResponse aUnifiedResponse) throws Exception
   {
     final String sLogPrefix = "[API-" + COUNTER.incrementAndGet () + "] ";
+    final APIEndpointMetrics aMetrics = APIMetrics.getEndpoint (aAPIDescriptor.getPathDescriptor ().getAsURLString ());
 
     if (m_bRateLimitEnabled)
     {
-      final String sRateLimitKey = "ip:" + PeppolAPIHelper.getRemoteIPAddrProxyAware (aRequestScope.getRequest ());
-      final boolean bOverRateLimit = m_aRequestRateLimiter != null ? m_aRequestRateLimiter.overLimitWhenIncremented (
-                                                                                                                     sRateLimitKey)
-                                                                   : false;
-      if (bOverRateLimit)
+      final String sRateLimitKey = getRateLimitKey (aRequestScope);
+      if (isOverRateLimit (sRateLimitKey, 1))
       {
         // Too Many Requests
         if (LOGGER.isDebugEnabled ())
           LOGGER.debug (sLogPrefix + "REST search rate limit exceeded for '" + sRateLimitKey + "'");
 
-        aUnifiedResponse.setStatus (CHttp.HTTP_TOO_MANY_REQUESTS)
-                        .addCustomResponseHeader (CHttpHeader.RETRY_AFTER,
-                                                  Integer.toString (DEFAULT_RETRY_AFTER_SECONDS));
+        aMetrics.onRateLimited ();
+        setTooManyRequests (aUnifiedResponse);
         return;
       }
     }
 
     final StopWatch aSW = StopWatch.createdStarted ();
+    aMetrics.onStarted ();
+    int nStatusCode = CHttp.HTTP_INTERNAL_SERVER_ERROR;
+    try
+    {
+      final PhotonUnifiedResponse aPUR = (PhotonUnifiedResponse) aUnifiedResponse;
 
-    final PhotonUnifiedResponse aPUR = (PhotonUnifiedResponse) aUnifiedResponse;
-
-    // Disable all caching by default
-    aPUR.disableCaching ();
-
-    // Default JSON result is formatted
-    aPUR.setJsonWriterSettings (JsonWriterSettings.DEFAULT_SETTINGS_FORMATTED);
+      // Go on
+      _initResponse (aRequestScope, aPUR);
+      if (APIExecutionBulkhead.isEnabled ())
+      {
+        // Limit the number of concurrent invocations per endpoint group
+        APIExecutionBulkhead.execute (sLogPrefix, getExecutionGroup (), () -> {
+          invokeAPI (sLogPrefix, aAPIDescriptor, sPath, aPathVariables, aRequestScope, aPUR);
+          return null;
+        });
+      }
+      else
+        invokeAPI (sLogPrefix, aAPIDescriptor, sPath, aPathVariables, aRequestScope, aPUR);
 
-    // Go on
-    invokeAPI (sLogPrefix, aAPIDescriptor, sPath, aPathVariables, aRequestScope, aPUR);
+      // No explicit status means success
+      nStatusCode = aUnifiedResponse.isStatusCodeDefined () ? aUnifiedResponse.getStatusCode () : CHttp.HTTP_OK;
+    }
+    catch (final Exception ex)
+    {
+      // Mirrors the handling in APIExceptionMapper
+      nStatusCode = _getStatusCode (ex);
+      throw ex;
+    }
+    finally
+    {
+      aSW.stop ();
+      aMetrics.onFinished (nStatusCode, aSW.getMillis ());
+    }
 
-    // Measure time and log only above a certain threshold
-    aSW.stop ();
+    // Log only above a certain threshold
     if (aSW.getMillis () > 100)
       LOGGER.info (sLogPrefix +
                    "Successfully finished '" +
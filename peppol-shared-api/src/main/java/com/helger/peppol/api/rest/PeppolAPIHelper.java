@@ -16,14 +16,18 @@
  */
 package com.helger.peppol.api.rest;
 
+import java.io.IOException;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 
+import org.apache.hc.client5.http.HttpResponseException;
 import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.core5.http.HttpStatus;
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
 import org.slf4j.Logger;
@@ -33,7 +37,10 @@ import com.helger.annotation.concurrent.Immutable;
 import com.helger.base.callback.exception.IExceptionCallback;
 import com.helger.base.string.StringHelper;
 import com.helger.base.timing.StopWatch;
+import com.helger.base.wrapper.Wrapper;
+import com.helger.collection.commons.CommonsArrayList;
 import com.helger.collection.commons.CommonsLinkedHashMap;
+import com.helger.collection.commons.ICommonsList;
 import com.helger.collection.commons.ICommonsOrderedMap;
 import com.helger.datetime.helper.PDTFactory;
 import com.helger.httpclient.HttpClientManager;
@@ -41,16 +48,27 @@ import com.helger.httpclient.HttpClientSettings;
 import com.helger.httpclient.response.ResponseHandlerByteArray;
 import com.helger.jaxb.GenericJAXBMarshaller;
 import com.helger.json.IJsonObject;
+import com.helger.peppol.api.cache.BusinessCardCache;
+import com.helger.peppol.api.cache.ServiceGroupCache;
+import com.helger.peppol.api.config.PeppolSharedAPIConfig;
+import com.helger.peppol.api.httpclient.HttpCacheValidators;
+import com.helger.peppol.api.httpclient.HttpNotModifiedException;
+import com.helger.peppol.api.httpclient.PooledBDXR2ClientReadOnly;
+import com.helger.peppol.api.httpclient.PooledBDXRClientReadOnly;
+import com.helger.peppol.api.httpclient.PooledSMPClientReadOnly;
+import com.helger.peppol.api.httpclient.SMPHttpClientPool;
 import com.helger.peppol.businesscard.generic.PDBusinessCard;
 import com.helger.peppol.businesscard.helper.PDBusinessCardHelper;
 import com.helger.peppol.sml.ESMPAPIType;
 import com.helger.peppol.ui.types.PeppolUITypes;
+import com.helger.peppol.ui.types.concurrent.SingleFlight;
 import com.helger.peppol.ui.types.feedbackcb.IFeedbackCallback;
 import com.helger.peppol.ui.types.mgr.PhotonPeppolMetaManager;
 import com.helger.peppol.ui.types.smlconfig.ISMLConfiguration;
 import com.helger.peppol.ui.types.smlconfig.ISMLConfigurationManager;
 import com.helger.peppol.ui.types.smp.ISMPClientCreationCallback;
 import com.helger.peppol.ui.types.smp.ISMPExtensionsCallback;
+import com.helger.peppol.ui.types.smp.SMLAutoDetector;
 import com.helger.peppol.ui.types.smp.SMPQueryParams;
 import com.helger.peppolid.CIdentifier;
 import com.helger.peppolid.IDocumentTypeIdentifier;
@@ -73,9 +91,66 @@ public final class PeppolAPIHelper
 {
   private static final Logger LOGGER = LoggerFactory.getLogger (PeppolAPIHelper.class);
 
+  /**
+   * The shared outcome of a coalesced document type query.
+   */
+  private static final class DocTypesOutcome
+  {
+    private final ICommonsOrderedMap <String, String> m_aHrefs;
+    private final ICommonsList <String> m_aDuplicateURLs;
+    private final ICommonsList <SMPClientException> m_aExceptions;
+
+    DocTypesOutcome (@Nullable final ICommonsOrderedMap <String, String> aHrefs,
+                     @NonNull final ICommonsList <String> aDuplicateURLs,
+                     @NonNull final ICommonsList <SMPClientException> aExceptions)
+    {
+      m_aHrefs = aHrefs;
+      m_aDuplicateURLs = aDuplicateURLs;
+      m_aExceptions = aExceptions;
+    }
+  }
+
+  /**
+   * The shared outcome of a coalesced service metadata query.
+   */
+  private static final class ServiceMetadataOutcome
+  {
+    private final Object m_aServiceMetadata;
+    private final ICommonsList <String> m_aErrors;
+
+    ServiceMetadataOutcome (@Nullable final Object aServiceMetadata, @NonNull final ICommonsList <String> aErrors)
+    {
+      m_aServiceMetadata = aServiceMetadata;
+      m_aErrors = aErrors;
+    }
+  }
+
+  private static final SingleFlight <String, DocTypesOutcome> DOCTYPES_CALLS = new SingleFlight <> ("doctypes");
+  private static final SingleFlight <String, ServiceMetadataOutcome> SERVICE_METADATA_CALLS = new SingleFlight <> ("servicemetadata");
+
   private PeppolAPIHelper ()
   {}
 
+  /**
+   * @return The coalescing helper for document type list queries, e.g. for accessing the
+   *         statistics. Never <code>null</code>.
+   */
+  @NonNull
+  public static SingleFlight <?, ?> getDocumentTypesCalls ()
+  {
+    return DOCTYPES_CALLS;
+  }
+
+  /**
+   * @return The coalescing helper for service metadata queries, e.g. for accessing the statistics.
+   *         Never <code>null</code>.
+   */
+  @NonNull
+  public static SingleFlight <?, ?> getServiceMetadataCalls ()
+  {
+    return SERVICE_METADATA_CALLS;
+  }
+
   @NonNull
   public static String getRemoteIPAddrProxyAware (@NonNull final HttpServletRequest aHttpRequest)
   {
@@ -107,24 +182,29 @@ public final class PeppolAPIHelper
     SMPQueryParams aSMPQueryParams = null;
     if (bSMLAutoDetect)
     {
-      for (final ISMLConfiguration aCurSML : aSMLConfigurationMgr.getAllSorted ())
-      {
-        aSMPQueryParams = SMPQueryParams.createForSMLOrNull (aCurSML, aPID.getScheme (), aPID.getValue (), false);
-        if (aSMPQueryParams != null && aSMPQueryParams.isSMPRegisteredInDNS ())
-        {
-          // Found it
-          aSMLConfig = aCurSML;
-          break;
-        }
-      }
+      // Query all SMLs in parallel - the creation of the query parameters
+      // includes the DNS lookup
+      final SMLAutoDetector.Result <SMPQueryParams> aResult = SMLAutoDetector.detect (aSMLConfigurationMgr.getAllSorted (),
+                                                                                      aCurSML -> SMPQueryParams.createForSMLOrNull (aCurSML,
+                                                                                                                                    aPID.getScheme (),
+                                                                                                                                    aPID.getValue (),
+                                                                                                                                    false));
 
       // Ensure to go into the exception handler
-      if (aSMLConfig == null)
+      if (aResult == null)
       {
         final String sMsg = "The participant identifier '" + sParticipantID + "' could not be found in any SML.";
         aOnError.accept (sMsg);
         return null;
       }
+      if (aResult.isUndetermined ())
+        throw new APITimeoutException ("The SML of participant identifier '" +
+                                       sParticipantID +
+                                       "' could not be determined in time.");
+
+      // Found it
+      aSMLConfig = aResult.getSMLConfiguration ();
+      aSMPQueryParams = aResult.getResult ();
     }
     else
     {
@@ -176,17 +256,44 @@ public final class PeppolAPIHelper
     final SMPHttpClientSettings aHCS = new SMPHttpClientSettings ();
     if (aHCSModifier != null)
       aHCSModifier.accept (aHCS);
+    if (aSMPQueryParams.isTrustAllCertificates ())
+      try
+      {
+        aHCS.setSSLContextTrustAll ();
+      }
+      catch (final GeneralSecurityException ex)
+      {
+        // Ignore
+      }
 
     byte [] aBCBytes;
-    try (final HttpClientManager aHttpClientMgr = HttpClientManager.create (aHCS))
+    if (SMPHttpClientPool.isEnabled ())
     {
-      final HttpGet aGet = new HttpGet (sBCURL);
-      aBCBytes = aHttpClientMgr.execute (aGet, new ResponseHandlerByteArray ());
+      try
+      {
+        aBCBytes = SMPHttpClientPool.execute (aHCS,
+                                              aSMPQueryParams.isTrustAllCertificates (),
+                                              new HttpGet (sBCURL),
+                                              new ResponseHandlerByteArray ());
+      }
+      catch (final Exception ex)
+      {
+        aExceptionCallback.onException (ex);
+        aBCBytes = null;
+      }
     }
-    catch (final Exception ex)
+    else
     {
-      aExceptionCallback.onException (ex);
-      aBCBytes = null;
+      try (final HttpClientManager aHttpClientMgr = HttpClientManager.create (aHCS))
+      {
+        final HttpGet aGet = new HttpGet (sBCURL);
+        aBCBytes = aHttpClientMgr.execute (aGet, new ResponseHandlerByteArray ());
+      }
+      catch (final Exception ex)
+      {
+        aExceptionCallback.onException (ex);
+        aBCBytes = null;
+      }
     }
 
     if (aBCBytes == null)
@@ -220,12 +327,179 @@ public final class PeppolAPIHelper
     return null;
   }
 
-  private static void _customizeSMPClient (@NonNull final AbstractGenericSMPClient <?> aSMPClient,
-                                           @Nullable final Consumer <? super SMPHttpClientSettings> aHCSModifier,
-                                           final boolean bXMLSchemaValidation,
-                                           final boolean bVerifySignature,
-                                           @NonNull final Consumer <? super GenericJAXBMarshaller <?>> aSMPMarshallerCustomizer,
-                                           final boolean bIsTrustAllCertificates)
+  /**
+   * Get the parsed Business Card of the participant, using the {@link BusinessCardCache} if it is
+   * enabled. If the SMP responds with HTTP 404, that information is cached as well.
+   *
+   * @param sLogPrefix
+   *        Log prefix. May not be <code>null</code>.
+   * @param aSMPQueryParams
+   *        SMP query parameters. May not be <code>null</code>.
+   * @param aHCSModifier
+   *        Optional HTTP client settings modifier. May be <code>null</code>.
+   * @param aMiniCallback
+   *        Feedback callback. May not be <code>null</code>.
+   * @param aExceptionCallback
+   *        Exception callback. May not be <code>null</code>.
+   * @return <code>null</code> if no Business Card is available. The returned entry is never a
+   *         negative entry.
+   */
+  @Nullable
+  public static BusinessCardCache.Entry retrieveBusinessCardCached (@NonNull final String sLogPrefix,
+                                                                    @NonNull final SMPQueryParams aSMPQueryParams,
+                                                                    @Nullable final Consumer <? super HttpClientSettings> aHCSModifier,
+                                                                    @NonNull final IFeedbackCallback aMiniCallback,
+                                                                    @NonNull final IExceptionCallback <? super Exception> aExceptionCallback)
+  {
+    final boolean bCacheEnabled = BusinessCardCache.isEnabled ();
+    final BusinessCardCache.Key aKey = BusinessCardCache.getKey (aSMPQueryParams, aHCSModifier);
+    if (bCacheEnabled)
+    {
+      final BusinessCardCache.Entry aCached = BusinessCardCache.get (aKey);
+      if (aCached != null)
+      {
+        LOGGER.info (sLogPrefix + "Using cached BusinessCard information for '" +
+                     aSMPQueryParams.getParticipantID ().getURIEncoded () +
+                     "'");
+        if (aCached.isFound ())
+          return aCached;
+        aMiniCallback.warn ("No Business Card is available for that participant.");
+        return null;
+      }
+    }
+
+    final Wrapper <Boolean> aNotFound = new Wrapper <> (Boolean.FALSE);
+    final PDBusinessCard aBC = retrieveBusinessCardParsed (sLogPrefix, aSMPQueryParams, aHCSModifier, aMiniCallback, ex -> {
+      if (ex instanceof final HttpResponseException aHttpEx && aHttpEx.getStatusCode () == HttpStatus.SC_NOT_FOUND)
+        aNotFound.set (Boolean.TRUE);
+      aExceptionCallback.onException (ex);
+    });
+
+    if (aBC != null)
+      return bCacheEnabled ? BusinessCardCache.put (aKey, aBC) : BusinessCardCache.createEntry (aBC);
+
+    // Only cache the clear negative answer - no timeouts etc.
+    if (bCacheEnabled && aNotFound.get ().booleanValue ())
+      BusinessCardCache.putNotFound (aKey);
+    return null;
+  }
+
+  /**
+   * Create a new Peppol SMP client for the provided query parameters. If the shared HTTP client
+   * pool is enabled, the returned client uses it.
+   *
+   * @param aSMPQueryParams
+   *        SMP query parameters. May not be <code>null</code>.
+   * @return A new SMP client and never <code>null</code>.
+   */
+  @NonNull
+  public static SMPClientReadOnly createPeppolSMPClient (@NonNull final SMPQueryParams aSMPQueryParams)
+  {
+    return _createPeppolSMPClient (aSMPQueryParams, null, null);
+  }
+
+  @NonNull
+  private static SMPClientReadOnly _createPeppolSMPClient (@NonNull final SMPQueryParams aSMPQueryParams,
+                                                           @Nullable final Consumer <? super HttpCacheValidators> aResponseValidatorsConsumer,
+                                                           @Nullable final HttpCacheValidators aRequestValidators)
+  {
+    // Conditional requests are only supported by the pooled clients
+    if (SMPHttpClientPool.isEnabled () || aRequestValidators != null)
+    {
+      final PooledSMPClientReadOnly ret = new PooledSMPClientReadOnly (aSMPQueryParams.getSMPHostURI (),
+                                                                       aSMPQueryParams.isTrustAllCertificates (),
+                                                                       aResponseValidatorsConsumer);
+      ret.setRequestValidators (aRequestValidators);
+      return ret;
+    }
+    return new SMPClientReadOnly (aSMPQueryParams.getSMPHostURI ());
+  }
+
+  /**
+   * Create a new OASIS BDXR SMP v1 client for the provided query parameters. If the shared HTTP
+   * client pool is enabled, the returned client uses it.
+   *
+   * @param aSMPQueryParams
+   *        SMP query parameters. May not be <code>null</code>.
+   * @return A new SMP client and never <code>null</code>.
+   */
+  @NonNull
+  public static BDXRClientReadOnly createBDXR1Client (@NonNull final SMPQueryParams aSMPQueryParams)
+  {
+    return _createBDXR1Client (aSMPQueryParams, null, null);
+  }
+
+  @NonNull
+  private static BDXRClientReadOnly _createBDXR1Client (@NonNull final SMPQueryParams aSMPQueryParams,
+                                                        @Nullable final Consumer <? super HttpCacheValidators> aResponseValidatorsConsumer,
+                                                        @Nullable final HttpCacheValidators aRequestValidators)
+  {
+    // Conditional requests are only supported by the pooled clients
+    if (SMPHttpClientPool.isEnabled () || aRequestValidators != null)
+    {
+      final PooledBDXRClientReadOnly ret = new PooledBDXRClientReadOnly (aSMPQueryParams.getSMPHostURI (),
+                                                                         aSMPQueryParams.isTrustAllCertificates (),
+                                                                         aResponseValidatorsConsumer);
+      ret.setRequestValidators (aRequestValidators);
+      return ret;
+    }
+    return new BDXRClientReadOnly (aSMPQueryParams.getSMPHostURI ());
+  }
+
+  /**
+   * Create a new OASIS BDXR SMP v2 client for the provided query parameters. If the shared HTTP
+   * client pool is enabled, the returned client uses it.
+   *
+   * @param aSMPQueryParams
+   *        SMP query parameters. May not be <code>null</code>.
+   * @return A new SMP client and never <code>null</code>.
+   */
+  @NonNull
+  public static BDXR2ClientReadOnly createBDXR2Client (@NonNull final SMPQueryParams aSMPQueryParams)
+  {
+    return _createBDXR2Client (aSMPQueryParams, null, null);
+  }
+
+  @NonNull
+  private static BDXR2ClientReadOnly _createBDXR2Client (@NonNull final SMPQueryParams aSMPQueryParams,
+                                                         @Nullable final Consumer <? super HttpCacheValidators> aResponseValidatorsConsumer,
+                                                         @Nullable final HttpCacheValidators aRequestValidators)
+  {
+    // Conditional requests are only supported by the pooled clients
+    if (SMPHttpClientPool.isEnabled () || aRequestValidators != null)
+    {
+      final PooledBDXR2ClientReadOnly ret = new PooledBDXR2ClientReadOnly (aSMPQueryParams.getSMPHostURI (),
+                                                                           aSMPQueryParams.isTrustAllCertificates (),
+                                                                           aResponseValidatorsConsumer);
+      ret.setRequestValidators (aRequestValidators);
+      return ret;
+    }
+    return new BDXR2ClientReadOnly (aSMPQueryParams.getSMPHostURI ());
+  }
+
+  /**
+   * Apply the common settings to an SMP client created via {@link #createPeppolSMPClient(SMPQueryParams)},
+   * {@link #createBDXR1Client(SMPQueryParams)} or {@link #createBDXR2Client(SMPQueryParams)}.
+   *
+   * @param aSMPClient
+   *        The SMP client to customize. May not be <code>null</code>.
+   * @param aHCSModifier
+   *        Optional HTTP Client settings modifier callback
+   * @param bXMLSchemaValidation
+   *        <code>true</code> to enable XML Schema validation (recommended)
+   * @param bVerifySignature
+   *        <code>true</code> to perform signature validation (recommended)
+   * @param aSMPMarshallerCustomizer
+   *        SMP marshaller customizing callback. May not be <code>null</code>.
+   * @param bIsTrustAllCertificates
+   *        <code>true</code> to trust all TLS certificates
+   */
+  public static void customizeSMPClient (@NonNull final AbstractGenericSMPClient <?> aSMPClient,
+                                         @Nullable final Consumer <? super SMPHttpClientSettings> aHCSModifier,
+                                         final boolean bXMLSchemaValidation,
+                                         final boolean bVerifySignature,
+                                         @NonNull final Consumer <? super GenericJAXBMarshaller <?>> aSMPMarshallerCustomizer,
+                                         final boolean bIsTrustAllCertificates)
   {
     aSMPClient.setSecureValidation (PeppolUITypes.DEFAULT_SMP_USE_SECURE_VALIDATION);
     aSMPClient.withHttpClientSettings (aHCSModifier);
@@ -280,6 +554,34 @@ public final class PeppolAPIHelper
                                                                               @NonNull final Consumer <? super GenericJAXBMarshaller <?>> aSMPMarshallerCustomizer,
                                                                               @NonNull final ISMPExtensionsCallback aExtensionCallback,
                                                                               @NonNull final IExceptionCallback <? super SMPClientException> aExceptionCallback)
+  {
+    return _retrieveAllDocumentTypes (sLogPrefix,
+                                      aSMPQueryParams,
+                                      aHCSModifier,
+                                      bXMLSchemaValidation,
+                                      bVerifySignature,
+                                      aSMPClientCallback,
+                                      aDuplicateURLCallback,
+                                      aSMPMarshallerCustomizer,
+                                      aExtensionCallback,
+                                      aExceptionCallback,
+                                      null,
+                                      null);
+  }
+
+  @Nullable
+  private static ICommonsOrderedMap <String, String> _retrieveAllDocumentTypes (@NonNull final String sLogPrefix,
+                                                                                @NonNull final SMPQueryParams aSMPQueryParams,
+                                                                                @Nullable final Consumer <? super SMPHttpClientSettings> aHCSModifier,
+                                                                                final boolean bXMLSchemaValidation,
+                                                                                final boolean bVerifySignature,
+                                                                                @NonNull final ISMPClientCreationCallback aSMPClientCallback,
+                                                                                @NonNull final Consumer <? super String> aDuplicateURLCallback,
+                                                                                @NonNull final Consumer <? super GenericJAXBMarshaller <?>> aSMPMarshallerCustomizer,
+                                                                                @NonNull final ISMPExtensionsCallback aExtensionCallback,
+                                                                                @NonNull final IExceptionCallback <? super SMPClientException> aExceptionCallback,
+                                                                                @Nullable final Consumer <? super HttpCacheValidators> aResponseValidatorsConsumer,
+                                                                                @Nullable final HttpCacheValidators aRequestValidators)
   {
     final IParticipantIdentifier aParticipantID = aSMPQueryParams.getParticipantID ();
     final ESMPAPIType eAPIType = aSMPQueryParams.getSMPAPIType ();
@@ -304,13 +606,13 @@ public final class PeppolAPIHelper
     {
       case PEPPOL:
       {
-        final SMPClientReadOnly aSMPClient = new SMPClientReadOnly (aSMPQueryParams.getSMPHostURI ());
-        _customizeSMPClient (aSMPClient,
-                             aHCSModifier,
-                             bXMLSchemaValidation,
-                             bVerifySignature,
-                             aSMPMarshallerCustomizer,
-                             aSMPQueryParams.isTrustAllCertificates ());
+        final SMPClientReadOnly aSMPClient = _createPeppolSMPClient (aSMPQueryParams, aResponseValidatorsConsumer, aRequestValidators);
+        customizeSMPClient (aSMPClient,
+                            aHCSModifier,
+                            bXMLSchemaValidation,
+                            bVerifySignature,
+                            aSMPMarshallerCustomizer,
+                            aSMPQueryParams.isTrustAllCertificates ());
         aSMPClientCallback.onPeppolSMPClient (aSMPClient);
 
         // Get all HRefs
@@ -350,13 +652,13 @@ public final class PeppolAPIHelper
       }
       case OASIS_BDXR_V1:
       {
-        final BDXRClientReadOnly aBDXR1Client = new BDXRClientReadOnly (aSMPQueryParams.getSMPHostURI ());
-        _customizeSMPClient (aBDXR1Client,
-                             aHCSModifier,
-                             bXMLSchemaValidation,
-                             bVerifySignature,
-                             aSMPMarshallerCustomizer,
-                             aSMPQueryParams.isTrustAllCertificates ());
+        final BDXRClientReadOnly aBDXR1Client = _createBDXR1Client (aSMPQueryParams, aResponseValidatorsConsumer, aRequestValidators);
+        customizeSMPClient (aBDXR1Client,
+                            aHCSModifier,
+                            bXMLSchemaValidation,
+                            bVerifySignature,
+                            aSMPMarshallerCustomizer,
+                            aSMPQueryParams.isTrustAllCertificates ());
         aSMPClientCallback.onBDXR1Client (aBDXR1Client);
 
         // Get all HRefs and sort them by decoded URL
@@ -396,13 +698,13 @@ public final class PeppolAPIHelper
       }
       case OASIS_BDXR_V2:
       {
-        final BDXR2ClientReadOnly aBDXR2Client = new BDXR2ClientReadOnly (aSMPQueryParams.getSMPHostURI ());
-        _customizeSMPClient (aBDXR2Client,
-                             aHCSModifier,
-                             bXMLSchemaValidation,
-                             bVerifySignature,
-                             aSMPMarshallerCustomizer,
-                             aSMPQueryParams.isTrustAllCertificates ());
+        final BDXR2ClientReadOnly aBDXR2Client = _createBDXR2Client (aSMPQueryParams, aResponseValidatorsConsumer, aRequestValidators);
+        customizeSMPClient (aBDXR2Client,
+                            aHCSModifier,
+                            bXMLSchemaValidation,
+                            bVerifySignature,
+                            aSMPMarshallerCustomizer,
+                            aSMPQueryParams.isTrustAllCertificates ());
         aSMPClientCallback.onBDXR2Client (aBDXR2Client);
 
         // Get all HRefs and sort them by decoded URL
@@ -457,6 +759,165 @@ public final class PeppolAPIHelper
     return ret;
   }
 
+  /**
+   * Get the URL of the service group of the participant.
+   *
+   * @param aSMPQueryParams
+   *        SMP query parameters. May not be <code>null</code>.
+   * @return The absolute service group URL. Never <code>null</code>.
+   */
+  @NonNull
+  public static String getServiceGroupURL (@NonNull final SMPQueryParams aSMPQueryParams)
+  {
+    final IParticipantIdentifier aParticipantID = aSMPQueryParams.getParticipantID ();
+    final String sSMPHost = StringHelper.trimEnd (aSMPQueryParams.getSMPHostURI ().toString (), '/') + '/';
+    if (aSMPQueryParams.getSMPAPIType () == ESMPAPIType.OASIS_BDXR_V2)
+      return sSMPHost + BDXR2ClientReadOnly.PATH_OASIS_BDXR_SMP_2 + aParticipantID.getURIPercentEncoded ();
+    return sSMPHost + aParticipantID.getURIPercentEncoded ();
+  }
+
+  @Nullable
+  private static ICommonsOrderedMap <String, String> _retrieveAllDocumentTypesCached (@NonNull final String sLogPrefix,
+                                                                                      @NonNull final SMPQueryParams aSMPQueryParams,
+                                                                                      @Nullable final Consumer <? super SMPHttpClientSettings> aHCSModifier,
+                                                                                      final boolean bXMLSchemaValidation,
+                                                                                      final boolean bVerifySignature,
+                                                                                      @NonNull final Consumer <? super String> aDuplicateURLCallback,
+                                                                                      @NonNull final IExceptionCallback <? super SMPClientException> aExceptionCallback)
+  {
+    if (!ServiceGroupCache.isEnabled ())
+      return retrieveAllDocumentTypes (sLogPrefix,
+                                       aSMPQueryParams,
+                                       aHCSModifier,
+                                       bXMLSchemaValidation,
+                                       bVerifySignature,
+                                       ISMPClientCreationCallback.IGNORE,
+                                       aDuplicateURLCallback,
+                                       x -> {},
+                                       ISMPExtensionsCallback.IGNORE,
+                                       aExceptionCallback);
+
+    final String sKey = ServiceGroupCache.getKey (aSMPQueryParams, bXMLSchemaValidation, bVerifySignature);
+    final ServiceGroupCache.Entry aEntry = ServiceGroupCache.get (sKey);
+    HttpCacheValidators aRequestValidators = null;
+    if (aEntry != null)
+    {
+      if (aEntry.isFresh ())
+      {
+        LOGGER.info (sLogPrefix +
+                     "Using cached document types of '" +
+                     aSMPQueryParams.getParticipantID ().getURIEncoded () +
+                     "'");
+        return aEntry.getAllHrefs ();
+      }
+
+      // Revalidate with a conditional request - a changed service group is
+      // returned with the same request
+      aRequestValidators = aEntry.getValidators ();
+    }
+
+    // The validators of the service group response are passed back via the callback
+    final Wrapper <HttpCacheValidators> aValidators = new Wrapper <> ();
+    final AtomicBoolean aNotModified = new AtomicBoolean (false);
+    final ICommonsOrderedMap <String, String> ret = _retrieveAllDocumentTypes (sLogPrefix,
+                                                                               aSMPQueryParams,
+                                                                               aHCSModifier,
+                                                                               bXMLSchemaValidation,
+                                                                               bVerifySignature,
+                                                                               ISMPClientCreationCallback.IGNORE,
+                                                                               aDuplicateURLCallback,
+                                                                               x -> {},
+                                                                               ISMPExtensionsCallback.IGNORE,
+                                                                               ex -> {
+                                                                                 if (HttpNotModifiedException.isContainedIn (ex))
+                                                                                   aNotModified.set (true);
+                                                                                 else
+                                                                                   aExceptionCallback.onException (ex);
+                                                                               },
+                                                                               aValidators::set,
+                                                                               aRequestValidators);
+    if (aNotModified.get ())
+    {
+      LOGGER.info (sLogPrefix +
+                   "Revalidated cached document types of '" +
+                   aSMPQueryParams.getParticipantID ().getURIEncoded () +
+                   "'");
+      ServiceGroupCache.markRevalidated (sKey, aEntry);
+      return aEntry.getAllHrefs ();
+    }
+
+    if (ret != null)
+      ServiceGroupCache.put (sKey, ret, aValidators.get ());
+    return ret;
+  }
+
+  /**
+   * Get all document types of a participant using the service group cache. A fresh cache entry is
+   * returned without contacting the SMP. A stale cache entry is revalidated with a conditional
+   * request, if the SMP provided an <code>ETag</code> or <code>Last-Modified</code> header.
+   * Otherwise the service group is retrieved via
+   * {@link #retrieveAllDocumentTypes(String, SMPQueryParams, Consumer, boolean, boolean, ISMPClientCreationCallback, Consumer, Consumer, ISMPExtensionsCallback, IExceptionCallback)}
+   * and the result is cached. Duplicate URLs are only reported if the service group was really
+   * retrieved, extensions are not reported. Identical concurrent calls are coalesced into a single
+   * SMP query.
+   *
+   * @param sLogPrefix
+   *        Log prefix
+   * @param aSMPQueryParams
+   *        SMP query parameters
+   * @param aHCSModifier
+   *        Optional HTTP Client settings modifier callback
+   * @param bXMLSchemaValidation
+   *        <code>true</code> to enable XML Schema validation (recommended)
+   * @param bVerifySignature
+   *        <code>true</code> to perform signature validation (recommended)
+   * @param aDuplicateURLCallback
+   *        The Duplicate URL collector callback. Will be called with URL decoded URLs only
+   * @param aExceptionCallback
+   *        Callback to be invoked on SMP exceptions
+   * @return A map from clean (URL unescaped) URL to the original URL as found in the data.
+   *         <code>null</code> if no document type list could be retrieved.
+   */
+  @Nullable
+  public static ICommonsOrderedMap <String, String> retrieveAllDocumentTypesCached (@NonNull final String sLogPrefix,
+                                                                                    @NonNull final SMPQueryParams aSMPQueryParams,
+                                                                                    @Nullable final Consumer <? super SMPHttpClientSettings> aHCSModifier,
+                                                                                    final boolean bXMLSchemaValidation,
+                                                                                    final boolean bVerifySignature,
+                                                                                    @NonNull final Consumer <? super String> aDuplicateURLCallback,
+                                                                                    @NonNull final IExceptionCallback <? super SMPClientException> aExceptionCallback)
+  {
+    if (!PeppolSharedAPIConfig.isSMPRequestCoalescingEnabled ())
+      return _retrieveAllDocumentTypesCached (sLogPrefix,
+                                              aSMPQueryParams,
+                                              aHCSModifier,
+                                              bXMLSchemaValidation,
+                                              bVerifySignature,
+                                              aDuplicateURLCallback,
+                                              aExceptionCallback);
+
+    // Identical concurrent queries share one SMP query
+    final String sKey = ServiceGroupCache.getKey (aSMPQueryParams, bXMLSchemaValidation, bVerifySignature);
+    final DocTypesOutcome aOutcome = DOCTYPES_CALLS.execute (sKey, () -> {
+      final ICommonsList <String> aDuplicateURLs = new CommonsArrayList <> ();
+      final ICommonsList <SMPClientException> aExceptions = new CommonsArrayList <> ();
+      final ICommonsOrderedMap <String, String> aHrefs = _retrieveAllDocumentTypesCached (sLogPrefix,
+                                                                                          aSMPQueryParams,
+                                                                                          aHCSModifier,
+                                                                                          bXMLSchemaValidation,
+                                                                                          bVerifySignature,
+                                                                                          aDuplicateURLs::add,
+                                                                                          aExceptions::add);
+      return new DocTypesOutcome (aHrefs, aDuplicateURLs, aExceptions);
+    });
+
+    // Each caller gets its own callbacks and its own copy
+    aOutcome.m_aDuplicateURLs.forEach (aDuplicateURLCallback);
+    for (final SMPClientException ex : aOutcome.m_aExceptions)
+      aExceptionCallback.onException (ex);
+    return aOutcome.m_aHrefs == null ? null : aOutcome.m_aHrefs.getClone ();
+  }
+
   public interface IServiceInformationConverter <SRC, DST>
   {
     @Nullable
@@ -465,6 +926,102 @@ public final class PeppolAPIHelper
                  @NonNull SRC aServiceMetadata);
   }
 
+  @NonNull
+  private static ServiceMetadataOutcome _retrieveServiceMetadata (@NonNull final SMPQueryParams aSMPQueryParams,
+                                                                  @NonNull final IParticipantIdentifier aParticipantID,
+                                                                  @NonNull final IDocumentTypeIdentifier aDocTypeID,
+                                                                  @NonNull final Consumer <? super SMPHttpClientSettings> aHCSModifier,
+                                                                  final boolean bXMLSchemaValidation,
+                                                                  final boolean bVerifySignature,
+                                                                  @Nullable final Consumer <? super GenericJAXBMarshaller <?>> aSMPMarshallerCustomizer)
+  {
+    final ICommonsList <String> aErrors = new CommonsArrayList <> ();
+    Object ret = null;
+    switch (aSMPQueryParams.getSMPAPIType ())
+    {
+      case PEPPOL:
+      {
+        final SMPClientReadOnly aSMPClient = createPeppolSMPClient (aSMPQueryParams);
+        customizeSMPClient (aSMPClient,
+                            aHCSModifier,
+                            bXMLSchemaValidation,
+                            bVerifySignature,
+                            aSMPMarshallerCustomizer,
+                            aSMPQueryParams.isTrustAllCertificates ());
+
+        com.helger.xsds.peppol.smp1.SignedServiceMetadataType aSSM;
+        try
+        {
+          aSSM = aSMPClient.getSchemeSpecificServiceMetadataOrNull (aParticipantID, aDocTypeID);
+        }
+        catch (final SMPClientException ex)
+        {
+          aSSM = null;
+          aErrors.add ("Error querying SMP. Details: " + ex.getMessage ());
+        }
+        if (aSSM != null)
+        {
+          ret = aSSM.getServiceMetadata ();
+        }
+        break;
+      }
+      case OASIS_BDXR_V1:
+      {
+        final BDXRClientReadOnly aBDXR1Client = createBDXR1Client (aSMPQueryParams);
+        customizeSMPClient (aBDXR1Client,
+                            aHCSModifier,
+                            bXMLSchemaValidation,
+                            bVerifySignature,
+                            aSMPMarshallerCustomizer,
+                            aSMPQueryParams.isTrustAllCertificates ());
+
+        com.helger.xsds.bdxr.smp1.SignedServiceMetadataType aSSM;
+        try
+        {
+          aSSM = aBDXR1Client.getServiceMetadataOrNull (aParticipantID, aDocTypeID);
+        }
+        catch (final SMPClientException ex)
+        {
+          aSSM = null;
+          aErrors.add ("Error querying SMP. Details: " + ex.getMessage ());
+        }
+        if (aSSM != null)
+        {
+          ret = aSSM.getServiceMetadata ();
+        }
+        break;
+      }
+      case OASIS_BDXR_V2:
+      {
+        final BDXR2ClientReadOnly aBDXR2Client = createBDXR2Client (aSMPQueryParams);
+        customizeSMPClient (aBDXR2Client,
+                            aHCSModifier,
+                            bXMLSchemaValidation,
+                            bVerifySignature,
+                            aSMPMarshallerCustomizer,
+                            aSMPQueryParams.isTrustAllCertificates ());
+
+        com.helger.xsds.bdxr.smp2.ServiceMetadataType aSM;
+        try
+        {
+          aSM = aBDXR2Client.getServiceMetadataOrNull (aParticipantID, aDocTypeID);
+        }
+        catch (final SMPClientException ex)
+        {
+          aSM = null;
+          aErrors.add ("Error querying SMP. Details: " + ex.getMessage ());
+        }
+        if (aSM != null)
+        {
+          ret = aSM;
+        }
+        break;
+      }
+    }
+
+    return new ServiceMetadataOutcome (ret, aErrors);
+  }
+
   @Nullable
   public static <T> T getServiceInformation (@NonNull final String sLogPrefix,
                                              @Nullable final String sSMLID,
@@ -528,88 +1085,57 @@ public final class PeppolAPIHelper
                  "; signature verification=" +
                  bVerifySignature);
 
-    T ret = null;
-    switch (aSMPQueryParams.getSMPAPIType ())
+    final ServiceMetadataOutcome aOutcome;
+    if (aSMPMarshallerCustomizer == null && PeppolSharedAPIConfig.isSMPRequestCoalescingEnabled ())
     {
-      case PEPPOL:
-      {
-        final SMPClientReadOnly aSMPClient = new SMPClientReadOnly (aSMPQueryParams.getSMPHostURI ());
-        _customizeSMPClient (aSMPClient,
-                             aHCSModifier,
-                             bXMLSchemaValidation,
-                             bVerifySignature,
-                             aSMPMarshallerCustomizer,
-                             aSMPQueryParams.isTrustAllCertificates ());
+      // Identical concurrent queries share one SMP query. A marshaller
+      // customizer is caller specific and prevents coalescing.
+      final String sKey = ServiceGroupCache.getKey (aSMPQueryParams, bXMLSchemaValidation, bVerifySignature) +
+                          '|' +
+                          aDocTypeID.getURIEncoded ();
+      aOutcome = SERVICE_METADATA_CALLS.execute (sKey,
+                                                 () -> _retrieveServiceMetadata (aSMPQueryParams,
+                                                                                 aParticipantID,
+                                                                                 aDocTypeID,
+                                                                                 aHCSModifier,
+                                                                                 bXMLSchemaValidation,
+                                                                                 bVerifySignature,
+                                                                                 null));
+    }
+    else
+      aOutcome = _retrieveServiceMetadata (aSMPQueryParams,
+                                           aParticipantID,
+                                           aDocTypeID,
+                                           aHCSModifier,
+                                           bXMLSchemaValidation,
+                                           bVerifySignature,
+                                           aSMPMarshallerCustomizer);
 
-        com.helger.xsds.peppol.smp1.SignedServiceMetadataType aSSM;
-        try
-        {
-          aSSM = aSMPClient.getSchemeSpecificServiceMetadataOrNull (aParticipantID, aDocTypeID);
-        }
-        catch (final SMPClientException ex)
-        {
-          aSSM = null;
-          aOnError.accept ("Error querying SMP. Details: " + ex.getMessage ());
-        }
-        if (aSSM != null)
-        {
-          ret = aPeppolFunc.convert (aParticipantID, aDocTypeID, aSSM.getServiceMetadata ());
-        }
-        break;
-      }
-      case OASIS_BDXR_V1:
-      {
-        final BDXRClientReadOnly aBDXR1Client = new BDXRClientReadOnly (aSMPQueryParams.getSMPHostURI ());
-        _customizeSMPClient (aBDXR1Client,
-                             aHCSModifier,
-                             bXMLSchemaValidation,
-                             bVerifySignature,
-                             aSMPMarshallerCustomizer,
-                             aSMPQueryParams.isTrustAllCertificates ());
+    // Each caller gets its own errors
+    for (final String sError : aOutcome.m_aErrors)
+      aOnError.accept (sError);
 
-        com.helger.xsds.bdxr.smp1.SignedServiceMetadataType aSSM;
-        try
-        {
-          aSSM = aBDXR1Client.getServiceMetadataOrNull (aParticipantID, aDocTypeID);
-        }
-        catch (final SMPClientException ex)
-        {
-          aSSM = null;
-          aOnError.accept ("Error querying SMP. Details: " + ex.getMessage ());
-        }
-        if (aSSM != null)
-        {
-          ret = aBdxr1Func.convert (aParticipantID, aDocTypeID, aSSM.getServiceMetadata ());
-        }
-        break;
-      }
-      case OASIS_BDXR_V2:
+    // The conversion happens per caller, as the result is usually modified
+    T ret = null;
+    if (aOutcome.m_aServiceMetadata != null)
+      switch (aSMPQueryParams.getSMPAPIType ())
       {
-        final BDXR2ClientReadOnly aBDXR2Client = new BDXR2ClientReadOnly (aSMPQueryParams.getSMPHostURI ());
-        _customizeSMPClient (aBDXR2Client,
-                             aHCSModifier,
-                             bXMLSchemaValidation,
-                             bVerifySignature,
-                             aSMPMarshallerCustomizer,
-                             aSMPQueryParams.isTrustAllCertificates ());
-
-        com.helger.xsds.bdxr.smp2.ServiceMetadataType aSM;
-        try
-        {
-          aSM = aBDXR2Client.getServiceMetadataOrNull (aParticipantID, aDocTypeID);
-        }
-        catch (final SMPClientException ex)
-        {
-          aSM = null;
-          aOnError.accept ("Error querying SMP. Details: " + ex.getMessage ());
-        }
-        if (aSM != null)
-        {
-          ret = aBdxr2Func.convert (aParticipantID, aDocTypeID, aSM);
-        }
-        break;
+        case PEPPOL:
+          ret = aPeppolFunc.convert (aParticipantID,
+                                     aDocTypeID,
+                                     (com.helger.xsds.peppol.smp1.ServiceMetadataType) aOutcome.m_aServiceMetadata);
+          break;
+        case OASIS_BDXR_V1:
+          ret = aBdxr1Func.convert (aParticipantID,
+                                    aDocTypeID,
+                                    (com.helger.xsds.bdxr.smp1.ServiceMetadataType) aOutcome.m_aServiceMetadata);
+          break;
+        case OASIS_BDXR_V2:
+          ret = aBdxr2Func.convert (aParticipantID,
+                                    aDocTypeID,
+                                    (com.helger.xsds.bdxr.smp2.ServiceMetadataType) aOutcome.m_aServiceMetadata);
+          break;
       }
-    }
 
     if (ret == null)
     {
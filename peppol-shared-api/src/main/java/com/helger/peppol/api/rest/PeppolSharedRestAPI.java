@@ -25,6 +25,11 @@ public final class PeppolSharedRestAPI
   public static final String PARAM_PARTICIPANT_ID = "participantID";
   public static final String PARAM_DOCTYPE_ID = "docTypeID";
 
+  /** Optional request parameter to select the JSON output format */
+  public static final String PARAM_FORMAT = "format";
+  public static final String FORMAT_COMPACT = "compact";
+  public static final String FORMAT_PRETTY = "pretty";
+
   private PeppolSharedRestAPI ()
   {}
 }
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.api.rest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.concurrent.ThreadSafe;
+
+/**
+ * An {@link InputStream} that is filled line by line from other threads. Reading blocks until the
+ * next line is available, until the producer signalled the end of the stream or until the deadline
+ * is exceeded.
+ *
+ * @author Philip Helger
+ */
+@ThreadSafe
+final class QueuedLineInputStream extends InputStream
+{
+  // Marker for the end of the stream
+  private static final byte [] EOS = new byte [0];
+
+  private final BlockingQueue <byte []> m_aQueue = new LinkedBlockingQueue <> ();
+  private final long m_nDeadlineNanos;
+  private final Consumer <? super QueuedLineInputStream> m_aOnDeadline;
+  private final Runnable m_aOnClose;
+
+  // Only accessed by the reading thread
+  private byte [] m_aCurrent;
+  private int m_nPos;
+  private boolean m_bEOS;
+
+  /**
+   * @param nDeadlineNanos
+   *        The absolute deadline based on {@link System#nanoTime()}.
+   * @param aOnDeadline
+   *        Invoked once in the reading thread with this stream if the deadline was exceeded. It may
+   *        still add final lines. May not be <code>null</code>.
+   * @param aOnClose
+   *        Invoked when the stream is closed. May not be <code>null</code>.
+   */
+  QueuedLineInputStream (final long nDeadlineNanos,
+                         @NonNull final Consumer <? super QueuedLineInputStream> aOnDeadline,
+                         @NonNull final Runnable aOnClose)
+  {
+    m_nDeadlineNanos = nDeadlineNanos;
+    m_aOnDeadline = aOnDeadline;
+    m_aOnClose = aOnClose;
+  }
+
+  /**
+   * Add a new line. A trailing line break is added automatically.
+   *
+   * @param sLine
+   *        The line to add. May not be <code>null</code>.
+   */
+  void addLine (@NonNull final String sLine)
+  {
+    m_aQueue.add ((sLine + '\n').getBytes (StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Signal that no more lines will follow.
+   */
+  void addEndOfStream ()
+  {
+    m_aQueue.add (EOS);
+  }
+
+  @Nullable
+  private byte [] _next () throws IOException
+  {
+    try
+    {
+      final long nRemainingNanos = m_nDeadlineNanos - System.nanoTime ();
+      byte [] ret = m_aQueue.poll (Math.max (nRemainingNanos, 0), TimeUnit.NANOSECONDS);
+      if (ret == null)
+      {
+        // Deadline exceeded - give the producer the chance to add the last lines
+        m_aOnDeadline.accept (this);
+        ret = m_aQueue.poll ();
+        if (ret == null)
+          ret = EOS;
+        else
+          addEndOfStream ();
+      }
+      return ret == EOS ? null : ret;
+    }
+    catch (final InterruptedException ex)
+    {
+      Thread.currentThread ().interrupt ();
+      throw new InterruptedIOException ("Interrupted while waiting for the next line");
+    }
+  }
+
+  private boolean _ensureData () throws IOException
+  {
+    while (!m_bEOS && (m_aCurrent == null || m_nPos >= m_aCurrent.length))
+    {
+      m_aCurrent = _next ();
+      m_nPos = 0;
+      if (m_aCurrent == null)
+        m_bEOS = true;
+    }
+    return !m_bEOS;
+  }
+
+  @Override
+  public int read () throws IOException
+  {
+    if (!_ensureData ())
+      return -1;
+    return m_aCurrent[m_nPos++] & 0xff;
+  }
+
+  @Override
+  public int read (@NonNull final byte [] aBuf, final int nOfs, final int nLen) throws IOException
+  {
+    if (nLen == 0)
+      return 0;
+    if (!_ensureData ())
+      return -1;
+    final int nCopy = Math.min (nLen, m_aCurrent.length - m_nPos);
+    System.arraycopy (m_aCurrent, m_nPos, aBuf, nOfs, nCopy);
+    m_nPos += nCopy;
+    return nCopy;
+  }
+
+  @Override
+  public void close () throws IOException
+  {
+    m_bEOS = true;
+    m_aOnClose.run ();
+    super.close ();
+  }
+}
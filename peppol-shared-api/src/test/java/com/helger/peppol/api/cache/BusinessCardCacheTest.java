@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.api.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.jspecify.annotations.NonNull;
+import org.junit.After;
+import org.junit.Test;
+
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.json.serialize.JsonWriterSettings;
+import com.helger.peppol.businesscard.generic.PDBusinessCard;
+import com.helger.peppol.businesscard.generic.PDBusinessEntity;
+import com.helger.peppol.businesscard.generic.PDIdentifier;
+import com.helger.peppol.sml.ESML;
+import com.helger.peppol.sml.ESMPAPIType;
+import com.helger.peppol.ui.types.smp.SMPQueryParams;
+import com.helger.peppolid.factory.PeppolIdentifierFactory;
+import com.helger.peppolid.peppol.PeppolIdentifierHelper;
+
+/**
+ * Test class for class {@link BusinessCardCache}.
+ *
+ * @author Philip Helger
+ */
+public final class BusinessCardCacheTest
+{
+  @After
+  public void after ()
+  {
+    BusinessCardCache.clear ();
+  }
+
+  @NonNull
+  private static SMPQueryParams _createSMPQueryParams ()
+  {
+    final SMPQueryParams ret = SMPQueryParams.createForSMLOrNull (ESML.PEPPOL_TEST,
+                                                                  ESMPAPIType.PEPPOL,
+                                                                  PeppolIdentifierFactory.INSTANCE,
+                                                                  PeppolIdentifierHelper.DEFAULT_PARTICIPANT_SCHEME,
+                                                                  "9915:helger",
+                                                                  true);
+    assertNotNull (ret);
+    return ret;
+  }
+
+  @NonNull
+  private static BusinessCardCache.Key _createKey ()
+  {
+    return BusinessCardCache.getKey (_createSMPQueryParams (), null);
+  }
+
+  private static PDBusinessCard _createBC ()
+  {
+    return new PDBusinessCard (new PDIdentifier (PeppolIdentifierHelper.DEFAULT_PARTICIPANT_SCHEME, "9915:test"),
+                               new CommonsArrayList <PDBusinessEntity> ());
+  }
+
+  @Test
+  public void testPutAndGet ()
+  {
+    assertNull (BusinessCardCache.get (_createKey ()));
+
+    final PDBusinessCard aBC = _createBC ();
+    final BusinessCardCache.Entry aEntry = BusinessCardCache.put (_createKey (), aBC);
+    assertTrue (aEntry.isFound ());
+    assertSame (aBC, aEntry.getBusinessCard ());
+    assertSame (aEntry, BusinessCardCache.get (_createKey ()));
+
+    // Compact JSON and its members are consistent
+    final String sJson = aBC.getAsJson ().getAsJsonString (JsonWriterSettings.DEFAULT_SETTINGS);
+    assertEquals (sJson, aEntry.getJsonString ());
+    assertEquals ("{" + aEntry.getJsonMembers () + "}", sJson);
+  }
+
+  @Test
+  public void testNotFound ()
+  {
+    BusinessCardCache.putNotFound (_createKey ());
+    final BusinessCardCache.Entry aEntry = BusinessCardCache.get (_createKey ());
+    assertNotNull (aEntry);
+    assertFalse (aEntry.isFound ());
+    assertNull (aEntry.getBusinessCard ());
+    assertNull (aEntry.getJsonString ());
+    assertNull (aEntry.getJsonMembers ());
+  }
+
+  @Test
+  public void testCreateEntry ()
+  {
+    final BusinessCardCache.Entry aEntry = BusinessCardCache.createEntry (_createBC ());
+    assertTrue (aEntry.isFound ());
+    // Not put into the cache
+    assertEquals (0, BusinessCardCache.getCache ().size ());
+  }
+
+  @Test
+  public void testKey ()
+  {
+    final SMPQueryParams aSMPQueryParams = _createSMPQueryParams ();
+
+    final BusinessCardCache.Key aKey = BusinessCardCache.getKey (aSMPQueryParams, null);
+    assertEquals (aKey, BusinessCardCache.getKey (aSMPQueryParams, x -> {}));
+
+    // The HTTP client settings modifier is part of the key
+    assertNotEquals (aKey, BusinessCardCache.getKey (aSMPQueryParams, x -> x.setUserAgent ("other")));
+    assertEquals (BusinessCardCache.getKey (aSMPQueryParams, x -> x.setUserAgent ("other")),
+                  BusinessCardCache.getKey (aSMPQueryParams, x -> x.setUserAgent ("other")));
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.api.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.hc.core5.http.message.BasicClassicHttpResponse;
+import org.junit.After;
+import org.junit.Test;
+
+import com.helger.collection.commons.CommonsLinkedHashMap;
+import com.helger.collection.commons.ICommonsOrderedMap;
+import com.helger.http.CHttpHeader;
+import com.helger.peppol.api.config.PeppolSharedAPIConfig;
+import com.helger.peppol.api.httpclient.HttpCacheValidators;
+
+/**
+ * Test class for class {@link ServiceGroupCache}.
+ *
+ * @author Philip Helger
+ */
+public final class ServiceGroupCacheTest
+{
+  @After
+  public void after ()
+  {
+    ServiceGroupCache.clear ();
+  }
+
+  private static ICommonsOrderedMap <String, String> _createHrefs (final int nCount)
+  {
+    final ICommonsOrderedMap <String, String> ret = new CommonsLinkedHashMap <> ();
+    for (int i = 0; i < nCount; ++i)
+      ret.put ("http://smp.example.org/a/services/doc" + i, "http://smp.example.org/a/services/doc%" + i);
+    return ret;
+  }
+
+  private static HttpCacheValidators _createValidators ()
+  {
+    final BasicClassicHttpResponse aResponse = new BasicClassicHttpResponse (200);
+    aResponse.setHeader (CHttpHeader.ETAG, "\"v1\"");
+    return HttpCacheValidators.createFromResponse (aResponse);
+  }
+
+  @Test
+  public void testPutAndGet ()
+  {
+    assertNull (ServiceGroupCache.get ("key"));
+
+    final ICommonsOrderedMap <String, String> aHrefs = _createHrefs (3);
+    ServiceGroupCache.put ("key", aHrefs, null);
+
+    final ServiceGroupCache.Entry aEntry = ServiceGroupCache.get ("key");
+    assertNotNull (aEntry);
+    assertTrue (aEntry.isFresh ());
+    assertNull (aEntry.getValidators ());
+    assertEquals (aHrefs, aEntry.getAllHrefs ());
+
+    // Modifying the source or the result must not modify the cache
+    aHrefs.clear ();
+    aEntry.getAllHrefs ().clear ();
+    assertEquals (3, ServiceGroupCache.get ("key").getAllHrefs ().size ());
+  }
+
+  @Test
+  public void testTooManyDocTypes ()
+  {
+    ServiceGroupCache.put ("key", _createHrefs (PeppolSharedAPIConfig.getServiceGroupCacheMaxDocTypes () + 1), null);
+    assertNull (ServiceGroupCache.get ("key"));
+  }
+
+  @Test
+  public void testRevalidation ()
+  {
+    final HttpCacheValidators aValidators = _createValidators ();
+    assertNotNull (aValidators);
+
+    // A stale entry that is still retained because of the validators
+    final ServiceGroupCache.Entry aStale = new ServiceGroupCache.Entry (_createHrefs (2),
+                                                                         aValidators,
+                                                                         System.nanoTime () - 1);
+    assertFalse (aStale.isFresh ());
+    assertSame (aValidators, aStale.getValidators ());
+
+    // The SMP answered "304 Not Modified"
+    ServiceGroupCache.markRevalidated ("key", aStale);
+    final ServiceGroupCache.Entry aEntry = ServiceGroupCache.get ("key");
+    assertNotNull (aEntry);
+    assertTrue (aEntry.isFresh ());
+    assertSame (aValidators, aEntry.getValidators ());
+    assertEquals (aStale.getAllHrefs (), aEntry.getAllHrefs ());
+  }
+}
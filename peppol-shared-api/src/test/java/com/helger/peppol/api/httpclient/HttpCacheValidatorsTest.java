@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.api.httpclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.core5.http.message.BasicClassicHttpResponse;
+import org.junit.Test;
+
+import com.helger.http.CHttpHeader;
+
+/**
+ * Test class for class {@link HttpCacheValidators}.
+ *
+ * @author Philip Helger
+ */
+public final class HttpCacheValidatorsTest
+{
+  @Test
+  public void testCreateFromResponse ()
+  {
+    final BasicClassicHttpResponse aResponse = new BasicClassicHttpResponse (200);
+    assertNull (HttpCacheValidators.createFromResponse (aResponse));
+
+    aResponse.setHeader (CHttpHeader.ETAG, "\"abc\"");
+    HttpCacheValidators aValidators = HttpCacheValidators.createFromResponse (aResponse);
+    assertNotNull (aValidators);
+    assertEquals ("\"abc\"", aValidators.getETag ());
+    assertNull (aValidators.getLastModified ());
+
+    aResponse.setHeader (CHttpHeader.LAST_MODIFIED, "Wed, 21 Oct 2015 07:28:00 GMT");
+    aValidators = HttpCacheValidators.createFromResponse (aResponse);
+    assertNotNull (aValidators);
+    assertEquals ("\"abc\"", aValidators.getETag ());
+    assertEquals ("Wed, 21 Oct 2015 07:28:00 GMT", aValidators.getLastModified ());
+  }
+
+  @Test
+  public void testApplyTo () throws Exception
+  {
+    final BasicClassicHttpResponse aResponse = new BasicClassicHttpResponse (200);
+    aResponse.setHeader (CHttpHeader.ETAG, "\"abc\"");
+    aResponse.setHeader (CHttpHeader.LAST_MODIFIED, "Wed, 21 Oct 2015 07:28:00 GMT");
+    final HttpCacheValidators aValidators = HttpCacheValidators.createFromResponse (aResponse);
+    assertNotNull (aValidators);
+
+    final HttpGet aGet = new HttpGet ("http://smp.example.org/iso6523-actorid-upis%3A%3A9915%3Atest");
+    aValidators.applyTo (aGet);
+    assertEquals ("\"abc\"", aGet.getFirstHeader (CHttpHeader.IF_NONE_MATCH).getValue ());
+    assertEquals ("Wed, 21 Oct 2015 07:28:00 GMT", aGet.getFirstHeader (CHttpHeader.IF_MODIFIED_SINCE).getValue ());
+  }
+}
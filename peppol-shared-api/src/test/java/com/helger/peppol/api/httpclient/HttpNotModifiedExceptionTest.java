@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.api.httpclient;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+/**
+ * Test class for class {@link HttpNotModifiedException}.
+ *
+ * @author Philip Helger
+ */
+public final class HttpNotModifiedExceptionTest
+{
+  @Test
+  public void testIsContainedIn ()
+  {
+    final HttpNotModifiedException ex = new HttpNotModifiedException ("test");
+    assertTrue (HttpNotModifiedException.isContainedIn (ex));
+    // As wrapped by the SMP client
+    assertTrue (HttpNotModifiedException.isContainedIn (new IllegalStateException ("wrapped", ex)));
+
+    assertFalse (HttpNotModifiedException.isContainedIn (null));
+    assertFalse (HttpNotModifiedException.isContainedIn (new IOException ("other")));
+  }
+}
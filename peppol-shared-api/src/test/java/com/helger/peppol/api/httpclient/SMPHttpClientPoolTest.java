@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.api.httpclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+import javax.net.ssl.SSLContext;
+
+import org.apache.hc.client5.http.auth.UsernamePasswordCredentials;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.util.Timeout;
+import org.junit.After;
+import org.junit.Test;
+
+import com.helger.httpclient.HttpClientSettings;
+
+/**
+ * Test class for class {@link SMPHttpClientPool}.
+ *
+ * @author Philip Helger
+ */
+public final class SMPHttpClientPoolTest
+{
+  @After
+  public void after ()
+  {
+    SMPHttpClientPool.cleanupOnShutdown ();
+  }
+
+  @Test
+  public void testKey () throws Exception
+  {
+    final HttpClientSettings aHCS1 = new HttpClientSettings ();
+    final HttpClientSettings aHCS2 = new HttpClientSettings ();
+    assertEquals (SMPHttpClientPool.getKey (aHCS1, false), SMPHttpClientPool.getKey (aHCS2, false));
+
+    // Applied per request
+    aHCS2.setResponseTimeout (Timeout.ofSeconds (77));
+    assertEquals (SMPHttpClientPool.getKey (aHCS1, false), SMPHttpClientPool.getKey (aHCS2, false));
+
+    // Bound to the client
+    aHCS2.setProxyHost (new HttpHost ("proxy.example.org", 8080));
+    assertNotEquals (SMPHttpClientPool.getKey (aHCS1, false), SMPHttpClientPool.getKey (aHCS2, false));
+
+    aHCS2.setProxyHost (null);
+    aHCS2.setUserAgent ("other");
+    assertNotEquals (SMPHttpClientPool.getKey (aHCS1, false), SMPHttpClientPool.getKey (aHCS2, false));
+
+    // A new trust all context each time must not create a new client
+    aHCS1.setSSLContextTrustAll ();
+    final SMPHttpClientPool.Key aKey = SMPHttpClientPool.getKey (aHCS1, true);
+    aHCS1.setSSLContextTrustAll ();
+    assertEquals (aKey, SMPHttpClientPool.getKey (aHCS1, true));
+    assertNotEquals (aKey, SMPHttpClientPool.getKey (new HttpClientSettings (), false));
+  }
+
+  @Test
+  public void testKeyIdentity () throws Exception
+  {
+    // Different SSL context instances never share a client
+    final HttpClientSettings aHCS1 = new HttpClientSettings ();
+    aHCS1.setSSLContext (SSLContext.getInstance ("TLS"));
+    final HttpClientSettings aHCS2 = new HttpClientSettings ();
+    aHCS2.setSSLContext (SSLContext.getInstance ("TLS"));
+    assertNotEquals (SMPHttpClientPool.getKey (aHCS1, false), SMPHttpClientPool.getKey (aHCS2, false));
+    aHCS2.setSSLContext (aHCS1.getSSLContext ());
+    assertEquals (SMPHttpClientPool.getKey (aHCS1, false), SMPHttpClientPool.getKey (aHCS2, false));
+
+    // The same applies to the proxy credentials
+    final HttpHost aProxy = new HttpHost ("proxy.example.org", 8080);
+    aHCS1.setProxyHost (aProxy);
+    aHCS1.setProxyCredentials (new UsernamePasswordCredentials ("user", "pw1".toCharArray ()));
+    aHCS2.setProxyHost (aProxy);
+    aHCS2.setProxyCredentials (new UsernamePasswordCredentials ("user", "pw2".toCharArray ()));
+    assertNotEquals (SMPHttpClientPool.getKey (aHCS1, false), SMPHttpClientPool.getKey (aHCS2, false));
+    aHCS2.setProxyCredentials (aHCS1.getProxyCredentials ());
+    assertEquals (SMPHttpClientPool.getKey (aHCS1, false), SMPHttpClientPool.getKey (aHCS2, false));
+
+    // Other client level settings
+    aHCS2.nonProxyHosts ().add ("smp.example.org");
+    assertNotEquals (SMPHttpClientPool.getKey (aHCS1, false), SMPHttpClientPool.getKey (aHCS2, false));
+    aHCS1.nonProxyHosts ().add ("smp.example.org");
+    assertEquals (SMPHttpClientPool.getKey (aHCS1, false), SMPHttpClientPool.getKey (aHCS2, false));
+
+    aHCS2.setRetryCount (aHCS1.getRetryCount () + 1);
+    assertNotEquals (SMPHttpClientPool.getKey (aHCS1, false), SMPHttpClientPool.getKey (aHCS2, false));
+  }
+
+  @Test
+  public void testPooling ()
+  {
+    assertEquals (0, SMPHttpClientPool.getPoolSize ());
+
+    final HttpClientSettings aHCS = new HttpClientSettings ();
+    final Object aClient = SMPHttpClientPool.getPooledHttpClient (aHCS, false);
+    assertNotNull (aClient);
+    assertSame (aClient, SMPHttpClientPool.getPooledHttpClient (new HttpClientSettings (), false));
+    assertEquals (1, SMPHttpClientPool.getPoolSize ());
+
+    final HttpClientSettings aHCSProxy = new HttpClientSettings ();
+    aHCSProxy.setProxyHost (new HttpHost ("proxy.example.org", 8080));
+    assertNotNull (SMPHttpClientPool.getPooledHttpClient (aHCSProxy, false));
+    assertEquals (2, SMPHttpClientPool.getPoolSize ());
+
+    SMPHttpClientPool.cleanupOnShutdown ();
+    assertEquals (0, SMPHttpClientPool.getPoolSize ());
+  }
+}
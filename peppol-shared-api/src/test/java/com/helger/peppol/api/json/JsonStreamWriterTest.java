@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.api.json;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+import com.helger.json.JsonArray;
+import com.helger.json.JsonObject;
+
+/**
+ * Test class for class {@link JsonStreamWriter}.
+ *
+ * @author Philip Helger
+ */
+public final class JsonStreamWriterTest
+{
+  @Test
+  public void testCompact ()
+  {
+    final StringWriter aSW = new StringWriter ();
+    new JsonStreamWriter (aSW, false).beginObject ()
+                                     .name ("a")
+                                     .value (1)
+                                     .name ("b")
+                                     .beginArray ()
+                                     .value (true)
+                                     .value ("x\"y")
+                                     .value ((String) null)
+                                     .endArray ()
+                                     .name ("c")
+                                     .beginObject ()
+                                     .endObject ()
+                                     .endObject ();
+    assertEquals ("{\"a\":1,\"b\":[true,\"x\\\"y\",null],\"c\":{}}", aSW.toString ());
+  }
+
+  @Test
+  public void testFormatted ()
+  {
+    final StringWriter aSW = new StringWriter ();
+    new JsonStreamWriter (aSW, true).beginObject ()
+                                    .name ("a")
+                                    .beginArray ()
+                                    .value (1)
+                                    .value (2)
+                                    .endArray ()
+                                    .endObject ();
+    assertEquals ("{\n  \"a\" : [\n    1,\n    2\n  ]\n}", aSW.toString ());
+  }
+
+  @Test
+  public void testEmbeddedTree ()
+  {
+    final StringWriter aSW = new StringWriter ();
+    new JsonStreamWriter (aSW, false).beginObject ()
+                                     .name ("tree")
+                                     .json (new JsonObject ().add ("x", "v").add ("y", new JsonArray ().add (5)))
+                                     .name ("n")
+                                     .json (null)
+                                     .endObject ();
+    assertEquals ("{\"tree\":{\"x\":\"v\",\"y\":[5]},\"n\":null}", aSW.toString ());
+  }
+
+  @Test
+  public void testRawMembers ()
+  {
+    StringWriter aSW = new StringWriter ();
+    new JsonStreamWriter (aSW, false).beginObject ()
+                                     .rawMembers ("\"a\":1,\"b\":[]")
+                                     .name ("c")
+                                     .value (2)
+                                     .endObject ();
+    assertEquals ("{\"a\":1,\"b\":[],\"c\":2}", aSW.toString ());
+
+    // Empty members of an empty object
+    aSW = new StringWriter ();
+    new JsonStreamWriter (aSW, false).beginObject ().rawMembers ("").name ("c").value (2).endObject ();
+    assertEquals ("{\"c\":2}", aSW.toString ());
+
+    // Members after other members
+    aSW = new StringWriter ();
+    new JsonStreamWriter (aSW, false).beginObject ().name ("c").value (2).rawMembers ("\"a\":1").endObject ();
+    assertEquals ("{\"c\":2,\"a\":1}", aSW.toString ());
+  }
+
+  @Test
+  public void testFormattedMembers ()
+  {
+    final JsonObject aObj = new JsonObject ().add ("a", 1).add ("b", new JsonArray ().add ("x"));
+    final String sMembers = JsonStreamWriter.getFormattedMembers (aObj);
+    assertEquals ("\"a\" : 1,\n  \"b\" : [\n    \"x\"\n  ]", sMembers);
+    assertEquals ("", JsonStreamWriter.getFormattedMembers (new JsonObject ()));
+
+    // Top-level object - same as direct serialization
+    StringWriter aSW = new StringWriter ();
+    new JsonStreamWriter (aSW, true).beginObject ().rawMembers (sMembers).name ("c").value (2).endObject ();
+    final StringWriter aExpectedSW = new StringWriter ();
+    new JsonStreamWriter (aExpectedSW, true).json (aObj.getClone ().add ("c", 2));
+    assertEquals (aExpectedSW.toString (), aSW.toString ());
+
+    // Nested object - re-indented
+    aSW = new StringWriter ();
+    new JsonStreamWriter (aSW, true).beginObject ()
+                                    .name ("n")
+                                    .beginObject ()
+                                    .rawMembers (sMembers)
+                                    .endObject ()
+                                    .endObject ();
+    assertEquals ("{\n  \"n\" : {\n    \"a\" : 1,\n    \"b\" : [\n      \"x\"\n    ]\n  }\n}", aSW.toString ());
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.api.metrics;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Test class for class {@link LatencyHistogram}.
+ *
+ * @author Philip Helger
+ */
+public final class LatencyHistogramTest
+{
+  @Test
+  public void testEmpty ()
+  {
+    final LatencyHistogram aHG = new LatencyHistogram (new long [] { 10, 100 });
+    assertEquals (0, aHG.getCount ());
+    assertEquals (0, aHG.getPercentileMillis (0.5), 0);
+    assertArrayEquals (new long [] { 0, 0, 0 }, aHG.getCumulativeCounts ());
+  }
+
+  @Test
+  public void testRecord ()
+  {
+    final LatencyHistogram aHG = new LatencyHistogram (new long [] { 10, 100 });
+    for (int i = 0; i < 5; ++i)
+      aHG.record (5);
+    for (int i = 0; i < 4; ++i)
+      aHG.record (50);
+    aHG.record (1000);
+    // Negative values are counted as 0
+    aHG.record (-1);
+
+    assertEquals (11, aHG.getCount ());
+    assertEquals (5 * 5 + 4 * 50 + 1000, aHG.getSumMillis ());
+    assertArrayEquals (new long [] { 6, 10, 11 }, aHG.getCumulativeCounts ());
+
+    // Median is in the first bucket
+    assertEquals (10 * 5.5 / 6, aHG.getPercentileMillis (0.5), 0.0001);
+    // 90% is in the second bucket
+    assertEquals (10 + 90 * (9.9 - 6) / 4, aHG.getPercentileMillis (0.9), 0.0001);
+    // Overflow uses the highest bound
+    assertEquals (100, aHG.getPercentileMillis (1), 0);
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.api.ratelimit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+/**
+ * Test class for class {@link ClusterRateLimiter}.
+ *
+ * @author Philip Helger
+ */
+public final class ClusterRateLimiterTest
+{
+  @Test
+  public void testSharedBetweenNodes ()
+  {
+    final AtomicLong aClock = new AtomicLong (60_000);
+    final InMemoryRateLimitClusterBackend aBackend = new InMemoryRateLimitClusterBackend ();
+    final Duration aDuration = Duration.ofMinutes (1);
+    // Two nodes using the same backend
+    final ClusterRateLimiter aNode1 = new ClusterRateLimiter (aBackend,
+                                                              4,
+                                                              aDuration,
+                                                              aClock::get,
+                                                              new TokenBucketRateLimiter (4, aDuration));
+    final ClusterRateLimiter aNode2 = new ClusterRateLimiter (aBackend,
+                                                              4,
+                                                              aDuration,
+                                                              aClock::get,
+                                                              new TokenBucketRateLimiter (4, aDuration));
+
+    assertTrue (aNode1.tryAcquire ("ip", 2));
+    assertTrue (aNode2.tryAcquire ("ip", 2));
+    // The global budget is used up
+    assertFalse (aNode1.tryAcquire ("ip", 1));
+    assertFalse (aNode2.tryAcquire ("ip", 1));
+    assertTrue (aNode2.tryAcquire ("other", 1));
+
+    // Next window
+    aClock.addAndGet (aDuration.toMillis ());
+    assertTrue (aNode1.tryAcquire ("ip", 1));
+  }
+
+  @Test
+  public void testBackendFailure ()
+  {
+    final Duration aDuration = Duration.ofMinutes (1);
+    final ClusterRateLimiter aRL = new ClusterRateLimiter ( (k, n, ttl) -> {
+      throw new IllegalStateException ("Backend down");
+    }, 2, aDuration, System::currentTimeMillis, new TokenBucketRateLimiter (2, aDuration));
+
+    // Local fallback is used
+    assertTrue (aRL.tryAcquire ("ip", 2));
+    assertTrue (aRL.isBackendFailing ());
+    assertFalse (aRL.tryAcquire ("ip", 1));
+  }
+
+  @Test
+  public void testCircuitBreaker ()
+  {
+    final AtomicLong aClock = new AtomicLong (60_000);
+    final AtomicBoolean aBackendDown = new AtomicBoolean (true);
+    final AtomicInteger aBackendCalls = new AtomicInteger (0);
+    final InMemoryRateLimitClusterBackend aBackend = new InMemoryRateLimitClusterBackend ();
+    final Duration aDuration = Duration.ofMinutes (1);
+    final ClusterRateLimiter aRL = new ClusterRateLimiter ( (k, n, ttl) -> {
+      aBackendCalls.incrementAndGet ();
+      if (aBackendDown.get ())
+        throw new IllegalStateException ("Backend down");
+      return aBackend.incrementAndGet (k, n, ttl);
+    }, 100, aDuration, aClock::get, new TokenBucketRateLimiter (100, aDuration), Duration.ofSeconds (10));
+
+    assertTrue (aRL.tryAcquire ("ip", 1));
+    assertTrue (aRL.isBackendFailing ());
+    assertEquals (1, aBackendCalls.get ());
+
+    // Within the retry delay the backend is skipped
+    for (int i = 0; i < 10; ++i)
+      assertTrue (aRL.tryAcquire ("ip", 1));
+    assertEquals (1, aBackendCalls.get ());
+
+    // A single failing probe after the retry delay doubles the delay
+    aClock.addAndGet (10_000);
+    assertTrue (aRL.tryAcquire ("ip", 1));
+    assertEquals (2, aBackendCalls.get ());
+    aClock.addAndGet (10_000);
+    assertTrue (aRL.tryAcquire ("ip", 1));
+    assertEquals (2, aBackendCalls.get ());
+
+    // Successful probe closes the circuit again
+    aBackendDown.set (false);
+    aClock.addAndGet (10_000);
+    assertTrue (aRL.tryAcquire ("ip", 1));
+    assertEquals (3, aBackendCalls.get ());
+    assertFalse (aRL.isBackendFailing ());
+    assertTrue (aRL.tryAcquire ("ip", 1));
+    assertEquals (4, aBackendCalls.get ());
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.api.ratelimit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Test class for class {@link CountMinSketch}.
+ *
+ * @author Philip Helger
+ */
+public final class CountMinSketchTest
+{
+  @Test
+  public void testBasic ()
+  {
+    final CountMinSketch aCMS = new CountMinSketch (4, 1024);
+    assertEquals (0, aCMS.estimate ("a"));
+    assertEquals (5, aCMS.add ("a", 5));
+    assertEquals (6, aCMS.add ("a", 1));
+    assertEquals (6, aCMS.estimate ("a"));
+
+    // Many other keys - estimates are never too low and only slightly too high
+    for (int i = 0; i < 10_000; ++i)
+      aCMS.add ("ip:" + i, 1);
+    final long nEstimate = aCMS.estimate ("a");
+    assertTrue (nEstimate >= 6);
+    assertTrue (Long.toString (nEstimate), nEstimate <= 6 + 2 * 10_000 / 1024);
+  }
+}
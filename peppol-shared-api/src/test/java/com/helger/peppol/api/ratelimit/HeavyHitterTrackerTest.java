@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.api.ratelimit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.helger.collection.commons.ICommonsList;
+
+/**
+ * Test class for class {@link HeavyHitterTracker}.
+ *
+ * @author Philip Helger
+ */
+public final class HeavyHitterTrackerTest
+{
+  @Test
+  public void testTop ()
+  {
+    final AtomicLong aClock = new AtomicLong (0);
+    final HeavyHitterTracker aHHT = new HeavyHitterTracker (3, Duration.ofMinutes (1), aClock::get);
+
+    // Background noise
+    for (int i = 0; i < 5_000; ++i)
+      aHHT.record ("ip:10.0." + (i % 1000), 1);
+    // Abusers
+    for (int i = 0; i < 500; ++i)
+    {
+      aHHT.record ("ip:1.1.1.1", 1);
+      if (i % 2 == 0)
+        aHHT.record ("ip:2.2.2.2", 1);
+      if (i % 4 == 0)
+        aHHT.record ("ip:3.3.3.3", 1);
+    }
+
+    final ICommonsList <HeavyHitterTracker.HeavyHitter> aTop = aHHT.getTop ();
+    assertEquals (3, aTop.size ());
+    assertEquals ("ip:1.1.1.1", aTop.get (0).getKey ());
+    assertEquals ("ip:2.2.2.2", aTop.get (1).getKey ());
+    assertEquals ("ip:3.3.3.3", aTop.get (2).getKey ());
+    assertTrue (aTop.get (0).getCount () >= 500);
+
+    // New window
+    aClock.addAndGet (TimeUnit.MINUTES.toNanos (1));
+    aHHT.record ("ip:4.4.4.4", 1);
+    assertEquals (1, aHHT.getTop ().size ());
+    assertEquals (0, aHHT.getEstimatedCount ("ip:1.1.1.1"));
+  }
+
+  @Test
+  public void testConcurrentRecord () throws Exception
+  {
+    final HeavyHitterTracker aHHT = new HeavyHitterTracker (2, Duration.ofMinutes (1));
+    final ExecutorService aES = Executors.newFixedThreadPool (4);
+    try
+    {
+      for (int t = 0; t < 4; ++t)
+      {
+        final int nThread = t;
+        aES.submit ( () -> {
+          for (int i = 0; i < 1_000; ++i)
+          {
+            aHHT.record ("ip:10.1." + nThread + "." + (i % 100), 1);
+            aHHT.record ("ip:1.1.1.1", 1);
+            if (i % 2 == 0)
+              aHHT.record ("ip:2.2.2.2", 1);
+          }
+        });
+      }
+    }
+    finally
+    {
+      aES.shutdown ();
+      assertTrue (aES.awaitTermination (1, TimeUnit.MINUTES));
+    }
+
+    final ICommonsList <HeavyHitterTracker.HeavyHitter> aTop = aHHT.getTop ();
+    assertEquals (2, aTop.size ());
+    assertEquals ("ip:1.1.1.1", aTop.get (0).getKey ());
+    assertEquals ("ip:2.2.2.2", aTop.get (1).getKey ());
+    assertTrue (aTop.get (0).getCount () >= 4_000);
+  }
+}
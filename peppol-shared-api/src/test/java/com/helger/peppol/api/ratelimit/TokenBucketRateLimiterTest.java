@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.api.ratelimit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+/**
+ * Test class for class {@link TokenBucketRateLimiter}.
+ *
+ * @author Philip Helger
+ */
+public final class TokenBucketRateLimiterTest
+{
+  @Test
+  public void testBasic ()
+  {
+    final AtomicLong aClock = new AtomicLong (1_000_000_000L);
+    final TokenBucketRateLimiter aRL = new TokenBucketRateLimiter (3,
+                                                                   Duration.ofSeconds (3),
+                                                                   TokenBucketRateLimiter.DEFAULT_MAX_KEYS,
+                                                                   aClock::get);
+
+    // Full bucket at the beginning
+    assertTrue (aRL.tryAcquire ("a", 1));
+    assertTrue (aRL.tryAcquire ("a", 2));
+    assertFalse (aRL.tryAcquire ("a", 1));
+
+    // Other keys are independent
+    assertTrue (aRL.tryAcquire ("b", 3));
+
+    // One token per second is refilled
+    aClock.addAndGet (TimeUnit.SECONDS.toNanos (1));
+    assertTrue (aRL.tryAcquire ("a", 1));
+    assertFalse (aRL.tryAcquire ("a", 1));
+
+    // More than the capacity is never possible
+    aClock.addAndGet (TimeUnit.HOURS.toNanos (1));
+    assertFalse (aRL.tryAcquire ("a", 4));
+    assertTrue (aRL.tryAcquire ("a", 3));
+  }
+
+  @Test
+  public void testEviction ()
+  {
+    final AtomicLong aClock = new AtomicLong (1_000_000_000L);
+    final TokenBucketRateLimiter aRL = new TokenBucketRateLimiter (2, Duration.ofSeconds (2), 100, aClock::get);
+
+    // Many different keys - e.g. a scan from a large IP range
+    for (int i = 0; i < 1_000; ++i)
+      assertTrue (aRL.tryAcquire ("ip:" + i, 1));
+    assertTrue (aRL.getBucketCount () <= 100);
+    assertTrue (aRL.getEvictionCount () > 0);
+
+    // Buckets of idle keys are removed without eviction
+    aClock.addAndGet (TimeUnit.SECONDS.toNanos (10));
+    final long nEvictions = aRL.getEvictionCount ();
+    aRL.sweep ();
+    assertEquals (0, aRL.getBucketCount ());
+    assertEquals (nEvictions, aRL.getEvictionCount ());
+
+    // Removing an idle bucket does not change the behaviour
+    assertTrue (aRL.tryAcquire ("ip:1", 2));
+    assertFalse (aRL.tryAcquire ("ip:1", 1));
+  }
+
+  @Test
+  public void testConcurrent () throws Exception
+  {
+    final TokenBucketRateLimiter aRL = new TokenBucketRateLimiter (100, Duration.ofHours (1));
+    final AtomicInteger aGranted = new AtomicInteger (0);
+    final ExecutorService aES = Executors.newFixedThreadPool (8);
+    for (int i = 0; i < 1_000; ++i)
+      aES.submit ( () -> {
+        if (aRL.tryAcquire ("key", 1))
+          aGranted.incrementAndGet ();
+      });
+    aES.shutdown ();
+    assertTrue (aES.awaitTermination (10, TimeUnit.SECONDS));
+    // Refill within the test duration is negligible
+    assertEquals (100, aGranted.get (), 1);
+  }
+}
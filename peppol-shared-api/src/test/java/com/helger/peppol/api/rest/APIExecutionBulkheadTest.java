@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.api.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+
+/**
+ * Test class for class {@link APIExecutionBulkhead}.
+ *
+ * @author Philip Helger
+ */
+public final class APIExecutionBulkheadTest
+{
+  private static final String LOG_PREFIX = "[test] ";
+
+  @Test
+  public void testSuccess () throws Exception
+  {
+    assertEquals ("done", APIExecutionBulkhead.execute (LOG_PREFIX, "success", () -> "done"));
+    assertEquals (0, APIExecutionBulkhead.getInFlight ("success"));
+    assertTrue (APIExecutionBulkhead.getAllGroups ().contains ("success"));
+  }
+
+  @Test
+  public void testException () throws Exception
+  {
+    final IllegalStateException aEx = new IllegalStateException ("oops");
+    try
+    {
+      APIExecutionBulkhead.execute (LOG_PREFIX, "exception", () -> {
+        throw aEx;
+      });
+      fail ();
+    }
+    catch (final IllegalStateException ex)
+    {
+      // The original exception is propagated
+      assertSame (aEx, ex);
+    }
+    // The permit is returned
+    assertEquals (0, APIExecutionBulkhead.getInFlight ("exception"));
+  }
+
+  @Test
+  public void testRejectionPerGroup () throws Exception
+  {
+    final String sGroup = "rejection";
+    final int nMax = APIExecutionBulkhead.getMaxInFlight (sGroup);
+    final CountDownLatch aStarted = new CountDownLatch (nMax);
+    final CountDownLatch aRelease = new CountDownLatch (1);
+    final ICommonsList <Thread> aThreads = new CommonsArrayList <> ();
+    for (int i = 0; i < nMax; ++i)
+    {
+      final Thread aThread = new Thread ( () -> {
+        try
+        {
+          APIExecutionBulkhead.execute (LOG_PREFIX, sGroup, () -> {
+            aStarted.countDown ();
+            aRelease.await ();
+            return null;
+          });
+        }
+        catch (final Exception ex)
+        {
+          throw new IllegalStateException (ex);
+        }
+      });
+      aThread.start ();
+      aThreads.add (aThread);
+    }
+
+    try
+    {
+      assertTrue (aStarted.await (10, TimeUnit.SECONDS));
+      assertEquals (nMax, APIExecutionBulkhead.getInFlight (sGroup));
+
+      try
+      {
+        APIExecutionBulkhead.execute (LOG_PREFIX, sGroup, () -> "too many");
+        fail ();
+      }
+      catch (final APIOverloadException ex)
+      {
+        // expected
+      }
+
+      // Other groups are not affected
+      assertEquals ("other", APIExecutionBulkhead.execute (LOG_PREFIX, "other", () -> "other"));
+    }
+    finally
+    {
+      aRelease.countDown ();
+      for (final Thread aThread : aThreads)
+        aThread.join ();
+    }
+
+    // All permits are returned
+    assertEquals (0, APIExecutionBulkhead.getInFlight (sGroup));
+    assertFalse (APIExecutionBulkhead.execute (LOG_PREFIX, sGroup, () -> Boolean.FALSE).booleanValue ());
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.api.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.helger.peppol.api.metrics.LatencyHistogram;
+import com.helger.peppol.api.metrics.PrometheusTextBuilder;
+import com.helger.peppol.api.ratelimit.APIRateLimiters;
+
+/**
+ * Test class for class {@link APIGetMetrics}.
+ *
+ * @author Philip Helger
+ */
+public final class APIGetMetricsTest
+{
+  @Test
+  public void testClientLabel ()
+  {
+    final String sLabel = APIGetMetrics.getClientLabel ("ip:192.168.0.1");
+    assertEquals (16, sLabel.length ());
+    // Stable within the JVM
+    assertEquals (sLabel, APIGetMetrics.getClientLabel ("ip:192.168.0.1"));
+    assertNotEquals (sLabel, APIGetMetrics.getClientLabel ("ip:192.168.0.2"));
+  }
+
+  @Test
+  public void testNoClientKeysByDefault ()
+  {
+    APIRateLimiters.getHeavyHitters ().record ("ip:10.11.12.13", 1);
+    assertFalse (APIGetMetrics.getMetricsAsText ().contains ("10.11.12.13"));
+  }
+
+  @Test
+  public void testSummary ()
+  {
+    final LatencyHistogram aHistogram = new LatencyHistogram (new long [] { 10, 100, 1000 });
+    aHistogram.record (5);
+    aHistogram.record (50);
+    final String sText = new PrometheusTextBuilder ().family ("test_seconds", PrometheusTextBuilder.TYPE_SUMMARY, "Test")
+                                                     .summary ("test_seconds", "api", "x", aHistogram, new double [] { 0.5 })
+                                                     .getAsString ();
+    assertTrue (sText.contains ("# TYPE test_seconds summary"));
+    assertTrue (sText.contains ("test_seconds{api=\"x\",quantile=\"0.5\"}"));
+    assertTrue (sText.contains ("test_seconds_sum{api=\"x\"} 0.055000"));
+    assertTrue (sText.contains ("test_seconds_count{api=\"x\"} 2"));
+  }
+
+  @Test
+  public void testMimeType ()
+  {
+    final String sMimeType = APIGetMetrics.MIME_TYPE_PROMETHEUS_TEXT.getAsString ();
+    assertTrue (sMimeType.startsWith ("text/plain"));
+    assertTrue (sMimeType.contains ("version=0.0.4"));
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.api.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+/**
+ * Test class for class {@link QueuedLineInputStream}
+ *
+ * @author Philip Helger
+ */
+public final class QueuedLineInputStreamTest
+{
+  private static String _readAll (final InputStream aIS) throws IOException
+  {
+    final ByteArrayOutputStream aBAOS = new ByteArrayOutputStream ();
+    final byte [] aBuf = new byte [3];
+    int nRead;
+    while ((nRead = aIS.read (aBuf, 0, aBuf.length)) >= 0)
+      aBAOS.write (aBuf, 0, nRead);
+    return aBAOS.toString (StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void testProducerThread () throws Exception
+  {
+    final QueuedLineInputStream aIS = new QueuedLineInputStream (System.nanoTime () + TimeUnit.SECONDS.toNanos (10),
+                                                                 x -> {},
+                                                                 () -> {});
+    final Thread aProducer = new Thread ( () -> {
+      aIS.addLine ("{\"a\":1}");
+      aIS.addLine ("{\"b\":2}");
+      aIS.addEndOfStream ();
+    });
+    aProducer.start ();
+    try (aIS)
+    {
+      assertEquals ("{\"a\":1}\n{\"b\":2}\n", _readAll (aIS));
+    }
+    aProducer.join ();
+  }
+
+  @Test
+  public void testDeadline () throws Exception
+  {
+    final AtomicBoolean aDeadlineReached = new AtomicBoolean (false);
+    final QueuedLineInputStream aIS = new QueuedLineInputStream (System.nanoTime () + TimeUnit.MILLISECONDS.toNanos (200),
+                                                                 x -> aDeadlineReached.set (true),
+                                                                 () -> {});
+    aIS.addLine ("x");
+    // No end of stream is ever added
+    try (aIS)
+    {
+      assertEquals ("x\n", _readAll (aIS));
+    }
+    assertTrue (aDeadlineReached.get ());
+  }
+
+  @Test
+  public void testLinesAddedOnDeadline () throws Exception
+  {
+    final QueuedLineInputStream aIS = new QueuedLineInputStream (System.nanoTime () + TimeUnit.MILLISECONDS.toNanos (200),
+                                                                 x -> {
+                                                                   x.addLine ("t1");
+                                                                   x.addLine ("t2");
+                                                                 },
+                                                                 () -> {});
+    aIS.addLine ("x");
+    try (aIS)
+    {
+      assertEquals ("x\nt1\nt2\n", _readAll (aIS));
+    }
+  }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+
+import org.jspecify.annotations.NonNull;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.annotation.style.ReturnsMutableCopy;
+import com.helger.base.io.stream.StreamHelper;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.CommonsTreeMap;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.collection.commons.ICommonsSortedMap;
+import com.helger.io.resource.ClassPathResource;
+import com.helger.io.resource.IReadableResource;
+import com.helger.peppol.ui.types.nicename.NiceNameManager;
+
+/**
+ * Reproducible fixtures shared between all benchmarks. All random data is created with a fixed
+ * seed, so that each run works on exactly the same input.
+ *
+ * @author Philip Helger
+ */
+@Immutable
+final class BenchmarkFixtures
+{
+  /** The seed used for all random data */
+  static final long SEED = 20260101L;
+
+  static final String SMP_BASE_URL = "http://smp.example.org/";
+  static final String PARTICIPANT_ID = "iso6523-actorid-upis::9915:test";
+
+  private BenchmarkFixtures ()
+  {}
+
+  /**
+   * @return A copy of the official document type code list.
+   */
+  @NonNull
+  static IReadableResource getDocTypeMappingResource ()
+  {
+    return new ClassPathResource ("fixtures/doctypeid-mapping.xml", BenchmarkFixtures.class.getClassLoader ());
+  }
+
+  /**
+   * @return All document type IDs contained in the code list in the code list order. Wildcard
+   *         entries already contain the "*".
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  static ICommonsList <String> getAllDocTypeIDs ()
+  {
+    return new CommonsArrayList <> (NiceNameManager.readEntries (getDocTypeMappingResource (), false).keySet ());
+  }
+
+  /**
+   * Create service group hrefs the same way as they are returned by an SMP. The key is the decoded
+   * URL and the value is the original URL.
+   *
+   * @param nCount
+   *        The number of hrefs to create. Must be &gt; 0.
+   * @return The map, sorted by key like in the real application.
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  static ICommonsSortedMap <String, String> createServiceGroupHrefs (@Nonnegative final int nCount)
+  {
+    final ICommonsList <String> aDocTypeIDs = getAllDocTypeIDs ();
+    final Random aRandom = new Random (SEED);
+    final ICommonsSortedMap <String, String> ret = new CommonsTreeMap <> ();
+    int nIndex = 0;
+    while (ret.size () < nCount)
+    {
+      String sDocTypeID = aDocTypeIDs.get (aRandom.nextInt (aDocTypeIDs.size ()));
+      if (nIndex >= aDocTypeIDs.size ())
+      {
+        // More hrefs requested than code list entries - add unknown ones
+        sDocTypeID += "-" + nIndex;
+      }
+      final String sClean = SMP_BASE_URL + PARTICIPANT_ID + "/services/" + sDocTypeID;
+      final String sOriginal = SMP_BASE_URL +
+                               _urlEncode (PARTICIPANT_ID) +
+                               "/services/" +
+                               _urlEncode (sDocTypeID);
+      ret.put (sClean, sOriginal);
+      nIndex++;
+    }
+    return ret;
+  }
+
+  @NonNull
+  private static String _urlEncode (@NonNull final String s)
+  {
+    return s.replace ("%", "%25").replace (":", "%3A").replace ("#", "%23").replace ("*", "%2A");
+  }
+
+  /**
+   * @return The DER encoded bytes of the fixture signing certificate.
+   */
+  @NonNull
+  static byte [] getSigningCertificateBytes ()
+  {
+    try (final InputStream aIS = new ClassPathResource ("fixtures/signing-cert.der",
+                                                        BenchmarkFixtures.class.getClassLoader ()).getInputStream ())
+    {
+      if (aIS == null)
+        throw new IllegalStateException ("Failed to find the signing certificate fixture");
+      return StreamHelper.getAllBytes (aIS);
+    }
+    catch (final IOException ex)
+    {
+      throw new IllegalStateException ("Failed to read the signing certificate fixture", ex);
+    }
+  }
+
+  @NonNull
+  private static String _readFixture (@NonNull final String sPath)
+  {
+    try (final InputStream aIS = new ClassPathResource (sPath, BenchmarkFixtures.class.getClassLoader ()).getInputStream ())
+    {
+      if (aIS == null)
+        throw new IllegalStateException ("Failed to find the fixture '" + sPath + "'");
+      return new String (StreamHelper.getAllBytes (aIS), StandardCharsets.UTF_8);
+    }
+    catch (final IOException ex)
+    {
+      throw new IllegalStateException ("Failed to read the fixture '" + sPath + "'", ex);
+    }
+  }
+
+  /**
+   * Create a Peppol BIS Billing 3 invoice with the provided number of lines in a temporary file.
+   * The totals match the lines. Each line has about 800 bytes.
+   *
+   * @param nLines
+   *        The number of invoice lines. Must be &gt; 0.
+   * @return The temporary file, that is deleted on exit.
+   */
+  @NonNull
+  static File createLargeInvoice (@Nonnegative final int nLines)
+  {
+    final String sLine = _readFixture ("fixtures/large-invoice-line.xml");
+    final String sTemplate = _readFixture ("fixtures/large-invoice.xml");
+    final int nLinesIndex = sTemplate.indexOf ("${LINES}");
+
+    final BigDecimal aNet = BigDecimal.TEN.multiply (BigDecimal.valueOf (nLines)).setScale (2);
+    final BigDecimal aTax = aNet.divide (BigDecimal.valueOf (4)).setScale (2);
+    final String sHead = sTemplate.substring (0, nLinesIndex).replace ("${NET}", aNet.toPlainString ())
+                                                             .replace ("${TAX}", aTax.toPlainString ())
+                                                             .replace ("${GROSS}", aNet.add (aTax).toPlainString ());
+    try
+    {
+      final File ret = Files.createTempFile ("large-invoice-" + nLines + "-", ".xml").toFile ();
+      ret.deleteOnExit ();
+      try (final Writer aWriter = Files.newBufferedWriter (ret.toPath (), StandardCharsets.UTF_8))
+      {
+        aWriter.write (sHead);
+        for (int i = 1; i <= nLines; ++i)
+          aWriter.write (sLine.replace ("${ID}", Integer.toString (i)));
+        aWriter.write (sTemplate.substring (nLinesIndex + "${LINES}".length ()));
+      }
+      return ret;
+    }
+    catch (final IOException ex)
+    {
+      throw new IllegalStateException ("Failed to create the large invoice", ex);
+    }
+  }
+}
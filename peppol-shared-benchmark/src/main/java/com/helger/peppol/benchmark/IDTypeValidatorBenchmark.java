@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.diagnostics.error.list.ErrorList;
+import com.helger.peppol.ui.types.codelist.EIDType;
+import com.helger.peppol.ui.types.codelist.KVPair;
+
+/**
+ * Benchmark for the identifier validators used by the identifier check page.
+ *
+ * @author Philip Helger
+ */
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (TimeUnit.NANOSECONDS)
+@State (Scope.Benchmark)
+@Fork (1)
+@Warmup (iterations = 3, time = 2)
+@Measurement (iterations = 5, time = 2)
+public class IDTypeValidatorBenchmark
+{
+  /**
+   * The identifiers to validate
+   */
+  public enum EInput
+  {
+    PARTICIPANT_VALID (EIDType.PEPPOL_PARTICIPANT, "iso6523-actorid-upis::9915:test"),
+    PARTICIPANT_INVALID (EIDType.PEPPOL_PARTICIPANT, "iso6523-actorid-upis::9999:"),
+    DOCTYPE_VALID (EIDType.PEPPOL_DOCUMENT_TYPE,
+                   "busdox-docid-qns::urn:oasis:names:specification:ubl:schema:xsd:Invoice-2::Invoice##urn:cen.eu:en16931:2017#compliant#urn:fdc:peppol.eu:2017:poacc:billing:3.0::2.1"),
+    DOCTYPE_PINT (EIDType.PEPPOL_DOCUMENT_TYPE,
+                  "peppol-doctype-wildcard::urn:oasis:names:specification:ubl:schema:xsd:Invoice-2::Invoice##urn:peppol:pint:billing-1@aunz-1*::2.1"),
+    PROCESS_VALID (EIDType.PEPPOL_PROCESS, "cenbii-procid-ubl::urn:fdc:peppol.eu:2017:poacc:billing:01:1.0");
+
+    private final EIDType m_eIDType;
+    private final String m_sID;
+
+    EInput (final EIDType eIDType, final String sID)
+    {
+      m_eIDType = eIDType;
+      m_sID = sID;
+    }
+  }
+
+  @Param
+  public EInput m_eInput;
+
+  private EIDType m_eIDType;
+  private String m_sID;
+
+  @Setup
+  public void setup ()
+  {
+    m_eIDType = m_eInput.m_eIDType;
+    m_sID = m_eInput.m_sID;
+  }
+
+  @Benchmark
+  public ErrorList validate ()
+  {
+    final ErrorList aErrorList = new ErrorList ();
+    final List <KVPair> aDetails = new CommonsArrayList <> ();
+    m_eIDType.getValidator ().validate (m_sID, aErrorList, aDetails);
+    return aErrorList;
+  }
+}
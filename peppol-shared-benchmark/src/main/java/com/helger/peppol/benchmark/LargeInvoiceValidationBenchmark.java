@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.benchmark;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.helger.diver.api.coord.DVRCoordinate;
+import com.helger.io.resource.FileSystemResource;
+import com.helger.io.resource.IReadableResource;
+import com.helger.peppol.validate.LargeDocumentValidator;
+import com.helger.peppol.validate.VESRegistry;
+import com.helger.phive.api.execute.ValidationExecutionManager;
+import com.helger.phive.api.executorset.IValidationExecutorSet;
+import com.helger.phive.api.result.ValidationResultList;
+import com.helger.phive.api.validity.IValidityDeterminator;
+import com.helger.phive.xml.source.IValidationSourceXML;
+import com.helger.phive.xml.source.ValidationSourceXML;
+
+/**
+ * Benchmark for the validation of large invoices, comparing the default DOM based validation with
+ * the large document mode. The invoices are created synthetically, so that no external files are
+ * needed. Single shot times are measured, as each validation takes long.
+ *
+ * @author Philip Helger
+ */
+@BenchmarkMode (Mode.SingleShotTime)
+@OutputTimeUnit (TimeUnit.MILLISECONDS)
+@State (Scope.Benchmark)
+@Fork (1)
+@Warmup (iterations = 2)
+@Measurement (iterations = 3)
+public class LargeInvoiceValidationBenchmark
+{
+  private static final DVRCoordinate VESID = DVRCoordinate.parseOrThrow ("eu.peppol.bis3:invoice:2023.11");
+
+  // About 0.8 MB and 8 MB
+  @Param ({ "1000", "10000" })
+  public int m_nLines;
+
+  private IValidationExecutorSet <IValidationSourceXML> m_aVES;
+  private IReadableResource m_aRes;
+
+  @Setup
+  public void setup ()
+  {
+    m_aVES = VESRegistry.getRegistry ().getOfID (VESID);
+    if (m_aVES == null)
+      throw new IllegalStateException ("Unknown VESID " + VESID.getAsSingleID ());
+    m_aRes = new FileSystemResource (BenchmarkFixtures.createLargeInvoice (m_nLines));
+  }
+
+  @Benchmark
+  public ValidationResultList validateDOM ()
+  {
+    return ValidationExecutionManager.executeValidation (IValidityDeterminator.createDefault (),
+                                                         m_aVES,
+                                                         ValidationSourceXML.create (m_aRes),
+                                                         Locale.US);
+  }
+
+  @Benchmark
+  public ValidationResultList validateLarge () throws IOException
+  {
+    return LargeDocumentValidator.validateLarge (m_aVES, m_aRes, Locale.US);
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.helger.peppol.ui.types.nicename.NiceNameEntry;
+import com.helger.peppol.ui.types.nicename.NiceNameManager;
+import com.helger.peppolid.IDocumentTypeIdentifier;
+import com.helger.peppolid.factory.SimpleIdentifierFactory;
+
+/**
+ * Benchmark for the PINT aware document type nice name lookup.
+ *
+ * @author Philip Helger
+ */
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (TimeUnit.NANOSECONDS)
+@State (Scope.Benchmark)
+@Fork (1)
+@Warmup (iterations = 3, time = 2)
+@Measurement (iterations = 5, time = 2)
+public class NiceNameBenchmark
+{
+  /**
+   * The different kinds of lookups
+   */
+  public enum ELookup
+  {
+    /** A busdox-docid-qns identifier contained in the code list */
+    EXACT ("busdox-docid-qns::urn:oasis:names:specification:ubl:schema:xsd:Invoice-2::Invoice##urn:cen.eu:en16931:2017#compliant#urn:fdc:peppol.eu:2017:poacc:billing:3.0::2.1"),
+    /** A PINT identifier without a star */
+    PINT_EXACT ("peppol-doctype-wildcard::urn:oasis:names:specification:ubl:schema:xsd:Invoice-2::Invoice##urn:peppol:pint:billing-1@aunz-1::2.1"),
+    /** A PINT identifier with a star */
+    PINT_WILDCARD ("peppol-doctype-wildcard::urn:oasis:names:specification:ubl:schema:xsd:Invoice-2::Invoice##urn:peppol:pint:billing-1@aunz-1*::2.1"),
+    /** An identifier not contained in the code list */
+    UNKNOWN ("busdox-docid-qns::urn:oasis:names:specification:ubl:schema:xsd:Invoice-2::Invoice##urn:example:unknown::2.1");
+
+    private final String m_sID;
+
+    ELookup (final String sID)
+    {
+      m_sID = sID;
+    }
+  }
+
+  @Param
+  public ELookup m_eLookup;
+
+  private IDocumentTypeIdentifier m_aDocTypeID;
+
+  @Setup
+  public void setup ()
+  {
+    NiceNameManager.loadDocTypeNames (BenchmarkFixtures.getDocTypeMappingResource ());
+    m_aDocTypeID = SimpleIdentifierFactory.INSTANCE.parseDocumentTypeIdentifier (m_eLookup.m_sID);
+  }
+
+  @Benchmark
+  public NiceNameEntry getPintEnabledNiceNameEntry ()
+  {
+    return NiceNameManager.getPintEnabledNiceNameEntry (m_aDocTypeID);
+  }
+
+  @Benchmark
+  public NiceNameEntry getPintEnabledNiceNameEntryByString ()
+  {
+    return NiceNameManager.getPintEnabledNiceNameEntry (m_eLookup.m_sID);
+  }
+}
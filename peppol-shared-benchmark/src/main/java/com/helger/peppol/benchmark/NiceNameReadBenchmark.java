@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.helger.collection.commons.ICommonsOrderedMap;
+import com.helger.io.resource.IReadableResource;
+import com.helger.peppol.ui.types.nicename.NiceNameEntry;
+import com.helger.peppol.ui.types.nicename.NiceNameManager;
+import com.helger.peppol.ui.types.nicename.NiceNameStreamReader;
+
+/**
+ * Benchmark for reading the document type code list file, as done on startup and on reload. The
+ * DOM based reader is compared with the streaming reader.
+ *
+ * @author Philip Helger
+ */
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (TimeUnit.MILLISECONDS)
+@State (Scope.Benchmark)
+@Fork (1)
+@Warmup (iterations = 3, time = 2)
+@Measurement (iterations = 5, time = 2)
+public class NiceNameReadBenchmark
+{
+  private IReadableResource m_aRes;
+
+  @Setup
+  public void setup ()
+  {
+    m_aRes = BenchmarkFixtures.getDocTypeMappingResource ();
+  }
+
+  @Benchmark
+  public ICommonsOrderedMap <String, NiceNameEntry> readEntries ()
+  {
+    return NiceNameManager.readEntries (m_aRes, true);
+  }
+
+  @Benchmark
+  public ICommonsOrderedMap <String, NiceNameEntry> readEntriesStreaming ()
+  {
+    return NiceNameStreamReader.readEntries (m_aRes, true);
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.benchmark;
+
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.peppol.sml.ESML;
+import com.helger.peppol.sml.ESMPAPIType;
+import com.helger.peppol.sml.SMLInfo;
+import com.helger.peppol.ui.types.smlconfig.ISMLConfiguration;
+import com.helger.peppol.ui.types.smlconfig.SMLConfiguration;
+import com.helger.peppolid.factory.ESMPIdentifierType;
+
+/**
+ * Benchmark for sorting the SML configurations, as done by
+ * <code>SMLConfigurationManager.getAllSorted ()</code> for every SML selection and auto
+ * detection. The manager itself is a persisted DAO, so the list and the comparator are used
+ * directly.
+ *
+ * @author Philip Helger
+ */
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (TimeUnit.NANOSECONDS)
+@State (Scope.Benchmark)
+@Fork (1)
+@Warmup (iterations = 3, time = 2)
+@Measurement (iterations = 5, time = 2)
+public class SMLConfigurationSortBenchmark
+{
+  @Param ({ "0", "20" })
+  public int m_nAdditionalCount;
+
+  private ICommonsList <ISMLConfiguration> m_aSMLs;
+
+  @Setup
+  public void setup ()
+  {
+    m_aSMLs = new CommonsArrayList <> ();
+    for (final ESML eSML : ESML.values ())
+      m_aSMLs.add (SMLConfiguration.createForPeppol (eSML));
+
+    final Random aRandom = new Random (BenchmarkFixtures.SEED);
+    for (int i = 0; i < m_nAdditionalCount; ++i)
+    {
+      final SMLInfo aSMLInfo = SMLInfo.builder ()
+                                      .id ("custom" + i)
+                                      .displayName ("Custom SML " + i)
+                                      .dnsZone ("sml" + i + ".example.org")
+                                      .managementServiceURL ("https://sml" + i + ".example.org/manage")
+                                      .urlSuffixManageSMP ("/manageservicemetadata")
+                                      .urlSuffixManageParticipant ("/manageparticipantidentifier")
+                                      .clientCertificateRequired (true)
+                                      .build ();
+      m_aSMLs.add (new SMLConfiguration (aSMLInfo,
+                                         ESMPAPIType.OASIS_BDXR_V1,
+                                         ESMPIdentifierType.SIMPLE,
+                                         aRandom.nextBoolean (),
+                                         aRandom.nextInt (100) - 50));
+    }
+    // Stable but unsorted start order
+    Collections.shuffle (m_aSMLs, new Random (BenchmarkFixtures.SEED));
+  }
+
+  @Benchmark
+  public ICommonsList <ISMLConfiguration> getAllSorted ()
+  {
+    // Sort a copy, like the manager does
+    return new CommonsArrayList <> (m_aSMLs).getSortedInline (ISMLConfiguration.COMPARATOR_BY_PRIORITY);
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.benchmark;
+
+import java.io.StringWriter;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.helger.json.IJsonObject;
+import com.helger.json.serialize.JsonWriterSettings;
+import com.helger.peppol.api.json.JsonStreamWriter;
+import com.helger.peppol.api.json.PeppolSharedSMPJsonHelper;
+import com.helger.peppol.sml.ESMPAPIType;
+import com.helger.peppol.ui.types.nicename.NiceNameManager;
+import com.helger.peppolid.IParticipantIdentifier;
+import com.helger.peppolid.factory.SimpleIdentifierFactory;
+
+/**
+ * Benchmark for the conversion of SMP service group hrefs to JSON including the nice name
+ * enrichment. Both the tree based and the streaming variant are measured.
+ *
+ * @author Philip Helger
+ */
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (TimeUnit.MICROSECONDS)
+@State (Scope.Benchmark)
+@Fork (1)
+@Warmup (iterations = 3, time = 2)
+@Measurement (iterations = 5, time = 2)
+public class SMPJsonConvertBenchmark
+{
+  @Param ({ "10", "100", "1000" })
+  public int m_nHrefCount;
+
+  private IParticipantIdentifier m_aParticipantID;
+  private Map <String, String> m_aSGHrefs;
+
+  @Setup
+  public void setup ()
+  {
+    NiceNameManager.loadDocTypeNames (BenchmarkFixtures.getDocTypeMappingResource ());
+    m_aParticipantID = SimpleIdentifierFactory.INSTANCE.parseParticipantIdentifier (BenchmarkFixtures.PARTICIPANT_ID);
+    m_aSGHrefs = BenchmarkFixtures.createServiceGroupHrefs (m_nHrefCount);
+  }
+
+  @Benchmark
+  public IJsonObject convert ()
+  {
+    return PeppolSharedSMPJsonHelper.convert (ESMPAPIType.PEPPOL,
+                                              m_aParticipantID,
+                                              m_aSGHrefs,
+                                              SimpleIdentifierFactory.INSTANCE);
+  }
+
+  @Benchmark
+  public String convertAndSerialize ()
+  {
+    return convert ().getAsJsonString (JsonWriterSettings.DEFAULT_SETTINGS);
+  }
+
+  @Benchmark
+  public String writeConvertedMembers ()
+  {
+    final StringWriter aSW = new StringWriter ();
+    final JsonStreamWriter aJW = new JsonStreamWriter (aSW, false);
+    aJW.beginObject ();
+    PeppolSharedSMPJsonHelper.writeConvertedMembers (ESMPAPIType.PEPPOL,
+                                                     m_aParticipantID,
+                                                     m_aSGHrefs,
+                                                     SimpleIdentifierFactory.INSTANCE,
+                                                     aJW);
+    aJW.endObject ();
+    aJW.flush ();
+    return aSW.toString ();
+  }
+}
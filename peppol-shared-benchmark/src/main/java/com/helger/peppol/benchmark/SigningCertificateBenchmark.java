@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.benchmark;
+
+import java.security.cert.X509Certificate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.helger.peppol.ui.types.XMLDSig10Helper;
+import com.helger.xsds.xmldsig.KeyInfoType;
+import com.helger.xsds.xmldsig.ObjectFactory;
+import com.helger.xsds.xmldsig.SignatureType;
+import com.helger.xsds.xmldsig.X509DataType;
+
+/**
+ * Benchmark for extracting and parsing the signing certificate of an SMP response signature.
+ *
+ * @author Philip Helger
+ */
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (TimeUnit.MICROSECONDS)
+@State (Scope.Benchmark)
+@Fork (1)
+@Warmup (iterations = 3, time = 2)
+@Measurement (iterations = 5, time = 2)
+public class SigningCertificateBenchmark
+{
+  private SignatureType m_aSignature;
+
+  @Setup
+  public void setup ()
+  {
+    final ObjectFactory aOF = new ObjectFactory ();
+
+    // Same layout as used by SMPs - the certificate is the last element
+    final X509DataType aX509Data = new X509DataType ();
+    aX509Data.getX509IssuerSerialOrX509SKIOrX509SubjectName ()
+             .add (aOF.createX509DataTypeX509SubjectName ("CN=Benchmark SMP"));
+    aX509Data.getX509IssuerSerialOrX509SKIOrX509SubjectName ()
+             .add (aOF.createX509DataTypeX509Certificate (BenchmarkFixtures.getSigningCertificateBytes ()));
+
+    final KeyInfoType aKeyInfo = new KeyInfoType ();
+    aKeyInfo.getContent ().add (aOF.createX509Data (aX509Data));
+
+    m_aSignature = new SignatureType ();
+    m_aSignature.setKeyInfo (aKeyInfo);
+  }
+
+  @Benchmark
+  public byte [] getSigningCertificateBytes ()
+  {
+    return XMLDSig10Helper.getSigningCertificateBytes (m_aSignature);
+  }
+
+  @Benchmark
+  public X509Certificate getSigningCertificate ()
+  {
+    return XMLDSig10Helper.getSigningCertificate (m_aSignature);
+  }
+}
@@ -18,6 +18,7 @@ package com.helger.peppol.sharedui.page.pub;
 
 import java.net.Inet4Address;
 import java.net.InetAddress;
+import java.net.URI;
 import java.net.URL;
 import java.net.UnknownHostException;
 import java.nio.charset.StandardCharsets;
@@ -119,6 +120,9 @@ import com.helger.peppol.ui.types.smlconfig.ISMLConfiguration;
 import com.helger.peppol.ui.types.smlconfig.ISMLConfigurationManager;
 import com.helger.peppol.ui.types.smp.ISMPClientCreationCallback;
 import com.helger.peppol.ui.types.smp.ISMPExtensionsCallback;
+import com.helger.peppol.ui.types.smp.SMLAutoDetector;
+import com.helger.peppol.ui.types.smp.SMPParallelFetcher;
+import com.helger.peppol.ui.types.smp.SMPQueryParams;
 import com.helger.peppol.ui.types.smp.SMPQueryParamsUI;
 import com.helger.peppolid.CIdentifier;
 import com.helger.peppolid.IDocumentTypeIdentifier;
@@ -165,7 +169,6 @@ import com.helger.smpclient.exception.SMPClientException;
 import com.helger.smpclient.httpclient.SMPHttpClientSettings;
 import com.helger.smpclient.peppol.SMPClientReadOnly;
 import com.helger.smpclient.peppol.utils.W3CEndpointReferenceHelper;
-import com.helger.smpclient.redirect.ISMPFollowRedirectCallback;
 import com.helger.smpclient.url.PeppolNaptrURLProvider;
 import com.helger.smpclient.url.SMPDNSResolutionException;
 import com.helger.text.locale.country.CountryCache;
@@ -396,6 +399,106 @@ public class PagePublicToolsParticipantInformation extends AbstractAppWebPage
     return n == 1 ? "1 entry" : n + " entries";
   }
 
+  /**
+   * The outcome of a single service metadata query. It is created and filled in a worker thread and
+   * only read after the fetch finished.
+   */
+  private static final class ServiceMetadataFetch
+  {
+    private final ICommonsList <JAXBException> m_aSMPExceptions = new CommonsArrayList <> ();
+    private final ICommonsList <String> m_aRedirectHrefs = new CommonsArrayList <> ();
+    private Object m_aServiceMetadata;
+    private SMPClientException m_aException;
+
+    @Nullable
+    <T> T getServiceMetadata (@NonNull final Class <T> aClass)
+    {
+      return aClass.cast (m_aServiceMetadata);
+    }
+  }
+
+  @NonNull
+  @Nonempty
+  private static String _getHostKey (@NonNull final URI aSMPHostURI)
+  {
+    final String sHost = aSMPHostURI.getHost ();
+    return StringHelper.isNotEmpty (sHost) ? sHost : aSMPHostURI.toString ();
+  }
+
+  @NonNull
+  private static ServiceMetadataFetch _fetchServiceMetadata (@NonNull final SMPQueryParams aSMPQueryParams,
+                                                             @NonNull final Consumer <? super SMPHttpClientSettings> aHCSModifier,
+                                                             final boolean bXSDValidation,
+                                                             final boolean bVerifySignatures,
+                                                             @NonNull final IDocumentTypeIdentifier aDocTypeID)
+  {
+    final IParticipantIdentifier aParticipantID = aSMPQueryParams.getParticipantID ();
+    LOGGER.info ("Now SMP querying '" +
+                 aParticipantID.getURIEncoded () +
+                 "' / '" +
+                 aDocTypeID.getURIEncoded () +
+                 "' with NAPTR lookup");
+
+    // Each query uses its own client, so that the JAXB exceptions can be
+    // attributed to the correct document type
+    final ServiceMetadataFetch ret = new ServiceMetadataFetch ();
+    final Consumer <GenericJAXBMarshaller <?>> aSMPMarshallerCustomizer = m -> {
+      ret.m_aSMPExceptions.clear ();
+      // Remember exceptions
+      m.readExceptionCallbacks ().add (ret.m_aSMPExceptions::add);
+    };
+    try
+    {
+      switch (aSMPQueryParams.getSMPAPIType ())
+      {
+        case PEPPOL:
+        {
+          final SMPClientReadOnly aSMPClient = PeppolAPIHelper.createPeppolSMPClient (aSMPQueryParams);
+          PeppolAPIHelper.customizeSMPClient (aSMPClient,
+                                              aHCSModifier,
+                                              bXSDValidation,
+                                              bVerifySignatures,
+                                              aSMPMarshallerCustomizer,
+                                              aSMPQueryParams.isTrustAllCertificates ());
+          ret.m_aServiceMetadata = aSMPClient.getServiceMetadataOrNull (aParticipantID, aDocTypeID, (bFollow, sHref) -> {
+            if (bFollow)
+              ret.m_aRedirectHrefs.add (sHref);
+          });
+          break;
+        }
+        case OASIS_BDXR_V1:
+        {
+          final BDXRClientReadOnly aBDXR1Client = PeppolAPIHelper.createBDXR1Client (aSMPQueryParams);
+          PeppolAPIHelper.customizeSMPClient (aBDXR1Client,
+                                              aHCSModifier,
+                                              bXSDValidation,
+                                              bVerifySignatures,
+                                              aSMPMarshallerCustomizer,
+                                              aSMPQueryParams.isTrustAllCertificates ());
+          ret.m_aServiceMetadata = aBDXR1Client.getServiceMetadataOrNull (aParticipantID, aDocTypeID);
+          break;
+        }
+        case OASIS_BDXR_V2:
+        {
+          final BDXR2ClientReadOnly aBDXR2Client = PeppolAPIHelper.createBDXR2Client (aSMPQueryParams);
+          PeppolAPIHelper.customizeSMPClient (aBDXR2Client,
+                                              aHCSModifier,
+                                              bXSDValidation,
+                                              bVerifySignatures,
+                                              aSMPMarshallerCustomizer,
+                                              aSMPQueryParams.isTrustAllCertificates ());
+          ret.m_aServiceMetadata = aBDXR2Client.getServiceMetadataOrNull (aParticipantID, aDocTypeID);
+          break;
+        }
+      }
+    }
+    catch (final SMPClientException ex)
+    {
+      ret.m_aException = ex;
+    }
+    return ret;
+  }
+
   private HCDiv _createSMLUsed (@NonNull final ISMLInfo aSMLInfo, final boolean bProdSML)
   {
     return div ("SML used: ").addChild (code (aSMLInfo.getDisplayName () + " / " + aSMLInfo.getDNSZone ()))
@@ -450,18 +553,30 @@ public class PagePublicToolsParticipantInformation extends AbstractAppWebPage
                                        .separator (", ")
                                        .build ());
 
-          for (final ISMLConfiguration aCurSML : aSortedList)
+          // Query all SMLs in parallel - the creation of the query parameters
+          // includes the DNS lookup
+          final SMLAutoDetector.Result <SMPQueryParamsUI> aResult = SMLAutoDetector.detect (aSortedList,
+                                                                                            aCurSML -> SMPQueryParamsUI.createForSMLOrNull (aCurSML,
+                                                                                                                                            sParticipantIDScheme,
+                                                                                                                                            sParticipantIDValue,
+                                                                                                                                            false));
+          if (aResult != null && aResult.isUndetermined ())
           {
-            aSMPQueryParams = SMPQueryParamsUI.createForSMLOrNull (aCurSML,
-                                                                   sParticipantIDScheme,
-                                                                   sParticipantIDValue,
-                                                                   false);
-            if (aSMPQueryParams != null && aSMPQueryParams.isSMPRegisteredInDNS ())
-            {
-              // Found it
-              aRealSMLConfiguration = aCurSML;
-              break;
-            }
+            LOGGER.error ("Failed to autodetect the SML for '" + sParticipantIDUriEncoded + "' in time");
+
+            aNodeList.addChild (error (div ("The network of the participant ID " +
+                                            sParticipantIDUriEncoded +
+                                            " could not be determined in time. Please try again later.")));
+
+            // Audit failure
+            AuditHelper.onAuditExecuteFailure ("participant-information", sParticipantIDUriEncoded, "sml-undetermined");
+            return;
+          }
+          if (aResult != null)
+          {
+            // Found it
+            aRealSMLConfiguration = aResult.getSMLConfiguration ();
+            aSMPQueryParams = aResult.getResult ();
           }
 
           // Ensure to go into the exception handler
@@ -780,9 +895,6 @@ public class PagePublicToolsParticipantInformation extends AbstractAppWebPage
 
       // Determine all document types
       final ICommonsList <IDocumentTypeIdentifier> aDocTypeIDs = new CommonsArrayList <> ();
-      final Wrapper <SMPClientReadOnly> aSMPClient = new Wrapper <> ();
-      final Wrapper <BDXRClientReadOnly> aBDXR1Client = new Wrapper <> ();
-      final Wrapper <BDXR2ClientReadOnly> aBDXR2Client = new Wrapper <> ();
       final Consumer <? super SMPHttpClientSettings> aHCSModifier = hcs -> hcs.setUserAgent (m_sUserAgent);
 
       {
@@ -805,23 +917,7 @@ public class PagePublicToolsParticipantInformation extends AbstractAppWebPage
                                                                            aHCSModifier,
                                                                            bXSDValidation,
                                                                            bVerifySignatures,
-                                                                           new ISMPClientCreationCallback ()
-                                                                           {
-                                                                             public void onPeppolSMPClient (@NonNull final SMPClientReadOnly a)
-                                                                             {
-                                                                               aSMPClient.set (a);
-                                                                             }
-
-                                                                             public void onBDXR1Client (@NonNull final BDXRClientReadOnly a)
-                                                                             {
-                                                                               aBDXR1Client.set (a);
-                                                                             }
-
-                                                                             public void onBDXR2Client (@NonNull final BDXR2ClientReadOnly a)
-                                                                             {
-                                                                               aBDXR2Client.set (a);
-                                                                             }
-                                                                           },
+                                                                           ISMPClientCreationCallback.IGNORE,
                                                                            sHref -> aSGOL.addItem (warn ("The ServiceGroup list contains the duplicate URL ").addChild (code (sHref))),
                                                                            aSMPMarshallerCustomizer,
                                                                            new ISMPExtensionsCallback ()
@@ -1003,41 +1099,52 @@ public class PagePublicToolsParticipantInformation extends AbstractAppWebPage
         final ICommonsOrderedMap <X509Certificate, String> aAllUsedAPCertifiactes = new CommonsLinkedHashMap <> ();
         final MutableInt aSMPCertificateIndex = new MutableInt (0);
         final ICommonsOrderedMap <X509Certificate, String> aAllUsedSMPCertifiactes = new CommonsLinkedHashMap <> ();
-        long nTotalDurationMillis = 0;
+
+        // Fetch all service metadata in parallel, but render them in sorted
+        // order afterwards so that the certificate numbering is deterministic
+        final SMPQueryParams aFetchQueryParams = aSMPQueryParams;
+        final ICommonsList <IDocumentTypeIdentifier> aSortedDocTypeIDs = aDocTypeIDs.getSortedInline (IDocumentTypeIdentifier.comparator ());
+        final StopWatch aSWFetchAll = StopWatch.createdStarted ();
+        final var aFetchResults = SMPParallelFetcher.fetchAll (_getHostKey (aFetchQueryParams.getSMPHostURI ()),
+                                                               aSortedDocTypeIDs,
+                                                               aDocTypeID -> _fetchServiceMetadata (aFetchQueryParams,
+                                                                                                    aHCSModifier,
+                                                                                                    bXSDValidation,
+                                                                                                    bVerifySignatures,
+                                                                                                    aDocTypeID));
+        aSWFetchAll.stop ();
 
         aNodeList.addChild (h3 ("Document Type details (" + _getEntries (aDocTypeIDs.size ()) + ")"));
         final HCOL aULDocTypeIDs = new HCOL ();
-        for (final IDocumentTypeIdentifier aDocTypeID : aDocTypeIDs.getSortedInline (IDocumentTypeIdentifier.comparator ()))
+        for (final var aFetchResult : aFetchResults)
         {
+          final IDocumentTypeIdentifier aDocTypeID = aFetchResult.getKey ();
+          final ServiceMetadataFetch aFetch = aFetchResult.getValue ();
+          final ICommonsList <JAXBException> aDocTypeSMPExceptions = aFetch == null ? new CommonsArrayList <> ()
+                                                                                    : aFetch.m_aSMPExceptions;
+
           final HCDiv aDocTypeDiv = div (NiceNameUI.createDocTypeID (aDocTypeID, true));
           final HCLI aLIDocTypeID = aULDocTypeIDs.addAndReturnItem (aDocTypeDiv);
 
-          LOGGER.info ("Now SMP querying '" +
-                       aParticipantID.getURIEncoded () +
-                       "' / '" +
-                       aDocTypeID.getURIEncoded () +
-                       "' with NAPTR lookup");
-
-          final StopWatch aSWGetDetails = StopWatch.createdStarted ();
           try
           {
+            if (aFetchResult.hasException ())
+              throw new SMPClientException ("Failed to retrieve service metadata", aFetchResult.getException ());
+            if (aFetch.m_aException != null)
+              throw aFetch.m_aException;
+
             switch (eAPIType)
             {
               case PEPPOL:
               {
-                final ISMPFollowRedirectCallback aRedirectCB = (bFollow, sHref) -> {
-                  if (bFollow)
-                  {
-                    final HCUL aSubUL = aLIDocTypeID.addAndReturnChild (new HCUL ());
-                    aSubUL.addItem (div ().addChild (badgeInfo ("SMP Redirect"))
-                                          .addChild (" to ")
-                                          .addChild (code (sHref)));
-                  }
-                };
+                for (final String sHref : aFetch.m_aRedirectHrefs)
+                {
+                  final HCUL aSubUL = aLIDocTypeID.addAndReturnChild (new HCUL ());
+                  aSubUL.addItem (div ().addChild (badgeInfo ("SMP Redirect")).addChild (" to ").addChild (code (sHref)));
+                }
 
                 // Get all endpoints - no wildcard interpretation needed
-                final var aSSM = aSMPClient.get ().getServiceMetadataOrNull (aParticipantID, aDocTypeID, aRedirectCB);
-                aSWGetDetails.stop ();
+                final var aSSM = aFetch.getServiceMetadata (com.helger.xsds.peppol.smp1.SignedServiceMetadataType.class);
                 if (aSSM != null)
                 {
                   // Determine the signature algorithm used
@@ -1132,8 +1239,7 @@ public class PagePublicToolsParticipantInformation extends AbstractAppWebPage
               }
               case OASIS_BDXR_V1:
               {
-                final var aSSM = aBDXR1Client.get ().getServiceMetadataOrNull (aParticipantID, aDocTypeID);
-                aSWGetDetails.stop ();
+                final var aSSM = aFetch.getServiceMetadata (com.helger.xsds.bdxr.smp1.SignedServiceMetadataType.class);
                 if (aSSM != null)
                 {
                   final X509Certificate aSMPCert = XMLDSig10Helper.getSigningCertificate (aSSM.getSignature ());
@@ -1209,8 +1315,7 @@ public class PagePublicToolsParticipantInformation extends AbstractAppWebPage
               }
               case OASIS_BDXR_V2:
               {
-                final var aSSM = aBDXR2Client.get ().getServiceMetadataOrNull (aParticipantID, aDocTypeID);
-                aSWGetDetails.stop ();
+                final var aSSM = aFetch.getServiceMetadata (com.helger.xsds.bdxr.smp2.ServiceMetadataType.class);
                 if (aSSM != null)
                 {
                   // Multiple signatures may be present
@@ -1240,7 +1345,7 @@ public class PagePublicToolsParticipantInformation extends AbstractAppWebPage
 
             final BootstrapErrorBox aErrorBox = error (div ("Error querying SMP. Try disabling 'XML Schema validation'.")).addChild (BootstrapTechnicalUI.getTechnicalDetailsNode (ex,
                                                                                                                                                                                    aDisplayLocale));
-            for (final JAXBException aItem : aSMPExceptions)
+            for (final JAXBException aItem : aDocTypeSMPExceptions)
               aErrorBox.addChild (BootstrapTechnicalUI.getTechnicalDetailsNode (aItem, aDisplayLocale));
             aLIDocTypeID.addChild (aErrorBox);
 
@@ -1260,7 +1365,7 @@ public class PagePublicToolsParticipantInformation extends AbstractAppWebPage
 
             final BootstrapErrorBox aErrorBox = error (div ("Error querying SMP.")).addChild (BootstrapTechnicalUI.getTechnicalDetailsNode (ex,
                                                                                                                                             aDisplayLocale));
-            for (final JAXBException aItem : aSMPExceptions)
+            for (final JAXBException aItem : aDocTypeSMPExceptions)
               aErrorBox.addChild (BootstrapTechnicalUI.getTechnicalDetailsNode (aItem, aDisplayLocale));
             aLIDocTypeID.addChild (aErrorBox);
 
@@ -1272,13 +1377,12 @@ public class PagePublicToolsParticipantInformation extends AbstractAppWebPage
           }
 
           if (bShowTime)
-            aDocTypeDiv.addChild (" ").addChild (_createTimingNode (aSWGetDetails.getMillis ()));
-          nTotalDurationMillis += aSWGetDetails.getMillis ();
+            aDocTypeDiv.addChild (" ").addChild (_createTimingNode (aFetchResult.getDurationMillis ()));
         }
         aNodeList.addChild (aULDocTypeIDs);
 
         if (bShowTime)
-          aNodeList.addChild (div ("Overall time: ").addChild (_createTimingNode (nTotalDurationMillis)));
+          aNodeList.addChild (div ("Overall time: ").addChild (_createTimingNode (aSWFetchAll.getMillis ())));
 
         // Show AP certificate details
         {
@@ -0,0 +1,277 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.validate;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Locale;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.Validator;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.io.resource.IReadableResource;
+import com.helger.peppol.validate.config.SharedValidationConfig;
+import com.helger.phive.api.execute.ValidationExecutionManager;
+import com.helger.phive.api.executor.IValidationExecutor;
+import com.helger.phive.api.executorset.IValidationExecutorSet;
+import com.helger.phive.api.result.ValidationResult;
+import com.helger.phive.api.result.ValidationResultList;
+import com.helger.phive.api.validity.IValidityDeterminator;
+import com.helger.phive.xml.source.IValidationSourceXML;
+import com.helger.phive.xml.source.ValidationSourceXML;
+import com.helger.phive.xml.xsd.ValidationExecutorXSD;
+import com.helger.xml.sax.CollectingSAXErrorHandler;
+
+/**
+ * Validation of documents that may be very large. Documents smaller than the configured threshold
+ * are validated as usual. For larger documents, the XML Schema validation streams the input
+ * without building a DOM, and the DOM for the Schematron validation is built once in a compact
+ * form: without comments, with coalesced text, without whitespace-only text between elements and
+ * without deferred node expansion. If the XML Schema validation fails, the Schematron layers are
+ * skipped and no DOM is built at all.
+ *
+ * @author Philip Helger
+ */
+@Immutable
+public final class LargeDocumentValidator
+{
+  /** The default threshold for the large document mode: 10 MiB */
+  public static final long DEFAULT_THRESHOLD_BYTES = 10L * 1024 * 1024;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger (LargeDocumentValidator.class);
+
+  private LargeDocumentValidator ()
+  {}
+
+  /**
+   * @param aRes
+   *        The resource to check. May not be <code>null</code>.
+   * @return <code>true</code> if the resource is a file that is at least as large as the configured
+   *         threshold.
+   * @see SharedValidationConfig#getLargeDocumentThresholdBytes()
+   */
+  public static boolean isLargeDocument (@NonNull final IReadableResource aRes)
+  {
+    ValueEnforcer.notNull (aRes, "Resource");
+    final File aFile = aRes.getAsFile ();
+    return aFile != null && aFile.length () >= SharedValidationConfig.getLargeDocumentThresholdBytes ();
+  }
+
+  /**
+   * Validate the provided resource, choosing the mode based on its size.
+   *
+   * @param aVES
+   *        The VES to use. May not be <code>null</code>.
+   * @param aRes
+   *        The document to validate. May not be <code>null</code>.
+   * @param aLocale
+   *        The locale for the error messages. May be <code>null</code>.
+   * @return The validation results. Never <code>null</code>.
+   * @throws IOException
+   *         If the document cannot be read in the large document mode
+   */
+  @NonNull
+  public static ValidationResultList validate (@NonNull final IValidationExecutorSet <IValidationSourceXML> aVES,
+                                               @NonNull final IReadableResource aRes,
+                                               @Nullable final Locale aLocale) throws IOException
+  {
+    if (isLargeDocument (aRes))
+      return validateLarge (aVES, aRes, aLocale);
+
+    return ValidationExecutionManager.executeValidation (IValidityDeterminator.createDefault (),
+                                                         aVES,
+                                                         ValidationSourceXML.create (aRes),
+                                                         aLocale);
+  }
+
+  @Nullable
+  static String getSystemID (@NonNull final IReadableResource aRes)
+  {
+    final URL aURL = aRes.getAsURL ();
+    return aURL == null ? null : aURL.toExternalForm ();
+  }
+
+  @NonNull
+  static ValidationResult validateXSDStreaming (@NonNull final ValidationExecutorXSD aExecutor,
+                                                @NonNull final IReadableResource aRes) throws IOException
+  {
+    // The same Schema the executor uses, e.g. for multiple XSDs or a custom SchemaFactory
+    final Schema aSchema = aExecutor.getSchemaProvider ().get ();
+    final Validator aValidator = aSchema.newValidator ();
+    final CollectingSAXErrorHandler aErrorHandler = new CollectingSAXErrorHandler ();
+    aValidator.setErrorHandler (aErrorHandler);
+    try
+    {
+      aValidator.setProperty (XMLConstants.ACCESS_EXTERNAL_DTD, "");
+    }
+    catch (final SAXException ex)
+    {
+      // Property not supported by the implementation
+    }
+
+    try (final InputStream aIS = aRes.getInputStream ())
+    {
+      if (aIS == null)
+        throw new IOException ("Failed to open '" + aRes.getPath () + "'");
+      aValidator.validate (new StreamSource (aIS, getSystemID (aRes)));
+    }
+    catch (final SAXException ex)
+    {
+      // Fatal errors were already passed to the error handler
+      LOGGER.debug ("XML Schema validation of '" + aRes.getPath () + "' stopped: " + ex.getMessage ());
+    }
+    return new ValidationResult (aExecutor.getValidationArtefact (), aErrorHandler.getErrorList ());
+  }
+
+  private static void _removeWhitespaceText (@NonNull final Node aParent)
+  {
+    Node aChild = aParent.getFirstChild ();
+    while (aChild != null)
+    {
+      final Node aNext = aChild.getNextSibling ();
+      if (aChild.getNodeType () == Node.TEXT_NODE)
+      {
+        // Only between elements - text content of leaf elements is kept
+        if (aChild.getNodeValue ().isBlank () &&
+            (aChild.getPreviousSibling () != null || aNext != null))
+          aParent.removeChild (aChild);
+      }
+      else
+        if (aChild.getNodeType () == Node.ELEMENT_NODE)
+          _removeWhitespaceText (aChild);
+      aChild = aNext;
+    }
+  }
+
+  /**
+   * Read a document into a DOM that is as compact as possible.
+   *
+   * @param aRes
+   *        The resource to read. May not be <code>null</code>.
+   * @return The document. Never <code>null</code>.
+   * @throws IOException
+   *         If the document cannot be read or parsed
+   */
+  @NonNull
+  public static Document readCompactDocument (@NonNull final IReadableResource aRes) throws IOException
+  {
+    ValueEnforcer.notNull (aRes, "Resource");
+
+    final DocumentBuilderFactory aDBF = DocumentBuilderFactory.newInstance ();
+    aDBF.setNamespaceAware (true);
+    aDBF.setIgnoringComments (true);
+    aDBF.setCoalescing (true);
+    aDBF.setExpandEntityReferences (false);
+    aDBF.setXIncludeAware (false);
+    try
+    {
+      aDBF.setFeature ("http://apache.org/xml/features/disallow-doctype-decl", true);
+      // Everything is visited by Schematron anyway
+      aDBF.setFeature ("http://apache.org/xml/features/dom/defer-node-expansion", false);
+    }
+    catch (final ParserConfigurationException ex)
+    {
+      LOGGER.warn ("Failed to configure the DocumentBuilderFactory: " + ex.getMessage ());
+    }
+
+    try (final InputStream aIS = aRes.getInputStream ())
+    {
+      if (aIS == null)
+        throw new IOException ("Failed to open '" + aRes.getPath () + "'");
+      final DocumentBuilder aDB = aDBF.newDocumentBuilder ();
+      final InputSource aSource = new InputSource (aIS);
+      aSource.setSystemId (getSystemID (aRes));
+      final Document ret = aDB.parse (aSource);
+      _removeWhitespaceText (ret.getDocumentElement ());
+      return ret;
+    }
+    catch (final ParserConfigurationException | SAXException ex)
+    {
+      throw new IOException ("Failed to parse '" + aRes.getPath () + "'", ex);
+    }
+  }
+
+  /**
+   * Validate the provided resource in the large document mode, independent of its size.
+   *
+   * @param aVES
+   *        The VES to use. May not be <code>null</code>.
+   * @param aRes
+   *        The document to validate. May not be <code>null</code>.
+   * @param aLocale
+   *        The locale for the error messages. May be <code>null</code>.
+   * @return The validation results. Never <code>null</code>.
+   * @throws IOException
+   *         If the document cannot be read
+   */
+  @NonNull
+  public static ValidationResultList validateLarge (@NonNull final IValidationExecutorSet <IValidationSourceXML> aVES,
+                                                    @NonNull final IReadableResource aRes,
+                                                    @Nullable final Locale aLocale) throws IOException
+  {
+    ValueEnforcer.notNull (aVES, "VES");
+    ValueEnforcer.notNull (aRes, "Resource");
+
+    final ValidationResultList ret = new ValidationResultList ();
+    IValidationSourceXML aDOMSource = null;
+    boolean bIgnoreRest = false;
+    for (final IValidationExecutor <IValidationSourceXML> aExecutor : aVES.executors ())
+    {
+      if (bIgnoreRest)
+      {
+        ret.add (ValidationResult.createIgnoredResult (aExecutor.getValidationArtefact ()));
+        continue;
+      }
+
+      if (aExecutor instanceof final ValidationExecutorXSD aXSDExecutor)
+      {
+        final ValidationResult aResult = validateXSDStreaming (aXSDExecutor, aRes);
+        ret.add (aResult);
+
+        // Schematron on a structurally invalid document makes no sense
+        if (aResult.getErrorList ().containsAtLeastOneError ())
+          bIgnoreRest = true;
+      }
+      else
+      {
+        // Created only once and only when needed
+        if (aDOMSource == null)
+          aDOMSource = ValidationSourceXML.create (getSystemID (aRes), readCompactDocument (aRes));
+        ret.add (aExecutor.applyValidation (aDOMSource, aLocale));
+      }
+    }
+    return ret;
+  }
+}
@@ -0,0 +1,295 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.validate;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.diver.api.coord.DVRCoordinate;
+import com.helger.io.resource.IReadableResource;
+import com.helger.peppol.validate.config.SharedValidationConfig;
+import com.helger.phive.api.execute.ValidationExecutionManager;
+import com.helger.phive.api.executor.IValidationExecutor;
+import com.helger.phive.api.executorset.IValidationExecutorSet;
+import com.helger.phive.api.result.ValidationResult;
+import com.helger.phive.api.result.ValidationResultList;
+import com.helger.phive.xml.source.IValidationSourceXML;
+import com.helger.phive.xml.source.ValidationSourceXML;
+import com.helger.phive.xml.xsd.ValidationExecutorXSD;
+
+/**
+ * Validation that runs the independent layers of a VES concurrently. Layers whose validation type
+ * stops the validation on error (like XML Schema) are executed on the calling thread. If they
+ * succeed, all subsequent layers up to the next such layer are executed in parallel, and the results
+ * are returned in the original layer order.<br>
+ * The document is read with the same source as {@link ValidationExecutionManager} uses. As DOM is
+ * not thread-safe, not even for reading, the first group of parallel layers runs on the calling
+ * thread with the already read document, and each other group reads its own copy of the document on
+ * a worker thread. To limit the memory usage, the number of copies is limited by
+ * {@link SharedValidationConfig#getParallelLayerMaxBytes()}, and large documents (see
+ * {@link LargeDocumentValidator#isLargeDocument(IReadableResource)}) are validated sequentially with
+ * a single compact document.
+ *
+ * @author Philip Helger
+ */
+@ThreadSafe
+public final class ParallelLayerValidator
+{
+  /** The default maximum number of document bytes parsed at the same time: 32 MiB */
+  public static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+
+  private static final AtomicInteger THREAD_COUNTER = new AtomicInteger (0);
+  private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool (SharedValidationConfig.getParallelLayerThreads (), r -> {
+    final Thread ret = new Thread (r, "ves-layer-" + THREAD_COUNTER.incrementAndGet ());
+    ret.setDaemon (true);
+    return ret;
+  });
+
+  private ParallelLayerValidator ()
+  {}
+
+  @NonNull
+  private static IValidationSourceXML _createSource (@NonNull final IReadableResource aRes, final boolean bLarge) throws IOException
+  {
+    if (bLarge)
+      return ValidationSourceXML.create (LargeDocumentValidator.getSystemID (aRes),
+                                         LargeDocumentValidator.readCompactDocument (aRes));
+    // The same as for the sequential validation
+    return ValidationSourceXML.create (aRes);
+  }
+
+  private static boolean _isStopValidationOnError (@NonNull final IValidationExecutor <IValidationSourceXML> aExecutor)
+  {
+    return aExecutor.getValidationArtefact ().getValidationType ().isStopValidationOnError ();
+  }
+
+  /**
+   * Get the number of document copies that may be parsed at the same time.
+   *
+   * @param nDocumentBytes
+   *        The size of the document in bytes or a negative value if unknown.
+   * @param nMaxBytes
+   *        The maximum number of document bytes parsed at the same time.
+   * @return The maximum number of copies. Always &ge; 1.
+   */
+  static int getMaxDocumentCopies (final long nDocumentBytes, final long nMaxBytes)
+  {
+    if (nDocumentBytes < 0)
+      return Integer.MAX_VALUE;
+    final long nMaxCopies = nMaxBytes / Math.max (nDocumentBytes, 1);
+    return (int) Math.max (1, Math.min (nMaxCopies, Integer.MAX_VALUE));
+  }
+
+  private static int _getMaxDocumentCopies (@NonNull final IReadableResource aRes, final boolean bLarge)
+  {
+    if (bLarge)
+      return 1;
+    final File aFile = aRes.getAsFile ();
+    return getMaxDocumentCopies (aFile == null ? -1 : aFile.length (), SharedValidationConfig.getParallelLayerMaxBytes ());
+  }
+
+  @NonNull
+  private static ICommonsList <ValidationResult> _runGroup (@NonNull final ICommonsList <IValidationExecutor <IValidationSourceXML>> aExecutors,
+                                                            final int nGroup,
+                                                            final int nGroupCount,
+                                                            @NonNull final IValidationSourceXML aSource,
+                                                            @Nullable final Locale aLocale)
+  {
+    final ICommonsList <ValidationResult> ret = new CommonsArrayList <> ();
+    for (int i = nGroup; i < aExecutors.size (); i += nGroupCount)
+      ret.add (aExecutors.get (i).applyValidation (aSource, aLocale));
+    return ret;
+  }
+
+  @NonNull
+  private static ICommonsList <ValidationResult> _runParallel (@NonNull final ICommonsList <IValidationExecutor <IValidationSourceXML>> aExecutors,
+                                                               @NonNull final IValidationSourceXML aSource,
+                                                               @NonNull final IReadableResource aRes,
+                                                               final boolean bLarge,
+                                                               @Nullable final Locale aLocale) throws IOException
+  {
+    // Each group of layers uses its own document
+    final int nGroupCount = Math.min (aExecutors.size (), _getMaxDocumentCopies (aRes, bLarge));
+    if (nGroupCount <= 1)
+    {
+      // Sequentially with the existing document
+      return _runGroup (aExecutors, 0, 1, aSource, aLocale);
+    }
+
+    // All but the first group read their own document in the background
+    final ICommonsList <Future <ICommonsList <ValidationResult>>> aFutures = new CommonsArrayList <> (nGroupCount - 1);
+    for (int nGroup = 1; nGroup < nGroupCount; ++nGroup)
+    {
+      final int nFinalGroup = nGroup;
+      aFutures.add (EXECUTOR.submit ( () -> _runGroup (aExecutors,
+                                                        nFinalGroup,
+                                                        nGroupCount,
+                                                        _createSource (aRes, bLarge),
+                                                        aLocale)));
+    }
+
+    final ValidationResult [] aResults = new ValidationResult [aExecutors.size ()];
+    try
+    {
+      // The first group uses the existing document on the calling thread
+      _collect (_runGroup (aExecutors, 0, nGroupCount, aSource, aLocale), 0, nGroupCount, aResults);
+      for (int nGroup = 1; nGroup < nGroupCount; ++nGroup)
+        _collect (aFutures.get (nGroup - 1).get (), nGroup, nGroupCount, aResults);
+    }
+    catch (final InterruptedException ex)
+    {
+      Thread.currentThread ().interrupt ();
+      throw new IllegalStateException ("Interrupted while waiting for the validation layers", ex);
+    }
+    catch (final ExecutionException ex)
+    {
+      if (ex.getCause () instanceof final IOException aIOEx)
+        throw aIOEx;
+      if (ex.getCause () instanceof final RuntimeException aRTEx)
+        throw aRTEx;
+      throw new IllegalStateException ("Error executing a validation layer", ex.getCause ());
+    }
+    finally
+    {
+      for (final Future <ICommonsList <ValidationResult>> aFuture : aFutures)
+        aFuture.cancel (true);
+    }
+    // In layer order
+    return new CommonsArrayList <> (aResults);
+  }
+
+  private static void _collect (@NonNull final ICommonsList <ValidationResult> aGroupResults,
+                                final int nGroup,
+                                final int nGroupCount,
+                                @NonNull final ValidationResult [] aResults)
+  {
+    int nIndex = nGroup;
+    for (final ValidationResult aResult : aGroupResults)
+    {
+      aResults[nIndex] = aResult;
+      nIndex += nGroupCount;
+    }
+  }
+
+  /**
+   * Validate the provided document, running the independent layers in parallel.
+   *
+   * @param aVES
+   *        The VES to use. May not be <code>null</code>.
+   * @param aRes
+   *        The document to validate. May not be <code>null</code>.
+   * @param aLocale
+   *        The locale for the error messages. May be <code>null</code>.
+   * @return The validation results in the layer order of the VES. Never <code>null</code>.
+   * @throws IOException
+   *         If the document cannot be read
+   */
+  @NonNull
+  public static ValidationResultList validate (@NonNull final IValidationExecutorSet <IValidationSourceXML> aVES,
+                                               @NonNull final IReadableResource aRes,
+                                               @Nullable final Locale aLocale) throws IOException
+  {
+    ValueEnforcer.notNull (aVES, "VES");
+    ValueEnforcer.notNull (aRes, "Resource");
+
+    final boolean bLarge = LargeDocumentValidator.isLargeDocument (aRes);
+    final ValidationResultList ret = new ValidationResultList ();
+    final ICommonsList <IValidationExecutor <IValidationSourceXML>> aPending = new CommonsArrayList <> ();
+    // Created only once and only when needed
+    IValidationSourceXML aSource = null;
+    boolean bIgnoreRest = false;
+    for (final IValidationExecutor <IValidationSourceXML> aExecutor : aVES.executors ())
+    {
+      if (bIgnoreRest)
+        ret.add (ValidationResult.createIgnoredResult (aExecutor.getValidationArtefact ()));
+      else
+        if (_isStopValidationOnError (aExecutor))
+        {
+          // Keep the order, if such a layer follows the parallel ones
+          if (aPending.isNotEmpty ())
+          {
+            if (aSource == null)
+              aSource = _createSource (aRes, bLarge);
+            ret.addAll (_runParallel (aPending, aSource, aRes, bLarge, aLocale));
+            aPending.clear ();
+          }
+
+          final ValidationResult aResult;
+          if (bLarge && aExecutor instanceof final ValidationExecutorXSD aXSDExecutor)
+          {
+            // No DOM needed
+            aResult = LargeDocumentValidator.validateXSDStreaming (aXSDExecutor, aRes);
+          }
+          else
+          {
+            if (aSource == null)
+              aSource = _createSource (aRes, bLarge);
+            aResult = aExecutor.applyValidation (aSource, aLocale);
+          }
+          ret.add (aResult);
+          if (aResult.getErrorList ().containsAtLeastOneError ())
+            bIgnoreRest = true;
+        }
+        else
+          aPending.add (aExecutor);
+    }
+    if (aPending.isNotEmpty ())
+    {
+      if (aSource == null)
+        aSource = _createSource (aRes, bLarge);
+      ret.addAll (_runParallel (aPending, aSource, aRes, bLarge, aLocale));
+    }
+    return ret;
+  }
+
+  /**
+   * Validate the provided document with a VES from {@link VESRegistry}, running the Schematron
+   * layers in parallel.
+   *
+   * @param aVESID
+   *        The VESID to use. May not be <code>null</code>.
+   * @param aRes
+   *        The document to validate. May not be <code>null</code>.
+   * @param aLocale
+   *        The locale for the error messages. May be <code>null</code>.
+   * @return <code>null</code> if the VESID is unknown.
+   * @throws IOException
+   *         If the document cannot be read
+   */
+  @Nullable
+  public static ValidationResultList validate (@NonNull final DVRCoordinate aVESID,
+                                               @NonNull final IReadableResource aRes,
+                                               @Nullable final Locale aLocale) throws IOException
+  {
+    ValueEnforcer.notNull (aVESID, "VESID");
+    final IValidationExecutorSet <IValidationSourceXML> aVES = VESRegistry.getFromIDOrNull (aVESID);
+    return aVES == null ? null : validate (aVES, aRes, aLocale);
+  }
+}
@@ -0,0 +1,468 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.validate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.annotation.Nonempty;
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.annotation.style.ReturnsMutableCopy;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.string.StringHelper;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.diver.api.coord.DVRCoordinate;
+import com.helger.io.resource.IReadableResource;
+import com.helger.phive.api.executor.IValidationExecutor;
+import com.helger.phive.api.executorset.IValidationExecutorSet;
+import com.helger.phive.rules.all.PhiveRulesValidation;
+import com.helger.phive.xml.source.IValidationSourceXML;
+
+/**
+ * A persistent manifest of the VESs that were actually used, so that the warm-up after a restart
+ * can precompile exactly these. Each entry is stored together with a hash over the validation
+ * artefacts of the VES, and the whole file is bound to the phive rules version. If the rules
+ * version differs, the manifest is discarded, and if the artefacts of a VES changed, the entry is
+ * dropped.<br>
+ * The compiled artefacts themselves (XSLT templates) cannot be serialized, so they are compiled
+ * again - but only for the VESs that are really needed.<br>
+ * Hashing the artefacts and writing the file happens on a single background thread, so that
+ * {@link #recordUsage(IValidationExecutorSet)} is cheap for the caller. Because the tasks are
+ * executed in order, a manifest loaded via {@link #loadInBackground(Function)} is always read before
+ * the file is written for the first time.
+ *
+ * @author Philip Helger
+ */
+@ThreadSafe
+public final class VESHotSetManifest implements AutoCloseable
+{
+  private static final Logger LOGGER = LoggerFactory.getLogger (VESHotSetManifest.class);
+  private static final String VERSION_PREFIX = "version=";
+  private static final char SEPARATOR = '\t';
+  private static final AtomicInteger THREAD_COUNTER = new AtomicInteger (0);
+
+  private final Path m_aFile;
+  private final String m_sRulesVersion;
+  // VESID to artefact hash
+  private final Map <String, String> m_aEntries = new ConcurrentHashMap <> ();
+  // VESIDs whose usage was recorded but not yet processed
+  private final Set <String> m_aPending = ConcurrentHashMap.newKeySet ();
+  private final AtomicBoolean m_aDirty = new AtomicBoolean (false);
+  private final ExecutorService m_aExecutor;
+
+  /**
+   * Constructor
+   *
+   * @param aFile
+   *        The file to read from and write to. May not be <code>null</code>.
+   * @param sRulesVersion
+   *        The version of the rules. May neither be <code>null</code> nor empty.
+   */
+  public VESHotSetManifest (@NonNull final Path aFile, @NonNull @Nonempty final String sRulesVersion)
+  {
+    ValueEnforcer.notNull (aFile, "File");
+    ValueEnforcer.notEmpty (sRulesVersion, "RulesVersion");
+    m_aFile = aFile;
+    m_sRulesVersion = sRulesVersion;
+    m_aExecutor = Executors.newSingleThreadExecutor (r -> {
+      final Thread ret = new Thread (r, "ves-hotset-" + THREAD_COUNTER.incrementAndGet ());
+      ret.setDaemon (true);
+      return ret;
+    });
+  }
+
+  @NonNull
+  public Path getFile ()
+  {
+    return m_aFile;
+  }
+
+  @NonNull
+  @Nonempty
+  public String getRulesVersion ()
+  {
+    return m_sRulesVersion;
+  }
+
+  /**
+   * @return The version of the phive rules on the classpath. Uses the implementation version of
+   *         the JAR manifest if present, and the location of the JAR (which contains the version)
+   *         otherwise. Never <code>null</code>.
+   */
+  @NonNull
+  @Nonempty
+  public static String getDefaultRulesVersion ()
+  {
+    final String ret = PhiveRulesValidation.class.getPackage ().getImplementationVersion ();
+    if (StringHelper.isNotEmpty (ret))
+      return ret;
+    final CodeSource aCodeSource = PhiveRulesValidation.class.getProtectionDomain ().getCodeSource ();
+    if (aCodeSource != null && aCodeSource.getLocation () != null)
+      return aCodeSource.getLocation ().toExternalForm ();
+    return "unknown";
+  }
+
+  /**
+   * Calculate a hash over the validation artefacts of the provided VES.
+   *
+   * @param aVES
+   *        The VES to hash. May not be <code>null</code>.
+   * @return The hex encoded SHA-256 hash. Never <code>null</code>.
+   */
+  @NonNull
+  @Nonempty
+  public static String getArtefactHash (@NonNull final IValidationExecutorSet <IValidationSourceXML> aVES)
+  {
+    ValueEnforcer.notNull (aVES, "VES");
+
+    final MessageDigest aMD;
+    try
+    {
+      aMD = MessageDigest.getInstance ("SHA-256");
+    }
+    catch (final NoSuchAlgorithmException ex)
+    {
+      throw new IllegalStateException ("SHA-256 is not supported", ex);
+    }
+
+    for (final IValidationExecutor <IValidationSourceXML> aExecutor : aVES.executors ())
+    {
+      final IReadableResource aRes = aExecutor.getValidationArtefact ().getRuleResource ();
+      aMD.update (aExecutor.getValidationArtefact ().getValidationType ().getID ().getBytes (StandardCharsets.UTF_8));
+      aMD.update (aRes.getPath ().getBytes (StandardCharsets.UTF_8));
+      try (final InputStream aIS = aRes.getInputStream ())
+      {
+        if (aIS != null)
+          aMD.update (aIS.readAllBytes ());
+      }
+      catch (final IOException ex)
+      {
+        // Leads to a different hash in the worst case
+        LOGGER.warn ("Failed to read validation artefact '" + aRes.getPath () + "': " + ex.getMessage ());
+      }
+    }
+    return HexFormat.of ().formatHex (aMD.digest ());
+  }
+
+  /**
+   * Read the manifest file. If the file does not exist or has a different rules version, nothing
+   * is read. Entries whose VES is unknown or whose artefacts changed are dropped.
+   *
+   * @param aVESResolver
+   *        The function to resolve VESIDs. May not be <code>null</code>.
+   * @return The number of valid entries read.
+   */
+  @Nonnegative
+  public int load (@NonNull final Function <DVRCoordinate, IValidationExecutorSet <IValidationSourceXML>> aVESResolver)
+  {
+    ValueEnforcer.notNull (aVESResolver, "VESResolver");
+
+    if (!Files.isRegularFile (m_aFile))
+      return 0;
+
+    final List <String> aLines;
+    try
+    {
+      aLines = Files.readAllLines (m_aFile, StandardCharsets.UTF_8);
+    }
+    catch (final IOException ex)
+    {
+      LOGGER.warn ("Failed to read VES hot set manifest '" + m_aFile + "': " + ex.getMessage ());
+      return 0;
+    }
+
+    if (aLines.isEmpty () || !aLines.get (0).equals (VERSION_PREFIX + m_sRulesVersion))
+    {
+      LOGGER.info ("Ignoring VES hot set manifest '" + m_aFile + "' because the rules version changed");
+      return 0;
+    }
+
+    int ret = 0;
+    for (final String sLine : aLines.subList (1, aLines.size ()))
+    {
+      final int nSep = sLine.indexOf (SEPARATOR);
+      if (nSep <= 0)
+        continue;
+
+      final String sVESID = sLine.substring (0, nSep);
+      final String sHash = sLine.substring (nSep + 1);
+      final DVRCoordinate aVESID = DVRCoordinate.parseOrNull (sVESID);
+      final IValidationExecutorSet <IValidationSourceXML> aVES = aVESID == null ? null : aVESResolver.apply (aVESID);
+      if (aVES == null)
+        LOGGER.info ("Dropping unknown VESID '" + sVESID + "' from the hot set");
+      else
+        if (!getArtefactHash (aVES).equals (sHash))
+          LOGGER.info ("Dropping VESID '" + sVESID + "' from the hot set because the artefacts changed");
+        else
+        {
+          m_aEntries.put (sVESID, sHash);
+          ret++;
+        }
+    }
+    LOGGER.info ("Loaded " + ret + " VESIDs from the hot set manifest '" + m_aFile + "'");
+    return ret;
+  }
+
+  /**
+   * Read the manifest file on the background thread. Usages recorded afterwards are processed
+   * after the file was read, so that the previous hot set is not overwritten.
+   *
+   * @param aVESResolver
+   *        The function to resolve VESIDs. May not be <code>null</code>.
+   */
+  public void loadInBackground (@NonNull final Function <DVRCoordinate, IValidationExecutorSet <IValidationSourceXML>> aVESResolver)
+  {
+    ValueEnforcer.notNull (aVESResolver, "VESResolver");
+
+    m_aExecutor.execute ( () -> {
+      try
+      {
+        load (aVESResolver);
+      }
+      catch (final RuntimeException ex)
+      {
+        LOGGER.error ("Error loading VES hot set manifest '" + m_aFile + "'", ex);
+      }
+    });
+  }
+
+  private void _saveIfDirty ()
+  {
+    if (m_aDirty.getAndSet (false))
+      save ();
+  }
+
+  private void _queueSave ()
+  {
+    // Multiple new entries that are processed in a row are written at once
+    if (m_aDirty.compareAndSet (false, true))
+      try
+      {
+        m_aExecutor.execute (this::_saveIfDirty);
+      }
+      catch (final RejectedExecutionException ex)
+      {
+        // Closed in the meantime
+        _saveIfDirty ();
+      }
+  }
+
+  /**
+   * Remember that the provided VES was used. If it is new, the artefact hash is calculated and the
+   * manifest file is written in the background.
+   *
+   * @param aVES
+   *        The used VES. May not be <code>null</code>.
+   */
+  public void recordUsage (@NonNull final IValidationExecutorSet <IValidationSourceXML> aVES)
+  {
+    ValueEnforcer.notNull (aVES, "VES");
+
+    final String sVESID = aVES.getID ().getAsSingleID ();
+    // Fast path - known and already queued entries
+    if (m_aEntries.containsKey (sVESID) || !m_aPending.add (sVESID))
+      return;
+
+    try
+    {
+      m_aExecutor.execute ( () -> {
+        try
+        {
+          if (!m_aEntries.containsKey (sVESID) && m_aEntries.putIfAbsent (sVESID, getArtefactHash (aVES)) == null)
+            _queueSave ();
+        }
+        catch (final RuntimeException ex)
+        {
+          LOGGER.warn ("Failed to record the usage of VESID '" + sVESID + "': " + ex.getMessage ());
+        }
+        finally
+        {
+          m_aPending.remove (sVESID);
+        }
+      });
+    }
+    catch (final RejectedExecutionException ex)
+    {
+      // Closed - nothing is recorded anymore
+      m_aPending.remove (sVESID);
+    }
+  }
+
+  /**
+   * Wait until all previously queued background tasks are processed and write the manifest file if
+   * it has changes.
+   *
+   * @param aTimeout
+   *        The maximum time to wait. May not be <code>null</code>.
+   * @return <code>true</code> if everything was processed, <code>false</code> if the timeout
+   *         elapsed or the manifest is already closed.
+   * @throws InterruptedException
+   *         If interrupted
+   */
+  public boolean flush (@NonNull final Duration aTimeout) throws InterruptedException
+  {
+    ValueEnforcer.notNull (aTimeout, "Timeout");
+
+    final Future <?> aFuture;
+    try
+    {
+      aFuture = m_aExecutor.submit (this::_saveIfDirty);
+    }
+    catch (final RejectedExecutionException ex)
+    {
+      return false;
+    }
+
+    try
+    {
+      aFuture.get (aTimeout.toNanos (), TimeUnit.NANOSECONDS);
+      return true;
+    }
+    catch (final ExecutionException ex)
+    {
+      // Errors are already logged
+      return true;
+    }
+    catch (final TimeoutException ex)
+    {
+      return false;
+    }
+  }
+
+  /**
+   * Write the manifest file atomically.
+   */
+  public void save ()
+  {
+    final StringBuilder aSB = new StringBuilder ();
+    aSB.append (VERSION_PREFIX).append (m_sRulesVersion).append ('\n');
+    synchronized (this)
+    {
+      for (final Map.Entry <String, String> aEntry : m_aEntries.entrySet ())
+        aSB.append (aEntry.getKey ()).append (SEPARATOR).append (aEntry.getValue ()).append ('\n');
+      try
+      {
+        final Path aParent = m_aFile.toAbsolutePath ().getParent ();
+        if (aParent != null)
+          Files.createDirectories (aParent);
+        final Path aTmp = m_aFile.resolveSibling (m_aFile.getFileName () + ".tmp");
+        Files.writeString (aTmp, aSB.toString (), StandardCharsets.UTF_8);
+        Files.move (aTmp, m_aFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      }
+      catch (final IOException ex)
+      {
+        LOGGER.warn ("Failed to write VES hot set manifest '" + m_aFile + "': " + ex.getMessage ());
+      }
+    }
+  }
+
+  /**
+   * @return All VESIDs of the hot set. Never <code>null</code>.
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  public ICommonsList <DVRCoordinate> getAllVESIDs ()
+  {
+    final ICommonsList <DVRCoordinate> ret = new CommonsArrayList <> ();
+    for (final String sVESID : m_aEntries.keySet ())
+    {
+      final DVRCoordinate aVESID = DVRCoordinate.parseOrNull (sVESID);
+      if (aVESID != null)
+        ret.add (aVESID);
+    }
+    return ret;
+  }
+
+  @Nonnegative
+  public int size ()
+  {
+    return m_aEntries.size ();
+  }
+
+  /**
+   * Stop the background thread after the queued tasks were processed and write the manifest file if
+   * it has changes. Afterwards no further usages are recorded.
+   */
+  @Override
+  public void close ()
+  {
+    m_aExecutor.shutdown ();
+    try
+    {
+      if (!m_aExecutor.awaitTermination (10, TimeUnit.SECONDS))
+        LOGGER.warn ("Timeout waiting for the VES hot set manifest tasks to finish");
+    }
+    catch (final InterruptedException ex)
+    {
+      Thread.currentThread ().interrupt ();
+    }
+    _saveIfDirty ();
+  }
+
+  /**
+   * @param sFile
+   *        The file path. May be <code>null</code>.
+   * @return <code>null</code> if the path is empty.
+   */
+  @Nullable
+  public static VESHotSetManifest createOrNull (@Nullable final String sFile)
+  {
+    if (StringHelper.isEmpty (sFile))
+      return null;
+    return new VESHotSetManifest (Path.of (sFile), getDefaultRulesVersion ());
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("File", m_aFile)
+                                       .append ("RulesVersion", m_sRulesVersion)
+                                       .append ("Entries", m_aEntries.size ())
+                                       .getToString ();
+  }
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.validate;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jspecify.annotations.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.timing.StopWatch;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.collection.commons.CommonsLinkedHashMap;
+import com.helger.collection.commons.ICommonsOrderedMap;
+import com.helger.json.IJsonObject;
+import com.helger.json.JsonObject;
+import com.helger.phive.api.executor.IValidationExecutor;
+import com.helger.phive.api.executorset.IValidationExecutorSet;
+import com.helger.phive.xml.source.IValidationSourceXML;
+import com.helger.phive.xml.source.ValidationSourceXML;
+import com.helger.xml.XMLFactory;
+
+/**
+ * Compiles the XML Schema and Schematron artefacts of validation executor sets in parallel on a
+ * fork-join pool, so that the first validation of a VES does not need to do it on the request
+ * thread. Artefacts that are shared by multiple VESs are only compiled once. The progress can be
+ * queried at any time and {@link #isReady()} can be used as a readiness signal.
+ *
+ * @author Philip Helger
+ */
+@ThreadSafe
+public final class VESPrecompiler
+{
+  private static final Logger LOGGER = LoggerFactory.getLogger (VESPrecompiler.class);
+
+  private final int m_nParallelism;
+  private final AtomicBoolean m_aStarted = new AtomicBoolean (false);
+  private final CountDownLatch m_aDone = new CountDownLatch (1);
+  private final AtomicInteger m_aTotal = new AtomicInteger (0);
+  private final AtomicInteger m_aCompleted = new AtomicInteger (0);
+  private final AtomicInteger m_aFailed = new AtomicInteger (0);
+
+  /**
+   * Constructor
+   *
+   * @param nParallelism
+   *        The number of threads to use for compilation. Must be &gt; 0.
+   */
+  public VESPrecompiler (@Nonnegative final int nParallelism)
+  {
+    ValueEnforcer.isGT0 (nParallelism, "Parallelism");
+    m_nParallelism = nParallelism;
+  }
+
+  @Nonnegative
+  public int getParallelism ()
+  {
+    return m_nParallelism;
+  }
+
+  /**
+   * Compile the artefact of a single executor, by applying it on a dummy document. The compiled
+   * artefact is kept in the cache of phive.
+   *
+   * @param aExecutor
+   *        The executor to use. May not be <code>null</code>.
+   * @return <code>true</code> on success, <code>false</code> on error.
+   */
+  static boolean precompile (@NonNull final IValidationExecutor <IValidationSourceXML> aExecutor)
+  {
+    try
+    {
+      // A new document each time, as DOM is not thread-safe for reading
+      final Document aDummy = XMLFactory.newDocument ();
+      aDummy.appendChild (aDummy.createElement ("WarmUp"));
+
+      // The result is irrelevant
+      aExecutor.applyValidation (ValidationSourceXML.create (null, aDummy), Locale.ROOT);
+      return true;
+    }
+    catch (final RuntimeException ex)
+    {
+      LOGGER.warn ("Error precompiling " +
+                   aExecutor.getValidationArtefact ().getRuleResource ().getPath () +
+                   ": " +
+                   ex.getMessage ());
+      return false;
+    }
+  }
+
+  @NonNull
+  private static String _getArtefactKey (@NonNull final IValidationExecutor <IValidationSourceXML> aExecutor)
+  {
+    return aExecutor.getValidationArtefact ().getValidationType ().getID () +
+           ':' +
+           aExecutor.getValidationArtefact ().getRuleResource ().getPath ();
+  }
+
+  private void _logProgress (final int nCompleted, final int nTotal)
+  {
+    // Roughly every 10%
+    final int nStep = Math.max (nTotal / 10, 1);
+    if (nCompleted % nStep == 0 || nCompleted == nTotal)
+      LOGGER.info ("Precompiled " + nCompleted + "/" + nTotal + " validation artefacts");
+  }
+
+  /**
+   * Start the compilation of all artefacts of the provided VESs in the background. Only the first
+   * call has an effect. The method returns immediately.
+   *
+   * @param aVESs
+   *        The VESs to compile. May not be <code>null</code> but maybe empty.
+   * @return <code>true</code> if the compilation was started, <code>false</code> if it was already
+   *         started before.
+   */
+  public boolean start (@NonNull final Collection <? extends IValidationExecutorSet <IValidationSourceXML>> aVESs)
+  {
+    ValueEnforcer.notNullNoNullValue (aVESs, "VESs");
+
+    if (!m_aStarted.compareAndSet (false, true))
+      return false;
+
+    // Each artefact only once
+    final ICommonsOrderedMap <String, IValidationExecutor <IValidationSourceXML>> aExecutors = new CommonsLinkedHashMap <> ();
+    for (final IValidationExecutorSet <IValidationSourceXML> aVES : aVESs)
+      for (final IValidationExecutor <IValidationSourceXML> aExecutor : aVES.executors ())
+        aExecutors.putIfAbsent (_getArtefactKey (aExecutor), aExecutor);
+
+    final int nTotal = aExecutors.size ();
+    m_aTotal.set (nTotal);
+    if (nTotal == 0)
+    {
+      m_aDone.countDown ();
+      return true;
+    }
+
+    LOGGER.info ("Start precompiling " + nTotal + " validation artefacts of " + aVESs.size () + " VESs");
+    final StopWatch aSW = StopWatch.createdStarted ();
+    final AtomicInteger aThreadCounter = new AtomicInteger (0);
+    final ForkJoinPool aPool = new ForkJoinPool (m_nParallelism, p -> {
+      final ForkJoinWorkerThread ret = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread (p);
+      ret.setName ("ves-precompile-" + aThreadCounter.incrementAndGet ());
+      ret.setDaemon (true);
+      return ret;
+    }, null, false);
+    for (final IValidationExecutor <IValidationSourceXML> aExecutor : aExecutors.values ())
+      aPool.execute ( () -> {
+        boolean bSuccess = false;
+        try
+        {
+          bSuccess = precompile (aExecutor);
+        }
+        finally
+        {
+          // Also count Errors as completed, otherwise the readiness would never be reached
+          if (!bSuccess)
+            m_aFailed.incrementAndGet ();
+          final int nCompleted = m_aCompleted.incrementAndGet ();
+          _logProgress (nCompleted, nTotal);
+          if (nCompleted == nTotal)
+          {
+            LOGGER.info ("Finished precompiling " +
+                         nTotal +
+                         " validation artefacts in " +
+                         aSW.stopAndGetMillis () +
+                         " ms (" +
+                         m_aFailed.get () +
+                         " failed)");
+            m_aDone.countDown ();
+            aPool.shutdown ();
+          }
+        }
+      });
+    return true;
+  }
+
+  /**
+   * @return <code>true</code> if the compilation was started.
+   */
+  public boolean isStarted ()
+  {
+    return m_aStarted.get ();
+  }
+
+  /**
+   * @return <code>true</code> if the compilation was started and all artefacts were processed
+   *         (successfully or not). This is the readiness signal.
+   */
+  public boolean isReady ()
+  {
+    return m_aDone.getCount () == 0;
+  }
+
+  /**
+   * Wait until all artefacts are processed.
+   *
+   * @param aTimeout
+   *        The maximum time to wait. May not be <code>null</code>.
+   * @return <code>true</code> if ready, <code>false</code> if the timeout elapsed.
+   * @throws InterruptedException
+   *         If interrupted
+   */
+  public boolean awaitReady (@NonNull final Duration aTimeout) throws InterruptedException
+  {
+    ValueEnforcer.notNull (aTimeout, "Timeout");
+    return m_aDone.await (aTimeout.toNanos (), TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * @return The number of distinct artefacts to compile. Only set after start.
+   */
+  @Nonnegative
+  public int getTotalCount ()
+  {
+    return m_aTotal.get ();
+  }
+
+  /**
+   * @return The number of processed artefacts, including the failed ones.
+   */
+  @Nonnegative
+  public int getCompletedCount ()
+  {
+    return m_aCompleted.get ();
+  }
+
+  /**
+   * @return The number of artefacts that failed to compile.
+   */
+  @Nonnegative
+  public int getFailedCount ()
+  {
+    return m_aFailed.get ();
+  }
+
+  /**
+   * @return The current status as JSON, e.g. for a health check. Never <code>null</code>.
+   */
+  @NonNull
+  public IJsonObject getStatusAsJson ()
+  {
+    return new JsonObject ().add ("started", isStarted ())
+                            .add ("ready", isReady ())
+                            .add ("total", getTotalCount ())
+                            .add ("completed", getCompletedCount ())
+                            .add ("failed", getFailedCount ());
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Parallelism", m_nParallelism)
+                                       .append ("Started", isStarted ())
+                                       .append ("Ready", isReady ())
+                                       .append ("Total", getTotalCount ())
+                                       .append ("Completed", getCompletedCount ())
+                                       .append ("Failed", getFailedCount ())
+                                       .getToString ();
+  }
+}
@@ -16,23 +16,36 @@
  */
 package com.helger.peppol.validate;
 
+import java.time.Duration;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.helger.annotation.concurrent.Immutable;
 import com.helger.annotation.style.ReturnsMutableCopy;
+import com.helger.base.enforce.ValueEnforcer;
 import com.helger.base.name.IHasDisplayName;
+import com.helger.base.timing.StopWatch;
+import com.helger.collection.commons.CommonsArrayList;
 import com.helger.collection.commons.CommonsHashMap;
+import com.helger.collection.commons.CommonsLinkedHashSet;
 import com.helger.collection.commons.ICommonsList;
 import com.helger.collection.commons.ICommonsMap;
 import com.helger.collection.commons.ICommonsOrderedMap;
+import com.helger.collection.commons.ICommonsOrderedSet;
 import com.helger.diver.api.coord.DVRCoordinate;
 import com.helger.json.IJsonArray;
 import com.helger.json.JsonArray;
 import com.helger.json.JsonObject;
+import com.helger.peppol.validate.config.SharedValidationConfig;
+import com.helger.phive.api.executor.IValidationExecutor;
 import com.helger.phive.api.executorset.IValidationExecutorSet;
 import com.helger.phive.api.executorset.ValidationExecutorSetRegistry;
 import com.helger.phive.peppol.legacy.PeppolLegacyValidationBisAUNZ;
@@ -42,28 +55,86 @@ import com.helger.phive.rules.all.PhiveRulesValidation;
 import com.helger.phive.xml.source.IValidationSourceXML;
 import com.helger.text.compare.ComparatorHelper;
 
+/**
+ * The registry of all validation executor sets. The rule sets are registered upon first access of
+ * the registry and not when this class is loaded. The validation artefacts (XML Schemas and
+ * Schematrons) of a VES are only compiled when it is used for the first time, or if it is part of a
+ * warm-up (see {@link #startWarmUp(Collection)}), which compiles them in parallel.
+ *
+ * @author Philip Helger
+ */
 @Immutable
 public final class VESRegistry
 {
-  public static final ValidationExecutorSetRegistry <IValidationSourceXML> VES_REGISTRY = new ValidationExecutorSetRegistry <> ();
-  static
+  private static final Logger LOGGER = LoggerFactory.getLogger (VESRegistry.class);
+
+  /**
+   * Holder for lazy initialization on first use
+   */
+  private static final class RegistryHolder
   {
-    PhiveRulesValidation.initPhiveRules (VES_REGISTRY);
+    static final ValidationExecutorSetRegistry <IValidationSourceXML> REGISTRY = new ValidationExecutorSetRegistry <> ();
+    static
+    {
+      final StopWatch aSW = StopWatch.createdStarted ();
+      PhiveRulesValidation.initPhiveRules (REGISTRY);
 
-    // Legacy
-    PeppolLegacyValidationBisAUNZ.init (VES_REGISTRY);
-    PeppolLegacyValidationBisEurope.init (VES_REGISTRY);
-    PeppolLegacyValidationSG.init (VES_REGISTRY);
+      // Legacy
+      PeppolLegacyValidationBisAUNZ.init (REGISTRY);
+      PeppolLegacyValidationBisEurope.init (REGISTRY);
+      PeppolLegacyValidationSG.init (REGISTRY);
+      LOGGER.info ("Registered " + REGISTRY.getAll ().size () + " VESs in " + aSW.stopAndGetMillis () + " ms");
+    }
+  }
+
+  /**
+   * Holder for lazy initialization on first use, so that the configuration is not read when this
+   * class is loaded
+   */
+  private static final class PrecompilerHolder
+  {
+    static final VESPrecompiler PRECOMPILER = new VESPrecompiler (SharedValidationConfig.getWarmUpParallelism ());
   }
 
+  /**
+   * Holder for lazy initialization on first use. The previous hot set is read as soon as the
+   * manifest is created, so that it is read before the first usage is recorded.
+   */
+  private static final class HotSetHolder
+  {
+    static final VESHotSetManifest HOT_SET = VESHotSetManifest.createOrNull (SharedValidationConfig.getHotSetFile ());
+    static
+    {
+      if (HOT_SET != null)
+        HOT_SET.loadInBackground (x -> getRegistry ().getOfID (x));
+    }
+  }
+
+  private static final AtomicBoolean INITIALIZED = new AtomicBoolean (false);
+  // Guards the creation of the warm-up thread, so that only one is ever started
+  private static final AtomicBoolean WARMUP_STARTED = new AtomicBoolean (false);
+
   private VESRegistry ()
   {}
 
+  /**
+   * @return The underlying registry. The first call registers all rule sets. Never
+   *         <code>null</code>.
+   */
+  @NonNull
+  public static ValidationExecutorSetRegistry <IValidationSourceXML> getRegistry ()
+  {
+    // Accessing the holder performs the registration
+    final ValidationExecutorSetRegistry <IValidationSourceXML> ret = RegistryHolder.REGISTRY;
+    INITIALIZED.set (true);
+    return ret;
+  }
+
   @NonNull
   @ReturnsMutableCopy
   public static ICommonsOrderedMap <DVRCoordinate, IValidationExecutorSet <IValidationSourceXML>> getAllSortedByDisplayName (@NonNull final Locale aDisplayLocale)
   {
-    final ICommonsMap <DVRCoordinate, IValidationExecutorSet <IValidationSourceXML>> aMap = new CommonsHashMap <> (VES_REGISTRY.getAll (),
+    final ICommonsMap <DVRCoordinate, IValidationExecutorSet <IValidationSourceXML>> aMap = new CommonsHashMap <> (getRegistry ().getAll (),
                                                                                                                    IValidationExecutorSet::getID,
                                                                                                                    x -> x);
     return aMap.getSortedByValue (ComparatorHelper.getComparatorCollating (IHasDisplayName::getDisplayName,
@@ -74,28 +145,196 @@ public final class VESRegistry
   @ReturnsMutableCopy
   public static ICommonsOrderedMap <DVRCoordinate, IValidationExecutorSet <IValidationSourceXML>> getAllSortedByID ()
   {
-    final ICommonsMap <DVRCoordinate, IValidationExecutorSet <IValidationSourceXML>> aMap = new CommonsHashMap <> (VES_REGISTRY.getAll (),
+    final ICommonsMap <DVRCoordinate, IValidationExecutorSet <IValidationSourceXML>> aMap = new CommonsHashMap <> (getRegistry ().getAll (),
                                                                                                                    IValidationExecutorSet::getID,
                                                                                                                    x -> x);
     return aMap.getSortedByKey (Comparator.naturalOrder ());
   }
 
+  /**
+   * Get the VES with the provided ID. If a hot set manifest is configured, the usage is recorded
+   * there.
+   *
+   * @param aID
+   *        The VESID to search. May be <code>null</code>.
+   * @return <code>null</code> if no such VES exists.
+   */
   @Nullable
   public static IValidationExecutorSet <IValidationSourceXML> getFromIDOrNull (@Nullable final DVRCoordinate aID)
   {
-    return VES_REGISTRY.getOfID (aID);
+    final IValidationExecutorSet <IValidationSourceXML> ret = getRegistry ().getOfID (aID);
+    if (ret != null)
+    {
+      final VESHotSetManifest aHotSet = getHotSet ();
+      if (aHotSet != null)
+      {
+        // Cheap - the hashing and writing happens in the background
+        aHotSet.recordUsage (ret);
+      }
+    }
+    return ret;
   }
 
   @NonNull
   @ReturnsMutableCopy
   public static ICommonsList <IValidationExecutorSet <IValidationSourceXML>> getAll ()
   {
-    return VES_REGISTRY.getAll ();
+    return getRegistry ().getAll ();
+  }
+
+  /**
+   * @return <code>true</code> if the rule sets were already registered, <code>false</code> if not.
+   */
+  public static boolean isInitialized ()
+  {
+    return INITIALIZED.get ();
   }
 
   public static void cleanupOnShutdown ()
   {
-    VES_REGISTRY.removeAll ();
+    // Don't register everything just to remove it again
+    if (isInitialized ())
+    {
+      final VESHotSetManifest aHotSet = getHotSet ();
+      if (aHotSet != null)
+        aHotSet.close ();
+      getRegistry ().removeAll ();
+    }
+  }
+
+  /**
+   * Compile all validation artefacts of the provided VES, so that the first validation with it does
+   * not need to do it.
+   *
+   * @param aVESID
+   *        The VESID to warm up. May not be <code>null</code>.
+   * @return <code>true</code> if the VES is known, <code>false</code> if not.
+   */
+  public static boolean warmUp (@NonNull final DVRCoordinate aVESID)
+  {
+    ValueEnforcer.notNull (aVESID, "VESID");
+
+    // Don't record the warm-up as usage
+    final IValidationExecutorSet <IValidationSourceXML> aVES = getRegistry ().getOfID (aVESID);
+    if (aVES == null)
+    {
+      LOGGER.warn ("Cannot warm up unknown VESID '" + aVESID.getAsSingleID () + "'");
+      return false;
+    }
+
+    final StopWatch aSW = StopWatch.createdStarted ();
+    // Each executor is invoked separately, because the set would stop after the first error
+    for (final IValidationExecutor <IValidationSourceXML> aExecutor : aVES.executors ())
+      VESPrecompiler.precompile (aExecutor);
+    LOGGER.info ("Warmed up VESID '" + aVESID.getAsSingleID () + "' in " + aSW.stopAndGetMillis () + " ms");
+    return true;
+  }
+
+  /**
+   * Start a background thread that registers all rule sets and compiles the artefacts of the
+   * provided VESIDs in parallel. Only the first call has an effect.
+   *
+   * @param aVESIDs
+   *        The VESIDs to warm up. May not be <code>null</code> but maybe empty.
+   * @see #getWarmUpStatus()
+   */
+  public static void startWarmUp (@NonNull final Collection <DVRCoordinate> aVESIDs)
+  {
+    ValueEnforcer.notNullNoNullValue (aVESIDs, "VESIDs");
+    _startWarmUp ( () -> _resolveForWarmUp (aVESIDs));
+  }
+
+  @NonNull
+  private static ICommonsList <IValidationExecutorSet <IValidationSourceXML>> _resolveForWarmUp (@NonNull final Collection <DVRCoordinate> aVESIDs)
+  {
+    final ICommonsList <IValidationExecutorSet <IValidationSourceXML>> ret = new CommonsArrayList <> ();
+    for (final DVRCoordinate aVESID : aVESIDs)
+    {
+      // Don't record the warm-up as usage
+      final IValidationExecutorSet <IValidationSourceXML> aVES = getRegistry ().getOfID (aVESID);
+      if (aVES == null)
+        LOGGER.warn ("Cannot warm up unknown VESID '" + aVESID.getAsSingleID () + "'");
+      else
+        ret.add (aVES);
+    }
+    return ret;
+  }
+
+  private static void _startWarmUp (@NonNull final Supplier <ICommonsList <IValidationExecutorSet <IValidationSourceXML>>> aVESSupplier)
+  {
+    if (!WARMUP_STARTED.compareAndSet (false, true))
+      return;
+
+    final VESPrecompiler aPrecompiler = PrecompilerHolder.PRECOMPILER;
+
+    // Registration happens in the background as well
+    final Thread aThread = new Thread ( () -> {
+      try
+      {
+        aPrecompiler.start (aVESSupplier.get ());
+      }
+      catch (final RuntimeException ex)
+      {
+        LOGGER.error ("Error in VES warm-up", ex);
+      }
+    }, "ves-warmup");
+    aThread.setDaemon (true);
+    aThread.start ();
+  }
+
+  /**
+   * Start the background warm-up as configured. If
+   * {@link SharedValidationConfig#isWarmUpAllVESs()} is enabled, all registered VESs are compiled,
+   * otherwise the ones from {@link SharedValidationConfig#getWarmUpVESIDs()} plus the ones that were
+   * used before the last restart, if a hot set manifest is configured (see
+   * {@link SharedValidationConfig#getHotSetFile()}).
+   */
+  public static void startWarmUpFromConfig ()
+  {
+    if (SharedValidationConfig.isWarmUpAllVESs ())
+      _startWarmUp (VESRegistry::getAll);
+    else
+    {
+      final ICommonsList <DVRCoordinate> aConfiguredVESIDs = SharedValidationConfig.getWarmUpVESIDs ();
+      _startWarmUp ( () -> {
+        final ICommonsOrderedSet <DVRCoordinate> aVESIDs = new CommonsLinkedHashSet <> (aConfiguredVESIDs);
+        final VESHotSetManifest aHotSet = getHotSet ();
+        if (aHotSet != null)
+        {
+          // Wait until the previous hot set was read
+          try
+          {
+            if (!aHotSet.flush (Duration.ofMinutes (1)))
+              LOGGER.warn ("Timeout waiting for the VES hot set manifest to be read");
+          }
+          catch (final InterruptedException ex)
+          {
+            Thread.currentThread ().interrupt ();
+          }
+          aVESIDs.addAll (aHotSet.getAllVESIDs ());
+        }
+        return _resolveForWarmUp (aVESIDs);
+      });
+    }
+  }
+
+  /**
+   * @return The hot set manifest as configured, or <code>null</code> if none is configured.
+   */
+  @Nullable
+  public static VESHotSetManifest getHotSet ()
+  {
+    return HotSetHolder.HOT_SET;
+  }
+
+  /**
+   * @return The precompiler used by the warm-up, to query the progress and the readiness. Never
+   *         <code>null</code>.
+   */
+  @NonNull
+  public static VESPrecompiler getWarmUpStatus ()
+  {
+    return PrecompilerHolder.PRECOMPILER;
   }
 
   @NonNull
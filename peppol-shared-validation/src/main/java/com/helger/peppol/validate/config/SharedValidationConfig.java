@@ -17,9 +17,19 @@
 package com.helger.peppol.validate.config;
 
 import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import com.helger.annotation.style.ReturnsMutableCopy;
 import com.helger.annotation.style.UsedViaReflection;
+import com.helger.base.string.StringHelper;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
 import com.helger.config.IConfig;
+import com.helger.diver.api.coord.DVRCoordinate;
+import com.helger.peppol.validate.LargeDocumentValidator;
+import com.helger.peppol.validate.ParallelLayerValidator;
 import com.helger.peppol.ui.types.config.PeppolSharedConfig;
 import com.helger.scope.singleton.AbstractGlobalSingleton;
 
@@ -31,6 +41,8 @@ import com.helger.scope.singleton.AbstractGlobalSingleton;
  */
 public final class SharedValidationConfig extends AbstractGlobalSingleton
 {
+  private static final Logger LOGGER = LoggerFactory.getLogger (SharedValidationConfig.class);
+
   @Deprecated
   @UsedViaReflection
   private SharedValidationConfig ()
@@ -51,4 +63,91 @@ public final class SharedValidationConfig extends AbstractGlobalSingleton
   {
     return _getConfig ().getAsLong ("validation.limit.requests", -1);
   }
+
+  /**
+   * @return The VESIDs to be warmed up in the background after startup, taken from the comma
+   *         separated configuration property <code>validation.warmup.vesids</code>. Invalid VESIDs
+   *         are ignored. Never <code>null</code>.
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  public static ICommonsList <DVRCoordinate> getWarmUpVESIDs ()
+  {
+    final ICommonsList <DVRCoordinate> ret = new CommonsArrayList <> ();
+    final String sVESIDs = _getConfig ().getAsString ("validation.warmup.vesids");
+    if (StringHelper.isNotEmpty (sVESIDs))
+      for (final String sVESID : StringHelper.getExploded (',', sVESIDs))
+        if (StringHelper.isNotEmpty (sVESID.trim ()))
+        {
+          final DVRCoordinate aVESID = DVRCoordinate.parseOrNull (sVESID.trim ());
+          if (aVESID == null)
+            LOGGER.warn ("Ignoring invalid warm-up VESID '" + sVESID.trim () + "'");
+          else
+            ret.add (aVESID);
+        }
+    return ret;
+  }
+
+  /**
+   * @return <code>true</code> if all registered VESs should be warmed up instead of only the
+   *         configured VESIDs. Configuration property <code>validation.warmup.all</code>.
+   */
+  public static boolean isWarmUpAllVESs ()
+  {
+    return _getConfig ().getAsBoolean ("validation.warmup.all", false);
+  }
+
+  /**
+   * @return The number of threads used to compile the validation artefacts in the warm-up.
+   *         Configuration property <code>validation.warmup.parallelism</code>, defaulting to the
+   *         number of available processors.
+   */
+  public static int getWarmUpParallelism ()
+  {
+    final int ret = _getConfig ().getAsInt ("validation.warmup.parallelism", Runtime.getRuntime ().availableProcessors ());
+    return Math.max (ret, 1);
+  }
+
+  /**
+   * @return The path of the file that stores the VESIDs used at runtime, so that they can be warmed
+   *         up after a restart. Configuration property <code>validation.hotset.file</code>. May be
+   *         <code>null</code> to disable it.
+   */
+  @Nullable
+  public static String getHotSetFile ()
+  {
+    return _getConfig ().getAsString ("validation.hotset.file");
+  }
+
+  /**
+   * @return The minimum document size in bytes, for which the large document validation mode is
+   *         used. Configuration property <code>validation.largedoc.threshold.bytes</code>.
+   */
+  public static long getLargeDocumentThresholdBytes ()
+  {
+    return _getConfig ().getAsLong ("validation.largedoc.threshold.bytes",
+                                    LargeDocumentValidator.DEFAULT_THRESHOLD_BYTES);
+  }
+
+  /**
+   * @return The number of threads used to execute validation layers in parallel. Configuration
+   *         property <code>validation.parallel.threads</code>, defaulting to the number of available
+   *         processors.
+   */
+  public static int getParallelLayerThreads ()
+  {
+    final int ret = _getConfig ().getAsInt ("validation.parallel.threads", Runtime.getRuntime ().availableProcessors ());
+    return Math.max (ret, 1);
+  }
+
+  /**
+   * @return The maximum number of document bytes that a single parallel validation may parse at the
+   *         same time. Each parallel layer parses its own copy of the document, so this limits the
+   *         number of layers running in parallel for larger documents. Configuration property
+   *         <code>validation.parallel.maxbytes</code>.
+   */
+  public static long getParallelLayerMaxBytes ()
+  {
+    return _getConfig ().getAsLong ("validation.parallel.maxbytes", ParallelLayerValidator.DEFAULT_MAX_BYTES);
+  }
 }
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.validate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Locale;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import com.helger.diver.api.coord.DVRCoordinate;
+import com.helger.io.resource.FileSystemResource;
+import com.helger.phive.api.executorset.IValidationExecutorSet;
+import com.helger.phive.api.result.ValidationResultList;
+import com.helger.phive.xml.source.IValidationSourceXML;
+
+/**
+ * Test class for class {@link LargeDocumentValidator}.
+ *
+ * @author Philip Helger
+ */
+public final class LargeDocumentValidatorTest
+{
+  @Rule
+  public final TemporaryFolder m_aTempFolder = new TemporaryFolder ();
+
+  @Test
+  public void testReadCompactDocument () throws Exception
+  {
+    final File aFile = m_aTempFolder.newFile ("doc.xml");
+    Files.writeString (aFile.toPath (),
+                       "<root>\n  <!-- comment -->\n  <a> text </a>\n  <b><![CDATA[x]]>y</b>\n</root>",
+                       StandardCharsets.UTF_8);
+
+    final Document aDoc = LargeDocumentValidator.readCompactDocument (new FileSystemResource (aFile));
+    final Element eRoot = aDoc.getDocumentElement ();
+    // Only the two elements are left
+    assertEquals (2, eRoot.getChildNodes ().getLength ());
+    // Text content is kept as is
+    assertEquals (" text ", eRoot.getFirstChild ().getTextContent ());
+    // Coalesced
+    assertEquals (1, eRoot.getLastChild ().getChildNodes ().getLength ());
+    assertEquals ("xy", eRoot.getLastChild ().getTextContent ());
+  }
+
+  @Test
+  public void testValidateLargeXSDError () throws Exception
+  {
+    final IValidationExecutorSet <IValidationSourceXML> aVES = VESRegistry.getRegistry ()
+                                                                          .getOfID (DVRCoordinate.parseOrThrow ("eu.peppol.bis3:invoice:2023.11"));
+    assertNotNull (aVES);
+
+    final File aFile = m_aTempFolder.newFile ("invoice.xml");
+    Files.writeString (aFile.toPath (),
+                       "<Invoice xmlns=\"urn:oasis:names:specification:ubl:schema:xsd:Invoice-2\"><Foo/></Invoice>",
+                       StandardCharsets.UTF_8);
+
+    final FileSystemResource aRes = new FileSystemResource (aFile);
+    assertFalse (LargeDocumentValidator.isLargeDocument (aRes));
+
+    final ValidationResultList aVRL = LargeDocumentValidator.validateLarge (aVES, aRes, Locale.US);
+    assertTrue (aVRL.size () > 1);
+    // XML Schema error
+    assertTrue (aVRL.get (0).getErrorList ().containsAtLeastOneError ());
+    // Schematron is skipped
+    for (int i = 1; i < aVRL.size (); ++i)
+      assertTrue (aVRL.get (i).isIgnored ());
+  }
+
+  @Test
+  public void testMissingFile ()
+  {
+    assertFalse (LargeDocumentValidator.isLargeDocument (new FileSystemResource (new File (m_aTempFolder.getRoot (),
+                                                                                           "missing.xml"))));
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.validate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Locale;
+
+import org.jspecify.annotations.NonNull;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.helger.base.io.stream.StreamHelper;
+import com.helger.diver.api.coord.DVRCoordinate;
+import com.helger.io.resource.ClassPathResource;
+import com.helger.io.resource.FileSystemResource;
+import com.helger.io.resource.IReadableResource;
+import com.helger.phive.api.execute.ValidationExecutionManager;
+import com.helger.phive.api.executorset.IValidationExecutorSet;
+import com.helger.phive.api.result.ValidationResult;
+import com.helger.phive.api.result.ValidationResultList;
+import com.helger.phive.api.validity.IValidityDeterminator;
+import com.helger.phive.xml.source.IValidationSourceXML;
+import com.helger.phive.xml.source.ValidationSourceXML;
+
+/**
+ * Test class for class {@link ParallelLayerValidator}.
+ *
+ * @author Philip Helger
+ */
+public final class ParallelLayerValidatorTest
+{
+  private static final DVRCoordinate VESID = DVRCoordinate.parseOrThrow ("eu.peppol.bis3:invoice:2023.11");
+
+  @Rule
+  public final TemporaryFolder m_aTempFolder = new TemporaryFolder ();
+
+  @NonNull
+  private static ValidationResultList _compareWithSequential (@NonNull final IReadableResource aRes) throws Exception
+  {
+    final IValidationExecutorSet <IValidationSourceXML> aVES = VESRegistry.getRegistry ().getOfID (VESID);
+    assertNotNull (aVES);
+
+    final ValidationResultList aSequential = ValidationExecutionManager.executeValidation (IValidityDeterminator.createDefault (),
+                                                                                           aVES,
+                                                                                           ValidationSourceXML.create (aRes),
+                                                                                           Locale.US);
+    final ValidationResultList aParallel = ParallelLayerValidator.validate (aVES, aRes, Locale.US);
+    assertEquals (aSequential.size (), aParallel.size ());
+    for (int i = 0; i < aSequential.size (); ++i)
+    {
+      // Same layer order
+      assertEquals (aSequential.get (i).getValidationArtefact (), aParallel.get (i).getValidationArtefact ());
+      assertEquals (aSequential.get (i).isIgnored (), aParallel.get (i).isIgnored ());
+      assertEquals (aSequential.get (i).getErrorList ().size (), aParallel.get (i).getErrorList ().size ());
+    }
+    // All layers were executed
+    for (final ValidationResult aResult : aParallel)
+      assertFalse (aResult.isIgnored ());
+    return aParallel;
+  }
+
+  @Test
+  public void testSameAsSequential () throws Exception
+  {
+    // Schema valid, so that all Schematron layers are executed in parallel
+    _compareWithSequential (new ClassPathResource ("test-files/bis3-invoice.xml"));
+  }
+
+  @Test
+  public void testSameAsSequentialWithSchematronErrors () throws Exception
+  {
+    // Schema valid, but the payable amount does not match the totals
+    final String sInvoice = new String (StreamHelper.getAllBytes (new ClassPathResource ("test-files/bis3-invoice.xml")),
+                                        StandardCharsets.UTF_8);
+    final String sOld = "<cbc:PayableAmount currencyID=\"EUR\">12.50</cbc:PayableAmount>";
+    assertTrue (sInvoice.contains (sOld));
+    final File aFile = m_aTempFolder.newFile ("invoice.xml");
+    Files.writeString (aFile.toPath (),
+                       sInvoice.replace (sOld, "<cbc:PayableAmount currencyID=\"EUR\">99.00</cbc:PayableAmount>"),
+                       StandardCharsets.UTF_8);
+
+    final ValidationResultList aResults = _compareWithSequential (new FileSystemResource (aFile));
+    assertTrue (aResults.containsAtLeastOneError ());
+  }
+
+  @Test
+  public void testGetMaxDocumentCopies ()
+  {
+    // Unknown size
+    assertEquals (Integer.MAX_VALUE, ParallelLayerValidator.getMaxDocumentCopies (-1, 1_000));
+    // Empty document
+    assertEquals (Integer.MAX_VALUE, ParallelLayerValidator.getMaxDocumentCopies (0, Long.MAX_VALUE));
+    assertEquals (1_000, ParallelLayerValidator.getMaxDocumentCopies (0, 1_000));
+    assertEquals (4, ParallelLayerValidator.getMaxDocumentCopies (250, 1_000));
+    assertEquals (3, ParallelLayerValidator.getMaxDocumentCopies (300, 1_000));
+    // At least one copy
+    assertEquals (1, ParallelLayerValidator.getMaxDocumentCopies (2_000, 1_000));
+  }
+
+  @Test
+  public void testUnknownVESID () throws Exception
+  {
+    final File aFile = m_aTempFolder.newFile ("doc.xml");
+    assertNull (ParallelLayerValidator.validate (DVRCoordinate.parseOrThrow ("com.example:does-not-exist:1.0"),
+                                                 new FileSystemResource (aFile),
+                                                 Locale.US));
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.validate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.helger.diver.api.coord.DVRCoordinate;
+import com.helger.phive.api.executorset.IValidationExecutorSet;
+import com.helger.phive.xml.source.IValidationSourceXML;
+
+/**
+ * Test class for class {@link VESHotSetManifest}.
+ *
+ * @author Philip Helger
+ */
+public final class VESHotSetManifestTest
+{
+  private static final DVRCoordinate VESID = DVRCoordinate.parseOrThrow ("eu.peppol.bis3:invoice:2023.11");
+
+  @Rule
+  public final TemporaryFolder m_aTempFolder = new TemporaryFolder ();
+
+  @Test
+  public void testRoundTrip () throws Exception
+  {
+    final IValidationExecutorSet <IValidationSourceXML> aVES = VESRegistry.getRegistry ().getOfID (VESID);
+    assertNotNull (aVES);
+    assertEquals (VESHotSetManifest.getArtefactHash (aVES), VESHotSetManifest.getArtefactHash (aVES));
+
+    final Path aFile = new File (m_aTempFolder.getRoot (), "sub/hotset.txt").toPath ();
+    try (final VESHotSetManifest aManifest = new VESHotSetManifest (aFile, "1.0"))
+    {
+      // Not existing
+      assertEquals (0, aManifest.load (VESRegistry.getRegistry ()::getOfID));
+
+      aManifest.recordUsage (aVES);
+      aManifest.recordUsage (aVES);
+      assertTrue (aManifest.flush (Duration.ofMinutes (1)));
+      assertEquals (1, aManifest.size ());
+      assertTrue (aFile.toFile ().isFile ());
+    }
+
+    // Same version
+    VESHotSetManifest aManifest2 = new VESHotSetManifest (aFile, "1.0");
+    assertEquals (1, aManifest2.load (VESRegistry.getRegistry ()::getOfID));
+    assertEquals (VESID, aManifest2.getAllVESIDs ().getFirstOrNull ());
+
+    // Different version
+    aManifest2 = new VESHotSetManifest (aFile, "1.1");
+    assertEquals (0, aManifest2.load (VESRegistry.getRegistry ()::getOfID));
+    assertEquals (0, aManifest2.size ());
+
+    // Unknown VES
+    aManifest2 = new VESHotSetManifest (aFile, "1.0");
+    assertEquals (0, aManifest2.load (x -> null));
+  }
+
+  @Test
+  public void testLoadBeforeRecord () throws Exception
+  {
+    final IValidationExecutorSet <IValidationSourceXML> aVES = VESRegistry.getRegistry ().getOfID (VESID);
+    assertNotNull (aVES);
+    final IValidationExecutorSet <IValidationSourceXML> aOtherVES = VESRegistry.getAll ()
+                                                                               .findFirst (x -> !x.getID ()
+                                                                                                  .equals (VESID));
+    assertNotNull (aOtherVES);
+
+    final Path aFile = new File (m_aTempFolder.getRoot (), "hotset.txt").toPath ();
+    try (final VESHotSetManifest aManifest = new VESHotSetManifest (aFile, "1.0"))
+    {
+      aManifest.recordUsage (aVES);
+    }
+
+    // After a restart, a usage recorded directly after the start must not lose the previous entry
+    try (final VESHotSetManifest aManifest = new VESHotSetManifest (aFile, "1.0"))
+    {
+      aManifest.loadInBackground (VESRegistry.getRegistry ()::getOfID);
+      aManifest.recordUsage (aOtherVES);
+      assertTrue (aManifest.flush (Duration.ofMinutes (1)));
+      assertEquals (2, aManifest.size ());
+    }
+
+    try (final VESHotSetManifest aManifest = new VESHotSetManifest (aFile, "1.0"))
+    {
+      assertEquals (2, aManifest.load (VESRegistry.getRegistry ()::getOfID));
+    }
+  }
+
+  @Test
+  public void testCreateOrNull ()
+  {
+    assertNull (VESHotSetManifest.createOrNull (null));
+    assertNull (VESHotSetManifest.createOrNull (""));
+    try (final VESHotSetManifest aManifest = VESHotSetManifest.createOrNull ("hotset.txt"))
+    {
+      assertNotNull (aManifest);
+    }
+    assertTrue (VESHotSetManifest.getDefaultRulesVersion ().length () > 0);
+  }
+}
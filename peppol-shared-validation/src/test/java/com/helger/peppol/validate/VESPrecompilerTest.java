@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.validate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+
+import org.junit.Test;
+
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.diver.api.coord.DVRCoordinate;
+import com.helger.phive.api.executorset.IValidationExecutorSet;
+import com.helger.phive.xml.source.IValidationSourceXML;
+
+/**
+ * Test class for class {@link VESPrecompiler}.
+ *
+ * @author Philip Helger
+ */
+public final class VESPrecompilerTest
+{
+  @Test
+  public void testEmpty () throws Exception
+  {
+    final VESPrecompiler aPC = new VESPrecompiler (2);
+    assertFalse (aPC.isStarted ());
+    assertFalse (aPC.isReady ());
+    assertTrue (aPC.start (new CommonsArrayList <> ()));
+    assertTrue (aPC.isReady ());
+    assertTrue (aPC.awaitReady (Duration.ZERO));
+    assertEquals (0, aPC.getTotalCount ());
+    // Only once
+    assertFalse (aPC.start (new CommonsArrayList <> ()));
+  }
+
+  @Test
+  public void testCompile () throws Exception
+  {
+    final IValidationExecutorSet <IValidationSourceXML> aVES = VESRegistry.getFromIDOrNull (DVRCoordinate.parseOrThrow ("eu.peppol.bis3:invoice:2023.11"));
+    assertNotNull (aVES);
+
+    final VESPrecompiler aPC = new VESPrecompiler (2);
+    // The same VES twice - the artefacts are only compiled once
+    assertTrue (aPC.start (new CommonsArrayList <> (aVES, aVES)));
+    assertTrue (aPC.awaitReady (Duration.ofMinutes (5)));
+    assertTrue (aPC.isReady ());
+    assertTrue (aPC.getTotalCount () > 0);
+    assertEquals (aPC.getTotalCount (), aPC.getCompletedCount ());
+    assertEquals (0, aPC.getFailedCount ());
+    assertTrue (aPC.getStatusAsJson ().getAsBoolean ("ready"));
+  }
+}
@@ -16,11 +16,14 @@
  */
 package com.helger.peppol.validate;
 
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 
+import com.helger.diver.api.coord.DVRCoordinate;
+
 /**
  * Test class for class {@link VESRegistry}.
  *
@@ -33,5 +36,13 @@ public final class VESRegistryTest
   {
     assertNotNull (VESRegistry.getAll ());
     assertTrue (VESRegistry.getAllSortedByID ().isNotEmpty ());
+    assertTrue (VESRegistry.isInitialized ());
+  }
+
+  @Test
+  public void testWarmUp ()
+  {
+    assertFalse (VESRegistry.warmUp (DVRCoordinate.parseOrThrow ("com.example:does-not-exist:1.0")));
+    assertTrue (VESRegistry.warmUp (DVRCoordinate.parseOrThrow ("eu.peppol.bis3:invoice:2023.11")));
   }
 }
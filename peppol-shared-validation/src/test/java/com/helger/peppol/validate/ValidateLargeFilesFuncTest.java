@@ -41,7 +41,7 @@ public final class ValidateLargeFilesFuncTest
   private static final Logger LOGGER = LoggerFactory.getLogger (ValidateLargeFilesFuncTest.class);
 
   @Test
-  @Ignore ("Takes ~15 + 14 minutes")
+  @Ignore ("Takes ~15 + 14 minutes and needs an external file - see LargeInvoiceValidationBenchmark")
   public void testIssue () throws Exception
   {
     final IReadableResource aRes = new ClassPathResource ("external/validation/Large_Invoice_sample1.xml");
@@ -66,6 +66,13 @@ public final class ValidateLargeFilesFuncTest
     aSW.stop ();
     LOGGER.info ("End validating 2after " + aSW.getDuration ());
 
+    // Validation #3 in the large document mode
+    aSW.restart ();
+    LOGGER.info ("Start validating3 in large document mode");
+    aVRL = LargeDocumentValidator.validateLarge (aVES, aRes, Locale.US);
+    aSW.stop ();
+    LOGGER.info ("End validating 3 after " + aSW.getDuration ());
+
     assertNotNull (aVRL);
   }
 }
@@ -0,0 +1,245 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.ui.types.cache;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.Nonempty;
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.GuardedBy;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.concurrent.SimpleReadWriteLock;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.tostring.ToStringGenerator;
+
+/**
+ * A simple, size bounded cache where each entry has its own time to live. If the maximum number of
+ * entries is reached, the least recently used entry is evicted. Expired entries are removed upon
+ * access.
+ *
+ * @author Philip Helger
+ * @param <K>
+ *        Key type
+ * @param <V>
+ *        Value type
+ */
+@ThreadSafe
+public class ExpiringCache <K, V>
+{
+  private static final class CacheEntry <V>
+  {
+    private final V m_aValue;
+    private final long m_nExpirationNanos;
+
+    CacheEntry (@NonNull final V aValue, final long nExpirationNanos)
+    {
+      m_aValue = aValue;
+      m_nExpirationNanos = nExpirationNanos;
+    }
+
+    boolean isExpired (final long nNowNanos)
+    {
+      return nNowNanos - m_nExpirationNanos >= 0;
+    }
+  }
+
+  private final String m_sName;
+  private final int m_nMaxEntries;
+  private final SimpleReadWriteLock m_aRWLock = new SimpleReadWriteLock ();
+  @GuardedBy ("m_aRWLock")
+  private final LinkedHashMap <K, CacheEntry <V>> m_aMap;
+
+  private final LongAdder m_aHits = new LongAdder ();
+  private final LongAdder m_aMisses = new LongAdder ();
+  private final LongAdder m_aEvictions = new LongAdder ();
+  private final LongAdder m_aExpirations = new LongAdder ();
+
+  /**
+   * Constructor
+   *
+   * @param sName
+   *        The name of the cache for logging and statistics. May neither be <code>null</code> nor
+   *        empty.
+   * @param nMaxEntries
+   *        The maximum number of entries. Must be &gt; 0.
+   */
+  public ExpiringCache (@NonNull @Nonempty final String sName, @Nonnegative final int nMaxEntries)
+  {
+    ValueEnforcer.notEmpty (sName, "Name");
+    ValueEnforcer.isGT0 (nMaxEntries, "MaxEntries");
+    m_sName = sName;
+    m_nMaxEntries = nMaxEntries;
+    // Access order for LRU behaviour
+    m_aMap = new LinkedHashMap <> (16, 0.75f, true)
+    {
+      @Override
+      protected boolean removeEldestEntry (final Map.Entry <K, CacheEntry <V>> aEldest)
+      {
+        if (size () > m_nMaxEntries)
+        {
+          m_aEvictions.increment ();
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * @return The name of the cache as provided in the constructor.
+   */
+  @NonNull
+  @Nonempty
+  public final String getName ()
+  {
+    return m_sName;
+  }
+
+  /**
+   * @return The maximum number of entries as provided in the constructor.
+   */
+  @Nonnegative
+  public final int getMaxEntries ()
+  {
+    return m_nMaxEntries;
+  }
+
+  /**
+   * Get the cached value for the provided key.
+   *
+   * @param aKey
+   *        The key to search. May not be <code>null</code>.
+   * @return <code>null</code> if no such entry is present or if the entry is expired.
+   */
+  @Nullable
+  public V get (@NonNull final K aKey)
+  {
+    // Write lock, because LinkedHashMap.get changes the access order
+    final V ret = m_aRWLock.writeLockedGet ( () -> {
+      final CacheEntry <V> aEntry = m_aMap.get (aKey);
+      if (aEntry == null)
+        return null;
+      if (aEntry.isExpired (System.nanoTime ()))
+      {
+        m_aMap.remove (aKey);
+        m_aExpirations.increment ();
+        return null;
+      }
+      return aEntry.m_aValue;
+    });
+    if (ret == null)
+      m_aMisses.increment ();
+    else
+      m_aHits.increment ();
+    return ret;
+  }
+
+  /**
+   * Put a value into the cache.
+   *
+   * @param aKey
+   *        The key to use. May not be <code>null</code>.
+   * @param aValue
+   *        The value to cache. May not be <code>null</code>.
+   * @param aTTL
+   *        The time to live of the entry. May not be <code>null</code>. If it is zero or negative,
+   *        nothing is cached.
+   */
+  public void put (@NonNull final K aKey, @NonNull final V aValue, @NonNull final Duration aTTL)
+  {
+    ValueEnforcer.notNull (aKey, "Key");
+    ValueEnforcer.notNull (aValue, "Value");
+    ValueEnforcer.notNull (aTTL, "TTL");
+
+    if (aTTL.isZero () || aTTL.isNegative ())
+      return;
+
+    final CacheEntry <V> aEntry = new CacheEntry <> (aValue, System.nanoTime () + aTTL.toNanos ());
+    m_aRWLock.writeLocked ( () -> m_aMap.put (aKey, aEntry));
+  }
+
+  /**
+   * Remove the entry with the provided key.
+   *
+   * @param aKey
+   *        The key to remove. May not be <code>null</code>.
+   */
+  public void remove (@NonNull final K aKey)
+  {
+    m_aRWLock.writeLocked ( () -> m_aMap.remove (aKey));
+  }
+
+  /**
+   * Remove all entries. The statistics are not reset.
+   */
+  public void clear ()
+  {
+    m_aRWLock.writeLocked (m_aMap::clear);
+  }
+
+  /**
+   * @return The number of contained entries, including expired ones that were not yet removed.
+   */
+  @Nonnegative
+  public int size ()
+  {
+    return m_aRWLock.readLockedGet (m_aMap::size).intValue ();
+  }
+
+  @Nonnegative
+  public final long getHitCount ()
+  {
+    return m_aHits.sum ();
+  }
+
+  @Nonnegative
+  public final long getMissCount ()
+  {
+    return m_aMisses.sum ();
+  }
+
+  @Nonnegative
+  public final long getEvictionCount ()
+  {
+    return m_aEvictions.sum ();
+  }
+
+  @Nonnegative
+  public final long getExpirationCount ()
+  {
+    return m_aExpirations.sum ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Name", m_sName)
+                                       .append ("MaxEntries", m_nMaxEntries)
+                                       .append ("Size", size ())
+                                       .append ("Hits", getHitCount ())
+                                       .append ("Misses", getMissCount ())
+                                       .append ("Evictions", getEvictionCount ())
+                                       .append ("Expirations", getExpirationCount ())
+                                       .getToString ();
+  }
+}
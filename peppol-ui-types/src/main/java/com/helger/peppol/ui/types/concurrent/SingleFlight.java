@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.ui.types.concurrent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.Nonempty;
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.tostring.ToStringGenerator;
+
+/**
+ * Coalesces identical concurrent calls: if a call for a key is already running, further callers
+ * with the same key don't start their own call but wait for the running one and share its result
+ * or its exception. As soon as the call finished, the next call for the same key starts a new
+ * execution - nothing is cached.<br>
+ * Results are shared between threads, so they should either be immutable or be copied by the
+ * caller before modification.
+ *
+ * @author Philip Helger
+ * @param <K>
+ *        Key type
+ * @param <V>
+ *        Value type
+ */
+@ThreadSafe
+public class SingleFlight <K, V>
+{
+  private final String m_sName;
+  private final ConcurrentHashMap <K, CompletableFuture <V>> m_aCalls = new ConcurrentHashMap <> ();
+  private final LongAdder m_aExecutions = new LongAdder ();
+  private final LongAdder m_aCoalesced = new LongAdder ();
+
+  /**
+   * Constructor
+   *
+   * @param sName
+   *        The name for logging and statistics. May neither be <code>null</code> nor empty.
+   */
+  public SingleFlight (@NonNull @Nonempty final String sName)
+  {
+    ValueEnforcer.notEmpty (sName, "Name");
+    m_sName = sName;
+  }
+
+  /**
+   * @return The name as provided in the constructor.
+   */
+  @NonNull
+  @Nonempty
+  public final String getName ()
+  {
+    return m_sName;
+  }
+
+  @Nullable
+  private static <V> V _await (@NonNull final CompletableFuture <V> aFuture)
+  {
+    try
+    {
+      return aFuture.join ();
+    }
+    catch (final CompletionException ex)
+    {
+      final Throwable aCause = ex.getCause ();
+      if (aCause instanceof final RuntimeException aRTEx)
+        throw aRTEx;
+      if (aCause instanceof final Error aError)
+        throw aError;
+      throw ex;
+    }
+  }
+
+  /**
+   * Execute the provided supplier, unless a call with the same key is already running. In that
+   * case the result of the running call is returned.
+   *
+   * @param aKey
+   *        The key to coalesce on. May not be <code>null</code>.
+   * @param aSupplier
+   *        The supplier that performs the real call. May not be <code>null</code>.
+   * @return The result of the supplier. May be <code>null</code>.
+   */
+  @Nullable
+  public V execute (@NonNull final K aKey, @NonNull final Supplier <? extends V> aSupplier)
+  {
+    ValueEnforcer.notNull (aKey, "Key");
+    ValueEnforcer.notNull (aSupplier, "Supplier");
+
+    final CompletableFuture <V> aOwnCall = new CompletableFuture <> ();
+    final CompletableFuture <V> aRunningCall = m_aCalls.putIfAbsent (aKey, aOwnCall);
+    if (aRunningCall != null)
+    {
+      // Somebody else is already on it
+      m_aCoalesced.increment ();
+      return _await (aRunningCall);
+    }
+
+    m_aExecutions.increment ();
+    try
+    {
+      final V ret = aSupplier.get ();
+      aOwnCall.complete (ret);
+      return ret;
+    }
+    catch (final RuntimeException | Error ex)
+    {
+      aOwnCall.completeExceptionally (ex);
+      throw ex;
+    }
+    finally
+    {
+      m_aCalls.remove (aKey, aOwnCall);
+    }
+  }
+
+  /**
+   * @return The number of calls that are currently running.
+   */
+  @Nonnegative
+  public int getRunningCount ()
+  {
+    return m_aCalls.size ();
+  }
+
+  /**
+   * @return The number of calls that were really executed.
+   */
+  @Nonnegative
+  public final long getExecutionCount ()
+  {
+    return m_aExecutions.sum ();
+  }
+
+  /**
+   * @return The number of calls that shared the result of another running call.
+   */
+  @Nonnegative
+  public final long getCoalescedCount ()
+  {
+    return m_aCoalesced.sum ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Name", m_sName)
+                                       .append ("Running", getRunningCount ())
+                                       .append ("Executions", getExecutionCount ())
+                                       .append ("Coalesced", getCoalescedCount ())
+                                       .getToString ();
+  }
+}
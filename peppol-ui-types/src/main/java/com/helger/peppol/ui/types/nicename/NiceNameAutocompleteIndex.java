@@ -0,0 +1,396 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.ui.types.nicename;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.annotation.style.ReturnsMutableCopy;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.string.StringHelper;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.peppolid.peppol.EPeppolCodeListItemState;
+
+/**
+ * An immutable, case insensitive prefix index over the document type and process nice names for
+ * autocompletion. Indexed are the complete identifiers, the identifier values without the scheme,
+ * the customization IDs of document types, the names and each word of the names. The terms are
+ * contained in one sorted array per kind (identifier, identifier value, name). As the kind is the
+ * most important ranking criterion, the kinds are queried in ranking order, and a query can stop as
+ * soon as enough results were found, without missing better ranked matches.
+ *
+ * @author Philip Helger
+ */
+@Immutable
+public final class NiceNameAutocompleteIndex
+{
+  /** The minimum query length. Shorter queries don't return anything. */
+  public static final int MIN_QUERY_LENGTH = 2;
+
+  private static final String SCHEME_SEPARATOR = "::";
+  private static final String CUSTOMIZATION_SEPARATOR = "##";
+
+  // Term kinds - lower is better
+  private static final byte KIND_ID = 0;
+  private static final byte KIND_VALUE = 1;
+  private static final byte KIND_NAME = 2;
+  private static final int KIND_COUNT = 3;
+
+  /**
+   * A single autocomplete result.
+   *
+   * @author Philip Helger
+   */
+  @Immutable
+  public static final class Match
+  {
+    private final String m_sID;
+    private final NiceNameEntry m_aEntry;
+    private final boolean m_bDocumentType;
+
+    Match (@NonNull final String sID, @NonNull final NiceNameEntry aEntry, final boolean bDocumentType)
+    {
+      m_sID = sID;
+      m_aEntry = aEntry;
+      m_bDocumentType = bDocumentType;
+    }
+
+    /**
+     * @return The URI encoded identifier. Never <code>null</code>.
+     */
+    @NonNull
+    public String getID ()
+    {
+      return m_sID;
+    }
+
+    @NonNull
+    public NiceNameEntry getEntry ()
+    {
+      return m_aEntry;
+    }
+
+    /**
+     * @return <code>true</code> for a document type, <code>false</code> for a process.
+     */
+    public boolean isDocumentType ()
+    {
+      return m_bDocumentType;
+    }
+
+    @Override
+    public String toString ()
+    {
+      return new ToStringGenerator (this).append ("ID", m_sID)
+                                         .append ("Entry", m_aEntry)
+                                         .append ("DocumentType", m_bDocumentType)
+                                         .getToString ();
+    }
+  }
+
+  private static final class Term implements Comparable <Term>
+  {
+    private final String m_sTerm;
+    private final int m_nItem;
+    private final byte m_nKind;
+
+    Term (final String sTerm, final int nItem, final byte nKind)
+    {
+      m_sTerm = sTerm;
+      m_nItem = nItem;
+      m_nKind = nKind;
+    }
+
+    @Override
+    public int compareTo (final Term o)
+    {
+      return m_sTerm.compareTo (o.m_sTerm);
+    }
+  }
+
+  // The source maps are used to resolve the entries of the results only, so that the entries of a
+  // binary index are not kept on the heap
+  private final Map <String, NiceNameEntry> m_aDocTypeIDs;
+  private final Map <String, NiceNameEntry> m_aProcessIDs;
+  private final int m_nDocTypeCount;
+  private final String [] m_aItemIDs;
+  private final boolean [] m_aItemActive;
+  // Per kind: the sorted terms and the item of each term
+  private final String [] [] m_aTerms = new String [KIND_COUNT] [];
+  private final int [] [] m_aTermItems = new int [KIND_COUNT] [];
+
+  /**
+   * Constructor
+   *
+   * @param aDocTypeIDs
+   *        The document type nice names. The entries of the results are resolved from this map, so
+   *        it must not be modified afterwards. May not be <code>null</code>.
+   * @param aProcessIDs
+   *        The process nice names. The entries of the results are resolved from this map, so it
+   *        must not be modified afterwards. May not be <code>null</code>.
+   */
+  public NiceNameAutocompleteIndex (@NonNull final Map <String, NiceNameEntry> aDocTypeIDs,
+                                    @NonNull final Map <String, NiceNameEntry> aProcessIDs)
+  {
+    ValueEnforcer.notNull (aDocTypeIDs, "DocTypeIDs");
+    ValueEnforcer.notNull (aProcessIDs, "ProcessIDs");
+
+    m_aDocTypeIDs = aDocTypeIDs;
+    m_aProcessIDs = aProcessIDs;
+    m_nDocTypeCount = aDocTypeIDs.size ();
+    final int nItems = m_nDocTypeCount + aProcessIDs.size ();
+    m_aItemIDs = new String [nItems];
+    m_aItemActive = new boolean [nItems];
+    final ICommonsList <Term> aTerms = new CommonsArrayList <> (nItems * 8);
+    int nItem = 0;
+    for (final Map.Entry <String, NiceNameEntry> aEntry : aDocTypeIDs.entrySet ())
+      _addItem (aEntry.getKey (), aEntry.getValue (), nItem++, aTerms);
+    for (final Map.Entry <String, NiceNameEntry> aEntry : aProcessIDs.entrySet ())
+      _addItem (aEntry.getKey (), aEntry.getValue (), nItem++, aTerms);
+
+    // The sort is stable, so the terms per kind are sorted as well
+    aTerms.sort (null);
+    final int [] aCounts = new int [KIND_COUNT];
+    for (final Term aTerm : aTerms)
+      aCounts[aTerm.m_nKind]++;
+    for (int nKind = 0; nKind < KIND_COUNT; ++nKind)
+    {
+      m_aTerms[nKind] = new String [aCounts[nKind]];
+      m_aTermItems[nKind] = new int [aCounts[nKind]];
+      aCounts[nKind] = 0;
+    }
+    for (final Term aTerm : aTerms)
+    {
+      final int nIndex = aCounts[aTerm.m_nKind]++;
+      m_aTerms[aTerm.m_nKind][nIndex] = aTerm.m_sTerm;
+      m_aTermItems[aTerm.m_nKind][nIndex] = aTerm.m_nItem;
+    }
+  }
+
+  @NonNull
+  private static String _normalize (@NonNull final String s)
+  {
+    return s.trim ().toLowerCase (Locale.ROOT);
+  }
+
+  private static void _addTerm (@NonNull final ICommonsList <Term> aTerms,
+                                @NonNull final String sTerm,
+                                final int nItem,
+                                final byte nKind)
+  {
+    if (sTerm.length () >= MIN_QUERY_LENGTH)
+      aTerms.add (new Term (sTerm, nItem, nKind));
+  }
+
+  private void _addItem (@NonNull final String sItemID,
+                         @NonNull final NiceNameEntry aEntry,
+                         final int nItem,
+                         @NonNull final ICommonsList <Term> aTerms)
+  {
+    m_aItemIDs[nItem] = sItemID;
+    m_aItemActive[nItem] = aEntry.getState () == EPeppolCodeListItemState.ACTIVE;
+
+    final String sID = _normalize (sItemID);
+    _addTerm (aTerms, sID, nItem, KIND_ID);
+
+    // Without the scheme, as often pasted from specifications
+    final int nSchemeSep = sID.indexOf (SCHEME_SEPARATOR);
+    if (nSchemeSep >= 0)
+      _addTerm (aTerms, sID.substring (nSchemeSep + SCHEME_SEPARATOR.length ()), nItem, KIND_VALUE);
+
+    // The customization ID of document types
+    final int nCustomizationSep = sID.indexOf (CUSTOMIZATION_SEPARATOR);
+    if (nCustomizationSep >= 0)
+      _addTerm (aTerms, sID.substring (nCustomizationSep + CUSTOMIZATION_SEPARATOR.length ()), nItem, KIND_VALUE);
+
+    // The name and each word of the name
+    final String sName = _normalize (aEntry.getName ());
+    _addTerm (aTerms, sName, nItem, KIND_NAME);
+    int nWordStart = -1;
+    for (int i = 0; i <= sName.length (); ++i)
+    {
+      final boolean bWordChar = i < sName.length () && Character.isLetterOrDigit (sName.charAt (i));
+      if (bWordChar)
+      {
+        if (nWordStart < 0)
+          nWordStart = i;
+      }
+      else
+        if (nWordStart >= 0)
+        {
+          // Skip the first word, as it is covered by the full name
+          if (nWordStart > 0)
+            _addTerm (aTerms, sName.substring (nWordStart, i), nItem, KIND_NAME);
+          nWordStart = -1;
+        }
+    }
+  }
+
+  @NonNull
+  private Match _createMatch (final int nItem)
+  {
+    final String sID = m_aItemIDs[nItem];
+    final boolean bDocumentType = _isDocumentType (nItem);
+    final NiceNameEntry aEntry = (bDocumentType ? m_aDocTypeIDs : m_aProcessIDs).get (sID);
+    return new Match (sID, aEntry, bDocumentType);
+  }
+
+  private static int _getLowerBound (@NonNull final String [] aTerms, @NonNull final String sQuery)
+  {
+    final int nIndex = Arrays.binarySearch (aTerms, sQuery);
+    if (nIndex >= 0)
+    {
+      // Find the first of equal terms
+      int ret = nIndex;
+      while (ret > 0 && aTerms[ret - 1].equals (sQuery))
+        ret--;
+      return ret;
+    }
+    return -nIndex - 1;
+  }
+
+  /**
+   * Add the items of all terms in the provided range to the result. All items of the range have the
+   * same kind and exactness, so they are ordered by active state, the length of the ID and the ID.
+   */
+  private void _addRange (@NonNull final int [] aTermItems,
+                          final int nStart,
+                          final int nEnd,
+                          final boolean bDocumentTypes,
+                          final boolean bProcesses,
+                          @NonNull final boolean [] aSeen,
+                          @NonNull final ICommonsList <Match> aResult,
+                          final int nMaxResults)
+  {
+    final ICommonsList <Integer> aItems = new CommonsArrayList <> ();
+    for (int i = nStart; i < nEnd; ++i)
+    {
+      final int nItem = aTermItems[i];
+      // An item that was already seen has a better rank
+      if (!aSeen[nItem] && (_isDocumentType (nItem) ? bDocumentTypes : bProcesses))
+      {
+        aSeen[nItem] = true;
+        aItems.add (Integer.valueOf (nItem));
+      }
+    }
+
+    aItems.sort ( (x, y) -> {
+      final int nItem1 = x.intValue ();
+      final int nItem2 = y.intValue ();
+      // Active entries first
+      int nCmp = Boolean.compare (!m_aItemActive[nItem1], !m_aItemActive[nItem2]);
+      if (nCmp == 0)
+      {
+        // Shorter IDs first, then alphabetically to be deterministic
+        final String sID1 = m_aItemIDs[nItem1];
+        final String sID2 = m_aItemIDs[nItem2];
+        nCmp = Integer.compare (sID1.length (), sID2.length ());
+        if (nCmp == 0)
+          nCmp = sID1.compareTo (sID2);
+      }
+      return nCmp;
+    });
+    for (final Integer aItem : aItems)
+    {
+      if (aResult.size () >= nMaxResults)
+        break;
+      aResult.add (_createMatch (aItem.intValue ()));
+    }
+  }
+
+  /**
+   * Find the best matches of the provided query. Matches of the complete identifier rank before
+   * matches of the identifier value, which rank before matches of the name. Within each kind,
+   * exact matches rank before prefix matches and active entries before other entries.
+   *
+   * @param sQuery
+   *        The text entered by the user. May be <code>null</code>.
+   * @param bDocumentTypes
+   *        <code>true</code> to include document types.
+   * @param bProcesses
+   *        <code>true</code> to include processes.
+   * @param nMaxResults
+   *        The maximum number of results. Must be &gt; 0.
+   * @return The best matches first. Never <code>null</code> but maybe empty.
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  public ICommonsList <Match> find (@Nullable final String sQuery,
+                                    final boolean bDocumentTypes,
+                                    final boolean bProcesses,
+                                    @Nonnegative final int nMaxResults)
+  {
+    ValueEnforcer.isGT0 (nMaxResults, "MaxResults");
+
+    final ICommonsList <Match> ret = new CommonsArrayList <> ();
+    if (StringHelper.isEmpty (sQuery))
+      return ret;
+    final String sNormalized = _normalize (sQuery);
+    if (sNormalized.length () < MIN_QUERY_LENGTH)
+      return ret;
+
+    final boolean [] aSeen = new boolean [m_aItemIDs.length];
+    for (int nKind = 0; nKind < KIND_COUNT && ret.size () < nMaxResults; ++nKind)
+    {
+      final String [] aTerms = m_aTerms[nKind];
+      final int nStart = _getLowerBound (aTerms, sNormalized);
+
+      // Exact matches are at the start of the range
+      int nExactEnd = nStart;
+      while (nExactEnd < aTerms.length && aTerms[nExactEnd].equals (sNormalized))
+        nExactEnd++;
+      _addRange (m_aTermItems[nKind], nStart, nExactEnd, bDocumentTypes, bProcesses, aSeen, ret, nMaxResults);
+
+      if (ret.size () < nMaxResults)
+      {
+        int nPrefixEnd = nExactEnd;
+        while (nPrefixEnd < aTerms.length && aTerms[nPrefixEnd].startsWith (sNormalized))
+          nPrefixEnd++;
+        _addRange (m_aTermItems[nKind], nExactEnd, nPrefixEnd, bDocumentTypes, bProcesses, aSeen, ret, nMaxResults);
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * @return The number of indexed terms.
+   */
+  @Nonnegative
+  public int getTermCount ()
+  {
+    int ret = 0;
+    for (final String [] aTerms : m_aTerms)
+      ret += aTerms.length;
+    return ret;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Items", m_aItemIDs.length)
+                                       .append ("Terms", getTermCount ())
+                                       .getToString ();
+  }
+}
@@ -0,0 +1,508 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.ui.types.nicename;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.io.stream.StreamHelper;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.peppolid.IProcessIdentifier;
+import com.helger.peppolid.peppol.EPeppolCodeListItemState;
+import com.helger.peppolid.simple.process.SimpleProcessIdentifier;
+
+/**
+ * A read-only, compact binary index of document type and process nice names, as created by
+ * {@link NiceNameBinaryIndexWriter} at build time. The data stays in a memory mapped file (or in a
+ * direct buffer, if the index is contained in a JAR file), so the Java heap does not grow with the
+ * size of the code lists. Lookups are binary searches over a sorted offset table, and only the
+ * requested entry is decoded. Only a bounded number of recently looked up entries is cached, and
+ * iterating a section decodes the entries without caching them, so the heap usage does not depend
+ * on the size of the code lists.<br>
+ * The layout (all numbers are big endian 32 bit integers):
+ * <ol>
+ * <li>Magic number and format version</li>
+ * <li>String pool: number of strings, offset table (number of strings + 1 entries) and the UTF-8
+ * bytes of all distinct strings</li>
+ * <li>Process ID table: count and per process ID the string index of scheme and value</li>
+ * <li>Document type section and process section: count, the records in the source order (ID,
+ * name, state, special label or -1, index of the first process ID, number of process IDs or -1) and
+ * the record numbers sorted by the UTF-8 bytes of the ID</li>
+ * </ol>
+ *
+ * @author Philip Helger
+ */
+@Immutable
+public final class NiceNameBinaryIndex
+{
+  /** The classpath location of the index created at build time */
+  public static final String DEFAULT_CLASSPATH_LOCATION = "nicename/nicename-index.bin";
+
+  static final int MAGIC = 0x504e4e49;
+  static final int VERSION = 1;
+  static final int RECORD_INTS = 6;
+  /** The maximum number of decoded entries cached per section */
+  static final int MAX_CACHED_ENTRIES = 512;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger (NiceNameBinaryIndex.class);
+
+  /**
+   * A decoded entry together with its record number.
+   */
+  private static final class CachedEntry
+  {
+    private final int m_nRecord;
+    private final NiceNameEntry m_aEntry;
+
+    CachedEntry (final int nRecord, @NonNull final NiceNameEntry aEntry)
+    {
+      m_nRecord = nRecord;
+      m_aEntry = aEntry;
+    }
+  }
+
+  /**
+   * A read-only map view on one section of the index. An entry is decoded from the buffer on
+   * access. Entries accessed via {@link #get(Object)} are kept in a small cache with one slot per
+   * record number modulo the cache size.
+   *
+   * @author Philip Helger
+   */
+  public final class Section extends AbstractMap <String, NiceNameEntry>
+  {
+    private final int m_nCount;
+    private final int m_nRecordsPos;
+    private final int m_nSortedPos;
+    // CachedEntry is immutable, so concurrent access at worst decodes an entry twice
+    private final CachedEntry [] m_aCache;
+
+    Section (final int nPos)
+    {
+      m_nCount = m_aBuffer.getInt (nPos);
+      m_nRecordsPos = nPos + 4;
+      m_nSortedPos = m_nRecordsPos + m_nCount * RECORD_INTS * 4;
+      m_aCache = new CachedEntry [Math.max (1, Math.min (m_nCount, MAX_CACHED_ENTRIES))];
+    }
+
+    /**
+     * @return The first byte position after this section.
+     */
+    int getEndPos ()
+    {
+      return m_nSortedPos + m_nCount * 4;
+    }
+
+    private int _getRecordInt (final int nRecord, final int nField)
+    {
+      return m_aBuffer.getInt (m_nRecordsPos + (nRecord * RECORD_INTS + nField) * 4);
+    }
+
+    @NonNull
+    String getID (final int nRecord)
+    {
+      return _getString (_getRecordInt (nRecord, 0));
+    }
+
+    @NonNull
+    private NiceNameEntry _getCachedEntry (final int nRecord)
+    {
+      final int nSlot = nRecord % m_aCache.length;
+      final CachedEntry aCached = m_aCache[nSlot];
+      if (aCached != null && aCached.m_nRecord == nRecord)
+        return aCached.m_aEntry;
+
+      final NiceNameEntry ret = _decodeEntry (nRecord);
+      m_aCache[nSlot] = new CachedEntry (nRecord, ret);
+      return ret;
+    }
+
+    @NonNull
+    private NiceNameEntry _decodeEntry (final int nRecord)
+    {
+      final String sName = _getString (_getRecordInt (nRecord, 1));
+      final EPeppolCodeListItemState eState = EPeppolCodeListItemState.getFromIDOrNull (_getString (_getRecordInt (nRecord,
+                                                                                                                   2)));
+      final int nLabel = _getRecordInt (nRecord, 3);
+      final int nProcIDCount = _getRecordInt (nRecord, 5);
+      ICommonsList <IProcessIdentifier> aProcIDs = null;
+      if (nProcIDCount >= 0)
+      {
+        final int nFirstProcID = _getRecordInt (nRecord, 4);
+        aProcIDs = new CommonsArrayList <> (nProcIDCount);
+        for (int i = 0; i < nProcIDCount; ++i)
+        {
+          final int nProcIDPos = m_nProcIDsPos + (nFirstProcID + i) * 8;
+          aProcIDs.add (new SimpleProcessIdentifier (_getString (m_aBuffer.getInt (nProcIDPos)),
+                                                     _getString (m_aBuffer.getInt (nProcIDPos + 4))));
+        }
+      }
+      return new NiceNameEntry (sName,
+                                eState != null ? eState : EPeppolCodeListItemState.ACTIVE,
+                                aProcIDs,
+                                nLabel < 0 ? null : _getString (nLabel));
+    }
+
+    /**
+     * Binary search for the record of the provided ID.
+     *
+     * @return The record number or -1 if not found.
+     */
+    private int _findRecord (@NonNull final String sID)
+    {
+      final byte [] aKey = sID.getBytes (StandardCharsets.UTF_8);
+      int nLow = 0;
+      int nHigh = m_nCount - 1;
+      while (nLow <= nHigh)
+      {
+        final int nMid = (nLow + nHigh) >>> 1;
+        final int nRecord = m_aBuffer.getInt (m_nSortedPos + nMid * 4);
+        final int nCmp = _compareString (_getRecordInt (nRecord, 0), aKey);
+        if (nCmp < 0)
+          nLow = nMid + 1;
+        else
+          if (nCmp > 0)
+            nHigh = nMid - 1;
+          else
+            return nRecord;
+      }
+      return -1;
+    }
+
+    @Override
+    public int size ()
+    {
+      return m_nCount;
+    }
+
+    @Override
+    public boolean containsKey (@Nullable final Object aKey)
+    {
+      return aKey instanceof final String sID && _findRecord (sID) >= 0;
+    }
+
+    @Override
+    @Nullable
+    public NiceNameEntry get (@Nullable final Object aKey)
+    {
+      if (aKey instanceof final String sID)
+      {
+        final int nRecord = _findRecord (sID);
+        if (nRecord >= 0)
+          return _getCachedEntry (nRecord);
+      }
+      return null;
+    }
+
+    @Override
+    @NonNull
+    public Set <Map.Entry <String, NiceNameEntry>> entrySet ()
+    {
+      return new AbstractSet <> ()
+      {
+        @Override
+        public int size ()
+        {
+          return m_nCount;
+        }
+
+        @Override
+        public Iterator <Map.Entry <String, NiceNameEntry>> iterator ()
+        {
+          return new Iterator <> ()
+          {
+            private int m_nNext = 0;
+
+            @Override
+            public boolean hasNext ()
+            {
+              return m_nNext < m_nCount;
+            }
+
+            @Override
+            public Map.Entry <String, NiceNameEntry> next ()
+            {
+              if (m_nNext >= m_nCount)
+                throw new NoSuchElementException ();
+              final int nRecord = m_nNext++;
+              // Not cached, so that iterating does not keep all entries on the heap
+              return new AbstractMap.SimpleImmutableEntry <> (getID (nRecord), _decodeEntry (nRecord));
+            }
+          };
+        }
+      };
+    }
+
+    /**
+     * @return A read-only view of all IDs in the source order. The entries are not decoded.
+     */
+    @Override
+    @NonNull
+    public Set <String> keySet ()
+    {
+      return new AbstractSet <> ()
+      {
+        @Override
+        public int size ()
+        {
+          return m_nCount;
+        }
+
+        @Override
+        public boolean contains (@Nullable final Object aKey)
+        {
+          return containsKey (aKey);
+        }
+
+        @Override
+        public Iterator <String> iterator ()
+        {
+          return new Iterator <> ()
+          {
+            private int m_nNext = 0;
+
+            @Override
+            public boolean hasNext ()
+            {
+              return m_nNext < m_nCount;
+            }
+
+            @Override
+            public String next ()
+            {
+              if (m_nNext >= m_nCount)
+                throw new NoSuchElementException ();
+              return getID (m_nNext++);
+            }
+          };
+        }
+      };
+    }
+  }
+
+  private final ByteBuffer m_aBuffer;
+  private final int m_nStringCount;
+  private final int m_nStringOffsetsPos;
+  private final int m_nStringPoolPos;
+  private final int m_nProcIDsPos;
+  private final Section m_aDocTypes;
+  private final Section m_aProcesses;
+
+  /**
+   * Constructor
+   *
+   * @param aBuffer
+   *        The buffer containing the whole index. It is only accessed with absolute positions, so
+   *        it may be shared. May not be <code>null</code>.
+   * @throws IllegalArgumentException
+   *         If the buffer does not contain a valid index
+   */
+  public NiceNameBinaryIndex (@NonNull final ByteBuffer aBuffer)
+  {
+    ValueEnforcer.notNull (aBuffer, "Buffer");
+    if (aBuffer.capacity () < 12 || aBuffer.getInt (0) != MAGIC)
+      throw new IllegalArgumentException ("The buffer does not contain a nice name index");
+    if (aBuffer.getInt (4) != VERSION)
+      throw new IllegalArgumentException ("Unsupported nice name index version " + aBuffer.getInt (4));
+
+    m_aBuffer = aBuffer;
+    m_nStringCount = aBuffer.getInt (8);
+    m_nStringOffsetsPos = 12;
+    m_nStringPoolPos = m_nStringOffsetsPos + (m_nStringCount + 1) * 4;
+    final int nProcIDCountPos = m_nStringPoolPos + aBuffer.getInt (m_nStringOffsetsPos + m_nStringCount * 4);
+    m_nProcIDsPos = nProcIDCountPos + 4;
+    m_aDocTypes = new Section (m_nProcIDsPos + aBuffer.getInt (nProcIDCountPos) * 8);
+    m_aProcesses = new Section (m_aDocTypes.getEndPos ());
+    if (m_aProcesses.getEndPos () != aBuffer.capacity ())
+      throw new IllegalArgumentException ("The nice name index is truncated or corrupt");
+  }
+
+  private int _getStringStart (final int nIndex)
+  {
+    return m_nStringPoolPos + m_aBuffer.getInt (m_nStringOffsetsPos + nIndex * 4);
+  }
+
+  @NonNull
+  private String _getString (final int nIndex)
+  {
+    final int nStart = _getStringStart (nIndex);
+    final byte [] aBytes = new byte [_getStringStart (nIndex + 1) - nStart];
+    m_aBuffer.get (nStart, aBytes);
+    return new String (aBytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Compare the string in the pool with the provided UTF-8 bytes without decoding it.
+   */
+  private int _compareString (final int nIndex, @NonNull final byte [] aKey)
+  {
+    final int nStart = _getStringStart (nIndex);
+    final int nLen = _getStringStart (nIndex + 1) - nStart;
+    final int nMin = Math.min (nLen, aKey.length);
+    for (int i = 0; i < nMin; ++i)
+    {
+      final int nCmp = Byte.compareUnsigned (m_aBuffer.get (nStart + i), aKey[i]);
+      if (nCmp != 0)
+        return nCmp;
+    }
+    return Integer.compare (nLen, aKey.length);
+  }
+
+  /**
+   * @return A read-only map view of all document type nice names in the source order.
+   */
+  @NonNull
+  public Section getDocTypes ()
+  {
+    return m_aDocTypes;
+  }
+
+  /**
+   * @return A read-only map view of all process nice names in the source order.
+   */
+  @NonNull
+  public Section getProcesses ()
+  {
+    return m_aProcesses;
+  }
+
+  /**
+   * @return The number of distinct strings.
+   */
+  @Nonnegative
+  public int getStringCount ()
+  {
+    return m_nStringCount;
+  }
+
+  /**
+   * @return The size of the index in bytes.
+   */
+  @Nonnegative
+  public int getByteCount ()
+  {
+    return m_aBuffer.capacity ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("DocTypes", m_aDocTypes.size ())
+                                       .append ("Processes", m_aProcesses.size ())
+                                       .append ("Strings", m_nStringCount)
+                                       .append ("Bytes", getByteCount ())
+                                       .getToString ();
+  }
+
+  /**
+   * Memory map the provided index file.
+   *
+   * @param aPath
+   *        The index file. May not be <code>null</code>.
+   * @return The index and never <code>null</code>.
+   * @throws IOException
+   *         In case of a read error
+   * @throws IllegalArgumentException
+   *         If the file does not contain a valid index
+   */
+  @NonNull
+  public static NiceNameBinaryIndex map (@NonNull final Path aPath) throws IOException
+  {
+    ValueEnforcer.notNull (aPath, "Path");
+    try (final FileChannel aChannel = FileChannel.open (aPath, StandardOpenOption.READ))
+    {
+      // The mapping stays valid after the channel is closed
+      return new NiceNameBinaryIndex (aChannel.map (FileChannel.MapMode.READ_ONLY, 0, aChannel.size ()));
+    }
+  }
+
+  /**
+   * Read the index from a stream into a direct buffer, outside of the Java heap.
+   *
+   * @param aIS
+   *        The stream to read from. It is closed. May not be <code>null</code>.
+   * @return The index and never <code>null</code>.
+   * @throws IllegalArgumentException
+   *         If the stream does not contain a valid index
+   */
+  @NonNull
+  public static NiceNameBinaryIndex read (@NonNull final InputStream aIS)
+  {
+    ValueEnforcer.notNull (aIS, "InputStream");
+    final byte [] aBytes = StreamHelper.getAllBytes (aIS);
+    if (aBytes == null)
+      throw new IllegalArgumentException ("Failed to read the nice name index");
+    final ByteBuffer aBuffer = ByteBuffer.allocateDirect (aBytes.length);
+    aBuffer.put (aBytes).flip ();
+    return new NiceNameBinaryIndex (aBuffer);
+  }
+
+  /**
+   * Load the index created at build time from {@link #DEFAULT_CLASSPATH_LOCATION}. If it is a
+   * plain file it is memory mapped.
+   *
+   * @return <code>null</code> if the index is not present or invalid.
+   */
+  @Nullable
+  public static NiceNameBinaryIndex loadDefault ()
+  {
+    final URL aURL = NiceNameBinaryIndex.class.getClassLoader ().getResource (DEFAULT_CLASSPATH_LOCATION);
+    if (aURL == null)
+    {
+      LOGGER.debug ("No nice name index found at '" + DEFAULT_CLASSPATH_LOCATION + "'");
+      return null;
+    }
+
+    try
+    {
+      final NiceNameBinaryIndex ret;
+      if ("file".equals (aURL.getProtocol ()))
+        ret = map (Path.of (aURL.toURI ()));
+      else
+        ret = read (aURL.openStream ());
+      LOGGER.info ("Loaded nice name index from '" + aURL + "': " + ret);
+      return ret;
+    }
+    catch (final IOException | URISyntaxException | RuntimeException ex)
+    {
+      LOGGER.error ("Failed to load nice name index from '" + aURL + "'", ex);
+      return null;
+    }
+  }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.ui.types.nicename;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.annotation.concurrent.NotThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.peppolid.IProcessIdentifier;
+
+/**
+ * Creates the binary nice name index read by {@link NiceNameBinaryIndex}. All strings are
+ * interned, so that e.g. the process ID schemes are only stored once. The {@link #main(String[])}
+ * method is invoked during the build, to create the index of the predefined code list entries.
+ *
+ * @author Philip Helger
+ */
+@NotThreadSafe
+public final class NiceNameBinaryIndexWriter
+{
+  private static final Logger LOGGER = LoggerFactory.getLogger (NiceNameBinaryIndexWriter.class);
+
+  private final Map <String, Integer> m_aStringIndex = new HashMap <> ();
+  private final ICommonsList <byte []> m_aStrings = new CommonsArrayList <> ();
+  private final ICommonsList <int []> m_aProcIDs = new CommonsArrayList <> ();
+
+  private NiceNameBinaryIndexWriter ()
+  {}
+
+  private int _intern (@NonNull final String s)
+  {
+    return m_aStringIndex.computeIfAbsent (s, k -> {
+      m_aStrings.add (k.getBytes (StandardCharsets.UTF_8));
+      return Integer.valueOf (m_aStrings.size () - 1);
+    }).intValue ();
+  }
+
+  @NonNull
+  private int [] _createSection (@NonNull final Map <String, NiceNameEntry> aEntries)
+  {
+    final int [] ret = new int [aEntries.size () * NiceNameBinaryIndex.RECORD_INTS];
+    int nRecord = 0;
+    for (final Map.Entry <String, NiceNameEntry> aEntry : aEntries.entrySet ())
+    {
+      final NiceNameEntry aNN = aEntry.getValue ();
+      final int nOfs = nRecord * NiceNameBinaryIndex.RECORD_INTS;
+      ret[nOfs] = _intern (aEntry.getKey ());
+      ret[nOfs + 1] = _intern (aNN.getName ());
+      ret[nOfs + 2] = _intern (aNN.getState ().getID ());
+      ret[nOfs + 3] = aNN.hasSpecialLabel () ? _intern (aNN.getSpecialLabel ()) : -1;
+      final List <IProcessIdentifier> aProcIDs = aNN.getAllProcIDs ();
+      if (aProcIDs == null)
+      {
+        ret[nOfs + 4] = 0;
+        ret[nOfs + 5] = -1;
+      }
+      else
+      {
+        ret[nOfs + 4] = m_aProcIDs.size ();
+        ret[nOfs + 5] = aProcIDs.size ();
+        for (final IProcessIdentifier aProcID : aProcIDs)
+          m_aProcIDs.add (new int [] { _intern (aProcID.getScheme ()), _intern (aProcID.getValue ()) });
+      }
+      nRecord++;
+    }
+    return ret;
+  }
+
+  private void _writeSection (@NonNull final DataOutputStream aDOS, @NonNull final int [] aRecords) throws IOException
+  {
+    final int nCount = aRecords.length / NiceNameBinaryIndex.RECORD_INTS;
+    aDOS.writeInt (nCount);
+    for (final int n : aRecords)
+      aDOS.writeInt (n);
+
+    // Sort the record numbers by the UTF-8 bytes of the ID
+    final Integer [] aSorted = new Integer [nCount];
+    for (int i = 0; i < nCount; ++i)
+      aSorted[i] = Integer.valueOf (i);
+    Arrays.sort (aSorted,
+                 (x, y) -> Arrays.compareUnsigned (m_aStrings.get (aRecords[x.intValue () *
+                                                                           NiceNameBinaryIndex.RECORD_INTS]),
+                                                   m_aStrings.get (aRecords[y.intValue () *
+                                                                           NiceNameBinaryIndex.RECORD_INTS])));
+    for (final Integer aRecord : aSorted)
+      aDOS.writeInt (aRecord.intValue ());
+  }
+
+  /**
+   * Write the index.
+   *
+   * @param aDocTypes
+   *        The document type nice names. Keys must be unique. May not be <code>null</code>.
+   * @param aProcesses
+   *        The process nice names. Keys must be unique. May not be <code>null</code>.
+   * @param aOS
+   *        The stream to write to. It is not closed. May not be <code>null</code>.
+   * @throws IOException
+   *         In case of a write error
+   */
+  public static void write (@NonNull final Map <String, NiceNameEntry> aDocTypes,
+                            @NonNull final Map <String, NiceNameEntry> aProcesses,
+                            @NonNull final OutputStream aOS) throws IOException
+  {
+    ValueEnforcer.notNull (aDocTypes, "DocTypes");
+    ValueEnforcer.notNull (aProcesses, "Processes");
+    ValueEnforcer.notNull (aOS, "OutputStream");
+
+    final NiceNameBinaryIndexWriter aWriter = new NiceNameBinaryIndexWriter ();
+    final int [] aDocTypeRecords = aWriter._createSection (aDocTypes);
+    final int [] aProcessRecords = aWriter._createSection (aProcesses);
+
+    final DataOutputStream aDOS = new DataOutputStream (aOS);
+    aDOS.writeInt (NiceNameBinaryIndex.MAGIC);
+    aDOS.writeInt (NiceNameBinaryIndex.VERSION);
+
+    // String pool
+    aDOS.writeInt (aWriter.m_aStrings.size ());
+    int nOffset = 0;
+    aDOS.writeInt (nOffset);
+    for (final byte [] aBytes : aWriter.m_aStrings)
+    {
+      nOffset += aBytes.length;
+      aDOS.writeInt (nOffset);
+    }
+    for (final byte [] aBytes : aWriter.m_aStrings)
+      aDOS.write (aBytes);
+
+    // Process IDs
+    aDOS.writeInt (aWriter.m_aProcIDs.size ());
+    for (final int [] aProcID : aWriter.m_aProcIDs)
+    {
+      aDOS.writeInt (aProcID[0]);
+      aDOS.writeInt (aProcID[1]);
+    }
+
+    aWriter._writeSection (aDOS, aDocTypeRecords);
+    aWriter._writeSection (aDOS, aProcessRecords);
+    aDOS.flush ();
+  }
+
+  /**
+   * Write the index of the predefined code list entries from {@link NiceNameDefaults}.
+   *
+   * @param args
+   *        The first argument is the target file. Must be present.
+   * @throws IOException
+   *         In case of a write error
+   */
+  public static void main (@Nullable final String [] args) throws IOException
+  {
+    if (args == null || args.length < 1)
+      throw new IllegalArgumentException ("The target file must be provided");
+
+    final Path aTarget = Path.of (args[0]);
+    if (aTarget.getParent () != null)
+      Files.createDirectories (aTarget.getParent ());
+    try (final OutputStream aOS = Files.newOutputStream (aTarget))
+    {
+      write (NiceNameDefaults.defaultDocTypes (), NiceNameDefaults.defaultProcesses (), aOS);
+    }
+    LOGGER.info ("Wrote nice name index with " +
+                 NiceNameDefaults.defaultDocTypes ().size () +
+                 " document types and " +
+                 NiceNameDefaults.defaultProcesses ().size () +
+                 " processes to '" +
+                 aTarget +
+                 "' (" +
+                 Files.size (aTarget) +
+                 " bytes)");
+  }
+}
@@ -16,19 +16,17 @@
  */
 package com.helger.peppol.ui.types.nicename;
 
+import java.util.Map;
+
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.helger.annotation.concurrent.GuardedBy;
 import com.helger.annotation.concurrent.ThreadSafe;
 import com.helger.annotation.style.ReturnsMutableCopy;
-import com.helger.base.concurrent.SimpleReadWriteLock;
+import com.helger.base.concurrent.SimpleLock;
 import com.helger.base.enforce.ValueEnforcer;
-import com.helger.base.string.StringHelper;
-import com.helger.base.string.StringParser;
-import com.helger.base.string.StringRemove;
 import com.helger.collection.commons.CommonsArrayList;
 import com.helger.collection.commons.CommonsLinkedHashMap;
 import com.helger.collection.commons.ICommonsList;
@@ -53,11 +51,15 @@ public final class NiceNameManager
                                                 "::";
   private static final Logger LOGGER = LoggerFactory.getLogger (NiceNameManager.class);
 
-  private static final SimpleReadWriteLock RW_LOCK = new SimpleReadWriteLock ();
-  @GuardedBy ("RW_LOCK")
-  private static final ICommonsOrderedMap <String, NiceNameEntry> DOCTYPE_IDS = new CommonsLinkedHashMap <> ();
-  @GuardedBy ("RW_LOCK")
-  private static final ICommonsOrderedMap <String, NiceNameEntry> PROCESS_IDS = new CommonsLinkedHashMap <> ();
+  // Only writers are serialized - readers use the current snapshot without locking
+  private static final SimpleLock WRITE_LOCK = new SimpleLock ();
+  private static volatile NiceNameSnapshot s_aSnapshot;
+
+  // Loaded lazily on first use
+  private static final class DefaultIndexHolder
+  {
+    static final NiceNameBinaryIndex INDEX = NiceNameBinaryIndex.loadDefault ();
+  }
 
   private NiceNameManager ()
   {}
@@ -70,11 +72,13 @@ public final class NiceNameManager
 
   public static void setAllToDefaults ()
   {
-    RW_LOCK.writeLocked ( () -> {
-      // setAll to clear and add all
-      DOCTYPE_IDS.setAll (NiceNameDefaults.defaultDocTypes ());
-      PROCESS_IDS.setAll (NiceNameDefaults.defaultProcesses ());
-    });
+    // Prefer the index created at build time, so the defaults don't need to be created on the heap
+    final NiceNameBinaryIndex aIndex = DefaultIndexHolder.INDEX;
+    final NiceNameSnapshot aSnapshot = aIndex != null ? NiceNameSnapshot.create (aIndex.getDocTypes (),
+                                                                                 aIndex.getProcesses ())
+                                                      : NiceNameSnapshot.create (NiceNameDefaults.defaultDocTypes (),
+                                                                                 NiceNameDefaults.defaultProcesses ());
+    WRITE_LOCK.locked ( () -> s_aSnapshot = aSnapshot);
   }
 
   @NonNull
@@ -92,19 +96,8 @@ public final class NiceNameManager
       {
         String sID = eChild.getAttributeValue ("id");
         final String sName = eChild.getAttributeValue ("name");
-        EPeppolCodeListItemState eState = EPeppolCodeListItemState.getFromIDOrNull (eChild.getAttributeValue ("state"));
-        if (eState == null)
-        {
-          final String sDeprecated = eChild.getAttributeValue ("deprecated");
-          if (sDeprecated != null)
-          {
-            // Legacy attribute is present
-            eState = StringParser.parseBool (sDeprecated, false) ? EPeppolCodeListItemState.DEPRECATED
-                                                                 : EPeppolCodeListItemState.ACTIVE;
-          }
-          else
-            eState = EPeppolCodeListItemState.ACTIVE;
-        }
+        final EPeppolCodeListItemState eState = NiceNameStreamReader.getState (eChild.getAttributeValue ("state"),
+                                                                               eChild.getAttributeValue ("deprecated"));
 
         ICommonsList <IProcessIdentifier> aProcIDs = null;
         if (bReadProcIDs)
@@ -122,7 +115,7 @@ public final class NiceNameManager
           // Because the identifiers in the codelist are without "*" we need to
           // add the "*" here, because the SMP entries need the "*" to be
           // correct
-          sSpecialLabel = "Wildcard";
+          sSpecialLabel = NiceNameStreamReader.SPECIAL_LABEL_WILDCARD;
 
           final IDocumentTypeIdentifier aDT = SimpleIdentifierFactory.INSTANCE.parseDocumentTypeIdentifier (sID);
           final IPeppolDocumentTypeIdentifierParts aParts = PeppolDocumentTypeIdentifierParts.extractFromIdentifier (aDT);
@@ -144,12 +137,38 @@ public final class NiceNameManager
     return ret;
   }
 
+  /**
+   * Atomically replace all document type nice names. The process nice names are not touched.
+   *
+   * @param aDocTypeIDs
+   *        The new document type nice names, e.g. from {@link #readEntries(IReadableResource, boolean)}.
+   *        May not be <code>null</code>.
+   */
+  public static void setDocTypeNames (@NonNull final Map <String, NiceNameEntry> aDocTypeIDs)
+  {
+    ValueEnforcer.notNull (aDocTypeIDs, "DocTypeIDs");
+    WRITE_LOCK.locked ( () -> s_aSnapshot = s_aSnapshot.getWithDocTypeIDs (aDocTypeIDs));
+  }
+
+  /**
+   * Atomically replace all process nice names. The document type nice names are not touched.
+   *
+   * @param aProcessIDs
+   *        The new process nice names, e.g. from {@link #readEntries(IReadableResource, boolean)}.
+   *        May not be <code>null</code>.
+   */
+  public static void setProcessNames (@NonNull final Map <String, NiceNameEntry> aProcessIDs)
+  {
+    ValueEnforcer.notNull (aProcessIDs, "ProcessIDs");
+    WRITE_LOCK.locked ( () -> s_aSnapshot = s_aSnapshot.getWithProcessIDs (aProcessIDs));
+  }
+
   public static void loadDocTypeNames (@NonNull final IReadableResource aDocTypeIDRes)
   {
     ValueEnforcer.notNull (aDocTypeIDRes, "DocTypeIDRes");
 
-    final ICommonsOrderedMap <String, NiceNameEntry> aDocTypeIDs = readEntries (aDocTypeIDRes, true);
-    RW_LOCK.writeLocked ( () -> DOCTYPE_IDS.setAll (aDocTypeIDs));
+    final ICommonsOrderedMap <String, NiceNameEntry> aDocTypeIDs = NiceNameStreamReader.readEntries (aDocTypeIDRes, true);
+    setDocTypeNames (aDocTypeIDs);
     LOGGER.info ("Loaded " +
                  aDocTypeIDs.size () +
                  " document type nice name entries from '" +
@@ -161,8 +180,8 @@ public final class NiceNameManager
   {
     ValueEnforcer.notNull (aProcessIDRes, "ProcessIDRes");
 
-    final ICommonsOrderedMap <String, NiceNameEntry> aProcessIDs = readEntries (aProcessIDRes, false);
-    RW_LOCK.writeLocked ( () -> PROCESS_IDS.setAll (aProcessIDs));
+    final ICommonsOrderedMap <String, NiceNameEntry> aProcessIDs = NiceNameStreamReader.readEntries (aProcessIDRes, false);
+    setProcessNames (aProcessIDs);
     LOGGER.info ("Loaded " +
                  aProcessIDs.size () +
                  " process nice name entries from '" +
@@ -179,18 +198,7 @@ public final class NiceNameManager
   @Nullable
   public static NiceNameEntry getDocTypeNiceName (@Nullable final String sID)
   {
-    if (StringHelper.isEmpty (sID))
-      return null;
-
-    RW_LOCK.readLock ().lock ();
-    try
-    {
-      return DOCTYPE_IDS.get (sID);
-    }
-    finally
-    {
-      RW_LOCK.readLock ().unlock ();
-    }
+    return s_aSnapshot.getDocTypeNiceName (sID);
   }
 
   public static boolean isPintDocType (@NonNull final IDocumentTypeIdentifier aDocTypeID)
@@ -204,26 +212,34 @@ public final class NiceNameManager
     return aDocTypeID.getValue ().indexOf ('*') > 0;
   }
 
+  /**
+   * Get the nice name of the provided document type ID. For PINT document type IDs, the name
+   * contains a suffix indicating an exact or a wildcard match, and wildcard IDs are also resolved
+   * if the code list only contains the version without the "*".
+   *
+   * @param aDocTypeID
+   *        The document type ID to resolve. May not be <code>null</code>.
+   * @return <code>null</code> if no nice name is present.
+   */
   @Nullable
   public static NiceNameEntry getPintEnabledNiceNameEntry (@NonNull final IDocumentTypeIdentifier aDocTypeID)
   {
-    final boolean bIsPint = isPintDocType (aDocTypeID);
-    final boolean bIsWildcard = isWildcardDocType (aDocTypeID);
-
-    NiceNameEntry aNN = getDocTypeNiceName (aDocTypeID);
-    if (aNN == null && bIsPint && bIsWildcard)
-    {
-      // Try version without the star
-      aNN = getDocTypeNiceName (StringRemove.removeAll (aDocTypeID.getURIEncoded (), '*'));
-    }
-    if (aNN != null && bIsPint)
-    {
-      // Append something to the name
-      // New logic since 15.5.2025 (PFUOI 4.3.0)
-      aNN = aNN.withNewName (aNN.getName () + (bIsWildcard ? " (PINT wildcard match)" : " (PINT exact match)"));
-    }
+    return getPintEnabledNiceNameEntry (aDocTypeID.getURIEncoded ());
+  }
 
-    return aNN;
+  /**
+   * Get the nice name of the provided URI encoded document type ID. This is a single lookup in a
+   * precomputed index, so it is preferred if the ID is already available as a String.
+   *
+   * @param sDocTypeID
+   *        The URI encoded document type ID to resolve. May be <code>null</code>.
+   * @return <code>null</code> if no nice name is present.
+   * @see #getPintEnabledNiceNameEntry(IDocumentTypeIdentifier)
+   */
+  @Nullable
+  public static NiceNameEntry getPintEnabledNiceNameEntry (@Nullable final String sDocTypeID)
+  {
+    return s_aSnapshot.getPintEnabledNiceNameEntry (sDocTypeID);
   }
 
   @Nullable
@@ -235,31 +251,37 @@ public final class NiceNameManager
   @Nullable
   public static NiceNameEntry getProcessNiceName (@Nullable final String sID)
   {
-    if (StringHelper.isEmpty (sID))
-      return null;
+    return s_aSnapshot.getProcessNiceName (sID);
+  }
 
-    RW_LOCK.readLock ().lock ();
-    try
-    {
-      return PROCESS_IDS.get (sID);
-    }
-    finally
-    {
-      RW_LOCK.readLock ().unlock ();
-    }
+  /**
+   * @return The current immutable snapshot of all nice names. Use this to read many entries
+   *         consistently without copying. Never <code>null</code>.
+   */
+  @NonNull
+  public static NiceNameSnapshot getSnapshot ()
+  {
+    return s_aSnapshot;
   }
 
+  /**
+   * @return A mutable copy of all document type nice names. Use {@link #getSnapshot()} to avoid
+   *         copying.
+   */
   @NonNull
   @ReturnsMutableCopy
   public static ICommonsOrderedMap <String, NiceNameEntry> getAllDocumentTypeMappings ()
   {
-    return RW_LOCK.readLockedGet (DOCTYPE_IDS::getClone);
+    return new CommonsLinkedHashMap <> (s_aSnapshot.getAllDocumentTypeMappings ());
   }
 
+  /**
+   * @return A mutable copy of all process nice names. Use {@link #getSnapshot()} to avoid copying.
+   */
   @NonNull
   @ReturnsMutableCopy
   public static ICommonsOrderedMap <String, NiceNameEntry> getAllProcessMappings ()
   {
-    return RW_LOCK.readLockedGet (PROCESS_IDS::getClone);
+    return new CommonsLinkedHashMap <> (s_aSnapshot.getAllProcessMappings ());
   }
 }
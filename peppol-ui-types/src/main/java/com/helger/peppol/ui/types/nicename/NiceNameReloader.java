@@ -0,0 +1,518 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.ui.types.nicename;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.string.StringHelper;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.collection.commons.ICommonsOrderedMap;
+import com.helger.io.resource.FileSystemResource;
+import com.helger.peppol.ui.types.config.PeppolSharedConfig;
+
+/**
+ * Watches the document type and process nice name XML files and reloads them in the background if
+ * they change. A new mapping is only swapped into {@link NiceNameManager} if it could be parsed and
+ * contains at least one entry - otherwise the old mapping stays active. Every change in the
+ * directory of a file triggers a check, so that symbolic links that are swapped are detected as
+ * well. Files without a content change are ignored.
+ *
+ * @author Philip Helger
+ */
+@ThreadSafe
+public final class NiceNameReloader implements AutoCloseable
+{
+  /** The default time to wait for further changes after a change was detected */
+  public static final long DEFAULT_DEBOUNCE_MILLIS = 1_000;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger (NiceNameReloader.class);
+  private static final AtomicInteger THREAD_COUNTER = new AtomicInteger (0);
+
+  /**
+   * The differences between the old and the new mapping of a reload.
+   *
+   * @author Philip Helger
+   */
+  @Immutable
+  public static final class Diff
+  {
+    private final int m_nAdded;
+    private final int m_nRemoved;
+    private final int m_nChanged;
+    private final int m_nTotal;
+
+    Diff (final int nAdded, final int nRemoved, final int nChanged, final int nTotal)
+    {
+      m_nAdded = nAdded;
+      m_nRemoved = nRemoved;
+      m_nChanged = nChanged;
+      m_nTotal = nTotal;
+    }
+
+    @Nonnegative
+    public int getAddedCount ()
+    {
+      return m_nAdded;
+    }
+
+    @Nonnegative
+    public int getRemovedCount ()
+    {
+      return m_nRemoved;
+    }
+
+    /**
+     * @return The number of entries contained in both mappings with a different name or state.
+     */
+    @Nonnegative
+    public int getChangedCount ()
+    {
+      return m_nChanged;
+    }
+
+    /**
+     * @return The number of entries of the new mapping.
+     */
+    @Nonnegative
+    public int getTotalCount ()
+    {
+      return m_nTotal;
+    }
+
+    public boolean hasChanges ()
+    {
+      return m_nAdded > 0 || m_nRemoved > 0 || m_nChanged > 0;
+    }
+
+    @Override
+    public String toString ()
+    {
+      return new ToStringGenerator (this).append ("Added", m_nAdded)
+                                         .append ("Removed", m_nRemoved)
+                                         .append ("Changed", m_nChanged)
+                                         .append ("Total", m_nTotal)
+                                         .getToString ();
+    }
+
+    /**
+     * Determine the differences between two mappings.
+     *
+     * @param aOld
+     *        The old mapping. May not be <code>null</code>.
+     * @param aNew
+     *        The new mapping. May not be <code>null</code>.
+     * @return The differences and never <code>null</code>.
+     */
+    @NonNull
+    public static Diff create (@NonNull final Map <String, NiceNameEntry> aOld,
+                               @NonNull final Map <String, NiceNameEntry> aNew)
+    {
+      int nAdded = 0;
+      int nChanged = 0;
+      for (final Map.Entry <String, NiceNameEntry> aEntry : aNew.entrySet ())
+      {
+        final NiceNameEntry aOldEntry = aOld.get (aEntry.getKey ());
+        if (aOldEntry == null)
+          nAdded++;
+        else
+          if (!aOldEntry.equals (aEntry.getValue ()))
+            nChanged++;
+      }
+      // Everything from old that is not in new
+      final int nRemoved = aOld.size () - (aNew.size () - nAdded);
+      return new Diff (nAdded, nRemoved, nChanged, aNew.size ());
+    }
+  }
+
+  /**
+   * The state per watched file
+   */
+  private static final class WatchedFile
+  {
+    private final String m_sType;
+    private final Path m_aPath;
+    private final boolean m_bReadProcIDs;
+    private final Supplier <Map <String, NiceNameEntry>> m_aCurrentGetter;
+    private final Consumer <Map <String, NiceNameEntry>> m_aSetter;
+    // Only accessed by the reloading thread or under the lock of the reloader
+    private byte [] m_aLastDigest;
+    private volatile Diff m_aLastDiff;
+
+    WatchedFile (@NonNull final String sType,
+                 @NonNull final File aFile,
+                 final boolean bReadProcIDs,
+                 @NonNull final Supplier <Map <String, NiceNameEntry>> aCurrentGetter,
+                 @NonNull final Consumer <Map <String, NiceNameEntry>> aSetter)
+    {
+      m_sType = sType;
+      m_aPath = aFile.toPath ().toAbsolutePath ().normalize ();
+      m_bReadProcIDs = bReadProcIDs;
+      m_aCurrentGetter = aCurrentGetter;
+      m_aSetter = aSetter;
+    }
+  }
+
+  private final WatchedFile m_aDocTypes;
+  private final WatchedFile m_aProcesses;
+  private final long m_nDebounceMillis;
+  private final LongAdder m_aReloads = new LongAdder ();
+  private final LongAdder m_aFailures = new LongAdder ();
+  private WatchService m_aWatchService;
+  private Thread m_aThread;
+
+  /**
+   * Constructor
+   *
+   * @param aDocTypeFile
+   *        The document type nice name file to watch. May be <code>null</code>.
+   * @param aProcessFile
+   *        The process nice name file to watch. May be <code>null</code>.
+   * @param nDebounceMillis
+   *        The time in milliseconds to wait for further changes after a change was detected, so
+   *        that a file that is written in multiple steps is only read once. Must be &ge; 0.
+   */
+  public NiceNameReloader (@Nullable final File aDocTypeFile,
+                           @Nullable final File aProcessFile,
+                           @Nonnegative final long nDebounceMillis)
+  {
+    ValueEnforcer.isTrue (aDocTypeFile != null || aProcessFile != null, "At least one file must be provided");
+    ValueEnforcer.isGE0 (nDebounceMillis, "DebounceMillis");
+    m_aDocTypes = aDocTypeFile == null ? null : new WatchedFile ("document type",
+                                                                aDocTypeFile,
+                                                                true,
+                                                                () -> NiceNameManager.getSnapshot ()
+                                                                                     .getAllDocumentTypeMappings (),
+                                                                NiceNameManager::setDocTypeNames);
+    m_aProcesses = aProcessFile == null ? null : new WatchedFile ("process",
+                                                                 aProcessFile,
+                                                                 false,
+                                                                 () -> NiceNameManager.getSnapshot ()
+                                                                                      .getAllProcessMappings (),
+                                                                 NiceNameManager::setProcessNames);
+    m_nDebounceMillis = nDebounceMillis;
+  }
+
+  @NonNull
+  private static byte [] _getDigest (@NonNull final Path aPath) throws IOException
+  {
+    try
+    {
+      return MessageDigest.getInstance ("SHA-256").digest (Files.readAllBytes (aPath));
+    }
+    catch (final NoSuchAlgorithmException ex)
+    {
+      throw new IllegalStateException ("SHA-256 is not supported", ex);
+    }
+  }
+
+  @Nullable
+  private Diff _reload (@NonNull final WatchedFile aWF, final boolean bForce)
+  {
+    synchronized (aWF)
+    {
+      try
+      {
+        if (!Files.isRegularFile (aWF.m_aPath))
+        {
+          // E.g. temporarily removed while being replaced
+          LOGGER.warn ("The " + aWF.m_sType + " nice name file '" + aWF.m_aPath + "' does not exist - keeping the old mapping");
+          return null;
+        }
+
+        final byte [] aDigest = _getDigest (aWF.m_aPath);
+        if (!bForce && Arrays.equals (aDigest, aWF.m_aLastDigest))
+        {
+          LOGGER.debug ("The " + aWF.m_sType + " nice name file '" + aWF.m_aPath + "' has no content changes");
+          return null;
+        }
+
+        final ICommonsOrderedMap <String, NiceNameEntry> aNew = NiceNameStreamReader.readEntries (new FileSystemResource (aWF.m_aPath.toFile ()),
+                                                                                                  aWF.m_bReadProcIDs);
+        // Parsing errors are logged, and lead to an empty map
+        if (aNew.isEmpty ())
+        {
+          m_aFailures.increment ();
+          LOGGER.error ("The " +
+                        aWF.m_sType +
+                        " nice name file '" +
+                        aWF.m_aPath +
+                        "' could not be parsed or contains no entries - keeping the old mapping");
+          return null;
+        }
+
+        final Diff aDiff = Diff.create (aWF.m_aCurrentGetter.get (), aNew);
+        aWF.m_aSetter.accept (aNew);
+        aWF.m_aLastDigest = aDigest;
+        aWF.m_aLastDiff = aDiff;
+        m_aReloads.increment ();
+        LOGGER.info ("Reloaded the " + aWF.m_sType + " nice names from '" + aWF.m_aPath + "': " + aDiff);
+        return aDiff;
+      }
+      catch (final IOException | RuntimeException ex)
+      {
+        m_aFailures.increment ();
+        LOGGER.error ("Failed to reload the " +
+                      aWF.m_sType +
+                      " nice name file '" +
+                      aWF.m_aPath +
+                      "' - keeping the old mapping",
+                      ex);
+        return null;
+      }
+    }
+  }
+
+  /**
+   * Reload the document type nice names now, even if the file content did not change.
+   *
+   * @return The differences to the previous mapping or <code>null</code> if no document type file
+   *         is configured or if it could not be loaded.
+   */
+  @Nullable
+  public Diff reloadDocTypeNamesNow ()
+  {
+    return m_aDocTypes == null ? null : _reload (m_aDocTypes, true);
+  }
+
+  /**
+   * Reload the process nice names now, even if the file content did not change.
+   *
+   * @return The differences to the previous mapping or <code>null</code> if no process file is
+   *         configured or if it could not be loaded.
+   */
+  @Nullable
+  public Diff reloadProcessNamesNow ()
+  {
+    return m_aProcesses == null ? null : _reload (m_aProcesses, true);
+  }
+
+  private void _register (@Nullable final WatchedFile aWF) throws IOException
+  {
+    if (aWF != null)
+    {
+      // Watch the directory, because files are often replaced and not modified
+      aWF.m_aPath.getParent ()
+                 .register (m_aWatchService,
+                            StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_MODIFY,
+                            StandardWatchEventKinds.ENTRY_DELETE);
+    }
+  }
+
+  private static boolean _isInDirectory (@Nullable final WatchedFile aWF, @NonNull final Path aDir)
+  {
+    // Any change in the directory may affect the file, e.g. if it is a symbolic link into a
+    // directory that is swapped atomically (like a Kubernetes ConfigMap via "..data"). The digest
+    // check of the reload avoids reading unchanged files.
+    return aWF != null && aWF.m_aPath.getParent ().equals (aDir);
+  }
+
+  private void _run ()
+  {
+    final WatchService aWatchService = m_aWatchService;
+    while (true)
+    {
+      try
+      {
+        WatchKey aKey = aWatchService.take ();
+
+        // Wait for further events of the same write operation
+        if (m_nDebounceMillis > 0)
+          Thread.sleep (m_nDebounceMillis);
+
+        boolean bDocTypes = false;
+        boolean bProcesses = false;
+        while (aKey != null)
+        {
+          final Path aDir = (Path) aKey.watchable ();
+          for (final WatchEvent <?> aEvent : aKey.pollEvents ())
+          {
+            if (aEvent.kind () == StandardWatchEventKinds.OVERFLOW)
+            {
+              // Events were lost - check both
+              bDocTypes = true;
+              bProcesses = true;
+            }
+            else
+            {
+              bDocTypes |= _isInDirectory (m_aDocTypes, aDir);
+              bProcesses |= _isInDirectory (m_aProcesses, aDir);
+            }
+          }
+          aKey.reset ();
+          aKey = aWatchService.poll ();
+        }
+
+        if (bDocTypes && m_aDocTypes != null)
+          _reload (m_aDocTypes, false);
+        if (bProcesses && m_aProcesses != null)
+          _reload (m_aProcesses, false);
+      }
+      catch (final InterruptedException ex)
+      {
+        Thread.currentThread ().interrupt ();
+        break;
+      }
+      catch (final ClosedWatchServiceException ex)
+      {
+        break;
+      }
+    }
+    LOGGER.info ("Stopped watching the nice name files");
+  }
+
+  /**
+   * Start watching. The current content of the files is loaded immediately, so that the manager
+   * state matches the files.
+   *
+   * @throws IOException
+   *         If the file system does not support watching
+   * @throws IllegalStateException
+   *         If the reloader is already started
+   */
+  public synchronized void start () throws IOException
+  {
+    if (m_aThread != null)
+      throw new IllegalStateException ("The nice name reloader is already started");
+
+    if (m_aDocTypes != null)
+      _reload (m_aDocTypes, true);
+    if (m_aProcesses != null)
+      _reload (m_aProcesses, true);
+
+    m_aWatchService = FileSystems.getDefault ().newWatchService ();
+    _register (m_aDocTypes);
+    _register (m_aProcesses);
+
+    m_aThread = new Thread (this::_run, "nicename-reloader-" + THREAD_COUNTER.incrementAndGet ());
+    m_aThread.setDaemon (true);
+    m_aThread.start ();
+    LOGGER.info ("Started watching the nice name files " + this);
+  }
+
+  public synchronized boolean isStarted ()
+  {
+    return m_aThread != null;
+  }
+
+  /**
+   * Stop watching. Does nothing if the reloader is not started.
+   */
+  @Override
+  public synchronized void close ()
+  {
+    if (m_aThread != null)
+    {
+      try
+      {
+        m_aWatchService.close ();
+      }
+      catch (final IOException ex)
+      {
+        LOGGER.warn ("Failed to close the watch service", ex);
+      }
+      m_aThread.interrupt ();
+      m_aThread = null;
+      m_aWatchService = null;
+    }
+  }
+
+  /**
+   * @return The differences of the last successful document type reload. May be <code>null</code>.
+   */
+  @Nullable
+  public Diff getLastDocTypeDiff ()
+  {
+    return m_aDocTypes == null ? null : m_aDocTypes.m_aLastDiff;
+  }
+
+  /**
+   * @return The differences of the last successful process reload. May be <code>null</code>.
+   */
+  @Nullable
+  public Diff getLastProcessDiff ()
+  {
+    return m_aProcesses == null ? null : m_aProcesses.m_aLastDiff;
+  }
+
+  @Nonnegative
+  public long getReloadCount ()
+  {
+    return m_aReloads.sum ();
+  }
+
+  @Nonnegative
+  public long getFailureCount ()
+  {
+    return m_aFailures.sum ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("DocTypes", m_aDocTypes == null ? null : m_aDocTypes.m_aPath)
+                                       .append ("Processes", m_aProcesses == null ? null : m_aProcesses.m_aPath)
+                                       .append ("DebounceMillis", m_nDebounceMillis)
+                                       .getToString ();
+  }
+
+  /**
+   * Create a reloader based on the configuration properties <code>nicename.doctypes.file</code>,
+   * <code>nicename.processes.file</code> and <code>nicename.reload.debounce.ms</code>. The
+   * reloader is not started.
+   *
+   * @return <code>null</code> if no nice name file is configured.
+   */
+  @Nullable
+  public static NiceNameReloader createFromConfig ()
+  {
+    final String sDocTypeFile = PeppolSharedConfig.getConfig ().getAsString ("nicename.doctypes.file");
+    final String sProcessFile = PeppolSharedConfig.getConfig ().getAsString ("nicename.processes.file");
+    if (StringHelper.isEmpty (sDocTypeFile) && StringHelper.isEmpty (sProcessFile))
+      return null;
+    return new NiceNameReloader (StringHelper.isEmpty (sDocTypeFile) ? null : new File (sDocTypeFile),
+                                 StringHelper.isEmpty (sProcessFile) ? null : new File (sProcessFile),
+                                 PeppolSharedConfig.getConfig ()
+                                                   .getAsLong ("nicename.reload.debounce.ms", DEFAULT_DEBOUNCE_MILLIS));
+  }
+}
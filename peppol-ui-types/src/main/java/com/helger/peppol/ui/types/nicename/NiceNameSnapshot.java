@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.ui.types.nicename;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.annotation.style.ReturnsImmutableObject;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.string.StringHelper;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.collection.commons.CommonsLinkedHashMap;
+
+/**
+ * An immutable snapshot of all document type and process nice names, as published by
+ * {@link NiceNameManager}. Because a snapshot never changes, it can be read without any locking
+ * and bulk readers can iterate it without copying it.
+ *
+ * @author Philip Helger
+ */
+@Immutable
+public final class NiceNameSnapshot
+{
+  private final Map <String, NiceNameEntry> m_aDocTypeIDs;
+  private final Map <String, NiceNameEntry> m_aProcessIDs;
+  private final PintNiceNameIndex m_aPintIndex;
+  // Lazily created, as only needed for autocompletion
+  private volatile NiceNameAutocompleteIndex m_aAutocompleteIndex;
+
+  private NiceNameSnapshot (@NonNull final Map <String, NiceNameEntry> aDocTypeIDs,
+                            @NonNull final Map <String, NiceNameEntry> aProcessIDs,
+                            @NonNull final PintNiceNameIndex aPintIndex)
+  {
+    m_aDocTypeIDs = aDocTypeIDs;
+    m_aProcessIDs = aProcessIDs;
+    m_aPintIndex = aPintIndex;
+  }
+
+  @NonNull
+  @ReturnsImmutableObject
+  static Map <String, NiceNameEntry> getImmutableCopy (@NonNull final Map <String, NiceNameEntry> aMap)
+  {
+    // The binary index is read-only and stays outside of the heap
+    if (aMap instanceof NiceNameBinaryIndex.Section)
+      return aMap;
+    return Collections.unmodifiableMap (new CommonsLinkedHashMap <> (aMap));
+  }
+
+  /**
+   * @param aDocTypeIDs
+   *        The new document type nice names. May not be <code>null</code>.
+   * @return A new snapshot with the provided document type nice names and the process nice names
+   *         of this snapshot. Never <code>null</code>.
+   */
+  @NonNull
+  public NiceNameSnapshot getWithDocTypeIDs (@NonNull final Map <String, NiceNameEntry> aDocTypeIDs)
+  {
+    ValueEnforcer.notNull (aDocTypeIDs, "DocTypeIDs");
+    // The index creates the immutable copy, which is shared with the snapshot
+    final PintNiceNameIndex aPintIndex = new PintNiceNameIndex (aDocTypeIDs);
+    return new NiceNameSnapshot (aPintIndex.getAllSourceEntries (), m_aProcessIDs, aPintIndex);
+  }
+
+  /**
+   * @param aProcessIDs
+   *        The new process nice names. May not be <code>null</code>.
+   * @return A new snapshot with the document type nice names of this snapshot and the provided
+   *         process nice names. Never <code>null</code>.
+   */
+  @NonNull
+  public NiceNameSnapshot getWithProcessIDs (@NonNull final Map <String, NiceNameEntry> aProcessIDs)
+  {
+    ValueEnforcer.notNull (aProcessIDs, "ProcessIDs");
+    return new NiceNameSnapshot (m_aDocTypeIDs, getImmutableCopy (aProcessIDs), m_aPintIndex);
+  }
+
+  @Nullable
+  public NiceNameEntry getDocTypeNiceName (@Nullable final String sID)
+  {
+    return StringHelper.isEmpty (sID) ? null : m_aDocTypeIDs.get (sID);
+  }
+
+  /**
+   * @param sDocTypeID
+   *        The URI encoded document type ID to resolve. May be <code>null</code>.
+   * @return The PINT enriched nice name entry or <code>null</code>.
+   * @see PintNiceNameIndex#get(String)
+   */
+  @Nullable
+  public NiceNameEntry getPintEnabledNiceNameEntry (@Nullable final String sDocTypeID)
+  {
+    return m_aPintIndex.get (sDocTypeID);
+  }
+
+  @Nullable
+  public NiceNameEntry getProcessNiceName (@Nullable final String sID)
+  {
+    return StringHelper.isEmpty (sID) ? null : m_aProcessIDs.get (sID);
+  }
+
+  /**
+   * @return All document type nice names in the order of the source. Never <code>null</code>.
+   */
+  @NonNull
+  @ReturnsImmutableObject
+  public Map <String, NiceNameEntry> getAllDocumentTypeMappings ()
+  {
+    return m_aDocTypeIDs;
+  }
+
+  /**
+   * @return All process nice names in the order of the source. Never <code>null</code>.
+   */
+  @NonNull
+  @ReturnsImmutableObject
+  public Map <String, NiceNameEntry> getAllProcessMappings ()
+  {
+    return m_aProcessIDs;
+  }
+
+  /**
+   * @return The autocomplete index over the document type and process nice names of this snapshot.
+   *         It is created upon first access. Never <code>null</code>.
+   */
+  @NonNull
+  public NiceNameAutocompleteIndex getAutocompleteIndex ()
+  {
+    NiceNameAutocompleteIndex ret = m_aAutocompleteIndex;
+    if (ret == null)
+    {
+      // Creating it twice concurrently does no harm, as the result is the same
+      ret = new NiceNameAutocompleteIndex (m_aDocTypeIDs, m_aProcessIDs);
+      m_aAutocompleteIndex = ret;
+    }
+    return ret;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("DocTypeIDs", m_aDocTypeIDs.size ())
+                                       .append ("ProcessIDs", m_aProcessIDs.size ())
+                                       .append ("PintIndex", m_aPintIndex)
+                                       .getToString ();
+  }
+
+  /**
+   * Create a new snapshot.
+   *
+   * @param aDocTypeIDs
+   *        The document type nice names. May not be <code>null</code>.
+   * @param aProcessIDs
+   *        The process nice names. May not be <code>null</code>.
+   * @return The new snapshot. Never <code>null</code>.
+   */
+  @NonNull
+  public static NiceNameSnapshot create (@NonNull final Map <String, NiceNameEntry> aDocTypeIDs,
+                                         @NonNull final Map <String, NiceNameEntry> aProcessIDs)
+  {
+    ValueEnforcer.notNull (aDocTypeIDs, "DocTypeIDs");
+    ValueEnforcer.notNull (aProcessIDs, "ProcessIDs");
+    // The index creates the immutable copy, which is shared with the snapshot
+    final PintNiceNameIndex aPintIndex = new PintNiceNameIndex (aDocTypeIDs);
+    return new NiceNameSnapshot (aPintIndex.getAllSourceEntries (), getImmutableCopy (aProcessIDs), aPintIndex);
+  }
+}
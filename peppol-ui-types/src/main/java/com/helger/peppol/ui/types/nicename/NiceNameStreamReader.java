@@ -0,0 +1,241 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.ui.types.nicename;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.annotation.style.ReturnsMutableCopy;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.string.StringParser;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.CommonsLinkedHashMap;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.collection.commons.ICommonsOrderedMap;
+import com.helger.io.resource.IReadableResource;
+import com.helger.peppolid.CIdentifier;
+import com.helger.peppolid.IProcessIdentifier;
+import com.helger.peppolid.peppol.EPeppolCodeListItemState;
+import com.helger.peppolid.peppol.PeppolIdentifierHelper;
+import com.helger.peppolid.simple.process.SimpleProcessIdentifier;
+
+/**
+ * Streaming (StAX) reader for the nice name XML files. It creates the {@link NiceNameEntry} objects
+ * in a single pass without building a DOM first, and it adds the "*" to the customization ID of
+ * wildcard entries via String operations instead of parsing the identifier. The results are
+ * identical to {@link NiceNameManager#readEntries(IReadableResource, boolean)}, except that items
+ * without an ID are ignored.<br>
+ * DTDs and external entities are not supported.
+ *
+ * @author Philip Helger
+ */
+@Immutable
+public final class NiceNameStreamReader
+{
+  static final String PREFIX_WILDCARD = PeppolIdentifierHelper.DOCUMENT_TYPE_SCHEME_PEPPOL_DOCTYPE_WILDCARD +
+                                        CIdentifier.URL_SCHEME_VALUE_SEPARATOR;
+  static final String SPECIAL_LABEL_WILDCARD = "Wildcard";
+
+  private static final Logger LOGGER = LoggerFactory.getLogger (NiceNameStreamReader.class);
+  private static final String PARTS_SEPARATOR = "##";
+  private static final XMLInputFactory XML_INPUT_FACTORY;
+
+  static
+  {
+    XML_INPUT_FACTORY = XMLInputFactory.newFactory ();
+    XML_INPUT_FACTORY.setProperty (XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+    XML_INPUT_FACTORY.setProperty (XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+    XML_INPUT_FACTORY.setProperty (XMLInputFactory.IS_COALESCING, Boolean.FALSE);
+  }
+
+  private NiceNameStreamReader ()
+  {}
+
+  /**
+   * Determine the state of a code list item.
+   *
+   * @param sState
+   *        The value of the "state" attribute. May be <code>null</code>.
+   * @param sDeprecated
+   *        The value of the legacy "deprecated" attribute. May be <code>null</code>.
+   * @return The state and never <code>null</code>.
+   */
+  @NonNull
+  static EPeppolCodeListItemState getState (@Nullable final String sState, @Nullable final String sDeprecated)
+  {
+    final EPeppolCodeListItemState eState = EPeppolCodeListItemState.getFromIDOrNull (sState);
+    if (eState != null)
+      return eState;
+    if (sDeprecated != null)
+    {
+      // Legacy attribute is present
+      return StringParser.parseBool (sDeprecated, false) ? EPeppolCodeListItemState.DEPRECATED
+                                                         : EPeppolCodeListItemState.ACTIVE;
+    }
+    return EPeppolCodeListItemState.ACTIVE;
+  }
+
+  /**
+   * Add a "*" to the end of the customization ID of a wildcard document type ID. The layout of the
+   * value is <code>rootNS::localName##customizationID::version</code>.
+   *
+   * @param sID
+   *        The URI encoded wildcard document type ID. May not be <code>null</code>.
+   * @return The ID with the "*" or the unchanged ID, if the value does not have the expected
+   *         layout.
+   */
+  @NonNull
+  static String getWithWildcardStar (@NonNull final String sID)
+  {
+    final int nValueStart = PREFIX_WILDCARD.length ();
+    final int nPartsSep = sID.indexOf (PARTS_SEPARATOR, nValueStart);
+    if (nPartsSep < 0)
+      return sID;
+
+    // Root namespace and local name must both be present
+    final int nLocalNameSep = sID.lastIndexOf (CIdentifier.URL_SCHEME_VALUE_SEPARATOR, nPartsSep - 1);
+    if (nLocalNameSep <= nValueStart || nLocalNameSep + CIdentifier.URL_SCHEME_VALUE_SEPARATOR.length () >= nPartsSep)
+      return sID;
+
+    // Customization ID and version must both be present
+    final int nCustomizationStart = nPartsSep + PARTS_SEPARATOR.length ();
+    final int nVersionSep = sID.lastIndexOf (CIdentifier.URL_SCHEME_VALUE_SEPARATOR);
+    if (nVersionSep <= nCustomizationStart ||
+        nVersionSep + CIdentifier.URL_SCHEME_VALUE_SEPARATOR.length () >= sID.length ())
+      return sID;
+
+    return sID.substring (0, nVersionSep) + '*' + sID.substring (nVersionSep);
+  }
+
+  @NonNull
+  private static ICommonsOrderedMap <String, NiceNameEntry> _read (@NonNull final XMLStreamReader aReader,
+                                                                   final boolean bReadProcIDs) throws XMLStreamException
+  {
+    final ICommonsOrderedMap <String, NiceNameEntry> ret = new CommonsLinkedHashMap <> ();
+
+    int nDepth = 0;
+    boolean bInItem = false;
+    String sID = null;
+    String sName = null;
+    EPeppolCodeListItemState eState = null;
+    ICommonsList <IProcessIdentifier> aProcIDs = null;
+
+    while (aReader.hasNext ())
+    {
+      final int nEvent = aReader.next ();
+      if (nEvent == XMLStreamConstants.START_ELEMENT)
+      {
+        nDepth++;
+        final String sLocalName = aReader.getLocalName ();
+        if (nDepth == 2 && "item".equals (sLocalName))
+        {
+          bInItem = true;
+          sID = aReader.getAttributeValue (null, "id");
+          sName = aReader.getAttributeValue (null, "name");
+          eState = getState (aReader.getAttributeValue (null, "state"), aReader.getAttributeValue (null, "deprecated"));
+          aProcIDs = bReadProcIDs ? new CommonsArrayList <> () : null;
+        }
+        else
+          if (nDepth == 3 && bInItem && aProcIDs != null && "procid".equals (sLocalName))
+          {
+            aProcIDs.add (new SimpleProcessIdentifier (aReader.getAttributeValue (null, "scheme"),
+                                                       aReader.getAttributeValue (null, "value")));
+          }
+      }
+      else
+        if (nEvent == XMLStreamConstants.END_ELEMENT)
+        {
+          if (nDepth == 2 && bInItem)
+          {
+            if (sID == null)
+              LOGGER.warn ("Ignoring nice name item without 'id' attribute in line " +
+                           aReader.getLocation ().getLineNumber ());
+            else
+            {
+              String sSpecialLabel = null;
+              if (sID.startsWith (PREFIX_WILDCARD))
+              {
+                // The identifiers in the code list are without "*" but the SMP entries need it
+                sSpecialLabel = SPECIAL_LABEL_WILDCARD;
+                sID = getWithWildcardStar (sID);
+              }
+              ret.put (sID, new NiceNameEntry (sName, eState, aProcIDs, sSpecialLabel));
+            }
+            bInItem = false;
+          }
+          nDepth--;
+        }
+    }
+    return ret;
+  }
+
+  /**
+   * Read all nice name entries of the provided resource.
+   *
+   * @param aRes
+   *        The resource to read. May not be <code>null</code>.
+   * @param bReadProcIDs
+   *        <code>true</code> to read the process IDs of each item (for document types).
+   * @return The read entries in the order of the file. Never <code>null</code> but empty if the
+   *         resource does not exist or could not be parsed.
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  public static ICommonsOrderedMap <String, NiceNameEntry> readEntries (@NonNull final IReadableResource aRes,
+                                                                        final boolean bReadProcIDs)
+  {
+    ValueEnforcer.notNull (aRes, "Resource");
+
+    LOGGER.info ("Trying to read nice name entries streaming from '" + aRes.getPath () + "'");
+
+    try (final InputStream aIS = aRes.getInputStream ())
+    {
+      if (aIS == null)
+      {
+        LOGGER.warn ("Failed to open nice name resource '" + aRes.getPath () + "'");
+        return new CommonsLinkedHashMap <> ();
+      }
+
+      final XMLStreamReader aReader = XML_INPUT_FACTORY.createXMLStreamReader (aIS);
+      try
+      {
+        return _read (aReader, bReadProcIDs);
+      }
+      finally
+      {
+        aReader.close ();
+      }
+    }
+    catch (final IOException | XMLStreamException ex)
+    {
+      // Partial results are never returned
+      LOGGER.error ("Failed to read nice name entries from '" + aRes.getPath () + "'", ex);
+      return new CommonsLinkedHashMap <> ();
+    }
+  }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.ui.types.nicename;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.annotation.style.ReturnsImmutableObject;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.string.StringHelper;
+import com.helger.base.string.StringRemove;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.peppolid.CIdentifier;
+import com.helger.peppolid.peppol.PeppolIdentifierHelper;
+
+/**
+ * A precomputed, immutable lookup index for PINT aware document type nice names. It contains the
+ * final (enriched) {@link NiceNameEntry} objects for all document type IDs, so that a lookup is a
+ * single map access without parsing and without allocation:
+ * <ul>
+ * <li>Non PINT document type IDs are resolved directly from the source map.</li>
+ * <li>Every PINT document type ID is contained as is, with the name suffix for an exact or wildcard
+ * match.</li>
+ * <li>For PINT document type IDs without a "*", the variant with a "*" at the end of the
+ * customization ID is contained as well, because that is what SMPs usually register.</li>
+ * <li>PINT wildcard IDs with a "*" at any other position are resolved via a second map with the
+ * "*" removed, which is the only case requiring an allocation.</li>
+ * </ul>
+ * The results are identical to the ones of the previous on-the-fly logic in
+ * {@link NiceNameManager#getPintEnabledNiceNameEntry(com.helger.peppolid.IDocumentTypeIdentifier)}.
+ *
+ * @author Philip Helger
+ */
+@Immutable
+public final class PintNiceNameIndex
+{
+  /** The suffix appended to the names of PINT entries matched exactly */
+  public static final String SUFFIX_PINT_EXACT_MATCH = " (PINT exact match)";
+  /** The suffix appended to the names of PINT entries matched via a wildcard */
+  public static final String SUFFIX_PINT_WILDCARD_MATCH = " (PINT wildcard match)";
+
+  private static final String PREFIX_PINT = PeppolIdentifierHelper.DOCUMENT_TYPE_SCHEME_PEPPOL_DOCTYPE_WILDCARD +
+                                            CIdentifier.URL_SCHEME_VALUE_SEPARATOR;
+
+  /** All source entries - used as is for non PINT document type IDs */
+  private final Map <String, NiceNameEntry> m_aSource;
+  /** URI encoded PINT document type ID to final entry */
+  private final Map <String, NiceNameEntry> m_aPint;
+  /** PINT document type ID without any "*" to the final wildcard entry */
+  private final Map <String, NiceNameEntry> m_aPintWithoutStar;
+  private final int m_nSize;
+
+  /**
+   * Constructor
+   *
+   * @param aDocTypeIDs
+   *        The document type nice names as provided by the code list, with the URI encoded document
+   *        type ID as the key. An immutable copy is used to resolve non PINT entries, so later
+   *        modifications of the provided map have no effect. May not be <code>null</code>.
+   */
+  public PintNiceNameIndex (@NonNull final Map <String, NiceNameEntry> aDocTypeIDs)
+  {
+    ValueEnforcer.notNull (aDocTypeIDs, "DocTypeIDs");
+
+    m_aSource = NiceNameSnapshot.getImmutableCopy (aDocTypeIDs);
+    m_aPint = new HashMap <> ();
+    m_aPintWithoutStar = new HashMap <> ();
+    int nPintSourceCount = 0;
+
+    // Only the PINT entries are looked up, so that the entries of a binary index are not decoded
+    for (final String sID : m_aSource.keySet ())
+    {
+      if (isPintDocTypeID (sID))
+      {
+        final NiceNameEntry aNN = m_aSource.get (sID);
+        nPintSourceCount++;
+        if (isWildcardDocTypeID (sID))
+          m_aPint.put (sID, aNN.withNewName (aNN.getName () + SUFFIX_PINT_WILDCARD_MATCH));
+        else
+        {
+          m_aPint.put (sID, aNN.withNewName (aNN.getName () + SUFFIX_PINT_EXACT_MATCH));
+          m_aPintWithoutStar.put (sID, aNN.withNewName (aNN.getName () + SUFFIX_PINT_WILDCARD_MATCH));
+        }
+      }
+    }
+
+    // Add the star variants, unless the code list explicitly contains them
+    for (final Map.Entry <String, NiceNameEntry> aEntry : m_aPintWithoutStar.entrySet ())
+    {
+      final String sStarID = _getWithStarCustomizationID (aEntry.getKey ());
+      if (sStarID != null)
+        m_aPint.putIfAbsent (sStarID, aEntry.getValue ());
+    }
+    m_nSize = m_aSource.size () - nPintSourceCount + m_aPint.size ();
+  }
+
+  /**
+   * Add a "*" at the end of the customization ID, which is the part before the last "::".
+   *
+   * @param sID
+   *        The URI encoded document type ID. May not be <code>null</code>.
+   * @return <code>null</code> if the ID has an unexpected layout
+   */
+  @Nullable
+  private static String _getWithStarCustomizationID (@NonNull final String sID)
+  {
+    final int nIndex = sID.lastIndexOf (CIdentifier.URL_SCHEME_VALUE_SEPARATOR);
+    if (nIndex <= PREFIX_PINT.length ())
+      return null;
+    return sID.substring (0, nIndex) + '*' + sID.substring (nIndex);
+  }
+
+  /**
+   * Check if the provided URI encoded document type ID uses the PINT wildcard scheme. This is the
+   * String based version of {@link NiceNameManager#isPintDocType(com.helger.peppolid.IDocumentTypeIdentifier)}.
+   *
+   * @param sID
+   *        The URI encoded document type ID. May not be <code>null</code>.
+   * @return <code>true</code> if it is a PINT document type ID
+   */
+  public static boolean isPintDocTypeID (@NonNull final String sID)
+  {
+    // case sensitive
+    return sID.startsWith (PREFIX_PINT);
+  }
+
+  /**
+   * Check if the value of the provided URI encoded document type ID contains a "*" (but not as the
+   * first character). This is the String based version of
+   * {@link NiceNameManager#isWildcardDocType(com.helger.peppolid.IDocumentTypeIdentifier)} for PINT
+   * document type IDs.
+   *
+   * @param sID
+   *        The URI encoded PINT document type ID. May not be <code>null</code>.
+   * @return <code>true</code> if it is a wildcard document type ID
+   */
+  public static boolean isWildcardDocTypeID (@NonNull final String sID)
+  {
+    return sID.indexOf ('*', PREFIX_PINT.length ()) > PREFIX_PINT.length ();
+  }
+
+  /**
+   * Get the PINT enriched nice name entry of the provided document type ID.
+   *
+   * @param sID
+   *        The URI encoded document type ID. May be <code>null</code>.
+   * @return <code>null</code> if no nice name is present.
+   */
+  @Nullable
+  public NiceNameEntry get (@Nullable final String sID)
+  {
+    if (StringHelper.isEmpty (sID))
+      return null;
+
+    if (!isPintDocTypeID (sID))
+      return m_aSource.get (sID);
+
+    NiceNameEntry ret = m_aPint.get (sID);
+    if (ret == null && !m_aPintWithoutStar.isEmpty () && isWildcardDocTypeID (sID))
+    {
+      // "*" at an unexpected position - try the version without the star
+      ret = m_aPintWithoutStar.get (StringRemove.removeAll (sID, '*'));
+    }
+    return ret;
+  }
+
+  /**
+   * @return The immutable copy of the source document type nice names. Never <code>null</code>.
+   */
+  @NonNull
+  @ReturnsImmutableObject
+  Map <String, NiceNameEntry> getAllSourceEntries ()
+  {
+    return m_aSource;
+  }
+
+  /**
+   * @return The number of directly resolvable document type IDs, including the star variants.
+   */
+  @Nonnegative
+  public int size ()
+  {
+    return m_nSize;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Size", m_nSize)
+                                       .append ("Pint", m_aPint.size ())
+                                       .append ("PintWithoutStar", m_aPintWithoutStar.size ())
+                                       .getToString ();
+  }
+}
@@ -16,6 +16,8 @@
  */
 package com.helger.peppol.ui.types.smlconfig;
 
+import java.util.Comparator;
+
 import org.jspecify.annotations.NonNull;
 
 import com.helger.base.id.IHasID;
@@ -30,6 +32,25 @@ public interface ISMLConfiguration extends IHasID <String>, IHasDisplayName
   int PRIO_DEFAULT = 0;
   int PRIO_MAXIMIM = Integer.MAX_VALUE;
 
+  /**
+   * Sort by descending priority, then production before test and finally by ID to be deterministic.
+   */
+  Comparator <ISMLConfiguration> COMPARATOR_BY_PRIORITY = (c1, c2) -> {
+    // Higher priority before lower
+    int ret = Integer.compare (c2.getPriority (), c1.getPriority ());
+    if (ret == 0)
+    {
+      // Production before test
+      ret = Boolean.compare (c2.isProduction (), c1.isProduction ());
+      if (ret == 0)
+      {
+        // to be deterministic
+        ret = c1.getID ().compareTo (c2.getID ());
+      }
+    }
+    return ret;
+  };
+
   /**
    * @return The SML it's all about.
    */
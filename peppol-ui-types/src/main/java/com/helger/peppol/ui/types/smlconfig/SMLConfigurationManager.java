@@ -187,23 +187,7 @@ public final class SMLConfigurationManager extends AbstractPhotonMapBasedWALDAO
   @ReturnsMutableCopy
   public ICommonsList <ISMLConfiguration> getAllSorted ()
   {
-    return getAll ().getSortedInline ( (c1, c2) -> {
-      // Higher priority before lower
-      int ret = c2.getPriority () - c1.getPriority ();
-      if (ret == 0)
-      {
-        // Production before test
-        final int nProd1 = c1.isProduction () ? -1 : +1;
-        final int nProd2 = c2.isProduction () ? -1 : +1;
-        ret = nProd1 - nProd2;
-        if (ret == 0)
-        {
-          // to be deterministic
-          ret = c1.getID ().compareTo (c2.getID ());
-        }
-      }
-      return ret;
-    });
+    return getAll ().getSortedInline (ISMLConfiguration.COMPARATOR_BY_PRIORITY);
   }
 
   @Nullable
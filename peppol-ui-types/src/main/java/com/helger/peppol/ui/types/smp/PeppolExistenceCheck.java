@@ -16,28 +16,276 @@
  */
 package com.helger.peppol.ui.types.smp;
 
+import java.net.InetAddress;
 import java.net.URI;
+import java.time.Duration;
 
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xbill.DNS.ExtendedResolver;
+import org.xbill.DNS.Lookup;
+import org.xbill.DNS.Resolver;
+import org.xbill.DNS.SimpleResolver;
+import org.xbill.DNS.TextParseException;
+import org.xbill.DNS.Type;
 
 import com.helger.annotation.concurrent.Immutable;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.hashcode.HashCodeGenerator;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.config.IConfig;
+import com.helger.peppol.ui.types.cache.ExpiringCache;
+import com.helger.peppol.ui.types.config.PeppolSharedConfig;
 import com.helger.peppolid.IParticipantIdentifier;
+import com.helger.smpclient.url.AbstractBDXLURLProvider;
 import com.helger.smpclient.url.ISMPURLProvider;
 import com.helger.smpclient.url.PeppolNaptrURLProvider;
 import com.helger.smpclient.url.SMPDNSResolutionException;
 
 /**
- * Specific helper classes to check if a Peppol Participant is registered in Peppol or not.
+ * Specific helper classes to check if a Peppol Participant is registered in Peppol or not.<br>
+ * All DNS resolutions are cached in a bounded cache. Successful resolutions are cached for
+ * <code>smp.dns.cache.ttl.seconds</code> (default 60) seconds and definitive negative results
+ * (NXDOMAIN or no NAPTR record) for <code>smp.dns.cache.negative.ttl.seconds</code> (default 10)
+ * seconds. Negative results are only cached for NAPTR based URL providers. Transient failures (e.g.
+ * timeouts or SERVFAIL) are never cached. The cache can be disabled with
+ * <code>smp.dns.cache.enabled=false</code>.
  *
  * @author Philip Helger
  */
 @Immutable
 public final class PeppolExistenceCheck
 {
+  private static final Logger LOGGER = LoggerFactory.getLogger (PeppolExistenceCheck.class);
+
+  public static final long DEFAULT_DNS_CACHE_TTL_SECONDS = 60;
+  public static final long DEFAULT_DNS_CACHE_NEGATIVE_TTL_SECONDS = 10;
+  public static final int DEFAULT_DNS_CACHE_MAX_ENTRIES = 10_000;
+
+  /**
+   * The cache key. The URL provider is compared by identity.
+   */
+  static final class CacheKey
+  {
+    private final ISMPURLProvider m_aURLProvider;
+    private final String m_sParticipantID;
+    private final String m_sSMLZoneName;
+    private final int m_nHashCode;
+
+    CacheKey (@NonNull final ISMPURLProvider aURLProvider,
+              @NonNull final IParticipantIdentifier aParticipantID,
+              @NonNull final String sSMLZoneName)
+    {
+      m_aURLProvider = aURLProvider;
+      m_sParticipantID = aParticipantID.getURIEncoded ();
+      m_sSMLZoneName = sSMLZoneName;
+      m_nHashCode = new HashCodeGenerator (this).append (System.identityHashCode (aURLProvider))
+                                                .append (m_sParticipantID)
+                                                .append (m_sSMLZoneName)
+                                                .getHashCode ();
+    }
+
+    @Override
+    public boolean equals (final Object o)
+    {
+      if (o == this)
+        return true;
+      if (o == null || !getClass ().equals (o.getClass ()))
+        return false;
+      final CacheKey rhs = (CacheKey) o;
+      return m_aURLProvider == rhs.m_aURLProvider &&
+             m_sParticipantID.equals (rhs.m_sParticipantID) &&
+             m_sSMLZoneName.equals (rhs.m_sSMLZoneName);
+    }
+
+    @Override
+    public int hashCode ()
+    {
+      return m_nHashCode;
+    }
+  }
+
+  /**
+   * The cached value - either a URI or an error message.
+   */
+  static final class CacheValue
+  {
+    private final URI m_aURI;
+    private final String m_sErrorMsg;
+
+    CacheValue (@Nullable final URI aURI, @Nullable final String sErrorMsg)
+    {
+      m_aURI = aURI;
+      m_sErrorMsg = sErrorMsg;
+    }
+  }
+
+  /**
+   * Decide if a failed resolution is a definitive "not registered" that may be cached.
+   */
+  @FunctionalInterface
+  interface INotFoundClassifier
+  {
+    boolean isDefinitiveNotFound (@NonNull ISMPURLProvider aSMPURLProvider,
+                                  @NonNull IParticipantIdentifier aParticipantID,
+                                  @NonNull String sSMLZoneName);
+  }
+
+  private static final ExpiringCache <CacheKey, CacheValue> CACHE = new ExpiringCache <> ("SMP DNS resolution",
+                                                                                         PeppolSharedConfig.getConfig ()
+                                                                                                           .getAsInt ("smp.dns.cache.maxentries",
+                                                                                                                      DEFAULT_DNS_CACHE_MAX_ENTRIES));
+
   private PeppolExistenceCheck ()
   {}
 
+  /**
+   * @return The DNS resolution cache, e.g. for accessing the statistics. Never <code>null</code>.
+   */
+  @NonNull
+  public static ExpiringCache <?, ?> getResolutionCache ()
+  {
+    return CACHE;
+  }
+
+  /**
+   * Resolve the SMP URI of a participant using the provided URL provider. Results are cached.
+   *
+   * @param aSMPURLProvider
+   *        The URL provider to use. May not be <code>null</code>.
+   * @param aParticipantID
+   *        The participant ID to resolve. May not be <code>null</code>.
+   * @param sSMLZoneName
+   *        The DNS zone name of the SML to use. May not be <code>null</code>.
+   * @return The resolved SMP URI. Never <code>null</code>.
+   * @throws SMPDNSResolutionException
+   *         If the participant could not be resolved (also from cache)
+   */
+  @NonNull
+  public static URI getSMPURIOfParticipantCached (@NonNull final ISMPURLProvider aSMPURLProvider,
+                                                  @NonNull final IParticipantIdentifier aParticipantID,
+                                                  @NonNull final String sSMLZoneName) throws SMPDNSResolutionException
+  {
+    ValueEnforcer.notNull (aSMPURLProvider, "SMPURLProvider");
+    ValueEnforcer.notNull (aParticipantID, "ParticipantID");
+    ValueEnforcer.notNull (sSMLZoneName, "SMLZoneName");
+
+    final IConfig aConfig = PeppolSharedConfig.getConfig ();
+    if (!aConfig.getAsBoolean ("smp.dns.cache.enabled", true))
+      return aSMPURLProvider.getSMPURIOfParticipant (aParticipantID, sSMLZoneName);
+
+    // The record TTL is not exposed by the URL providers, so the configured
+    // TTLs are used
+    return getSMPURIOfParticipantCached (CACHE,
+                                         aSMPURLProvider,
+                                         aParticipantID,
+                                         sSMLZoneName,
+                                         Duration.ofSeconds (aConfig.getAsLong ("smp.dns.cache.ttl.seconds",
+                                                                                DEFAULT_DNS_CACHE_TTL_SECONDS)),
+                                         Duration.ofSeconds (aConfig.getAsLong ("smp.dns.cache.negative.ttl.seconds",
+                                                                                DEFAULT_DNS_CACHE_NEGATIVE_TTL_SECONDS)),
+                                         PeppolExistenceCheck::_isDefinitiveNotFound);
+  }
+
+  @NonNull
+  static URI getSMPURIOfParticipantCached (@NonNull final ExpiringCache <CacheKey, CacheValue> aCache,
+                                           @NonNull final ISMPURLProvider aSMPURLProvider,
+                                           @NonNull final IParticipantIdentifier aParticipantID,
+                                           @NonNull final String sSMLZoneName,
+                                           @NonNull final Duration aTTL,
+                                           @NonNull final Duration aNegativeTTL,
+                                           @NonNull final INotFoundClassifier aNotFoundClassifier) throws SMPDNSResolutionException
+  {
+    final CacheKey aKey = new CacheKey (aSMPURLProvider, aParticipantID, sSMLZoneName);
+    final CacheValue aCached = aCache.get (aKey);
+    if (aCached != null)
+    {
+      if (aCached.m_aURI != null)
+        return aCached.m_aURI;
+      throw new SMPDNSResolutionException (aCached.m_sErrorMsg);
+    }
+
+    try
+    {
+      final URI ret = aSMPURLProvider.getSMPURIOfParticipant (aParticipantID, sSMLZoneName);
+      aCache.put (aKey, new CacheValue (ret, null), aTTL);
+      return ret;
+    }
+    catch (final SMPDNSResolutionException ex)
+    {
+      // Only remember the failure if the participant is really not registered
+      if (aNotFoundClassifier.isDefinitiveNotFound (aSMPURLProvider, aParticipantID, sSMLZoneName))
+        aCache.put (aKey, new CacheValue (null, ex.getMessage ()), aNegativeTTL);
+      throw ex;
+    }
+  }
+
+  /**
+   * Check if the result of a DNS lookup is a definitive negative answer.
+   *
+   * @param nLookupResult
+   *        The dnsjava {@link Lookup} result code.
+   * @return <code>true</code> for NXDOMAIN and for an existing name without the requested record
+   *         type, <code>false</code> for all transient failures.
+   */
+  static boolean isDefinitiveNotFound (final int nLookupResult)
+  {
+    return nLookupResult == Lookup.HOST_NOT_FOUND || nLookupResult == Lookup.TYPE_NOT_FOUND;
+  }
+
+  @Nullable
+  private static Resolver _getResolver (@NonNull final AbstractBDXLURLProvider aURLProvider)
+  {
+    final ICommonsList <InetAddress> aDNSServers = aURLProvider.customDNSServers ();
+    if (aDNSServers.isEmpty ())
+      return null;
+
+    final ICommonsList <Resolver> aResolvers = new CommonsArrayList <> ();
+    for (final InetAddress aDNSServer : aDNSServers)
+      aResolvers.add (new SimpleResolver (aDNSServer));
+    return new ExtendedResolver (aResolvers);
+  }
+
+  private static boolean _isDefinitiveNotFound (@NonNull final ISMPURLProvider aSMPURLProvider,
+                                                @NonNull final IParticipantIdentifier aParticipantID,
+                                                @NonNull final String sSMLZoneName)
+  {
+    // Only the NAPTR based providers are known to resolve exactly the name
+    // below - for all others it is unknown what "not found" means
+    if (!(aSMPURLProvider instanceof final AbstractBDXLURLProvider aBDXLURLProvider))
+      return false;
+
+    // The URL providers don't expose the DNS response code, so the failed name
+    // is looked up again, with the same DNS servers as the provider. The
+    // default dnsjava cache is used, so negative answers received by the
+    // provider are not queried again
+    try
+    {
+      final String sDNSName = aBDXLURLProvider.getDNSNameOfParticipant (aParticipantID, sSMLZoneName);
+      final Lookup aLookup = new Lookup (sDNSName, Type.NAPTR);
+      final Resolver aResolver = _getResolver (aBDXLURLProvider);
+      if (aResolver != null)
+        aLookup.setResolver (aResolver);
+      aLookup.run ();
+      final int nResult = aLookup.getResult ();
+      if (!isDefinitiveNotFound (nResult))
+        LOGGER.info ("DNS resolution of '" +
+                     sDNSName +
+                     "' failed transiently (" +
+                     aLookup.getErrorString () +
+                     ") - not caching the result");
+      return isDefinitiveNotFound (nResult);
+    }
+    catch (final SMPDNSResolutionException | TextParseException ex)
+    {
+      // A name that cannot be built or parsed will never resolve
+      return true;
+    }
+  }
+
   @Nullable
   public static URI getSMUPRIViaNaptr (@NonNull final ISMPURLProvider aSMPURLProvider,
                                        @NonNull final IParticipantIdentifier aParticipantID,
@@ -45,7 +293,7 @@ public final class PeppolExistenceCheck
   {
     try
     {
-      return aSMPURLProvider.getSMPURIOfParticipant (aParticipantID, sSMLZoneName);
+      return getSMPURIOfParticipantCached (aSMPURLProvider, aParticipantID, sSMLZoneName);
     }
     catch (final SMPDNSResolutionException ex)
     {
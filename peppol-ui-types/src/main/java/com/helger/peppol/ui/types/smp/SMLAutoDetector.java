@@ -0,0 +1,312 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.ui.types.smp;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.peppol.ui.types.config.PeppolSharedConfig;
+import com.helger.peppol.ui.types.smlconfig.ISMLConfiguration;
+
+/**
+ * Concurrent SML auto detection. The resolver (usually a DNS NAPTR lookup) is invoked for all
+ * provided SML configurations in parallel, but the result of the first SML configuration in the
+ * provided order (highest priority) that has a positive result is returned. So a lower priority
+ * result is only used, if all higher priority lookups finished with a negative result.<br>
+ * An overall deadline ensures that a single slow DNS server cannot block the lookup forever. If the
+ * deadline is reached while a higher priority lookup is still pending, the result is reported as
+ * undetermined, because using a lower priority result would make the chosen SML depend on the
+ * latency. The same applies if a lookup could not be scheduled because of overload.
+ *
+ * @author Philip Helger
+ */
+@ThreadSafe
+public final class SMLAutoDetector
+{
+  /** The default overall timeout in milliseconds */
+  public static final long DEFAULT_TIMEOUT_MILLIS = 15_000;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger (SMLAutoDetector.class);
+  private static final AtomicInteger THREAD_COUNTER = new AtomicInteger (0);
+  /** The default maximum number of concurrent lookup threads */
+  public static final int DEFAULT_MAX_THREADS = 32;
+  /** The default maximum number of queued lookups */
+  public static final int DEFAULT_MAX_QUEUE_SIZE = 256;
+
+  private static final ExecutorService EXECUTOR = _createExecutor ();
+
+  /**
+   * The result of an auto detection. It is either a positive result or undetermined, if a higher
+   * priority lookup did not finish in time.
+   *
+   * @author Philip Helger
+   * @param <T>
+   *        The resolver result type
+   */
+  @Immutable
+  public static final class Result <T>
+  {
+    private final ISMLConfiguration m_aSMLConfiguration;
+    private final T m_aResult;
+
+    Result (@Nullable final ISMLConfiguration aSMLConfiguration, @Nullable final T aResult)
+    {
+      m_aSMLConfiguration = aSMLConfiguration;
+      m_aResult = aResult;
+    }
+
+    /**
+     * @return <code>true</code> if the SML could not be determined, because a higher priority lookup
+     *         did not finish within the timeout. In this case there is neither an SML configuration
+     *         nor a result.
+     */
+    public boolean isUndetermined ()
+    {
+      return m_aSMLConfiguration == null;
+    }
+
+    /**
+     * @return The SML configuration that had a positive result. Only <code>null</code> if
+     *         undetermined.
+     */
+    @Nullable
+    public ISMLConfiguration getSMLConfiguration ()
+    {
+      return m_aSMLConfiguration;
+    }
+
+    /**
+     * @return The positive result of the resolver. Only <code>null</code> if undetermined.
+     */
+    @Nullable
+    public T getResult ()
+    {
+      return m_aResult;
+    }
+
+    @Override
+    public String toString ()
+    {
+      return new ToStringGenerator (this).append ("SMLConfiguration",
+                                                  m_aSMLConfiguration == null ? null : m_aSMLConfiguration.getID ())
+                                         .append ("Result", m_aResult)
+                                         .getToString ();
+    }
+
+    @NonNull
+    static <T> Result <T> createUndetermined ()
+    {
+      return new Result <> (null, null);
+    }
+  }
+
+  private SMLAutoDetector ()
+  {}
+
+  @NonNull
+  private static ExecutorService _createExecutor ()
+  {
+    final int nMaxThreads = Math.max (PeppolSharedConfig.getConfig ()
+                                                        .getAsInt ("sml.autodetect.threads", DEFAULT_MAX_THREADS), 1);
+    final int nMaxQueueSize = Math.max (PeppolSharedConfig.getConfig ()
+                                                          .getAsInt ("sml.autodetect.queue.size", DEFAULT_MAX_QUEUE_SIZE),
+                                        1);
+    // If threads and queue are exhausted, the lookup is rejected - running it on the calling thread
+    // would not be bound by the deadline
+    final ThreadPoolExecutor ret = new ThreadPoolExecutor (nMaxThreads,
+                                                           nMaxThreads,
+                                                           60,
+                                                           TimeUnit.SECONDS,
+                                                           new ArrayBlockingQueue <> (nMaxQueueSize),
+                                                           r -> {
+                                                             final Thread aThread = new Thread (r,
+                                                                                                "sml-autodetect-" +
+                                                                                                   THREAD_COUNTER.incrementAndGet ());
+                                                             aThread.setDaemon (true);
+                                                             return aThread;
+                                                           },
+                                                           new ThreadPoolExecutor.AbortPolicy ());
+    ret.allowCoreThreadTimeOut (true);
+    return ret;
+  }
+
+  /**
+   * @return The configured overall timeout for auto detection. Uses the configuration property
+   *         <code>sml.autodetect.timeout.ms</code> and defaults to
+   *         {@link #DEFAULT_TIMEOUT_MILLIS}.
+   */
+  @NonNull
+  public static Duration getConfiguredTimeout ()
+  {
+    return Duration.ofMillis (PeppolSharedConfig.getConfig ()
+                                                .getAsLong ("sml.autodetect.timeout.ms", DEFAULT_TIMEOUT_MILLIS));
+  }
+
+  /**
+   * Run the resolver on all provided SML configurations concurrently, and return the result of the
+   * first SML configuration in the list with a non-<code>null</code> result.
+   *
+   * @param <T>
+   *        The resolver result type
+   * @param aSortedSMLs
+   *        The SML configurations to check, sorted by descending priority. May not be
+   *        <code>null</code>.
+   * @param aResolver
+   *        The resolver to be invoked for each SML configuration. It must return <code>null</code>
+   *        for negative results. Exceptions are considered negative results. May not be
+   *        <code>null</code>.
+   * @param aTimeout
+   *        The overall timeout. May not be <code>null</code>.
+   * @return <code>null</code> if no SML configuration had a positive result. An undetermined result
+   *         (see {@link Result#isUndetermined()}) if a higher priority lookup did not finish within
+   *         the timeout or could not be scheduled.
+   */
+  @Nullable
+  public static <T> Result <T> detect (@NonNull final List <? extends ISMLConfiguration> aSortedSMLs,
+                                       @NonNull final Function <? super ISMLConfiguration, ? extends T> aResolver,
+                                       @NonNull final Duration aTimeout)
+  {
+    ValueEnforcer.notNull (aSortedSMLs, "SortedSMLs");
+    ValueEnforcer.notNull (aResolver, "Resolver");
+    ValueEnforcer.notNull (aTimeout, "Timeout");
+
+    if (aSortedSMLs.isEmpty ())
+      return null;
+
+    final long nDeadlineNanos = System.nanoTime () + aTimeout.toNanos ();
+
+    final ICommonsList <Future <T>> aFutures = new CommonsArrayList <> (aSortedSMLs.size ());
+    for (final ISMLConfiguration aSML : aSortedSMLs)
+    {
+      Future <T> aFuture;
+      try
+      {
+        aFuture = EXECUTOR.submit ( () -> {
+          try
+          {
+            return aResolver.apply (aSML);
+          }
+          catch (final RuntimeException ex)
+          {
+            LOGGER.warn ("Error resolving SML '" + aSML.getID () + "': " + ex.getMessage ());
+            throw ex;
+          }
+        });
+      }
+      catch (final RejectedExecutionException ex)
+      {
+        LOGGER.warn ("SML auto detection is overloaded - cannot resolve SML '" + aSML.getID () + "'");
+        aFuture = null;
+      }
+      aFutures.add (aFuture);
+    }
+
+    try
+    {
+      // Wait in priority order
+      for (int i = 0; i < aFutures.size (); ++i)
+      {
+        final Future <T> aFuture = aFutures.get (i);
+        if (aFuture == null)
+        {
+          // Not scheduled - a lower priority result must not be used
+          return Result.createUndetermined ();
+        }
+
+        final long nRemainingNanos = nDeadlineNanos - System.nanoTime ();
+        final T aValue;
+        try
+        {
+          aValue = aFuture.get (Math.max (nRemainingNanos, 0), TimeUnit.NANOSECONDS);
+        }
+        catch (final ExecutionException ex)
+        {
+          // Negative result
+          continue;
+        }
+        catch (final TimeoutException ex)
+        {
+          LOGGER.warn ("SML auto detection timed out after " +
+                       aTimeout.toMillis () +
+                       " ms waiting for SML '" +
+                       aSortedSMLs.get (i).getID () +
+                       "'");
+          // A lower priority result must not be used, as long as this one is open
+          return Result.createUndetermined ();
+        }
+
+        if (aValue != null)
+          return new Result <> (aSortedSMLs.get (i), aValue);
+      }
+      return null;
+    }
+    catch (final InterruptedException ex)
+    {
+      Thread.currentThread ().interrupt ();
+      return Result.createUndetermined ();
+    }
+    finally
+    {
+      // Lower priority lookups are no longer needed
+      for (final Future <T> aFuture : aFutures)
+        if (aFuture != null)
+          aFuture.cancel (true);
+    }
+  }
+
+  /**
+   * Run the resolver on all provided SML configurations concurrently using the configured timeout.
+   *
+   * @param <T>
+   *        The resolver result type
+   * @param aSortedSMLs
+   *        The SML configurations to check, sorted by descending priority. May not be
+   *        <code>null</code>.
+   * @param aResolver
+   *        The resolver to be invoked for each SML configuration. May not be <code>null</code>.
+   * @return <code>null</code> if no SML configuration had a positive result. An undetermined result
+   *         if a higher priority lookup did not finish within the timeout.
+   * @see #getConfiguredTimeout()
+   */
+  @Nullable
+  public static <T> Result <T> detect (@NonNull final List <? extends ISMLConfiguration> aSortedSMLs,
+                                       @NonNull final Function <? super ISMLConfiguration, ? extends T> aResolver)
+  {
+    return detect (aSortedSMLs, aResolver, getConfiguredTimeout ());
+  }
+}
@@ -0,0 +1,433 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.ui.types.smp;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.annotation.Nonempty;
+import com.helger.annotation.Nonnegative;
+import com.helger.annotation.concurrent.Immutable;
+import com.helger.annotation.concurrent.ThreadSafe;
+import com.helger.annotation.style.ReturnsMutableCopy;
+import com.helger.base.enforce.ValueEnforcer;
+import com.helger.base.timing.StopWatch;
+import com.helger.base.tostring.ToStringGenerator;
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.peppol.ui.types.config.PeppolSharedConfig;
+
+/**
+ * Bounded parallel execution of multiple requests against the same SMP. All tasks run on a shared,
+ * size limited thread pool. Additionally the number of concurrently running requests per SMP host
+ * is limited JVM wide, so that a participant with many document types cannot overload a single
+ * SMP.<br>
+ * The results are returned in the order of the provided keys, independent of the order in which
+ * the requests finished.
+ *
+ * @author Philip Helger
+ */
+@ThreadSafe
+public final class SMPParallelFetcher
+{
+  /** The default maximum number of threads used for all fetches */
+  public static final int DEFAULT_MAX_THREADS = 32;
+  /** The default maximum number of concurrent requests per SMP host */
+  public static final int DEFAULT_MAX_PER_HOST = 8;
+  /** The default overall timeout of a single fetch in milliseconds */
+  public static final long DEFAULT_TIMEOUT_MILLIS = 60_000;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger (SMPParallelFetcher.class);
+  private static final AtomicInteger THREAD_COUNTER = new AtomicInteger (0);
+  private static final ThreadPoolExecutor EXECUTOR;
+  private static final ConcurrentHashMap <String, Semaphore> HOST_PERMITS = new ConcurrentHashMap <> ();
+
+  static
+  {
+    final int nMaxThreads = getConfiguredMaxThreads ();
+    EXECUTOR = new ThreadPoolExecutor (nMaxThreads,
+                                       nMaxThreads,
+                                       60,
+                                       TimeUnit.SECONDS,
+                                       new LinkedBlockingQueue <> (),
+                                       r -> {
+                                         final Thread ret = new Thread (r,
+                                                                        "smp-fetch-" +
+                                                                           THREAD_COUNTER.incrementAndGet ());
+                                         ret.setDaemon (true);
+                                         return ret;
+                                       });
+    // Don't keep idle threads forever
+    EXECUTOR.allowCoreThreadTimeOut (true);
+  }
+
+  /**
+   * A future task that gives back the host permit when it is done. {@link #done()} is invoked
+   * exactly once - also if the task is cancelled while still queued and therefore never runs.
+   *
+   * @param <T>
+   *        Result type
+   */
+  private static final class PermitReleasingTask <T> extends FutureTask <T>
+  {
+    private final Semaphore m_aPermits;
+
+    PermitReleasingTask (@NonNull final Callable <T> aCallable, @NonNull final Semaphore aPermits)
+    {
+      super (aCallable);
+      m_aPermits = aPermits;
+    }
+
+    @Override
+    protected void done ()
+    {
+      m_aPermits.release ();
+    }
+  }
+
+  /**
+   * A single fetch task.
+   *
+   * @author Philip Helger
+   * @param <K>
+   *        Key type
+   * @param <V>
+   *        Value type
+   */
+  @FunctionalInterface
+  public interface IFetchTask <K, V>
+  {
+    /**
+     * Perform the fetch for the provided key.
+     *
+     * @param aKey
+     *        The key to fetch. Never <code>null</code>.
+     * @return The fetched value. May be <code>null</code>.
+     * @throws Exception
+     *         In case of error
+     */
+    @Nullable
+    V fetch (@NonNull K aKey) throws Exception;
+  }
+
+  /**
+   * The result of a single fetch task.
+   *
+   * @author Philip Helger
+   * @param <K>
+   *        Key type
+   * @param <V>
+   *        Value type
+   */
+  @Immutable
+  public static final class Result <K, V>
+  {
+    private final K m_aKey;
+    private final V m_aValue;
+    private final Exception m_aException;
+    private final long m_nDurationMillis;
+
+    Result (@NonNull final K aKey,
+            @Nullable final V aValue,
+            @Nullable final Exception aException,
+            final long nDurationMillis)
+    {
+      m_aKey = aKey;
+      m_aValue = aValue;
+      m_aException = aException;
+      m_nDurationMillis = nDurationMillis;
+    }
+
+    /**
+     * @return The key this result belongs to. Never <code>null</code>.
+     */
+    @NonNull
+    public K getKey ()
+    {
+      return m_aKey;
+    }
+
+    /**
+     * @return The fetched value. May be <code>null</code> if the task returned <code>null</code>
+     *         or if an exception occurred.
+     */
+    @Nullable
+    public V getValue ()
+    {
+      return m_aValue;
+    }
+
+    /**
+     * @return The exception that occurred while fetching. May be <code>null</code>. If the overall
+     *         timeout was exceeded, a {@link TimeoutException} is contained.
+     */
+    @Nullable
+    public Exception getException ()
+    {
+      return m_aException;
+    }
+
+    /**
+     * @return <code>true</code> if an exception is present, <code>false</code> if not.
+     */
+    public boolean hasException ()
+    {
+      return m_aException != null;
+    }
+
+    /**
+     * @return The time the task took in milliseconds, excluding the time waiting for a free slot.
+     */
+    @Nonnegative
+    public long getDurationMillis ()
+    {
+      return m_nDurationMillis;
+    }
+
+    @Override
+    public String toString ()
+    {
+      return new ToStringGenerator (this).append ("Key", m_aKey)
+                                         .append ("Value", m_aValue)
+                                         .append ("Exception", m_aException)
+                                         .append ("DurationMillis", m_nDurationMillis)
+                                         .getToString ();
+    }
+  }
+
+  private SMPParallelFetcher ()
+  {}
+
+  /**
+   * @return The configured maximum number of threads used for all fetches. Uses the configuration
+   *         property <code>smp.parallel.maxthreads</code> and defaults to
+   *         {@link #DEFAULT_MAX_THREADS}.
+   */
+  @Nonnegative
+  public static int getConfiguredMaxThreads ()
+  {
+    return Math.max (1, PeppolSharedConfig.getConfig ().getAsInt ("smp.parallel.maxthreads", DEFAULT_MAX_THREADS));
+  }
+
+  /**
+   * @return The configured maximum number of concurrent requests per SMP host. Uses the
+   *         configuration property <code>smp.parallel.maxperhost</code> and defaults to
+   *         {@link #DEFAULT_MAX_PER_HOST}.
+   */
+  @Nonnegative
+  public static int getConfiguredMaxPerHost ()
+  {
+    return Math.max (1, PeppolSharedConfig.getConfig ().getAsInt ("smp.parallel.maxperhost", DEFAULT_MAX_PER_HOST));
+  }
+
+  /**
+   * @return The configured overall timeout of a single fetch. Uses the configuration property
+   *         <code>smp.parallel.timeout.ms</code> and defaults to {@link #DEFAULT_TIMEOUT_MILLIS}.
+   */
+  @NonNull
+  public static Duration getConfiguredTimeout ()
+  {
+    return Duration.ofMillis (PeppolSharedConfig.getConfig ()
+                                                .getAsLong ("smp.parallel.timeout.ms", DEFAULT_TIMEOUT_MILLIS));
+  }
+
+  /**
+   * @param sHost
+   *        The host to check. May not be <code>null</code>.
+   * @return The number of currently available permits of the provided host.
+   */
+  @Nonnegative
+  static int getAvailablePermits (@NonNull final String sHost)
+  {
+    return _getHostPermits (sHost).availablePermits ();
+  }
+
+  @NonNull
+  private static Semaphore _getHostPermits (@NonNull final String sHost)
+  {
+    return HOST_PERMITS.computeIfAbsent (sHost.toLowerCase (Locale.ROOT),
+                                         k -> new Semaphore (getConfiguredMaxPerHost (), true));
+  }
+
+  /**
+   * Run the provided task for all keys in parallel, limited by the maximum number of concurrent
+   * requests per host.
+   *
+   * @param <K>
+   *        Key type
+   * @param <V>
+   *        Value type
+   * @param sHost
+   *        The host all requests go to. Used to determine the concurrency limit. May neither be
+   *        <code>null</code> nor empty.
+   * @param aKeys
+   *        The keys to fetch. May not be <code>null</code>.
+   * @param aTask
+   *        The task to invoke for each key. Must be thread-safe. May not be <code>null</code>.
+   * @param aTimeout
+   *        The overall timeout for all fetches. May not be <code>null</code>.
+   * @return A list with exactly one result per key, in the same order as the keys. Never
+   *         <code>null</code>.
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  public static <K, V> ICommonsList <Result <K, V>> fetchAll (@NonNull @Nonempty final String sHost,
+                                                             @NonNull final List <? extends K> aKeys,
+                                                             @NonNull final IFetchTask <? super K, ? extends V> aTask,
+                                                             @NonNull final Duration aTimeout)
+  {
+    ValueEnforcer.notEmpty (sHost, "Host");
+    ValueEnforcer.notNull (aKeys, "Keys");
+    ValueEnforcer.notNull (aTask, "Task");
+    ValueEnforcer.notNull (aTimeout, "Timeout");
+
+    final long nDeadlineNanos = System.nanoTime () + aTimeout.toNanos ();
+    final Semaphore aPermits = _getHostPermits (sHost);
+    final ICommonsList <Future <Result <K, V>>> aFutures = new CommonsArrayList <> (aKeys.size ());
+    final ICommonsList <Result <K, V>> ret = new CommonsArrayList <> (aKeys.size ());
+    try
+    {
+      for (final K aKey : aKeys)
+      {
+        // The calling thread waits for a free slot, so that pool threads are never blocked
+        final long nRemainingNanos = nDeadlineNanos - System.nanoTime ();
+        if (!aPermits.tryAcquire (Math.max (nRemainingNanos, 0), TimeUnit.NANOSECONDS))
+        {
+          aFutures.add (null);
+          continue;
+        }
+
+        // The permit is released when the task is done or cancelled
+        final PermitReleasingTask <Result <K, V>> aFutureTask = new PermitReleasingTask <> ( () -> {
+          final StopWatch aSW = StopWatch.createdStarted ();
+          try
+          {
+            final V aValue = aTask.fetch (aKey);
+            return new Result <K, V> (aKey, aValue, null, aSW.stopAndGetMillis ());
+          }
+          catch (final Exception ex)
+          {
+            return new Result <K, V> (aKey, null, ex, aSW.stopAndGetMillis ());
+          }
+        }, aPermits);
+        try
+        {
+          EXECUTOR.execute (aFutureTask);
+        }
+        catch (final RuntimeException ex)
+        {
+          // E.g. rejected execution
+          aPermits.release ();
+          throw ex;
+        }
+        aFutures.add (aFutureTask);
+      }
+
+      // Collect in key order
+      for (int i = 0; i < aKeys.size (); ++i)
+      {
+        final K aKey = aKeys.get (i);
+        final Future <Result <K, V>> aFuture = aFutures.get (i);
+        Result <K, V> aResult = null;
+        if (aFuture != null)
+        {
+          final long nRemainingNanos = nDeadlineNanos - System.nanoTime ();
+          try
+          {
+            aResult = aFuture.get (Math.max (nRemainingNanos, 0), TimeUnit.NANOSECONDS);
+          }
+          catch (final ExecutionException ex)
+          {
+            // Should not happen, as exceptions are caught in the task
+            aResult = new Result <> (aKey, null, ex, 0);
+          }
+          catch (final TimeoutException ex)
+          {
+            // Handled below
+          }
+        }
+        if (aResult == null)
+        {
+          LOGGER.warn ("Fetching '" + aKey + "' from host '" + sHost + "' timed out after " + aTimeout.toMillis () + " ms");
+          aResult = new Result <> (aKey,
+                                   null,
+                                   new TimeoutException ("Timed out after " + aTimeout.toMillis () + " ms"),
+                                   aTimeout.toMillis ());
+        }
+        ret.add (aResult);
+      }
+    }
+    catch (final InterruptedException ex)
+    {
+      Thread.currentThread ().interrupt ();
+      // Fill up the remaining results
+      for (int i = ret.size (); i < aKeys.size (); ++i)
+        ret.add (new Result <> (aKeys.get (i), null, ex, 0));
+    }
+    finally
+    {
+      // Abort everything that is still running
+      for (final Future <Result <K, V>> aFuture : aFutures)
+        if (aFuture != null)
+          aFuture.cancel (true);
+    }
+    return ret;
+  }
+
+  /**
+   * Run the provided task for all keys in parallel using the configured timeout.
+   *
+   * @param <K>
+   *        Key type
+   * @param <V>
+   *        Value type
+   * @param sHost
+   *        The host all requests go to. May neither be <code>null</code> nor empty.
+   * @param aKeys
+   *        The keys to fetch. May not be <code>null</code>.
+   * @param aTask
+   *        The task to invoke for each key. Must be thread-safe. May not be <code>null</code>.
+   * @return A list with exactly one result per key, in the same order as the keys. Never
+   *         <code>null</code>.
+   * @see #getConfiguredTimeout()
+   */
+  @NonNull
+  @ReturnsMutableCopy
+  public static <K, V> ICommonsList <Result <K, V>> fetchAll (@NonNull @Nonempty final String sHost,
+                                                             @NonNull final List <? extends K> aKeys,
+                                                             @NonNull final IFetchTask <? super K, ? extends V> aTask)
+  {
+    return fetchAll (sHost, aKeys, aTask, getConfiguredTimeout ());
+  }
+}
@@ -171,12 +171,13 @@ public class SMPQueryParams
       return ESuccess.FAILURE;
     }
 
-    // Do this as the last action - it's the DNS lookup
+    // Do this as the last action - it's the (cached) DNS lookup
     try
     {
-      aSMPQueryParams.m_aSMPHostURI = aSMPQueryParams.m_aSMPURLProvider.getSMPURIOfParticipant (aSMPQueryParams.m_aParticipantID,
-                                                                                                aSMPQueryParams.getSMLInfo ()
-                                                                                                               .getDNSZone ());
+      aSMPQueryParams.m_aSMPHostURI = PeppolExistenceCheck.getSMPURIOfParticipantCached (aSMPQueryParams.m_aSMPURLProvider,
+                                                                                         aSMPQueryParams.m_aParticipantID,
+                                                                                         aSMPQueryParams.getSMLInfo ()
+                                                                                                        .getDNSZone ());
       if ("https".equals (aSMPQueryParams.m_aSMPHostURI.getScheme ()))
         aSMPQueryParams.m_bTrustAllCerts = true;
       return ESuccess.SUCCESS;
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.ui.types.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.time.Duration;
+
+import org.junit.Test;
+
+/**
+ * Test class for class {@link ExpiringCache}.
+ *
+ * @author Philip Helger
+ */
+public final class ExpiringCacheTest
+{
+  @Test
+  public void testBasic ()
+  {
+    final ExpiringCache <String, String> aCache = new ExpiringCache <> ("test", 2);
+    assertNull (aCache.get ("a"));
+    assertEquals (1, aCache.getMissCount ());
+
+    aCache.put ("a", "A", Duration.ofMinutes (1));
+    assertEquals ("A", aCache.get ("a"));
+    assertEquals (1, aCache.getHitCount ());
+
+    // Not cached at all
+    aCache.put ("b", "B", Duration.ZERO);
+    assertNull (aCache.get ("b"));
+    assertEquals (1, aCache.size ());
+  }
+
+  @Test
+  public void testLRUEviction ()
+  {
+    final ExpiringCache <String, String> aCache = new ExpiringCache <> ("test", 2);
+    aCache.put ("a", "A", Duration.ofMinutes (1));
+    aCache.put ("b", "B", Duration.ofMinutes (1));
+    // Access "a" so that "b" is the eldest
+    assertEquals ("A", aCache.get ("a"));
+    aCache.put ("c", "C", Duration.ofMinutes (1));
+    assertEquals (2, aCache.size ());
+    assertEquals (1, aCache.getEvictionCount ());
+    assertNull (aCache.get ("b"));
+    assertEquals ("A", aCache.get ("a"));
+    assertEquals ("C", aCache.get ("c"));
+  }
+
+  @Test
+  public void testExpiration () throws InterruptedException
+  {
+    final ExpiringCache <String, String> aCache = new ExpiringCache <> ("test", 10);
+    aCache.put ("a", "A", Duration.ofMillis (20));
+    Thread.sleep (50);
+    assertNull (aCache.get ("a"));
+    assertEquals (1, aCache.getExpirationCount ());
+    assertEquals (0, aCache.size ());
+  }
+}
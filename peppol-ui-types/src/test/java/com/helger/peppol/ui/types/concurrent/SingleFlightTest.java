@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.ui.types.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+
+/**
+ * Test class for class {@link SingleFlight}.
+ *
+ * @author Philip Helger
+ */
+public final class SingleFlightTest
+{
+  private static final int THREADS = 10;
+
+  @Test
+  public void testCoalescing () throws Exception
+  {
+    final SingleFlight <String, String> aSF = new SingleFlight <> ("test");
+    final AtomicInteger aInvocations = new AtomicInteger (0);
+    final CountDownLatch aStarted = new CountDownLatch (1);
+    final CountDownLatch aRelease = new CountDownLatch (1);
+
+    final ExecutorService aES = Executors.newFixedThreadPool (THREADS);
+    try
+    {
+      final ICommonsList <Future <String>> aFutures = new CommonsArrayList <> ();
+      // The first call blocks until all others are waiting
+      aFutures.add (aES.submit ( () -> aSF.execute ("key", () -> {
+        aInvocations.incrementAndGet ();
+        aStarted.countDown ();
+        try
+        {
+          aRelease.await ();
+        }
+        catch (final InterruptedException ex)
+        {
+          Thread.currentThread ().interrupt ();
+        }
+        return "value";
+      })));
+      aStarted.await ();
+      for (int i = 1; i < THREADS; ++i)
+        aFutures.add (aES.submit ( () -> aSF.execute ("key", () -> {
+          aInvocations.incrementAndGet ();
+          return "other";
+        })));
+
+      // Wait until all other callers joined the running call
+      while (aSF.getCoalescedCount () < THREADS - 1)
+        Thread.sleep (10);
+      aRelease.countDown ();
+
+      for (final Future <String> aFuture : aFutures)
+        assertEquals ("value", aFuture.get (10, TimeUnit.SECONDS));
+      assertEquals (1, aInvocations.get ());
+      assertEquals (1, aSF.getExecutionCount ());
+      assertEquals (0, aSF.getRunningCount ());
+    }
+    finally
+    {
+      aES.shutdownNow ();
+    }
+
+    // Nothing is cached
+    assertEquals ("next", aSF.execute ("key", () -> "next"));
+  }
+
+  @Test
+  public void testException ()
+  {
+    final SingleFlight <String, String> aSF = new SingleFlight <> ("test");
+    final IllegalStateException aEx = new IllegalStateException ("oops");
+    try
+    {
+      aSF.execute ("key", () -> {
+        throw aEx;
+      });
+      fail ();
+    }
+    catch (final IllegalStateException ex)
+    {
+      assertSame (aEx, ex);
+    }
+    assertEquals (0, aSF.getRunningCount ());
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.ui.types.nicename;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.helger.collection.commons.CommonsLinkedHashMap;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.collection.commons.ICommonsOrderedMap;
+import com.helger.peppolid.peppol.EPeppolCodeListItemState;
+
+/**
+ * Test class for class {@link NiceNameAutocompleteIndex}.
+ *
+ * @author Philip Helger
+ */
+public final class NiceNameAutocompleteIndexTest
+{
+  private static final String INVOICE = "busdox-docid-qns::urn:oasis:names:specification:ubl:schema:xsd:Invoice-2::Invoice##urn:cen.eu:en16931:2017#compliant#urn:fdc:peppol.eu:2017:poacc:billing:3.0::2.1";
+  private static final String CREDIT_NOTE = "busdox-docid-qns::urn:oasis:names:specification:ubl:schema:xsd:CreditNote-2::CreditNote##urn:cen.eu:en16931:2017#compliant#urn:fdc:peppol.eu:2017:poacc:billing:3.0::2.1";
+  private static final String ORDER = "busdox-docid-qns::urn:oasis:names:specification:ubl:schema:xsd:Order-2::Order##urn:fdc:peppol.eu:poacc:trns:order:3::2.1";
+  private static final String BILLING = "cenbii-procid-ubl::urn:fdc:peppol.eu:2017:poacc:billing:01:1.0";
+
+  private static NiceNameAutocompleteIndex _createIndex ()
+  {
+    final ICommonsOrderedMap <String, NiceNameEntry> aDocTypes = new CommonsLinkedHashMap <> ();
+    aDocTypes.put (INVOICE, new NiceNameEntry ("Peppol BIS Billing Invoice", EPeppolCodeListItemState.ACTIVE, null));
+    aDocTypes.put (CREDIT_NOTE,
+                   new NiceNameEntry ("Peppol BIS Billing Credit Note", EPeppolCodeListItemState.ACTIVE, null));
+    aDocTypes.put (ORDER, new NiceNameEntry ("Peppol Order", EPeppolCodeListItemState.DEPRECATED, null));
+    final ICommonsOrderedMap <String, NiceNameEntry> aProcesses = new CommonsLinkedHashMap <> ();
+    aProcesses.put (BILLING, new NiceNameEntry ("Peppol BIS Billing", EPeppolCodeListItemState.ACTIVE, null));
+    return new NiceNameAutocompleteIndex (aDocTypes, aProcesses);
+  }
+
+  @Test
+  public void testByName ()
+  {
+    final NiceNameAutocompleteIndex aIndex = _createIndex ();
+    assertTrue (aIndex.getTermCount () > 0);
+
+    // Name word, case insensitive
+    ICommonsList <NiceNameAutocompleteIndex.Match> aMatches = aIndex.find ("CREDIT", true, true, 10);
+    assertEquals (1, aMatches.size ());
+    assertEquals (CREDIT_NOTE, aMatches.getFirstOrNull ().getID ());
+    assertTrue (aMatches.getFirstOrNull ().isDocumentType ());
+
+    // Full name prefix matches both document types and the process
+    aMatches = aIndex.find ("peppol bis bil", true, true, 10);
+    assertEquals (3, aMatches.size ());
+    // Only processes
+    aMatches = aIndex.find ("peppol bis bil", false, true, 10);
+    assertEquals (1, aMatches.size ());
+    assertEquals (BILLING, aMatches.getFirstOrNull ().getID ());
+    assertFalse (aMatches.getFirstOrNull ().isDocumentType ());
+
+    // Limited
+    assertEquals (2, aIndex.find ("peppol", true, true, 2).size ());
+  }
+
+  @Test
+  public void testByID ()
+  {
+    final NiceNameAutocompleteIndex aIndex = _createIndex ();
+
+    // Without the scheme
+    ICommonsList <NiceNameAutocompleteIndex.Match> aMatches = aIndex.find ("urn:oasis:names:specification:ubl:schema:xsd:Inv",
+                                                                           true,
+                                                                           true,
+                                                                           10);
+    assertEquals (1, aMatches.size ());
+    assertEquals (INVOICE, aMatches.getFirstOrNull ().getID ());
+
+    // Customization ID
+    aMatches = aIndex.find ("urn:fdc:peppol.eu:poacc:trns:order", true, true, 10);
+    assertEquals (1, aMatches.size ());
+    assertEquals (ORDER, aMatches.getFirstOrNull ().getID ());
+
+    // Complete ID ranks before the name matches
+    aMatches = aIndex.find ("busdox-docid-qns::", true, true, 10);
+    assertEquals (3, aMatches.size ());
+    // Active before deprecated, and equal scores are sorted by length
+    assertEquals (INVOICE, aMatches.get (0).getID ());
+    assertEquals (CREDIT_NOTE, aMatches.get (1).getID ());
+    assertEquals (ORDER, aMatches.get (2).getID ());
+  }
+
+  @Test
+  public void testRankingOverManyMatches ()
+  {
+    final ICommonsOrderedMap <String, NiceNameEntry> aProcesses = new CommonsLinkedHashMap <> ();
+    // Many name matches that sort before the better ranked value match
+    for (int i = 0; i < 5_000; ++i)
+      aProcesses.put ("proc::p" + i, new NiceNameEntry ("Te " + i, EPeppolCodeListItemState.ACTIVE, null));
+    aProcesses.put ("proc::tez", new NiceNameEntry ("Other", EPeppolCodeListItemState.ACTIVE, null));
+    final NiceNameAutocompleteIndex aIndex = new NiceNameAutocompleteIndex (new CommonsLinkedHashMap <> (),
+                                                                            aProcesses);
+
+    final ICommonsList <NiceNameAutocompleteIndex.Match> aMatches = aIndex.find ("te", true, true, 3);
+    assertEquals (3, aMatches.size ());
+    assertEquals ("proc::tez", aMatches.get (0).getID ());
+    // Then the name matches with the shortest IDs
+    assertEquals ("proc::p0", aMatches.get (1).getID ());
+    assertEquals ("proc::p1", aMatches.get (2).getID ());
+  }
+
+  @Test
+  public void testNoMatch ()
+  {
+    final NiceNameAutocompleteIndex aIndex = _createIndex ();
+    assertTrue (aIndex.find (null, true, true, 10).isEmpty ());
+    assertTrue (aIndex.find ("", true, true, 10).isEmpty ());
+    assertTrue (aIndex.find ("p", true, true, 10).isEmpty ());
+    assertTrue (aIndex.find ("  ", true, true, 10).isEmpty ());
+    assertTrue (aIndex.find ("xyz", true, true, 10).isEmpty ());
+    assertTrue (aIndex.find ("peppol", false, false, 10).isEmpty ());
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.ui.types.nicename;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.CommonsLinkedHashMap;
+import com.helger.collection.commons.ICommonsOrderedMap;
+import com.helger.peppolid.IProcessIdentifier;
+import com.helger.peppolid.peppol.EPeppolCodeListItemState;
+
+/**
+ * Test class for class {@link NiceNameBinaryIndex}.
+ *
+ * @author Philip Helger
+ */
+public final class NiceNameBinaryIndexTest
+{
+  @Rule
+  public final TemporaryFolder m_aTempFolder = new TemporaryFolder ();
+
+  private static byte [] _write (final Map <String, NiceNameEntry> aDocTypes,
+                                 final Map <String, NiceNameEntry> aProcesses) throws IOException
+  {
+    final ByteArrayOutputStream aBAOS = new ByteArrayOutputStream ();
+    NiceNameBinaryIndexWriter.write (aDocTypes, aProcesses, aBAOS);
+    return aBAOS.toByteArray ();
+  }
+
+  private static void _assertSame (final Map <String, NiceNameEntry> aExpected, final Map <String, NiceNameEntry> aActual)
+  {
+    assertEquals (aExpected.size (), aActual.size ());
+    // Same order
+    assertEquals (new CommonsArrayList <> (aExpected.keySet ()), new CommonsArrayList <> (aActual.keySet ()));
+    for (final Map.Entry <String, NiceNameEntry> aEntry : aExpected.entrySet ())
+    {
+      final NiceNameEntry aExp = aEntry.getValue ();
+      final NiceNameEntry aAct = aActual.get (aEntry.getKey ());
+      assertEquals (aExp, aAct);
+      assertEquals (aExp.getSpecialLabel (), aAct.getSpecialLabel ());
+      assertEquals (aExp.hasProcessIDs (), aAct.hasProcessIDs ());
+      if (aExp.hasProcessIDs ())
+        for (final IProcessIdentifier aProcID : aExp.getAllProcIDs ())
+          assertTrue (aAct.containsProcessID (aProcID));
+    }
+  }
+
+  @Test
+  public void testDefaults () throws IOException
+  {
+    final NiceNameBinaryIndex aIndex = NiceNameBinaryIndex.read (new ByteArrayInputStream (_write (NiceNameDefaults.defaultDocTypes (),
+                                                                                                   NiceNameDefaults.defaultProcesses ())));
+    _assertSame (NiceNameDefaults.defaultDocTypes (), aIndex.getDocTypes ());
+    _assertSame (NiceNameDefaults.defaultProcesses (), aIndex.getProcesses ());
+    assertNull (aIndex.getDocTypes ().get ("busdox-docid-qns::unknown"));
+    assertNull (aIndex.getDocTypes ().get (null));
+    assertFalse (aIndex.getDocTypes ().containsKey ("a"));
+
+    // Recently decoded entries are cached
+    final String sFirstID = aIndex.getDocTypes ().keySet ().iterator ().next ();
+    assertSame (aIndex.getDocTypes ().get (sFirstID), aIndex.getDocTypes ().get (sFirstID));
+    assertTrue (aIndex.getDocTypes ().keySet ().contains (sFirstID));
+
+    // The cache is bounded - an entry in the same slot replaces it
+    if (aIndex.getDocTypes ().size () > NiceNameBinaryIndex.MAX_CACHED_ENTRIES)
+    {
+      final NiceNameEntry aFirst = aIndex.getDocTypes ().get (sFirstID);
+      final String sSameSlotID = new CommonsArrayList <> (aIndex.getDocTypes ().keySet ()).get (NiceNameBinaryIndex.MAX_CACHED_ENTRIES);
+      assertNotNull (aIndex.getDocTypes ().get (sSameSlotID));
+      final NiceNameEntry aFirst2 = aIndex.getDocTypes ().get (sFirstID);
+      assertEquals (aFirst, aFirst2);
+      assertNotSame (aFirst, aFirst2);
+    }
+
+    // Strings are interned
+    assertTrue (aIndex.getStringCount () < aIndex.getDocTypes ().size () * 3 + aIndex.getProcesses ().size () * 3);
+  }
+
+  @Test
+  public void testMapped () throws IOException
+  {
+    final ICommonsOrderedMap <String, NiceNameEntry> aDocTypes = new CommonsLinkedHashMap <> ();
+    // Non-ASCII and unsorted keys
+    aDocTypes.put ("z::1", new NiceNameEntry ("Z", EPeppolCodeListItemState.ACTIVE, new CommonsArrayList <> ()));
+    aDocTypes.put ("a::ä", new NiceNameEntry ("Ä", EPeppolCodeListItemState.DEPRECATED, null, "Wildcard"));
+    aDocTypes.put ("a::b", new NiceNameEntry ("B", EPeppolCodeListItemState.REMOVED, null));
+
+    final File aFile = m_aTempFolder.newFile ("index.bin");
+    Files.write (aFile.toPath (), _write (aDocTypes, new CommonsLinkedHashMap <> ()));
+
+    final NiceNameBinaryIndex aIndex = NiceNameBinaryIndex.map (aFile.toPath ());
+    _assertSame (aDocTypes, aIndex.getDocTypes ());
+    assertEquals (0, aIndex.getProcesses ().size ());
+    assertEquals ("Wildcard", aIndex.getDocTypes ().get ("a::ä").getSpecialLabel ());
+    // Empty list is different from no list
+    assertTrue (aIndex.getDocTypes ().get ("z::1").getAllProcIDs ().isEmpty ());
+    assertNull (aIndex.getDocTypes ().get ("a::b").getAllProcIDs ());
+
+    // Usable as snapshot source
+    final NiceNameSnapshot aSnapshot = NiceNameSnapshot.create (aIndex.getDocTypes (), aIndex.getProcesses ());
+    assertEquals ("B", aSnapshot.getPintEnabledNiceNameEntry ("a::b").getName ());
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testInvalid ()
+  {
+    new NiceNameBinaryIndex (ByteBuffer.wrap (new byte [] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12 }));
+  }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.ui.types.nicename;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.function.BooleanSupplier;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test class for class {@link NiceNameReloader}.
+ *
+ * @author Philip Helger
+ */
+public final class NiceNameReloaderTest
+{
+  @Rule
+  public final TemporaryFolder m_aTempFolder = new TemporaryFolder ();
+
+  @After
+  public void after ()
+  {
+    NiceNameManager.setAllToDefaults ();
+  }
+
+  private static void _write (final File aFile, final String... aItems) throws IOException
+  {
+    final StringBuilder aSB = new StringBuilder ("<root>");
+    for (final String s : aItems)
+      aSB.append (s);
+    aSB.append ("</root>");
+    Files.writeString (aFile.toPath (), aSB.toString (), StandardCharsets.UTF_8);
+  }
+
+  private static void _waitFor (final BooleanSupplier aCondition) throws InterruptedException
+  {
+    // Some file systems only poll for changes every few seconds
+    final long nEnd = System.currentTimeMillis () + 30_000;
+    while (!aCondition.getAsBoolean ())
+    {
+      assertTrue ("Timeout waiting for the reload", System.currentTimeMillis () < nEnd);
+      Thread.sleep (50);
+    }
+  }
+
+  @Test
+  public void testReloadAndDiff () throws IOException
+  {
+    final File aFile = m_aTempFolder.newFile ("processes.xml");
+    _write (aFile, "<item id='a::1' name='A' state='act'/>", "<item id='a::2' name='B' state='act'/>");
+
+    final NiceNameReloader aReloader = new NiceNameReloader (null, aFile, 0);
+    NiceNameReloader.Diff aDiff = aReloader.reloadProcessNamesNow ();
+    assertNotNull (aDiff);
+    assertEquals (2, aDiff.getAddedCount ());
+    assertEquals (2, aDiff.getTotalCount ());
+    assertEquals ("A", NiceNameManager.getProcessNiceName ("a::1").getName ());
+    assertNull (aReloader.reloadDocTypeNamesNow ());
+
+    // One changed, one removed, one added
+    _write (aFile, "<item id='a::1' name='A2' state='act'/>", "<item id='a::3' name='C' state='dep'/>");
+    aDiff = aReloader.reloadProcessNamesNow ();
+    assertNotNull (aDiff);
+    assertEquals (1, aDiff.getAddedCount ());
+    assertEquals (1, aDiff.getRemovedCount ());
+    assertEquals (1, aDiff.getChangedCount ());
+    assertTrue (aDiff.hasChanges ());
+    assertEquals ("A2", NiceNameManager.getProcessNiceName ("a::1").getName ());
+    assertNull (NiceNameManager.getProcessNiceName ("a::2"));
+    assertEquals (2, aReloader.getReloadCount ());
+    assertEquals (0, aReloader.getFailureCount ());
+  }
+
+  @Test
+  public void testKeepOldOnError () throws IOException
+  {
+    final File aFile = m_aTempFolder.newFile ("doctypes.xml");
+    _write (aFile, "<item id='x::1' name='X' state='act'/>");
+
+    final NiceNameReloader aReloader = new NiceNameReloader (aFile, null, 0);
+    assertNotNull (aReloader.reloadDocTypeNamesNow ());
+    assertEquals ("X", NiceNameManager.getDocTypeNiceName ("x::1").getName ());
+
+    // Broken XML
+    Files.writeString (aFile.toPath (), "<root><item", StandardCharsets.UTF_8);
+    assertNull (aReloader.reloadDocTypeNamesNow ());
+    assertEquals ("X", NiceNameManager.getDocTypeNiceName ("x::1").getName ());
+
+    // No entries
+    _write (aFile);
+    assertNull (aReloader.reloadDocTypeNamesNow ());
+    assertEquals ("X", NiceNameManager.getDocTypeNiceName ("x::1").getName ());
+    assertEquals (2, aReloader.getFailureCount ());
+    assertEquals (1, aReloader.getLastDocTypeDiff ().getTotalCount ());
+  }
+
+  @Test
+  public void testStartStop () throws IOException
+  {
+    final File aFile = m_aTempFolder.newFile ("doctypes.xml");
+    _write (aFile, "<item id='x::1' name='X' state='act'/>");
+
+    try (final NiceNameReloader aReloader = new NiceNameReloader (aFile, null, 0))
+    {
+      assertFalse (aReloader.isStarted ());
+      aReloader.start ();
+      assertTrue (aReloader.isStarted ());
+      // Initially loaded
+      assertEquals ("X", NiceNameManager.getDocTypeNiceName ("x::1").getName ());
+    }
+  }
+
+  @Test
+  public void testReloadOnChangeAfterStart () throws Exception
+  {
+    final File aFile = m_aTempFolder.newFile ("doctypes.xml");
+    _write (aFile, "<item id='x::1' name='X' state='act'/>");
+
+    try (final NiceNameReloader aReloader = new NiceNameReloader (aFile, null, 0))
+    {
+      aReloader.start ();
+      assertEquals ("X", NiceNameManager.getDocTypeNiceName ("x::1").getName ());
+
+      _write (aFile, "<item id='x::1' name='X2' state='act'/>");
+      _waitFor ( () -> "X2".equals (NiceNameManager.getDocTypeNiceName ("x::1").getName ()));
+      assertTrue (aReloader.getReloadCount () >= 2);
+    }
+  }
+
+  @Test
+  public void testReloadOnSymlinkSwap () throws Exception
+  {
+    // Layout of a Kubernetes ConfigMap volume
+    final Path aDir = m_aTempFolder.newFolder ("config").toPath ();
+    final Path aVersion1 = Files.createDirectory (aDir.resolve ("..v1"));
+    _write (aVersion1.resolve ("doctypes.xml").toFile (), "<item id='x::1' name='X' state='act'/>");
+    try
+    {
+      Files.createSymbolicLink (aDir.resolve ("..data"), aVersion1.getFileName ());
+      Files.createSymbolicLink (aDir.resolve ("doctypes.xml"), Paths.get ("..data", "doctypes.xml"));
+    }
+    catch (final IOException | UnsupportedOperationException ex)
+    {
+      Assume.assumeNoException ("Symbolic links are not supported", ex);
+    }
+
+    try (final NiceNameReloader aReloader = new NiceNameReloader (aDir.resolve ("doctypes.xml").toFile (), null, 0))
+    {
+      aReloader.start ();
+      assertEquals ("X", NiceNameManager.getDocTypeNiceName ("x::1").getName ());
+
+      // Atomically swap the "..data" link to a new version
+      final Path aVersion2 = Files.createDirectory (aDir.resolve ("..v2"));
+      _write (aVersion2.resolve ("doctypes.xml").toFile (), "<item id='x::1' name='X2' state='act'/>");
+      final Path aTmpLink = Files.createSymbolicLink (aDir.resolve ("..data_tmp"), aVersion2.getFileName ());
+      Files.move (aTmpLink, aDir.resolve ("..data"), StandardCopyOption.ATOMIC_MOVE);
+
+      _waitFor ( () -> "X2".equals (NiceNameManager.getDocTypeNiceName ("x::1").getName ()));
+      assertTrue (aReloader.getReloadCount () >= 2);
+    }
+  }
+}
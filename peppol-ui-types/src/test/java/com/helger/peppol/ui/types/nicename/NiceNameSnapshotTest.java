@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.ui.types.nicename;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import com.helger.collection.commons.CommonsLinkedHashMap;
+import com.helger.collection.commons.ICommonsOrderedMap;
+import com.helger.peppolid.peppol.EPeppolCodeListItemState;
+
+/**
+ * Test class for class {@link NiceNameSnapshot}.
+ *
+ * @author Philip Helger
+ */
+public final class NiceNameSnapshotTest
+{
+  @Test
+  public void testBasic ()
+  {
+    final ICommonsOrderedMap <String, NiceNameEntry> aDocTypes = new CommonsLinkedHashMap <> ();
+    aDocTypes.put ("a::b", new NiceNameEntry ("AB", EPeppolCodeListItemState.ACTIVE, null));
+    final ICommonsOrderedMap <String, NiceNameEntry> aProcesses = new CommonsLinkedHashMap <> ();
+    aProcesses.put ("p::q", new NiceNameEntry ("PQ", EPeppolCodeListItemState.ACTIVE, null));
+
+    final NiceNameSnapshot aSnapshot = NiceNameSnapshot.create (aDocTypes, aProcesses);
+    assertEquals ("AB", aSnapshot.getDocTypeNiceName ("a::b").getName ());
+    assertEquals ("AB", aSnapshot.getPintEnabledNiceNameEntry ("a::b").getName ());
+    assertEquals ("PQ", aSnapshot.getProcessNiceName ("p::q").getName ());
+    assertNull (aSnapshot.getDocTypeNiceName (null));
+    assertNull (aSnapshot.getProcessNiceName ("a::b"));
+
+    // Changes to the source do not change the snapshot
+    aDocTypes.clear ();
+    assertEquals (1, aSnapshot.getAllDocumentTypeMappings ().size ());
+
+    // Replace only the processes
+    final NiceNameSnapshot aSnapshot2 = aSnapshot.getWithProcessIDs (new CommonsLinkedHashMap <> ());
+    assertNotSame (aSnapshot, aSnapshot2);
+    assertSame (aSnapshot.getAllDocumentTypeMappings (), aSnapshot2.getAllDocumentTypeMappings ());
+    assertEquals (0, aSnapshot2.getAllProcessMappings ().size ());
+    assertEquals (1, aSnapshot.getAllProcessMappings ().size ());
+  }
+
+  @Test (expected = UnsupportedOperationException.class)
+  public void testImmutable ()
+  {
+    NiceNameSnapshot.create (new CommonsLinkedHashMap <> (), new CommonsLinkedHashMap <> ())
+                    .getAllDocumentTypeMappings ()
+                    .put ("a", new NiceNameEntry ("A", EPeppolCodeListItemState.ACTIVE, null));
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.ui.types.nicename;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsOrderedMap;
+import com.helger.io.resource.FileSystemResource;
+import com.helger.io.resource.IReadableResource;
+import com.helger.io.resource.inmemory.ReadableResourceString;
+
+/**
+ * Test class for class {@link NiceNameStreamReader}.
+ *
+ * @author Philip Helger
+ */
+public final class NiceNameStreamReaderTest
+{
+  private static void _assertSameAsMicroReader (final IReadableResource aRes, final boolean bReadProcIDs)
+  {
+    final ICommonsOrderedMap <String, NiceNameEntry> aExpected = NiceNameManager.readEntries (aRes, bReadProcIDs);
+    final ICommonsOrderedMap <String, NiceNameEntry> aActual = NiceNameStreamReader.readEntries (aRes, bReadProcIDs);
+    assertTrue (aExpected.isNotEmpty ());
+    // Same order
+    assertEquals (new CommonsArrayList <> (aExpected.keySet ()), new CommonsArrayList <> (aActual.keySet ()));
+    for (final Map.Entry <String, NiceNameEntry> aEntry : aExpected.entrySet ())
+    {
+      final NiceNameEntry aExp = aEntry.getValue ();
+      final NiceNameEntry aAct = aActual.get (aEntry.getKey ());
+      assertEquals (aExp, aAct);
+      assertEquals (aExp.getSpecialLabel (), aAct.getSpecialLabel ());
+      assertEquals (aExp.getAllProcIDs (), aAct.getAllProcIDs ());
+    }
+  }
+
+  @Test
+  public void testCodeLists ()
+  {
+    _assertSameAsMicroReader (new FileSystemResource ("docs/doctypeid-mapping.xml"), true);
+    _assertSameAsMicroReader (new FileSystemResource ("docs/processid-mapping.xml"), false);
+  }
+
+  @Test
+  public void testWildcardStar ()
+  {
+    assertEquals ("peppol-doctype-wildcard::urn:oasis:names:specification:ubl:schema:xsd:Invoice-2::Invoice##urn:peppol:pint:billing-1*::2.1",
+                  NiceNameStreamReader.getWithWildcardStar ("peppol-doctype-wildcard::urn:oasis:names:specification:ubl:schema:xsd:Invoice-2::Invoice##urn:peppol:pint:billing-1::2.1"));
+    // Unexpected layouts are not modified
+    assertEquals ("peppol-doctype-wildcard::abc", NiceNameStreamReader.getWithWildcardStar ("peppol-doctype-wildcard::abc"));
+    assertEquals ("peppol-doctype-wildcard::a::b##c",
+                  NiceNameStreamReader.getWithWildcardStar ("peppol-doctype-wildcard::a::b##c"));
+    assertEquals ("peppol-doctype-wildcard::b##c::1",
+                  NiceNameStreamReader.getWithWildcardStar ("peppol-doctype-wildcard::b##c::1"));
+  }
+
+  @Test
+  public void testInvalid ()
+  {
+    // Broken XML
+    assertTrue (NiceNameStreamReader.readEntries (new ReadableResourceString ("<root><item", StandardCharsets.UTF_8),
+                                                  false)
+                                    .isEmpty ());
+    // External entities are not resolved
+    assertTrue (NiceNameStreamReader.readEntries (new ReadableResourceString ("<!DOCTYPE root [<!ENTITY x SYSTEM 'file:///etc/passwd'>]><root><item id='a::b' name='&x;'/></root>",
+                                                                              StandardCharsets.UTF_8),
+                                                  false)
+                                    .isEmpty ());
+    // Items without ID are ignored
+    final ICommonsOrderedMap <String, NiceNameEntry> aMap = NiceNameStreamReader.readEntries (new ReadableResourceString ("<root><item name='x'/><item id='a::b' name='y' deprecated='true'/></root>",
+                                                                                                                       StandardCharsets.UTF_8),
+                                                                                               false);
+    assertEquals (1, aMap.size ());
+    assertNotNull (aMap.get ("a::b"));
+    assertTrue (aMap.get ("a::b").getState ().isDeprecated ());
+  }
+}
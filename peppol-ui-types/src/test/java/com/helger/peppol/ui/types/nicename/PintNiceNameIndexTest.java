@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.ui.types.nicename;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.helger.collection.commons.CommonsLinkedHashMap;
+import com.helger.collection.commons.ICommonsOrderedMap;
+import com.helger.peppolid.peppol.EPeppolCodeListItemState;
+
+/**
+ * Test class for class {@link PintNiceNameIndex}.
+ *
+ * @author Philip Helger
+ */
+public final class PintNiceNameIndexTest
+{
+  private static final String BIS = "busdox-docid-qns::urn:oasis:names:specification:ubl:schema:xsd:Invoice-2::Invoice##urn:cen.eu:en16931:2017#compliant#urn:fdc:peppol.eu:2017:poacc:billing:3.0::2.1";
+  private static final String PINT = "peppol-doctype-wildcard::urn:oasis:names:specification:ubl:schema:xsd:Invoice-2::Invoice##urn:peppol:pint:billing-1@aunz-1::2.1";
+  private static final String PINT_STAR = "peppol-doctype-wildcard::urn:oasis:names:specification:ubl:schema:xsd:Invoice-2::Invoice##urn:peppol:pint:billing-1@aunz-1*::2.1";
+  private static final String PINT_JP_STAR = "peppol-doctype-wildcard::urn:oasis:names:specification:ubl:schema:xsd:Invoice-2::Invoice##urn:peppol:pint:billing-1@jp-1*::2.1";
+
+  @Test
+  public void testIDChecks ()
+  {
+    assertFalse (PintNiceNameIndex.isPintDocTypeID (BIS));
+    assertTrue (PintNiceNameIndex.isPintDocTypeID (PINT));
+    assertFalse (PintNiceNameIndex.isWildcardDocTypeID (PINT));
+    assertTrue (PintNiceNameIndex.isWildcardDocTypeID (PINT_STAR));
+    assertFalse (PintNiceNameIndex.isWildcardDocTypeID ("peppol-doctype-wildcard::*abc"));
+  }
+
+  @Test
+  public void testLookup ()
+  {
+    final ICommonsOrderedMap <String, NiceNameEntry> aMap = new CommonsLinkedHashMap <> ();
+    aMap.put (BIS, new NiceNameEntry ("BIS Invoice", EPeppolCodeListItemState.ACTIVE, null));
+    aMap.put (PINT, new NiceNameEntry ("A-NZ PINT Invoice", EPeppolCodeListItemState.ACTIVE, null));
+    aMap.put (PINT_JP_STAR, new NiceNameEntry ("JP PINT Invoice", EPeppolCodeListItemState.DEPRECATED, null));
+    final PintNiceNameIndex aIndex = new PintNiceNameIndex (aMap);
+    // 3 entries plus one star variant
+    assertEquals (4, aIndex.size ());
+
+    assertNull (aIndex.get (null));
+    assertNull (aIndex.get (""));
+    assertNull (aIndex.get ("busdox-docid-qns::unknown"));
+
+    // Non PINT - unchanged
+    assertEquals ("BIS Invoice", aIndex.get (BIS).getName ());
+
+    // PINT exact
+    assertEquals ("A-NZ PINT Invoice (PINT exact match)", aIndex.get (PINT).getName ());
+
+    // PINT with star, derived from the entry without star
+    assertEquals ("A-NZ PINT Invoice (PINT wildcard match)", aIndex.get (PINT_STAR).getName ());
+
+    // PINT with star at an unexpected position
+    final NiceNameEntry aNN = aIndex.get (PINT.replace ("billing-1", "billing-1*"));
+    assertNotNull (aNN);
+    assertEquals ("A-NZ PINT Invoice (PINT wildcard match)", aNN.getName ());
+
+    // PINT with star contained in the code list
+    assertEquals ("JP PINT Invoice (PINT wildcard match)", aIndex.get (PINT_JP_STAR).getName ());
+    assertEquals (EPeppolCodeListItemState.DEPRECATED, aIndex.get (PINT_JP_STAR).getState ());
+    // The version without the star is not contained
+    assertNull (aIndex.get (PINT_JP_STAR.replace ("*", "")));
+
+    // No new objects are created on lookup
+    assertSame (aIndex.get (PINT), aIndex.get (PINT));
+    assertSame (aIndex.get (PINT_STAR), aIndex.get (PINT_STAR));
+  }
+
+  @Test
+  public void testExplicitStarEntryWins ()
+  {
+    final ICommonsOrderedMap <String, NiceNameEntry> aMap = new CommonsLinkedHashMap <> ();
+    aMap.put (PINT_STAR, new NiceNameEntry ("Explicit", EPeppolCodeListItemState.ACTIVE, null));
+    aMap.put (PINT, new NiceNameEntry ("Derived", EPeppolCodeListItemState.ACTIVE, null));
+    final PintNiceNameIndex aIndex = new PintNiceNameIndex (aMap);
+    assertEquals (2, aIndex.size ());
+    assertEquals ("Explicit (PINT wildcard match)", aIndex.get (PINT_STAR).getName ());
+    assertEquals ("Derived (PINT exact match)", aIndex.get (PINT).getName ());
+  }
+
+  @Test
+  public void testSourceModification ()
+  {
+    final ICommonsOrderedMap <String, NiceNameEntry> aMap = new CommonsLinkedHashMap <> ();
+    aMap.put (BIS, new NiceNameEntry ("BIS Invoice", EPeppolCodeListItemState.ACTIVE, null));
+    final PintNiceNameIndex aIndex = new PintNiceNameIndex (aMap);
+
+    // Changes of the source map have no effect on the index
+    aMap.remove (BIS);
+    aMap.put ("busdox-docid-qns::new", new NiceNameEntry ("New", EPeppolCodeListItemState.ACTIVE, null));
+    assertEquals ("BIS Invoice", aIndex.get (BIS).getName ());
+    assertNull (aIndex.get ("busdox-docid-qns::new"));
+  }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.ui.types.smp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.junit.Test;
+import org.xbill.DNS.Lookup;
+
+import com.helger.peppol.ui.types.cache.ExpiringCache;
+import com.helger.peppolid.IParticipantIdentifier;
+import com.helger.peppolid.factory.PeppolIdentifierFactory;
+import com.helger.smpclient.url.BDXLURLProvider;
+import com.helger.smpclient.url.SMPDNSResolutionException;
+
+/**
+ * Test class for class {@link PeppolExistenceCheck}.
+ *
+ * @author Philip Helger
+ */
+public final class PeppolExistenceCheckTest
+{
+  private static final IParticipantIdentifier PID = PeppolIdentifierFactory.INSTANCE.createParticipantIdentifierWithDefaultScheme ("9915:test");
+  private static final String ZONE = "acc.edelivery.tech.ec.europa.eu.";
+  private static final Duration TTL = Duration.ofMinutes (1);
+
+  /**
+   * URL provider that counts the resolutions and does not access DNS.
+   */
+  private static final class MockURLProvider extends BDXLURLProvider
+  {
+    private final URI m_aURI;
+    private final AtomicInteger m_aCount = new AtomicInteger (0);
+
+    MockURLProvider (@Nullable final URI aURI)
+    {
+      m_aURI = aURI;
+    }
+
+    @Override
+    @NonNull
+    public URI getSMPURIOfParticipant (@NonNull final IParticipantIdentifier aParticipantID,
+                                       @Nullable final String sSMLZoneName) throws SMPDNSResolutionException
+    {
+      m_aCount.incrementAndGet ();
+      if (m_aURI == null)
+        throw new SMPDNSResolutionException ("not found");
+      return m_aURI;
+    }
+  }
+
+  @NonNull
+  private static URI _resolve (@NonNull final ExpiringCache <PeppolExistenceCheck.CacheKey, PeppolExistenceCheck.CacheValue> aCache,
+                               @NonNull final MockURLProvider aURLProvider,
+                               @NonNull final Duration aNegativeTTL,
+                               final boolean bDefinitiveNotFound) throws SMPDNSResolutionException
+  {
+    return PeppolExistenceCheck.getSMPURIOfParticipantCached (aCache,
+                                                              aURLProvider,
+                                                              PID,
+                                                              ZONE,
+                                                              TTL,
+                                                              aNegativeTTL,
+                                                              (p, i, z) -> bDefinitiveNotFound);
+  }
+
+  private static void _assertNotFound (@NonNull final ExpiringCache <PeppolExistenceCheck.CacheKey, PeppolExistenceCheck.CacheValue> aCache,
+                                       @NonNull final MockURLProvider aURLProvider,
+                                       @NonNull final Duration aNegativeTTL,
+                                       final boolean bDefinitiveNotFound)
+  {
+    try
+    {
+      _resolve (aCache, aURLProvider, aNegativeTTL, bDefinitiveNotFound);
+      fail ();
+    }
+    catch (final SMPDNSResolutionException ex)
+    {
+      // expected
+    }
+  }
+
+  @Test
+  public void testIsDefinitiveNotFound ()
+  {
+    assertTrue (PeppolExistenceCheck.isDefinitiveNotFound (Lookup.HOST_NOT_FOUND));
+    assertTrue (PeppolExistenceCheck.isDefinitiveNotFound (Lookup.TYPE_NOT_FOUND));
+
+    // Transient failures must not be cached
+    assertFalse (PeppolExistenceCheck.isDefinitiveNotFound (Lookup.TRY_AGAIN));
+    assertFalse (PeppolExistenceCheck.isDefinitiveNotFound (Lookup.UNRECOVERABLE));
+    assertFalse (PeppolExistenceCheck.isDefinitiveNotFound (Lookup.SUCCESSFUL));
+  }
+
+  @Test
+  public void testProviderIdentityInKey () throws Exception
+  {
+    final ExpiringCache <PeppolExistenceCheck.CacheKey, PeppolExistenceCheck.CacheValue> aCache = new ExpiringCache <> ("test",
+                                                                                                                      10);
+    final URI aURI = URI.create ("http://smp.example.org");
+    final MockURLProvider aProvider1 = new MockURLProvider (aURI);
+    final MockURLProvider aProvider2 = new MockURLProvider (aURI);
+
+    assertSame (aURI, _resolve (aCache, aProvider1, TTL, true));
+    assertSame (aURI, _resolve (aCache, aProvider1, TTL, true));
+    assertEquals (1, aProvider1.m_aCount.get ());
+
+    // Another provider instance must not use the cached result
+    assertSame (aURI, _resolve (aCache, aProvider2, TTL, true));
+    assertEquals (1, aProvider2.m_aCount.get ());
+    assertEquals (2, aCache.size ());
+  }
+
+  @Test
+  public void testNegativeTTL () throws Exception
+  {
+    final ExpiringCache <PeppolExistenceCheck.CacheKey, PeppolExistenceCheck.CacheValue> aCache = new ExpiringCache <> ("test",
+                                                                                                                      10);
+    final MockURLProvider aProvider = new MockURLProvider (null);
+    final Duration aNegativeTTL = Duration.ofMillis (200);
+
+    _assertNotFound (aCache, aProvider, aNegativeTTL, true);
+    _assertNotFound (aCache, aProvider, aNegativeTTL, true);
+    assertEquals (1, aProvider.m_aCount.get ());
+
+    // After the negative TTL the name is resolved again
+    Thread.sleep (aNegativeTTL.toMillis () + 100);
+    _assertNotFound (aCache, aProvider, aNegativeTTL, true);
+    assertEquals (2, aProvider.m_aCount.get ());
+  }
+
+  @Test
+  public void testTransientFailureNotCached ()
+  {
+    final ExpiringCache <PeppolExistenceCheck.CacheKey, PeppolExistenceCheck.CacheValue> aCache = new ExpiringCache <> ("test",
+                                                                                                                      10);
+    final MockURLProvider aProvider = new MockURLProvider (null);
+
+    _assertNotFound (aCache, aProvider, TTL, false);
+    _assertNotFound (aCache, aProvider, TTL, false);
+    assertEquals (2, aProvider.m_aCount.get ());
+    assertEquals (0, aCache.size ());
+  }
+}
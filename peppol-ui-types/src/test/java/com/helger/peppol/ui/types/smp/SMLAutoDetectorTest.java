@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.ui.types.smp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+
+import org.junit.Test;
+
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+import com.helger.peppol.sml.ESML;
+import com.helger.peppol.ui.types.smlconfig.ISMLConfiguration;
+import com.helger.peppol.ui.types.smlconfig.SMLConfiguration;
+
+/**
+ * Test class for class {@link SMLAutoDetector}.
+ *
+ * @author Philip Helger
+ */
+public final class SMLAutoDetectorTest
+{
+  private static final ICommonsList <ISMLConfiguration> SMLS = new CommonsArrayList <> (SMLConfiguration.createForPeppol (ESML.PEPPOL_PRODUCTION),
+                                                                                         SMLConfiguration.createForPeppol (ESML.PEPPOL_TEST));
+
+  private static void _sleep (final long nMillis)
+  {
+    try
+    {
+      Thread.sleep (nMillis);
+    }
+    catch (final InterruptedException ex)
+    {
+      Thread.currentThread ().interrupt ();
+    }
+  }
+
+  @Test
+  public void testHighestPriorityWins ()
+  {
+    // The higher priority SML is slower, but must still win
+    final SMLAutoDetector.Result <String> aResult = SMLAutoDetector.detect (SMLS, x -> {
+      if (x == SMLS.get (0))
+        _sleep (200);
+      return x.getID ();
+    }, Duration.ofSeconds (10));
+    assertNotNull (aResult);
+    assertFalse (aResult.isUndetermined ());
+    assertEquals (SMLS.get (0).getID (), aResult.getResult ());
+  }
+
+  @Test
+  public void testLowerPriorityIfHigherIsNegative ()
+  {
+    final SMLAutoDetector.Result <String> aResult = SMLAutoDetector.detect (SMLS,
+                                                                            x -> x == SMLS.get (0) ? null : x.getID (),
+                                                                            Duration.ofSeconds (10));
+    assertNotNull (aResult);
+    assertEquals (SMLS.get (1), aResult.getSMLConfiguration ());
+  }
+
+  @Test
+  public void testNoneAndException ()
+  {
+    assertNull (SMLAutoDetector.detect (SMLS, x -> null, Duration.ofSeconds (10)));
+    assertNull (SMLAutoDetector.detect (SMLS, x -> {
+      throw new IllegalStateException ("oops");
+    }, Duration.ofSeconds (10)));
+  }
+
+  @Test
+  public void testTimeoutWithPendingHigherPriority ()
+  {
+    // The lower priority SML answered, but the higher priority one is still pending
+    final SMLAutoDetector.Result <String> aResult = SMLAutoDetector.detect (SMLS, x -> {
+      if (x == SMLS.get (0))
+        _sleep (5_000);
+      return x.getID ();
+    }, Duration.ofMillis (500));
+    assertNotNull (aResult);
+    assertTrue (aResult.isUndetermined ());
+    assertNull (aResult.getSMLConfiguration ());
+    assertNull (aResult.getResult ());
+  }
+
+  @Test
+  public void testTimeoutWithPendingLowerPriority ()
+  {
+    // The higher priority SML answered negatively, the lower priority one is still pending
+    final SMLAutoDetector.Result <String> aResult = SMLAutoDetector.detect (SMLS, x -> {
+      if (x == SMLS.get (0))
+        return null;
+      _sleep (5_000);
+      return x.getID ();
+    }, Duration.ofMillis (500));
+    assertNotNull (aResult);
+    assertTrue (aResult.isUndetermined ());
+  }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2014-2026 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.peppol.ui.types.smp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.helger.collection.commons.CommonsArrayList;
+import com.helger.collection.commons.ICommonsList;
+
+/**
+ * Test class for class {@link SMPParallelFetcher}.
+ *
+ * @author Philip Helger
+ */
+public final class SMPParallelFetcherTest
+{
+  private static void _sleep (final long nMillis)
+  {
+    try
+    {
+      Thread.sleep (nMillis);
+    }
+    catch (final InterruptedException ex)
+    {
+      Thread.currentThread ().interrupt ();
+    }
+  }
+
+  @Test
+  public void testOrderIsKept ()
+  {
+    final ICommonsList <Integer> aKeys = new CommonsArrayList <> ();
+    for (int i = 0; i < 20; ++i)
+      aKeys.add (Integer.valueOf (i));
+
+    // Earlier keys take longer
+    final SMPParallelFetcher.IFetchTask <Integer, String> aTask = x -> {
+      _sleep (100 - x.intValue () * 5);
+      return "v" + x;
+    };
+    final ICommonsList <SMPParallelFetcher.Result <Integer, String>> aResults = SMPParallelFetcher.fetchAll ("order.example.org",
+                                                                                                              aKeys,
+                                                                                                              aTask,
+                                                                                                              Duration.ofSeconds (30));
+    assertEquals (aKeys.size (), aResults.size ());
+    for (int i = 0; i < aKeys.size (); ++i)
+    {
+      assertEquals (aKeys.get (i), aResults.get (i).getKey ());
+      assertEquals ("v" + i, aResults.get (i).getValue ());
+    }
+  }
+
+  @Test
+  public void testMaxPerHost ()
+  {
+    final AtomicInteger aCurrent = new AtomicInteger (0);
+    final AtomicInteger aMax = new AtomicInteger (0);
+    final ICommonsList <Integer> aKeys = new CommonsArrayList <> ();
+    for (int i = 0; i < 3 * SMPParallelFetcher.getConfiguredMaxPerHost (); ++i)
+      aKeys.add (Integer.valueOf (i));
+
+    SMPParallelFetcher.fetchAll ("limit.example.org", aKeys, x -> {
+      aMax.accumulateAndGet (aCurrent.incrementAndGet (), Math::max);
+      _sleep (50);
+      aCurrent.decrementAndGet ();
+      return x;
+    }, Duration.ofSeconds (30));
+    assertTrue (aMax.get () <= SMPParallelFetcher.getConfiguredMaxPerHost ());
+  }
+
+  @Test
+  public void testExceptionAndTimeout ()
+  {
+    final SMPParallelFetcher.IFetchTask <String, String> aTask = x -> {
+      if (x.equals ("error"))
+        throw new IllegalStateException ("oops");
+      _sleep (5_000);
+      return x;
+    };
+    final ICommonsList <SMPParallelFetcher.Result <String, String>> aResults = SMPParallelFetcher.fetchAll ("error.example.org",
+                                                                                                             new CommonsArrayList <> ("error",
+                                                                                                                                      "slow"),
+                                                                                                             aTask,
+                                                                                                             Duration.ofMillis (500));
+    assertEquals (2, aResults.size ());
+    assertNull (aResults.get (0).getValue ());
+    assertTrue (aResults.get (0).getException () instanceof IllegalStateException);
+    assertNull (aResults.get (1).getValue ());
+    assertTrue (aResults.get (1).getException () instanceof TimeoutException);
+  }
+
+  @Test
+  public void testCancelledQueuedTasksReleasePermits () throws Exception
+  {
+    final int nMaxPerHost = SMPParallelFetcher.getConfiguredMaxPerHost ();
+    final ICommonsList <Integer> aKeys = new CommonsArrayList <> ();
+    for (int i = 0; i < nMaxPerHost; ++i)
+      aKeys.add (Integer.valueOf (i));
+
+    // Occupy all pool threads with blocking tasks of other hosts
+    final CountDownLatch aBlock = new CountDownLatch (1);
+    final int nBusyHosts = (SMPParallelFetcher.getConfiguredMaxThreads () + nMaxPerHost - 1) / nMaxPerHost;
+    final ICommonsList <Thread> aBusyThreads = new CommonsArrayList <> ();
+    for (int i = 0; i < nBusyHosts; ++i)
+    {
+      final String sHost = "busy" + i + ".example.org";
+      final Thread aThread = new Thread ( () -> SMPParallelFetcher.fetchAll (sHost, aKeys, x -> {
+        aBlock.await ();
+        return x;
+      }, Duration.ofSeconds (30)));
+      aThread.start ();
+      aBusyThreads.add (aThread);
+    }
+    try
+    {
+      // Give the busy tasks the time to start
+      _sleep (500);
+
+      // All tasks of this host are only queued and get cancelled on timeout
+      final String sHost = "queued.example.org";
+      final ICommonsList <SMPParallelFetcher.Result <Integer, Integer>> aResults = SMPParallelFetcher.fetchAll (sHost,
+                                                                                                                aKeys,
+                                                                                                                x -> x,
+                                                                                                                Duration.ofMillis (300));
+      for (final SMPParallelFetcher.Result <Integer, Integer> aResult : aResults)
+        assertTrue (aResult.getException () instanceof TimeoutException);
+
+      // The host must still be fully usable
+      assertEquals (nMaxPerHost, SMPParallelFetcher.getAvailablePermits (sHost));
+    }
+    finally
+    {
+      aBlock.countDown ();
+      for (final Thread aThread : aBusyThreads)
+        aThread.join ();
+    }
+  }
+}